@@ -0,0 +1,119 @@
+package com.cemeteryProject.ReportsGeneration.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Pide las respuestas del backend comprimidas con gzip y las descomprime al leerlas. El
+ * HttpClient del JDK no lo hace por su cuenta. Las respuestas sin comprimir pasan tal cual.
+ */
+public class CompresionGzip implements ClientHttpRequestInterceptor {
+
+    private final LongAdder respuestasComprimidas = new LongAdder();
+    private final LongAdder bytesRecibidos = new LongAdder();
+    private final LongAdder bytesDescomprimidos = new LongAdder();
+
+    public record Estadisticas(long respuestasComprimidas, long bytesRecibidos, long bytesDescomprimidos) {
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        ClientHttpResponse respuesta = execution.execute(request, body);
+        String codificacion = respuesta.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (codificacion == null || !codificacion.trim().equalsIgnoreCase("gzip")) {
+            return respuesta;
+        }
+        respuestasComprimidas.increment();
+        return new RespuestaDescomprimida(respuesta);
+    }
+
+    public Estadisticas estadisticas() {
+        return new Estadisticas(respuestasComprimidas.sum(), bytesRecibidos.sum(), bytesDescomprimidos.sum());
+    }
+
+    // Quita Content-Encoding y Content-Length, que describen el cuerpo comprimido y no el que se entrega
+    private final class RespuestaDescomprimida implements ClientHttpResponse {
+
+        private final ClientHttpResponse original;
+        private final HttpHeaders headers;
+        private InputStream cuerpo;
+
+        RespuestaDescomprimida(ClientHttpResponse original) {
+            this.original = original;
+            this.headers = new HttpHeaders();
+            this.headers.putAll(original.getHeaders());
+            this.headers.remove(HttpHeaders.CONTENT_ENCODING);
+            this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return original.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return original.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (cuerpo == null) {
+                InputStream recibido = new Contador(original.getBody(), bytesRecibidos);
+                cuerpo = new Contador(new GZIPInputStream(recibido), bytesDescomprimidos);
+            }
+            return cuerpo;
+        }
+
+        @Override
+        public void close() {
+            original.close();
+        }
+    }
+
+    private static final class Contador extends FilterInputStream {
+
+        private final LongAdder bytes;
+
+        Contador(InputStream in, LongAdder bytes) {
+            super(in);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int leido = super.read();
+            if (leido >= 0) {
+                bytes.increment();
+            }
+            return leido;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int leidos = super.read(b, off, len);
+            if (leidos > 0) {
+                bytes.add(leidos);
+            }
+            return leidos;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.cemeteryProject.ReportsGeneration.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limita las peticiones simultáneas al backend y lleva sus estadísticas. Un permiso se toma
+ * al enviar la petición y se devuelve al cerrar la respuesta (después de leer el cuerpo), así
+ * el límite cuenta también las descargas largas. Si no hay permiso dentro de la espera
+ * configurada, la petición se rechaza en lugar de acumular hilos bloqueados.
+ */
+public class MonitorClienteBackend implements ClientHttpRequestInterceptor {
+
+    private final int maxEnVuelo;
+    private final long esperaMs;
+    private final Semaphore permisos;
+
+    private final LongAdder completadas = new LongAdder();
+    private final LongAdder fallidas = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder latenciaTotalMs = new LongAdder();
+    private final Map<String, LongAdder> peticionesPorRuta = new ConcurrentHashMap<>();
+
+    public MonitorClienteBackend(int maxEnVuelo, long esperaMs) {
+        this.maxEnVuelo = maxEnVuelo;
+        this.esperaMs = esperaMs;
+        this.permisos = new Semaphore(maxEnVuelo, true);
+    }
+
+    public record Estadisticas(int maxEnVuelo, int enVuelo, long completadas, long fallidas, long rechazadas,
+                               double latenciaMediaMs, Map<String, Long> peticionesPorRuta) {
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        try {
+            if (!permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                rechazadas.increment();
+                throw new ResourceAccessException("Demasiadas peticiones en curso al backend (máximo " + maxEnVuelo + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Se interrumpió la espera de un permiso para llamar al backend");
+        }
+
+        peticionesPorRuta.computeIfAbsent(request.getURI().getPath(), ruta -> new LongAdder()).increment();
+        long inicio = System.nanoTime();
+        try {
+            return new RespuestaMonitoreada(execution.execute(request, body), inicio);
+        } catch (IOException | RuntimeException e) {
+            fallidas.increment();
+            permisos.release();
+            throw e;
+        }
+    }
+
+    public Estadisticas estadisticas() {
+        long terminadas = completadas.sum();
+        Map<String, Long> porRuta = new TreeMap<>();
+        peticionesPorRuta.forEach((ruta, contador) -> porRuta.put(ruta, contador.sum()));
+        return new Estadisticas(
+            maxEnVuelo,
+            maxEnVuelo - permisos.availablePermits(),
+            terminadas,
+            fallidas.sum(),
+            rechazadas.sum(),
+            terminadas == 0 ? 0 : (double) latenciaTotalMs.sum() / terminadas,
+            porRuta
+        );
+    }
+
+    // Respuesta que devuelve el permiso (una sola vez) cuando RestTemplate la cierra
+    private final class RespuestaMonitoreada implements ClientHttpResponse {
+
+        private final ClientHttpResponse respuesta;
+        private final long inicio;
+        private final AtomicBoolean cerrada = new AtomicBoolean();
+
+        private RespuestaMonitoreada(ClientHttpResponse respuesta, long inicio) {
+            this.respuesta = respuesta;
+            this.inicio = inicio;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return respuesta.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return respuesta.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return respuesta.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return respuesta.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                respuesta.close();
+            } finally {
+                if (cerrada.compareAndSet(false, true)) {
+                    latenciaTotalMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+                    completadas.increment();
+                    permisos.release();
+                }
+            }
+        }
+    }
+}
@@ -1,13 +1,82 @@
 package com.cemeteryProject.ReportsGeneration.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class RestTemplateConfig {
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public MonitorClienteBackend monitorClienteBackend(
+            @Value("${backend.http.max-en-vuelo:32}") int maxEnVuelo,
+            @Value("${backend.http.espera-permiso-ms:2000}") long esperaPermisoMs) {
+        return new MonitorClienteBackend(maxEnVuelo, esperaPermisoMs);
+    }
+
+    @Bean
+    public CompresionGzip compresionGzip() {
+        return new CompresionGzip();
+    }
+
+    /*
+     * Cliente HttpClient del JDK: reutiliza conexiones (keep-alive) entre peticiones y negocia
+     * HTTP/2 cuando el backend lo soporta. El tiempo de lectura se puede ajustar por ruta, p. ej.
+     * backend.http.read-timeout-por-ruta={'/cuerposinhumados': 60000}; el resto usa el general.
+     * Salvo que se desactive, las respuestas se piden comprimidas con gzip. Un tiempo de lectura
+     * vencido siempre llega como ResourceAccessException.
+     */
+    @Bean
+    public RestTemplate restTemplate(
+            MonitorClienteBackend monitorClienteBackend,
+            CompresionGzip compresionGzip,
+            @Value("${backend.http.gzip:true}") boolean gzip,
+            @Value("${backend.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${backend.http.read-timeout-ms:15000}") long readTimeoutMs,
+            @Value("#{${backend.http.read-timeout-por-ruta:{:}}}") Map<String, Long> readTimeoutPorRuta) {
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory(httpClient, readTimeoutMs, readTimeoutPorRuta));
+        // El corte por tiempo va último, pegado a la petición, para que el monitor ya vea el IOException
+        TiempoLecturaAgotado tiempoLecturaAgotado = new TiempoLecturaAgotado();
+        restTemplate.setInterceptors(gzip
+            ? List.of(monitorClienteBackend, compresionGzip, tiempoLecturaAgotado)
+            : List.of(monitorClienteBackend, tiempoLecturaAgotado));
+        return restTemplate;
+    }
+
+    // Una fábrica por tiempo de lectura, todas sobre el mismo HttpClient (y su pool de conexiones)
+    static ClientHttpRequestFactory requestFactory(HttpClient httpClient, long readTimeoutMs, Map<String, Long> readTimeoutPorRuta) {
+        JdkClientHttpRequestFactory general = jdkFactory(httpClient, readTimeoutMs);
+        Map<String, JdkClientHttpRequestFactory> porRuta = new HashMap<>();
+        readTimeoutPorRuta.forEach((ruta, timeout) -> porRuta.put(ruta, jdkFactory(httpClient, timeout)));
+        if (porRuta.isEmpty()) {
+            return general;
+        }
+        return (uri, httpMethod) -> porRuta.entrySet().stream()
+            .filter(entrada -> uri.getPath().endsWith(entrada.getKey()))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElse(general)
+            .createRequest(uri, httpMethod);
+    }
+
+    private static JdkClientHttpRequestFactory jdkFactory(HttpClient httpClient, long readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return factory;
     }
 }
@@ -0,0 +1,30 @@
+package com.cemeteryProject.ReportsGeneration.config;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cuando vence el tiempo de lectura antes de recibir los encabezados, la fábrica del JDK
+ * cancela la petición y deja escapar una CancellationException. Este interceptor la convierte
+ * en HttpTimeoutException, así RestTemplate la informa como ResourceAccessException igual que
+ * cualquier otro fallo de red.
+ */
+public class TiempoLecturaAgotado implements ClientHttpRequestInterceptor {
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        try {
+            return execution.execute(request, body);
+        } catch (CancellationException e) {
+            HttpTimeoutException tiempoAgotado = new HttpTimeoutException("Se agotó el tiempo de lectura de " + request.getURI().getPath());
+            tiempoAgotado.initCause(e);
+            throw tiempoAgotado;
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.cemeteryProject.ReportsGeneration.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+
+    // Tiempo máximo de las respuestas asíncronas (PDF enviados por streaming); 0 o negativo: sin límite
+    @Value("${reportes.descargas.tiempo-maximo-segundos:1800}")
+    private long tiempoMaximoDescargaSegundos;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -14,4 +23,14 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
+
+    /*
+     * Las descargas con StreamingResponseBody corren como peticiones asíncronas; sin un tiempo
+     * explícito se aplica el del contenedor (30 s en Tomcat), que corta las exportaciones largas.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(tiempoMaximoDescargaSegundos > 0
+                ? TimeUnit.SECONDS.toMillis(tiempoMaximoDescargaSegundos) : -1);
+    }
 }
@@ -1,9 +1,10 @@
 package com.cemeteryProject.ReportsGeneration.controllers;
 
-import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
-import com.cemeteryProject.ReportsGeneration.models.DocumentoModel.TipoDocumento;
+import com.cemeteryProject.ReportsGeneration.services.AlmacenPdfService;
+import com.cemeteryProject.ReportsGeneration.services.CubetasTiempo;
+import com.cemeteryProject.ReportsGeneration.services.CubetasTiempo.Granularidad;
 import com.cemeteryProject.ReportsGeneration.services.DocumentoService;
 import com.cemeteryProject.ReportsGeneration.services.ExternalDataService;
 import com.cemeteryProject.ReportsGeneration.services.PdfGeneratorService;
@@ -14,9 +15,11 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -28,55 +31,78 @@ public class DocumentoController {
     private final PdfGeneratorService pdfGeneratorService;
     private final ReporteAnalisisService reporteAnalisisService;
     private final ExternalDataService externalDataService;
+    private final AlmacenPdfService almacenPdfService;
 
     @GetMapping("/descargar")
-    public ResponseEntity<byte[]> generarPdf(@RequestParam(defaultValue = "user-demo") String usuarioId) {
+    public ResponseEntity<byte[]> generarPdf(@RequestParam(defaultValue = "user-demo") String usuarioId,
+                                             @RequestParam(defaultValue = "SEMANA") Granularidad granularidad,
+                                             @RequestParam(defaultValue = "12") int intervalos) throws IOException {
+        // Ventana de las tendencias, p. ej. granularidad=MES&intervalos=60 para los últimos cinco años
+        CubetasTiempo.Ventana ventana;
+        try {
+            ventana = new CubetasTiempo.Ventana(granularidad, intervalos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
         // Construir datos analíticos
-        ReporteAnalisisDTO analisis = reporteAnalisisService.generarAnalisis(usuarioId);
+        ReporteAnalisisDTO analisis = reporteAnalisisService.generarAnalisis(usuarioId, ventana);
 
         // Generar PDF con análisis
         byte[] pdfBytes = pdfGeneratorService.generarReportePDFConAnalisis(analisis);
 
-        // Crear registro del documento con un nombre más bonito
-        DocumentoDTO docDTO = new DocumentoDTO();
-        String formattedDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-        docDTO.setNombre("Reporte del Cementerio | " + formattedDate);
-        docDTO.setFechaGeneracion(LocalDateTime.now());
-        docDTO.setTipo(TipoDocumento.REPORTE);
-        docDTO.setUsuarioId(usuarioId);
-        documentoService.crearDocumento(docDTO);
+        // Guardar el PDF y crear registro del documento con un nombre más bonito
+        AlmacenPdfService.Contenido contenido = pdfBytes != null ? almacenPdfService.guardar(pdfBytes) : null;
+        documentoService.registrarReporte("Reporte del Cementerio", usuarioId, contenido);
 
         // Devolver PDF al cliente
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("reporte", "reporte-cementerio.pdf");
+        headers.set("X-Edad-Datos", String.valueOf(analisis.getEdadDatosSegundos())); // Segundos desde que se calcularon los datos
+        if (analisis.isDatosObsoletos()) {
+            headers.set("X-Datos-Obsoletos", "true"); // El backend no respondió y se usó la última lectura buena
+        }
 
         return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
     }
 
     @GetMapping("/descargar-cuerpos")
-    public ResponseEntity<byte[]> descargarListaCuerpos(@RequestParam(defaultValue = "user-demo") String usuarioId) {
-        // Obtener la lista de cuerpos desde ExternalDataService
-        List<CuerpoInhumadoDTO> cuerpoList = externalDataService.getAllCuerpos();
-
-        // Generar PDF con la lista de cuerpos
-        byte[] pdfBytes = pdfGeneratorService.generarReportePDFCuerpos(cuerpoList);
-
-        // Crear registro del documento con un nombre más bonito
-        DocumentoDTO docDTO = new DocumentoDTO();
-        String formattedDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-        docDTO.setNombre("Lista de Cuerpos | " + formattedDate);
-        docDTO.setFechaGeneracion(LocalDateTime.now());
-        docDTO.setTipo(TipoDocumento.REPORTE);
-        docDTO.setUsuarioId(usuarioId);
-        documentoService.crearDocumento(docDTO);
-
+    public ResponseEntity<StreamingResponseBody> descargarListaCuerpos(@RequestParam(defaultValue = "user-demo") String usuarioId) {
         // Devolver PDF al cliente
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("reporte", "lista-cuerpos.pdf");
 
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        // Cada cuerpo se escribe en el PDF apenas se lee del backend, sin armar la lista; cada página va
+        // directo a la respuesta y, a la vez, al almacén
+        StreamingResponseBody pdfStream = out -> {
+            try (AlmacenPdfService.Escritura escritura = almacenPdfService.nuevaEscritura()) {
+                PdfGeneratorService.EscrituraCuerpos[] pdf = new PdfGeneratorService.EscrituraCuerpos[1];
+                try {
+                    externalDataService.recorrerCuerpos(cuerpo -> {
+                        // El PDF se abre con el primer cuerpo: sin cuerpos no se escribió nada y todavía se puede responder un error
+                        if (pdf[0] == null) {
+                            pdf[0] = pdfGeneratorService.abrirReportePDFCuerpos(escritura.duplicarEn(out));
+                        }
+                        pdf[0].agregar(cuerpo);
+                    });
+                } catch (RuntimeException e) {
+                    if (pdf[0] != null) {
+                        pdf[0].descartar();
+                    }
+                    throw e;
+                }
+                if (pdf[0] == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No hay cuerpos registrados para generar el reporte.");
+                }
+                pdf[0].close();
+                // Crear registro del documento con un nombre más bonito, solo con el PDF ya guardado completo
+                documentoService.registrarReporte("Lista de Cuerpos", usuarioId, escritura.confirmar());
+            }
+        };
+
+        return new ResponseEntity<>(pdfStream, headers, HttpStatus.OK);
     }
 
     @GetMapping
@@ -90,6 +116,32 @@ public class DocumentoController {
         return dto != null ? ResponseEntity.ok(dto) : ResponseEntity.notFound().build();
     }
 
+    // PDF tal como se generó, servido desde el almacén sin cargarlo en memoria
+    @GetMapping("/{id}/contenido")
+    public ResponseEntity<StreamingResponseBody> descargarContenido(@PathVariable String id, WebRequest request) {
+        DocumentoDTO dto = documentoService.obtenerPorId(id);
+        if (dto == null || dto.getHashContenido() == null || !almacenPdfService.existe(dto.getHashContenido())) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // El contenido de un hash nunca cambia: si el cliente ya lo tiene se responde 304 sin enviarlo
+        String etag = "\"" + dto.getHashContenido() + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("reporte", dto.getId() + ".pdf");
+        headers.setETag(etag);
+        if (dto.getTamanoContenido() != null) {
+            headers.setContentLength(dto.getTamanoContenido());
+        }
+
+        StreamingResponseBody pdfStream = out -> almacenPdfService.transferir(dto.getHashContenido(), out);
+        return new ResponseEntity<>(pdfStream, headers, HttpStatus.OK);
+    }
+
     @PostMapping
     public ResponseEntity<DocumentoDTO> crearDocumento(@RequestBody DocumentoDTO dto) {
         DocumentoDTO creado = documentoService.crearDocumento(dto);
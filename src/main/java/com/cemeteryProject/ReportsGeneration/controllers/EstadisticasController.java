@@ -0,0 +1,96 @@
+package com.cemeteryProject.ReportsGeneration.controllers;
+
+import com.cemeteryProject.ReportsGeneration.config.CompresionGzip;
+import com.cemeteryProject.ReportsGeneration.config.MonitorClienteBackend;
+import com.cemeteryProject.ReportsGeneration.services.ChartImageCache;
+import com.cemeteryProject.ReportsGeneration.services.EstadisticasIncrementalesService;
+import com.cemeteryProject.ReportsGeneration.services.ExternalDataService;
+import com.cemeteryProject.ReportsGeneration.services.ReporteAnalisisService;
+import com.cemeteryProject.ReportsGeneration.services.ResumenHistoricoService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/reportes/estadisticas")
+@RequiredArgsConstructor
+public class EstadisticasController {
+
+    private final ChartImageCache chartImageCache;
+    private final ReporteAnalisisService reporteAnalisisService;
+    private final MonitorClienteBackend monitorClienteBackend;
+    private final ExternalDataService externalDataService;
+    private final CompresionGzip compresionGzip;
+    private final EstadisticasIncrementalesService estadisticasIncrementales;
+    private final ResumenHistoricoService resumenHistorico;
+
+    // Aciertos, fallos y uso de memoria de la caché de gráficos
+    @GetMapping("/graficos")
+    public ChartImageCache.Estadisticas estadisticasGraficos() {
+        return chartImageCache.estadisticas();
+    }
+
+    // Antigüedad, aciertos y refrescos de la caché del análisis
+    @GetMapping("/analisis")
+    public ReporteAnalisisService.EstadoCache estadoCacheAnalisis() {
+        return reporteAnalisisService.estadoCache();
+    }
+
+    // Fuerza el recálculo del análisis en la próxima petición (por ejemplo, tras una carga masiva en el backend)
+    @DeleteMapping("/analisis")
+    public ResponseEntity<Void> invalidarCacheAnalisis() {
+        reporteAnalisisService.invalidarCache();
+        return ResponseEntity.noContent().build();
+    }
+
+    // Peticiones en curso, rechazadas y latencia del cliente HTTP hacia el backend de gestión
+    @GetMapping("/backend")
+    public MonitorClienteBackend.Estadisticas estadisticasBackend() {
+        return monitorClienteBackend.estadisticas();
+    }
+
+    // Tamaño, versión y última sincronización de la réplica local de nichos, cuerpos y asignaciones
+    @GetMapping("/replica")
+    public ExternalDataService.EstadoReplica estadoReplica() {
+        return externalDataService.estadoReplica();
+    }
+
+    // Proporción de respuestas 304 y bytes ahorrados por las peticiones condicionales al backend
+    @GetMapping("/condicionales")
+    public ExternalDataService.EstadisticasCondicionales estadisticasCondicionales() {
+        return externalDataService.estadisticasCondicionales();
+    }
+
+    // Lecturas al backend realizadas y cuántas peticiones reutilizaron una lectura en curso
+    @GetMapping("/coalescencia")
+    public ExternalDataService.EstadisticasCoalescencia estadisticasCoalescencia() {
+        return externalDataService.estadisticasCoalescencia();
+    }
+
+    // Estado del circuito hacia el backend y rutas que se están sirviendo con datos obsoletos
+    @GetMapping("/circuito")
+    public ExternalDataService.EstadoCircuito estadoCircuito() {
+        return externalDataService.estadoCircuito();
+    }
+
+    // Respuestas del backend recibidas con gzip y bytes transferidos frente a descomprimidos
+    @GetMapping("/compresion")
+    public CompresionGzip.Estadisticas estadisticasCompresion() {
+        return compresionGzip.estadisticas();
+    }
+
+    // Eventos recibidos y aplicados, recargas completas y filas corregidas en la última
+    @GetMapping("/eventos")
+    public EstadisticasIncrementalesService.EstadoEventos estadoEventos() {
+        return estadisticasIncrementales.estado();
+    }
+
+    // Filas, días resumidos y última actualización del resumen histórico de las tendencias
+    @GetMapping("/resumen")
+    public ResumenHistoricoService.EstadoResumen estadoResumen() {
+        return resumenHistorico.estado();
+    }
+}
@@ -0,0 +1,35 @@
+package com.cemeteryProject.ReportsGeneration.controllers;
+
+import com.cemeteryProject.ReportsGeneration.dtos.EventoDatosDTO;
+import com.cemeteryProject.ReportsGeneration.services.EstadisticasIncrementalesService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/reportes/eventos")
+@RequiredArgsConstructor
+public class EventoDatosController {
+
+    private final EstadisticasIncrementalesService estadisticasIncrementales;
+
+    // Lote de altas, cambios y bajas de cuerpos, nichos y asignaciones enviado por el backend de gestión
+    @PostMapping
+    public ResponseEntity<EstadisticasIncrementalesService.ResultadoEventos> recibir(@RequestBody List<EventoDatosDTO> eventos) {
+        if (!estadisticasIncrementales.habilitado()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return ResponseEntity.ok(estadisticasIncrementales.aplicar(eventos));
+        } catch (IllegalArgumentException e) {
+            // Ningún evento del lote se aplicó
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.cemeteryProject.ReportsGeneration.controllers;
+
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO.EstadoJob;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO.TipoReporte;
+import com.cemeteryProject.ReportsGeneration.services.ReporteJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/reportes/jobs")
+@RequiredArgsConstructor
+public class ReporteJobController {
+
+    private final ReporteJobService reporteJobService;
+
+    @PostMapping
+    public ResponseEntity<ReporteJobDTO> encolar(@RequestParam TipoReporte tipo,
+                                                 @RequestParam(defaultValue = "user-demo") String usuarioId) {
+        try {
+            ReporteJobDTO job = reporteJobService.encolar(tipo, usuarioId);
+            return ResponseEntity.accepted().location(URI.create("/reportes/jobs/" + job.getId())).body(job);
+        } catch (RejectedExecutionException e) {
+            // Cola llena: el cliente debe reintentar más tarde
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReporteJobDTO> obtenerEstado(@PathVariable String id) {
+        ReporteJobDTO job = reporteJobService.obtener(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/{id}/archivo")
+    public ResponseEntity<Resource> descargar(@PathVariable String id) {
+        ReporteJobDTO job = reporteJobService.obtener(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Path archivo = reporteJobService.obtenerArchivo(id);
+        if (job.getEstado() != EstadoJob.COMPLETADO || archivo == null) {
+            // Aún no está listo (o falló): el estado se consulta en /reportes/jobs/{id}
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("reporte", reporteJobService.nombreArchivo(job.getTipo()));
+
+        return new ResponseEntity<>(new FileSystemResource(archivo), headers, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,28 @@
+package com.cemeteryProject.ReportsGeneration.dtos;
+
+import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Proyección de CuerpoInhumadoDTO con lo único que usa el análisis; el resto de los campos se descarta al parsear
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CuerpoAnalisisDTO {
+    public static final String CAMPOS = "idCadaver,estado,fechaIngreso,fechaInhumacion";
+
+    private String idCadaver;
+    private EstadoCuerpo estado;
+    private LocalDateTime fechaIngreso;
+    private LocalDate fechaInhumacion;
+
+    public static CuerpoAnalisisDTO de(CuerpoInhumadoDTO cuerpo) {
+        return new CuerpoAnalisisDTO(cuerpo.getIdCadaver(), cuerpo.getEstado(), cuerpo.getFechaIngreso(), cuerpo.getFechaInhumacion());
+    }
+}
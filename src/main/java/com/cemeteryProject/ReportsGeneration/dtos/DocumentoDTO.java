@@ -15,5 +15,7 @@ public class DocumentoDTO {
     private TipoDocumento tipo; // El tipo de documento (REPORTE, DIGITALIZACION)
     private LocalDateTime fechaGeneracion; // Fecha de generación del documento
     private String usuarioId; // ID del usuario que generó el documento
+    private String hashContenido; // SHA-256 del PDF guardado, si lo hay
+    private Long tamanoContenido; // Tamaño en bytes del PDF guardado
 }
 
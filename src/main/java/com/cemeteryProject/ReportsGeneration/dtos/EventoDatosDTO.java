@@ -0,0 +1,24 @@
+package com.cemeteryProject.ReportsGeneration.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * Cambio en el backend de gestión que este servicio recibe por POST /reportes/eventos.
+ * Para CREADO y ACTUALIZADO viaja la entidad completa; para ELIMINADO basta con el id.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EventoDatosDTO {
+
+    public enum Entidad { CUERPO, NICHO, ASIGNACION }
+
+    public enum Operacion { CREADO, ACTUALIZADO, ELIMINADO }
+
+    private Entidad entidad;
+    private Operacion operacion;
+    private String id; // idCadaver, código del nicho o id de la asignación; si falta se toma de la entidad
+    private CuerpoInhumadoDTO cuerpo;
+    private NichoDTO nicho;
+    private NichoCuerpoDTO asignacion;
+}
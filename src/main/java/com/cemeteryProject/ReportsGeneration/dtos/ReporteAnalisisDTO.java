@@ -2,6 +2,7 @@ package com.cemeteryProject.ReportsGeneration.dtos;
 
 import lombok.Data;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +26,14 @@ public class ReporteAnalisisDTO {
     private Map<String, Long> documentTypes; // Para la distribución de documentos por tipo
     private List<WeeklyData> weeklyDocuments; // Para la tendencia de generación de documentos
     private List<TopUser> topUsers; // Para el top 3 usuarios con más documentos
+    private String periodoTendencias; // Ventana de las tendencias, p. ej. "Últimas 12 Semanas"
+    private String unidadTendencias; // Intervalo de cada punto de las tendencias (Día, Semana o Mes)
+    private LocalDateTime fechaDatos; // Momento en que se calcularon los datos (pueden venir de caché)
+    private long edadDatosSegundos; // Antigüedad de los datos al generar el reporte
+    private boolean datosObsoletos; // Parte de los datos es la última lectura buena porque el backend no respondió
+    private List<OcupacionUbicacion> ocupacionPorUbicacion; // Nichos y cuerpos asignados por ubicación
+    private long asignacionesSinNicho; // Asignaciones cuyo nicho no existe
+    private long asignacionesSinCuerpo; // Asignaciones cuyo cuerpo no existe
 
     // Clase interna para datos semanales (inhumaciones y documentos)
     @Data
@@ -33,6 +42,19 @@ public class ReporteAnalisisDTO {
         private long count;
     }
 
+    // Clase interna para la ocupación de una ubicación (bloque, fila, pabellón...)
+    @Data
+    public static class OcupacionUbicacion {
+        private String ubicacion;
+        private long totalNichos;
+        private long nichosDisponibles;
+        private long nichosOcupados; // Nichos en estado OCUPADO
+        private long nichosMantenimiento;
+        private long nichosConCuerpos; // Nichos con al menos una asignación válida
+        private long cuerposAsignados;
+        private double porcentajeOcupacion; // nichosConCuerpos sobre totalNichos
+    }
+
     // Clase interna para el top 3 usuarios
     @Data
     public static class TopUser {
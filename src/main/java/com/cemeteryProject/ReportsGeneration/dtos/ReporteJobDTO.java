@@ -0,0 +1,29 @@
+package com.cemeteryProject.ReportsGeneration.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL) // Solo incluye los campos no nulos en la respuesta JSON
+public class ReporteJobDTO {
+
+    private String id; // Identificador del trabajo, para consultar su estado y descargar el archivo
+    private TipoReporte tipo; // Reporte que se genera (ANALISIS, CUERPOS)
+    private EstadoJob estado; // Estado actual del trabajo
+    private int progreso; // Avance aproximado, de 0 a 100
+    private String usuarioId; // ID del usuario que pidió el reporte
+    private LocalDateTime fechaCreacion; // Momento en que se encoló
+    private LocalDateTime fechaFinalizacion; // Momento en que terminó (bien o con error)
+    private String error; // Motivo del fallo, si lo hubo
+    private String documentoId; // Documento registrado al completarse; su PDF queda en /reportes/{documentoId}/contenido
+
+    public enum TipoReporte {
+        ANALISIS, CUERPOS
+    }
+
+    public enum EstadoJob {
+        EN_COLA, EN_PROCESO, COMPLETADO, FALLIDO
+    }
+}
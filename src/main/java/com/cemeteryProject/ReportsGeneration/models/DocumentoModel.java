@@ -30,6 +30,13 @@ public class DocumentoModel {
     @Column(name = "usuario_id", length = 36, nullable = false)
     private String usuarioId;
 
+    // SHA-256 del PDF en el almacén de contenido; nulo para documentos sin archivo guardado
+    @Column(name = "hash_contenido", length = 64)
+    private String hashContenido;
+
+    @Column(name = "tamano_contenido")
+    private Long tamanoContenido;
+
     @PrePersist
     public void generateId() {
         // Generar el código automáticamente como un String
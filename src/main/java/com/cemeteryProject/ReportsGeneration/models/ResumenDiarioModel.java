@@ -0,0 +1,65 @@
+package com.cemeteryProject.ReportsGeneration.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Conteo de una métrica en un rango de días, por estado del cuerpo o tipo de documento. Los días
+ * recientes tienen una fila por día; los más antiguos se compactan en filas por semana y por mes.
+ */
+@Entity
+@Table(name = "resumen_diario", indexes = @Index(name = "idx_resumen_fecha_fin", columnList = "fecha_fin"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenDiarioModel {
+
+    @Id
+    @Column(name = "id_resumen", unique = true, nullable = false)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "periodo", length = 10, nullable = false)
+    private Periodo periodo;
+
+    @Column(name = "fecha_inicio", nullable = false)
+    private LocalDate fechaInicio;
+
+    // Último día incluido
+    @Column(name = "fecha_fin", nullable = false)
+    private LocalDate fechaFin;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metrica", length = 15, nullable = false)
+    private Metrica metrica;
+
+    // Estado del cuerpo o tipo de documento
+    @Column(name = "categoria", length = 30, nullable = false)
+    private String categoria;
+
+    @Column(name = "cantidad", nullable = false)
+    private long cantidad;
+
+    @PrePersist
+    public void generateId() {
+        if (this.id == null) {
+            this.id = UUID.randomUUID().toString();
+        }
+    }
+
+    public enum Periodo {
+        DIA,
+        SEMANA,
+        MES
+    }
+
+    public enum Metrica {
+        INHUMACION,
+        EXHUMACION,
+        INGRESO,
+        DOCUMENTO
+    }
+}
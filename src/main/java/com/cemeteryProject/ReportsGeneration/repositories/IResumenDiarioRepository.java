@@ -0,0 +1,30 @@
+package com.cemeteryProject.ReportsGeneration.repositories;
+
+import com.cemeteryProject.ReportsGeneration.models.ResumenDiarioModel;
+import com.cemeteryProject.ReportsGeneration.models.ResumenDiarioModel.Metrica;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface IResumenDiarioRepository extends JpaRepository<ResumenDiarioModel, String> {
+
+    // Filas que terminan en (desde, hasta)
+    @Query("select r from ResumenDiarioModel r where r.metrica in :metricas and r.fechaFin > :desde and r.fechaFin < :hasta")
+    List<ResumenDiarioModel> buscarTerminadasEntre(@Param("metricas") Collection<Metrica> metricas,
+                                                   @Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("select max(r.fechaFin) from ResumenDiarioModel r")
+    LocalDate ultimoDiaResumido();
+
+    // Reemplaza el resumen entero en una transacción, así nunca se lee a medio escribir
+    @Transactional
+    default void reemplazar(List<ResumenDiarioModel> filas) {
+        deleteAllInBatch();
+        saveAll(filas);
+    }
+}
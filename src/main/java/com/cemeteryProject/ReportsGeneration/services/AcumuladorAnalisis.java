@@ -0,0 +1,353 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+/**
+ * Acumula todas las métricas del análisis en una sola pasada por cada conjunto de datos
+ * (cuerpos, nichos y documentos). Dos acumuladores con la misma referencia temporal se pueden
+ * combinar en cualquier agrupación con el mismo resultado, así un conjunto grande se reparte en
+ * tramos que se acumulan por separado en un ForkJoinPool.
+ */
+final class AcumuladorAnalisis {
+
+    private static final EstadoCuerpo[] ESTADOS = EstadoCuerpo.values();
+
+    /*
+     * Límites calculados una sola vez a partir del mismo "ahora" para todos los tramos. Los días
+     * anteriores a desdeDiaTendencias ya vienen resumidos y no se reparten en las tendencias.
+     */
+    private record Referencia(LocalDateTime ahora, int unMesAtras, CubetasTiempo cubetas, int desdeDiaTendencias) {
+
+        static Referencia de(LocalDateTime ahora, CubetasTiempo.Ventana ventana, int desdeDiaTendencias) {
+            return new Referencia(ahora, ColumnasCuerpos.dia(ahora.toLocalDate().minusMonths(1)), new CubetasTiempo(ventana, ahora),
+                desdeDiaTendencias);
+        }
+    }
+
+    // Sin resumen: todas las fechas se reparten en las tendencias
+    static final int SIN_RESUMEN = Integer.MIN_VALUE;
+
+    private final Referencia referencia;
+
+    // Cuerpos
+    private long totalCuerpos;
+    private long cuerposRecientes;
+    private final long[] conteoMensual = new long[12];
+    private final long[] conteoPorEstado = new long[ESTADOS.length];
+    private final long[] inhumacionesPorIntervalo;
+
+    // Nichos
+    private long totalNichos;
+    private long nichosDisponibles;
+    private final Map<String, Long> estadoNichos = new LinkedHashMap<>();
+
+    // Documentos: los mapas conservan el orden de primera aparición, que se mantiene al combinar
+    private final Map<String, Long> tiposDocumento = new LinkedHashMap<>();
+    private final long[] documentosPorIntervalo;
+    private final Map<String, Long> documentosPorUsuario = new LinkedHashMap<>();
+
+    AcumuladorAnalisis(LocalDateTime ahora, CubetasTiempo.Ventana ventana) {
+        this(ahora, ventana, SIN_RESUMEN);
+    }
+
+    AcumuladorAnalisis(LocalDateTime ahora, CubetasTiempo.Ventana ventana, int desdeDiaTendencias) {
+        this(Referencia.de(ahora, ventana, desdeDiaTendencias));
+    }
+
+    private AcumuladorAnalisis(Referencia referencia) {
+        this.referencia = referencia;
+        this.inhumacionesPorIntervalo = new long[referencia.cubetas().cantidad()];
+        this.documentosPorIntervalo = new long[referencia.cubetas().cantidad()];
+    }
+
+    void agregarCuerpo(ColumnasCuerpos cuerpos, int i) {
+        int inhumacion = cuerpos.fechaInhumacion(i);
+        int ingreso = cuerpos.fechaIngreso(i);
+        if (ingreso == ColumnasCuerpos.SIN_FECHA) {
+            throw new NullPointerException("El cuerpo en la posición " + i + " no tiene fecha de ingreso");
+        }
+        byte estado = cuerpos.ordinalEstado(i);
+        if (estado == ColumnasCuerpos.SIN_ESTADO) {
+            throw new NullPointerException("El cuerpo en la posición " + i + " no tiene estado");
+        }
+        totalCuerpos++;
+        conteoMensual[LocalDate.ofEpochDay(ingreso).getMonthValue() - 1]++;
+        conteoPorEstado[estado]++;
+        if (inhumacion != ColumnasCuerpos.SIN_FECHA) {
+            agregarInhumaciones(inhumacion, 1);
+        }
+    }
+
+    /*
+     * Cuerpos ya contados en otra parte, como los contadores por eventos: equivale a agregarlos
+     * de a uno. Las inhumaciones se pasan aparte, por día, desde primerDiaRelevante().
+     */
+    void agregarConteoCuerpos(long cantidad, long[] porEstado, long[] porMesIngreso) {
+        totalCuerpos += cantidad;
+        sumar(conteoPorEstado, porEstado);
+        sumar(conteoMensual, porMesIngreso);
+    }
+
+    void agregarInhumaciones(int dia, long cantidad) {
+        if (dia > referencia.unMesAtras()) {
+            cuerposRecientes += cantidad;
+        }
+        if (dia >= referencia.desdeDiaTendencias()) {
+            int intervalo = referencia.cubetas().indiceDia(dia);
+            if (intervalo >= 0) {
+                inhumacionesPorIntervalo[intervalo] += cantidad;
+            }
+        }
+    }
+
+    /*
+     * Inhumaciones y documentos ya resumidos que terminan en el día dado, para las fechas
+     * anteriores a desdeDiaTendencias. Se ubican por día, sin la hora de los documentos.
+     */
+    void agregarResumen(int dia, long inhumaciones, long documentos) {
+        int intervalo = referencia.cubetas().indiceDia(dia);
+        if (intervalo >= 0) {
+            inhumacionesPorIntervalo[intervalo] += inhumaciones;
+            documentosPorIntervalo[intervalo] += documentos;
+        }
+    }
+
+    // Día en que abre la ventana de tendencias; ese día ya queda afuera
+    int primerDiaVentana() {
+        return referencia.cubetas().primerDia();
+    }
+
+    // Las inhumaciones de este día o anteriores no cuentan ni como recientes ni en la ventana
+    int primerDiaRelevante() {
+        return Math.min(referencia.unMesAtras(), referencia.cubetas().primerDia());
+    }
+
+    void agregarNichos(String estado, long cantidad) {
+        totalNichos += cantidad;
+        if (estado.equals("DISPONIBLE")) {
+            nichosDisponibles += cantidad;
+        }
+        estadoNichos.merge(estado, cantidad, Long::sum);
+    }
+
+    void agregarNicho(NichoDTO nicho) {
+        agregarNichos(nicho.getEstado().toString(), 1);
+    }
+
+    void agregarDocumento(DocumentoDTO documento) {
+        String tipo = documento.getTipo().toString();
+        String usuarioId = documento.getUsuarioId();
+        if (usuarioId == null) {
+            throw new NullPointerException("El documento " + documento.getId() + " no tiene usuario");
+        }
+        tiposDocumento.merge(tipo, 1L, Long::sum);
+        documentosPorUsuario.merge(usuarioId, 1L, Long::sum);
+        LocalDateTime fecha = documento.getFechaGeneracion();
+        int intervalo = fecha != null && ColumnasCuerpos.dia(fecha) >= referencia.desdeDiaTendencias()
+            ? referencia.cubetas().indice(fecha) : -1;
+        if (intervalo >= 0) {
+            documentosPorIntervalo[intervalo]++;
+        }
+    }
+
+    // Suma lo acumulado por otro tramo posterior; los dos deben compartir la referencia temporal
+    AcumuladorAnalisis combinar(AcumuladorAnalisis otro) {
+        if (!otro.referencia.ahora().equals(referencia.ahora())
+            || !otro.referencia.cubetas().ventana().equals(referencia.cubetas().ventana())
+            || otro.referencia.desdeDiaTendencias() != referencia.desdeDiaTendencias()) {
+            throw new IllegalArgumentException("Solo se combinan acumuladores con la misma referencia temporal y ventana.");
+        }
+        totalCuerpos += otro.totalCuerpos;
+        cuerposRecientes += otro.cuerposRecientes;
+        sumar(conteoMensual, otro.conteoMensual);
+        sumar(conteoPorEstado, otro.conteoPorEstado);
+        sumar(inhumacionesPorIntervalo, otro.inhumacionesPorIntervalo);
+        totalNichos += otro.totalNichos;
+        nichosDisponibles += otro.nichosDisponibles;
+        otro.estadoNichos.forEach((clave, conteo) -> estadoNichos.merge(clave, conteo, Long::sum));
+        otro.tiposDocumento.forEach((clave, conteo) -> tiposDocumento.merge(clave, conteo, Long::sum));
+        sumar(documentosPorIntervalo, otro.documentosPorIntervalo);
+        otro.documentosPorUsuario.forEach((clave, conteo) -> documentosPorUsuario.merge(clave, conteo, Long::sum));
+        return this;
+    }
+
+    ReporteAnalisisDTO resultado(int cuerposAsignados) {
+        ReporteAnalisisDTO dto = new ReporteAnalisisDTO();
+        dto.setTotalCuerpos((int) totalCuerpos);
+        dto.setTotalNichos((int) totalNichos);
+        dto.setCuerposAsignados(cuerposAsignados);
+        dto.setPorcentajeOcupacion(totalNichos == 0 ? 0 : (double) cuerposAsignados / totalNichos * 100);
+        dto.setNichosDisponibles((int) nichosDisponibles);
+        dto.setCuerposRecientes((int) cuerposRecientes);
+
+        // Promedios mensuales (sobre los meses que tienen ingresos)
+        dto.setPromedioMensualGeneral(Arrays.stream(conteoMensual).filter(conteo -> conteo > 0).average().orElse(0));
+        Map<String, Double> promedioPorEstado = new HashMap<>();
+        Map<Object, Long> cuerposPorTipo = new HashMap<>();
+        for (EstadoCuerpo estado : ESTADOS) {
+            if (conteoPorEstado[estado.ordinal()] > 0) {
+                promedioPorEstado.put(estado.toString(), 1.0);
+                cuerposPorTipo.put(estado, conteoPorEstado[estado.ordinal()]);
+            }
+        }
+        dto.setPromedioMensualPorTipo(promedioPorEstado);
+        dto.setCuerposPorTipo(cuerposPorTipo);
+        dto.setEstadoNichos(comoHashMap(estadoNichos));
+        List<String> etiquetas = referencia.cubetas().etiquetas();
+        dto.setWeeklyInhumations(tendencia(etiquetas, inhumacionesPorIntervalo));
+
+        Map<String, Long> distribucion = new HashMap<>();
+        distribucion.put("Asignados", (long) cuerposAsignados);
+        distribucion.put("No Asignados", totalCuerpos - cuerposAsignados);
+        dto.setCuerposAsignadosDistribucion(distribucion);
+
+        dto.setDocumentTypes(comoHashMap(tiposDocumento));
+        dto.setWeeklyDocuments(tendencia(etiquetas, documentosPorIntervalo));
+        dto.setPeriodoTendencias(referencia.cubetas().ventana().descripcion());
+        dto.setUnidadTendencias(referencia.cubetas().ventana().unidad());
+        dto.setTopUsers(topUsuarios());
+        return dto;
+    }
+
+    // Los empates quedan en el orden de iteración del HashMap, como con el groupingBy que reemplaza
+    private List<ReporteAnalisisDTO.TopUser> topUsuarios() {
+        return comoHashMap(documentosPorUsuario).entrySet().stream()
+            .map(entry -> {
+                ReporteAnalisisDTO.TopUser topUser = new ReporteAnalisisDTO.TopUser();
+                topUser.setUsuarioId(entry.getKey());
+                topUser.setCount(entry.getValue());
+                return topUser;
+            })
+            .sorted((a, b) -> Long.compare(b.getCount(), a.getCount()))
+            .limit(3)
+            .collect(Collectors.toList());
+    }
+
+    // Un punto por intervalo, del más antiguo al más reciente
+    private static List<ReporteAnalisisDTO.WeeklyData> tendencia(List<String> etiquetas, long[] conteos) {
+        List<ReporteAnalisisDTO.WeeklyData> puntos = new ArrayList<>(conteos.length);
+        for (int i = 0; i < conteos.length; i++) {
+            ReporteAnalisisDTO.WeeklyData punto = new ReporteAnalisisDTO.WeeklyData();
+            punto.setWeek(etiquetas.get(i));
+            punto.setCount(conteos[i]);
+            puntos.add(punto);
+        }
+        return puntos;
+    }
+
+    /*
+     * Inserta de a una, en orden de primera aparición, para que el HashMap crezca y quede con el
+     * mismo orden de iteración que el de Collectors.groupingBy (el constructor de copia lo
+     * dimensiona de entrada y puede ordenar distinto).
+     */
+    private static Map<String, Long> comoHashMap(Map<String, Long> conteos) {
+        Map<String, Long> mapa = new HashMap<>();
+        conteos.forEach(mapa::put);
+        return mapa;
+    }
+
+    private static void sumar(long[] destino, long[] origen) {
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] += origen[i];
+        }
+    }
+
+    /**
+     * Acumula los tres conjuntos, con las tendencias repartidas según la ventana. Con umbral mayor que cero y más elementos que el umbral, los
+     * rangos se parten a la mitad en tareas de fork-join y los resultados parciales se combinan
+     * en orden; si no, se recorren en el hilo actual.
+     */
+    static AcumuladorAnalisis acumular(LocalDateTime ahora, CubetasTiempo.Ventana ventana, ColumnasCuerpos cuerpos,
+                                       List<NichoDTO> nichos, List<DocumentoDTO> documentos, int umbralParalelo,
+                                       ForkJoinPool pool) {
+        return acumular(ahora, ventana, SIN_RESUMEN, cuerpos, nichos, documentos, umbralParalelo, pool);
+    }
+
+    // Igual, sin repartir en las tendencias las fechas anteriores a desdeDiaTendencias
+    static AcumuladorAnalisis acumular(LocalDateTime ahora, CubetasTiempo.Ventana ventana, int desdeDiaTendencias,
+                                       ColumnasCuerpos cuerpos, List<NichoDTO> nichos, List<DocumentoDTO> documentos,
+                                       int umbralParalelo, ForkJoinPool pool) {
+        Tramo todo = new Tramo(Referencia.de(ahora, ventana, desdeDiaTendencias), cuerpos, nichos, documentos, umbralParalelo,
+            0, cuerpos.tamano(), 0, nichos.size(), 0, documentos.size());
+        if (umbralParalelo <= 0 || todo.elementos() <= umbralParalelo) {
+            return todo.secuencial();
+        }
+        return pool.invoke(todo);
+    }
+
+    private static final class Tramo extends RecursiveTask<AcumuladorAnalisis> {
+
+        private final Referencia referencia;
+        private final ColumnasCuerpos cuerpos;
+        private final List<NichoDTO> nichos;
+        private final List<DocumentoDTO> documentos;
+        private final int umbral;
+        private final int cuerposDesde, cuerposHasta, nichosDesde, nichosHasta, documentosDesde, documentosHasta;
+
+        Tramo(Referencia referencia, ColumnasCuerpos cuerpos, List<NichoDTO> nichos, List<DocumentoDTO> documentos,
+              int umbral, int cuerposDesde, int cuerposHasta, int nichosDesde, int nichosHasta,
+              int documentosDesde, int documentosHasta) {
+            this.referencia = referencia;
+            this.cuerpos = cuerpos;
+            this.nichos = nichos;
+            this.documentos = documentos;
+            this.umbral = umbral;
+            this.cuerposDesde = cuerposDesde;
+            this.cuerposHasta = cuerposHasta;
+            this.nichosDesde = nichosDesde;
+            this.nichosHasta = nichosHasta;
+            this.documentosDesde = documentosDesde;
+            this.documentosHasta = documentosHasta;
+        }
+
+        long elementos() {
+            return (long) (cuerposHasta - cuerposDesde) + (nichosHasta - nichosDesde) + (documentosHasta - documentosDesde);
+        }
+
+        @Override
+        protected AcumuladorAnalisis compute() {
+            if (elementos() <= umbral) {
+                return secuencial();
+            }
+            int cuerposMitad = (cuerposDesde + cuerposHasta) >>> 1;
+            int nichosMitad = (nichosDesde + nichosHasta) >>> 1;
+            int documentosMitad = (documentosDesde + documentosHasta) >>> 1;
+            Tramo primero = new Tramo(referencia, cuerpos, nichos, documentos, umbral,
+                cuerposDesde, cuerposMitad, nichosDesde, nichosMitad, documentosDesde, documentosMitad);
+            Tramo segundo = new Tramo(referencia, cuerpos, nichos, documentos, umbral,
+                cuerposMitad, cuerposHasta, nichosMitad, nichosHasta, documentosMitad, documentosHasta);
+            segundo.fork();
+            AcumuladorAnalisis resultado = primero.compute();
+            return resultado.combinar(segundo.join());
+        }
+
+        AcumuladorAnalisis secuencial() {
+            AcumuladorAnalisis acumulador = new AcumuladorAnalisis(referencia);
+            for (int i = cuerposDesde; i < cuerposHasta; i++) {
+                acumulador.agregarCuerpo(cuerpos, i);
+            }
+            for (int i = nichosDesde; i < nichosHasta; i++) {
+                acumulador.agregarNicho(nichos.get(i));
+            }
+            for (int i = documentosDesde; i < documentosHasta; i++) {
+                acumulador.agregarDocumento(documentos.get(i));
+            }
+            return acumulador;
+        }
+    }
+}
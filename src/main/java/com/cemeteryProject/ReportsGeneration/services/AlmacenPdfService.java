@@ -0,0 +1,180 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Almacén local de PDFs direccionado por contenido: cada archivo se guarda una sola vez bajo
+ * su SHA-256 ({@code ab/abcdef...pdf}), así dos reportes idénticos comparten el archivo y un
+ * documento siempre se vuelve a descargar tal como se generó. Los archivos se escriben en un
+ * temporal dentro del propio almacén y se mueven atómicamente a su ruta definitiva.
+ */
+@Service
+public class AlmacenPdfService {
+
+    private static final Pattern HASH_VALIDO = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path directorio;
+
+    public AlmacenPdfService(@Value("${reportes.almacen.directorio:${java.io.tmpdir}/reportes-almacen}") String directorio) {
+        this.directorio = Paths.get(directorio).toAbsolutePath();
+    }
+
+    // Hash y tamaño de un PDF almacenado
+    public record Contenido(String hash, long tamano) {
+    }
+
+    /**
+     * PDF en proceso de escritura. Lo escrito en {@link #salida()} se va hasheando; al
+     * {@link #confirmar()} se guarda bajo su hash. Si se cierra sin confirmar, se descarta.
+     */
+    public final class Escritura implements Closeable {
+
+        private final Path temporal;
+        private final DigestOutputStream salida;
+        private long tamano;
+        private boolean terminada;
+
+        private Escritura() throws IOException {
+            Files.createDirectories(directorio);
+            this.temporal = Files.createTempFile(directorio, "escritura-", ".tmp");
+            OutputStream archivo = new BufferedOutputStream(Files.newOutputStream(temporal));
+            this.salida = new DigestOutputStream(archivo, sha256()) {
+                @Override
+                public void write(int b) throws IOException {
+                    super.write(b);
+                    tamano++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    super.write(b, off, len);
+                    tamano += len;
+                }
+            };
+        }
+
+        public OutputStream salida() {
+            return salida;
+        }
+
+        /*
+         * Stream que escribe a la vez en el destino recibido y en el almacén. Cerrarlo no cierra
+         * el destino (pertenece a quien lo abrió) ni confirma la escritura.
+         */
+        public OutputStream duplicarEn(OutputStream destino) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    destino.write(b);
+                    salida.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    destino.write(b, off, len);
+                    salida.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    destino.flush();
+                }
+            };
+        }
+
+        public Contenido confirmar() throws IOException {
+            salida.close();
+            terminada = true;
+            String hash = HexFormat.of().formatHex(salida.getMessageDigest().digest());
+            Path destino = ubicar(hash);
+            if (Files.exists(destino)) {
+                // Mismo contenido ya almacenado
+                Files.deleteIfExists(temporal);
+            } else {
+                Files.createDirectories(destino.getParent());
+                try {
+                    Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Otro hilo guardó el mismo contenido entre medio
+                    Files.deleteIfExists(temporal);
+                }
+            }
+            return new Contenido(hash, tamano);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!terminada) {
+                terminada = true;
+                salida.close();
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+
+    public Escritura nuevaEscritura() throws IOException {
+        return new Escritura();
+    }
+
+    public Contenido guardar(byte[] pdf) throws IOException {
+        try (Escritura escritura = nuevaEscritura()) {
+            escritura.salida().write(pdf);
+            return escritura.confirmar();
+        }
+    }
+
+    public Path ubicar(String hash) {
+        if (hash == null || !HASH_VALIDO.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Hash de contenido inválido: " + hash);
+        }
+        return directorio.resolve(hash.substring(0, 2)).resolve(hash + ".pdf");
+    }
+
+    public boolean existe(String hash) {
+        return Files.isRegularFile(ubicar(hash));
+    }
+
+    /*
+     * Copia el archivo al stream con FileChannel.transferTo: el contenido pasa por el canal
+     * en tramos y nunca se carga entero en el heap. El stream no se cierra.
+     */
+    public void transferir(String hash, OutputStream out) throws IOException {
+        try (FileChannel canal = FileChannel.open(ubicar(hash), StandardOpenOption.READ)) {
+            WritableByteChannel destino = Channels.newChannel(out);
+            long tamano = canal.size();
+            long posicion = 0;
+            while (posicion < tamano) {
+                posicion += canal.transferTo(posicion, tamano - posicion, destino);
+            }
+            out.flush();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
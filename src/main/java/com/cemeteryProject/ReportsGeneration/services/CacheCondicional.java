@@ -0,0 +1,78 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Última respuesta de cada ruta del backend junto con sus validadores (ETag y Last-Modified).
+ * Se guarda la lista ya deserializada, así un 304 no vuelve a leer ni a parsear JSON.
+ */
+final class CacheCondicional {
+
+    record Entrada<T>(String etag, long ultimaModificacion, List<T> elementos, long bytes) {
+
+        boolean tieneValidadores() {
+            return etag != null || ultimaModificacion > 0;
+        }
+
+        void agregarValidadores(HttpHeaders headers) {
+            if (etag != null) {
+                headers.setIfNoneMatch(etag);
+            }
+            if (ultimaModificacion > 0) {
+                headers.setIfModifiedSince(ultimaModificacion);
+            }
+        }
+    }
+
+    private final Map<String, Entrada<?>> entradas = new ConcurrentHashMap<>();
+    private final AtomicLong peticiones = new AtomicLong();
+    private final AtomicLong noModificadas = new AtomicLong();
+    private final AtomicLong bytesRecibidos = new AtomicLong();
+    private final AtomicLong bytesAhorrados = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    <T> Entrada<T> obtener(String ruta) {
+        return (Entrada<T>) entradas.get(ruta);
+    }
+
+    // Si la respuesta es la misma entrada que se envió como previa, el backend contestó 304
+    <T> void registrar(String ruta, Entrada<T> previa, Entrada<T> respuesta) {
+        peticiones.incrementAndGet();
+        if (previa != null && respuesta == previa) {
+            noModificadas.incrementAndGet();
+            bytesAhorrados.addAndGet(previa.bytes());
+            return;
+        }
+        bytesRecibidos.addAndGet(respuesta.bytes());
+        if (respuesta.tieneValidadores()) {
+            entradas.put(ruta, respuesta);
+        } else {
+            entradas.remove(ruta);
+        }
+    }
+
+    long peticiones() {
+        return peticiones.get();
+    }
+
+    long noModificadas() {
+        return noModificadas.get();
+    }
+
+    long bytesRecibidos() {
+        return bytesRecibidos.get();
+    }
+
+    long bytesAhorrados() {
+        return bytesAhorrados.get();
+    }
+
+    int entradas() {
+        return entradas.size();
+    }
+}
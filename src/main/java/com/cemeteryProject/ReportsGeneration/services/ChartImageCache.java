@@ -0,0 +1,145 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.services.ChartRenderService.GraficoRenderizado;
+import com.cemeteryProject.ReportsGeneration.templates.EstiloGrafico;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.Dataset;
+import org.jfree.data.general.PieDataset;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché LRU de gráficos ya renderizados, acotada por un presupuesto de memoria en bytes.
+ * La clave combina tipo, título y modo de renderizado con un hash SHA-256 de los valores del
+ * dataset y de los colores del estilo, de modo que dos reportes con los mismos datos y la misma
+ * plantilla reutilizan la misma imagen, pero otra plantilla no recibe colores ajenos.
+ */
+@Component
+public class ChartImageCache {
+
+    // Estimación del costo fijo de cada entrada (objetos, arreglo, nodo del mapa)
+    private static final long SOBRECOSTO_ENTRADA = 128;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, GraficoRenderizado> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesUsados;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    public ChartImageCache(@Value("${reportes.pdf.graficos.cache.max-bytes:16777216}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public record Estadisticas(long aciertos, long fallos, long desalojos, int entradas, long bytesUsados, long maxBytes) {
+    }
+
+    public boolean habilitada() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Calcula la clave de un gráfico, o null si no se puede cachear (caché deshabilitada o
+     * dataset de un tipo desconocido).
+     */
+    public String clave(String tipo, String titulo, Dataset dataset, EstiloGrafico estilo, String modo) {
+        if (!habilitada() || dataset == null) {
+            return null;
+        }
+        StringBuilder valores = new StringBuilder();
+        if (dataset instanceof PieDataset<?> pie) {
+            for (int i = 0; i < pie.getItemCount(); i++) {
+                valores.append(pie.getKey(i)).append('=').append(pie.getValue(i)).append(';');
+            }
+        } else if (dataset instanceof CategoryDataset categorias) {
+            for (int fila = 0; fila < categorias.getRowCount(); fila++) {
+                for (int col = 0; col < categorias.getColumnCount(); col++) {
+                    valores.append(categorias.getRowKey(fila)).append('|').append(categorias.getColumnKey(col))
+                        .append('=').append(categorias.getValue(fila, col)).append(';');
+                }
+            }
+        } else {
+            return null;
+        }
+        agregarEstilo(valores, estilo);
+        return tipo + ':' + modo + ':' + titulo + ':' + sha256(valores.toString());
+    }
+
+    public GraficoRenderizado obtener(String clave) {
+        GraficoRenderizado grafico;
+        synchronized (this) {
+            grafico = entradas.get(clave);
+        }
+        (grafico != null ? aciertos : fallos).incrementAndGet();
+        return grafico;
+    }
+
+    public void guardar(String clave, GraficoRenderizado grafico) {
+        long tamano = tamano(clave, grafico);
+        if (tamano > maxBytes) {
+            return; // Nunca cabría: no vale la pena vaciar la caché por él
+        }
+        synchronized (this) {
+            GraficoRenderizado anterior = entradas.put(clave, grafico);
+            if (anterior != null) {
+                bytesUsados -= tamano(clave, anterior);
+            }
+            bytesUsados += tamano;
+
+            // Desalojar los menos usados recientemente hasta volver al presupuesto
+            Iterator<Map.Entry<String, GraficoRenderizado>> it = entradas.entrySet().iterator();
+            while (bytesUsados > maxBytes && it.hasNext()) {
+                Map.Entry<String, GraficoRenderizado> masAntigua = it.next();
+                bytesUsados -= tamano(masAntigua.getKey(), masAntigua.getValue());
+                it.remove();
+                desalojos.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void limpiar() {
+        entradas.clear();
+        bytesUsados = 0;
+    }
+
+    public synchronized Estadisticas estadisticas() {
+        return new Estadisticas(aciertos.get(), fallos.get(), desalojos.get(), entradas.size(), bytesUsados, maxBytes);
+    }
+
+    // Las secciones se ordenan por clave: el orden de iteración del mapa no debe cambiar la clave
+    private void agregarEstilo(StringBuilder valores, EstiloGrafico estilo) {
+        valores.append("estilo:");
+        new TreeMap<>(estilo.coloresSeccion())
+            .forEach((seccion, color) -> valores.append(seccion).append('=').append(color.getRGB()).append(';'));
+        valores.append('|');
+        for (Color color : estilo.coloresColumnas()) {
+            valores.append(color.getRGB()).append(';');
+        }
+        valores.append('|').append(estilo.colorSerie() != null ? estilo.colorSerie().getRGB() : "");
+    }
+
+    private long tamano(String clave, GraficoRenderizado grafico) {
+        return grafico.contenido().length + 2L * clave.length() + SOBRECOSTO_ENTRADA;
+    }
+
+    private String sha256(String texto) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(texto.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.templates.EstiloGrafico;
+import com.lowagie.text.Document;
+import com.lowagie.text.Image;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfImportedPage;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import jakarta.annotation.PreDestroy;
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.renderer.category.BarRenderer;
+import org.jfree.chart.renderer.category.LineAndShapeRenderer;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.general.Dataset;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Construye, estiliza y renderiza los gráficos de los reportes. Los gráficos son independientes
+ * entre sí hasta que se colocan en el documento, así que se renderizan en paralelo sobre un pool
+ * acotado y el documento solo espera a cada uno en el momento de insertarlo.
+ */
+@Service
+public class ChartRenderService {
+
+    public static final int ANCHO_GRAFICO = 400;
+    public static final int ALTO_GRAFICO = 300;
+
+    static final String MODO_RASTER = "raster";
+    static final String FORMATO_PNG = "png";
+    static final String FORMATO_PDF = "pdf";
+
+    private final ThreadPoolExecutor executor;
+    private final String modoGraficos;
+    private final ChartImageCache cache;
+
+    public ChartRenderService(@Value("${reportes.pdf.graficos.hilos:4}") int hilos,
+                              @Value("${reportes.pdf.graficos.cola:32}") int capacidadCola,
+                              @Value("${reportes.pdf.graficos.modo:vectorial}") String modoGraficos,
+                              ChartImageCache cache) {
+        this.modoGraficos = modoGraficos;
+        this.cache = cache;
+        AtomicInteger contador = new AtomicInteger();
+        // Pool acotado: si la cola se llena, el hilo de la petición renderiza el gráfico él mismo
+        this.executor = new ThreadPoolExecutor(
+            hilos, hilos, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(capacidadCola),
+            r -> {
+                Thread t = new Thread(r, "chart-render-" + contador.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Gráfico pendiente de renderizar: su tipo ("pie", "bar", "line") define el estilo, los
+     * colores vienen de la plantilla y la fábrica construye el JFreeChart sobre el dataset.
+     * La fábrica se ejecuta en el hilo del pool.
+     * Título, dataset y estilo forman la clave de la caché; sin dataset el gráfico no se cachea.
+     */
+    public record GraficoSpec(String tipo, String titulo, Dataset dataset, EstiloGrafico estilo, Supplier<JFreeChart> fabrica) {
+    }
+
+    /**
+     * Gráfico ya renderizado, listo para insertarse en cualquier documento. En modo vectorial el
+     * contenido es un PDF de una página; en modo raster, una imagen PNG.
+     */
+    public record GraficoRenderizado(String formato, byte[] contenido, int ancho, int alto) {
+
+        public Image comoImagen(PdfWriter writer) throws Exception {
+            Image imagen;
+            if (FORMATO_PDF.equals(formato)) {
+                PdfReader lector = new PdfReader(contenido);
+                try {
+                    PdfImportedPage pagina = writer.getImportedPage(lector, 1);
+                    imagen = Image.getInstance(pagina);
+                    // Copia la página al documento ahora, así el lector puede cerrarse enseguida
+                    writer.freeReader(lector);
+                } finally {
+                    lector.close();
+                }
+            } else {
+                imagen = Image.getInstance(contenido);
+            }
+            imagen.scaleToFit(ancho, alto);
+            return imagen;
+        }
+    }
+
+    /*
+     * Lanza el renderizado de todos los gráficos a la vez; los futuros conservan el orden recibido.
+     * Los que ya están en caché se resuelven al instante sin ocupar el pool.
+     */
+    public List<CompletableFuture<GraficoRenderizado>> renderizar(List<GraficoSpec> graficos) {
+        return graficos.stream()
+            .map(grafico -> {
+                String clave = claveCache(grafico);
+                GraficoRenderizado enCache = clave != null ? cache.obtener(clave) : null;
+                return enCache != null
+                    ? CompletableFuture.completedFuture(enCache)
+                    : CompletableFuture.supplyAsync(() -> renderizarYGuardar(grafico, clave), executor);
+            })
+            .toList();
+    }
+
+    public GraficoRenderizado renderizar(GraficoSpec grafico) {
+        String clave = claveCache(grafico);
+        GraficoRenderizado enCache = clave != null ? cache.obtener(clave) : null;
+        return enCache != null ? enCache : renderizarYGuardar(grafico, clave);
+    }
+
+    private String claveCache(GraficoSpec grafico) {
+        return cache.clave(grafico.tipo(), grafico.titulo(), grafico.dataset(), grafico.estilo(), modoGraficos);
+    }
+
+    private GraficoRenderizado renderizarYGuardar(GraficoSpec grafico, String clave) {
+        GraficoRenderizado renderizado = renderizarSinCache(grafico);
+        if (clave != null) {
+            cache.guardar(clave, renderizado);
+        }
+        return renderizado;
+    }
+
+    private GraficoRenderizado renderizarSinCache(GraficoSpec grafico) {
+        try {
+            JFreeChart chart = grafico.fabrica().get();
+            estilizar(chart, grafico.tipo(), grafico.estilo());
+            return MODO_RASTER.equalsIgnoreCase(modoGraficos)
+                ? renderizarRaster(chart, ANCHO_GRAFICO, ALTO_GRAFICO)
+                : renderizarVectorial(chart, ANCHO_GRAFICO, ALTO_GRAFICO);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error al renderizar el gráfico: " + e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * Dibuja el gráfico mediante PdfGraphics2D en un PDF propio de una sola página. Cada hilo usa
+     * su propio writer (no son thread-safe); luego la página se importa como plantilla vectorial.
+     */
+    private GraficoRenderizado renderizarVectorial(JFreeChart chart, int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document document = new Document(new Rectangle(width, height), 0, 0, 0, 0);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.open();
+        Graphics2D g2 = writer.getDirectContent().createGraphics(width, height);
+        try {
+            chart.draw(g2, new Rectangle2D.Double(0, 0, width, height));
+        } finally {
+            g2.dispose();
+        }
+        document.close();
+        return new GraficoRenderizado(FORMATO_PDF, out.toByteArray(), width, height);
+    }
+
+    // Camino anterior: rasterizar a BufferedImage y codificar como PNG
+    private GraficoRenderizado renderizarRaster(JFreeChart chart, int width, int height) throws Exception {
+        BufferedImage chartImage = chart.createBufferedImage(width, height);
+        ByteArrayOutputStream chartOut = new ByteArrayOutputStream();
+        ChartUtils.writeBufferedImageAsPNG(chartOut, chartImage);
+        return new GraficoRenderizado(FORMATO_PNG, chartOut.toByteArray(), width, height);
+    }
+
+    private void estilizar(JFreeChart chart, String chartType, EstiloGrafico estilo) {
+        // Personalizar la apariencia general de los gráficos
+        chart.setBackgroundPaint(new java.awt.Color(240, 240, 240));
+        chart.setBorderPaint(java.awt.Color.WHITE);
+        chart.setBorderStroke(new java.awt.BasicStroke(2.0f));
+        chart.setBorderVisible(true);
+
+        // Personalizar según el tipo de gráfico
+        if (chartType.equals("pie")) {
+            org.jfree.chart.plot.PiePlot<?> piePlot = (org.jfree.chart.plot.PiePlot<?>) chart.getPlot();
+            piePlot.setBackgroundPaint(java.awt.Color.WHITE);
+            piePlot.setOutlineVisible(false);
+
+            // Habilitar etiquetas simples y mostrarlas dentro de las secciones
+            piePlot.setSimpleLabels(true);
+            piePlot.setLabelFont(new java.awt.Font("Arial", java.awt.Font.PLAIN, 12));
+            piePlot.setLabelGap(0.02);
+            piePlot.setLabelBackgroundPaint(null);
+            piePlot.setLabelOutlinePaint(null);
+            piePlot.setLabelShadowPaint(null);
+            piePlot.setLabelPaint(java.awt.Color.BLACK);
+
+            // Configurar etiquetas dentro de las secciones (valor y porcentaje)
+            piePlot.setLabelGenerator(new org.jfree.chart.labels.StandardPieSectionLabelGenerator(
+                "{1} ({2})",
+                new java.text.DecimalFormat("0"),
+                new java.text.DecimalFormat("0.0%")
+            ));
+
+            // Colores por sección definidos en la plantilla
+            estilo.coloresSeccion().forEach(piePlot::setSectionPaint);
+
+            chart.getLegend().setItemFont(new java.awt.Font("Arial", java.awt.Font.PLAIN, 12));
+            chart.getLegend().setBackgroundPaint(new java.awt.Color(240, 240, 240));
+            chart.getLegend().setFrame(new org.jfree.chart.block.BlockBorder(java.awt.Color.WHITE));
+        } else if (chartType.equals("bar")) {
+            org.jfree.chart.plot.CategoryPlot categoryPlot = (org.jfree.chart.plot.CategoryPlot) chart.getPlot();
+            categoryPlot.setBackgroundPaint(java.awt.Color.WHITE);
+            categoryPlot.setOutlinePaint(java.awt.Color.WHITE);
+            categoryPlot.setRangeGridlinePaint(new java.awt.Color(220, 220, 220));
+            categoryPlot.setDomainGridlinesVisible(false);
+
+            org.jfree.chart.axis.NumberAxis rangeAxis = (org.jfree.chart.axis.NumberAxis) categoryPlot.getRangeAxis();
+            rangeAxis.setStandardTickUnits(org.jfree.chart.axis.NumberAxis.createIntegerTickUnits());
+
+            // Calcular el valor máximo en el dataset
+            DefaultCategoryDataset barDataset = (DefaultCategoryDataset) categoryPlot.getDataset();
+            double maxValue = 0;
+            for (int row = 0; row < barDataset.getRowCount(); row++) {
+                for (int col = 0; col < barDataset.getColumnCount(); col++) {
+                    Number value = barDataset.getValue(row, col);
+                    if (value != null && value.doubleValue() > maxValue) {
+                        maxValue = value.doubleValue();
+                    }
+                }
+            }
+            rangeAxis.setRange(0, maxValue + 1); // Agregar un margen de 1 unidad
+
+            BarRenderer customRenderer = new BarRenderer() {
+                @Override
+                public java.awt.Paint getItemPaint(int row, int column) {
+                    return estilo.colorColumna(column);
+                }
+            };
+
+            customRenderer.setBarPainter(new org.jfree.chart.renderer.category.StandardBarPainter());
+            customRenderer.setShadowVisible(false);
+            customRenderer.setDefaultItemLabelGenerator(new org.jfree.chart.labels.StandardCategoryItemLabelGenerator());
+            customRenderer.setDefaultItemLabelsVisible(true);
+            customRenderer.setDefaultItemLabelFont(new java.awt.Font("Arial", java.awt.Font.BOLD, 12));
+            categoryPlot.setRenderer(customRenderer);
+        } else if (chartType.equals("line")) {
+            org.jfree.chart.plot.CategoryPlot categoryPlot = (org.jfree.chart.plot.CategoryPlot) chart.getPlot();
+            categoryPlot.setBackgroundPaint(java.awt.Color.WHITE);
+            categoryPlot.setOutlinePaint(java.awt.Color.WHITE);
+            categoryPlot.setRangeGridlinePaint(new java.awt.Color(220, 220, 220));
+            categoryPlot.setDomainGridlinesVisible(false);
+
+            org.jfree.chart.axis.NumberAxis rangeAxis = (org.jfree.chart.axis.NumberAxis) categoryPlot.getRangeAxis();
+            rangeAxis.setStandardTickUnits(org.jfree.chart.axis.NumberAxis.createIntegerTickUnits());
+
+            // Calcular el valor máximo en el dataset
+            DefaultCategoryDataset lineDataset = (DefaultCategoryDataset) categoryPlot.getDataset();
+            double maxValue = 0;
+            for (int row = 0; row < lineDataset.getRowCount(); row++) {
+                for (int col = 0; col < lineDataset.getColumnCount(); col++) {
+                    Number value = lineDataset.getValue(row, col);
+                    if (value != null && value.doubleValue() > maxValue) {
+                        maxValue = value.doubleValue();
+                    }
+                }
+            }
+            rangeAxis.setRange(0, maxValue + 1); // Agregar un margen de 1 unidad
+
+            // Rotar etiquetas del eje X y ajustar fuente
+            categoryPlot.getDomainAxis().setCategoryLabelPositions(CategoryLabelPositions.createUpRotationLabelPositions(Math.PI / 4.0)); // Rotar 45 grados
+            categoryPlot.getDomainAxis().setTickLabelFont(new java.awt.Font("Arial", java.awt.Font.PLAIN, 10)); // Tamaño de fuente más pequeño
+
+            LineAndShapeRenderer renderer = new LineAndShapeRenderer();
+            renderer.setSeriesPaint(0, estilo.colorSerie());
+            categoryPlot.setRenderer(renderer);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
+import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cuerpos en columnas de tipos primitivos para el análisis: las fechas como días desde la época
+ * en int[], el estado como ordinal en byte[] y los textos que se repiten (funcionario receptor,
+ * autoridad remitente) como códigos de diccionario. Un recorrido lee arreglos contiguos en
+ * lugar de saltar de objeto en objeto, y cada cuerpo ocupa unas decenas de bytes más su id,
+ * que se conserva para cruzarlo con las asignaciones.
+ */
+public final class ColumnasCuerpos {
+
+    public static final int SIN_FECHA = Integer.MIN_VALUE;
+    public static final byte SIN_ESTADO = -1;
+    public static final int SIN_VALOR = -1;
+
+    private static final EstadoCuerpo[] ESTADOS = EstadoCuerpo.values();
+
+    private final int tamano;
+    private final String[] idCadaver;
+    private final byte[] estado;
+    private final int[] fechaIngreso;
+    private final int[] fechaInhumacion;
+    private final int[] fechaDefuncion;
+    private final int[] fechaExhumacion;
+    private final int[] funcionarioReceptor;
+    private final int[] autoridadRemitente;
+    private final String[] funcionarios;
+    private final String[] autoridades;
+
+    private ColumnasCuerpos(Constructor c) {
+        this.tamano = c.tamano;
+        this.idCadaver = Arrays.copyOf(c.idCadaver, tamano);
+        this.estado = Arrays.copyOf(c.estado, tamano);
+        this.fechaIngreso = Arrays.copyOf(c.fechaIngreso, tamano);
+        this.fechaInhumacion = Arrays.copyOf(c.fechaInhumacion, tamano);
+        this.fechaDefuncion = Arrays.copyOf(c.fechaDefuncion, tamano);
+        this.fechaExhumacion = Arrays.copyOf(c.fechaExhumacion, tamano);
+        this.funcionarioReceptor = Arrays.copyOf(c.funcionarioReceptor, tamano);
+        this.autoridadRemitente = Arrays.copyOf(c.autoridadRemitente, tamano);
+        this.funcionarios = c.funcionarios.valores.toArray(String[]::new);
+        this.autoridades = c.autoridades.valores.toArray(String[]::new);
+    }
+
+    public static Constructor constructor() {
+        return new Constructor(1024);
+    }
+
+    public static ColumnasCuerpos deCuerpos(Collection<CuerpoInhumadoDTO> cuerpos) {
+        Constructor constructor = new Constructor(Math.max(16, cuerpos.size()));
+        cuerpos.forEach(constructor::agregar);
+        return constructor.construir();
+    }
+
+    public static ColumnasCuerpos deProyeccion(Collection<CuerpoAnalisisDTO> cuerpos) {
+        Constructor constructor = new Constructor(Math.max(16, cuerpos.size()));
+        cuerpos.forEach(constructor::agregar);
+        return constructor.construir();
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    public String idCadaver(int i) {
+        return idCadaver[i];
+    }
+
+    // Ordinal de EstadoCuerpo o SIN_ESTADO
+    public byte ordinalEstado(int i) {
+        return estado[i];
+    }
+
+    public EstadoCuerpo estado(int i) {
+        return estado[i] == SIN_ESTADO ? null : ESTADOS[estado[i]];
+    }
+
+    // Fechas como días desde 1970-01-01, o SIN_FECHA
+    public int fechaIngreso(int i) {
+        return fechaIngreso[i];
+    }
+
+    public int fechaInhumacion(int i) {
+        return fechaInhumacion[i];
+    }
+
+    public int fechaDefuncion(int i) {
+        return fechaDefuncion[i];
+    }
+
+    public int fechaExhumacion(int i) {
+        return fechaExhumacion[i];
+    }
+
+    public String funcionarioReceptor(int i) {
+        return funcionarioReceptor[i] == SIN_VALOR ? null : funcionarios[funcionarioReceptor[i]];
+    }
+
+    public String autoridadRemitente(int i) {
+        return autoridadRemitente[i] == SIN_VALOR ? null : autoridades[autoridadRemitente[i]];
+    }
+
+    // Cantidad de valores distintos de cada columna de diccionario
+    public int funcionariosDistintos() {
+        return funcionarios.length;
+    }
+
+    public int autoridadesDistintas() {
+        return autoridades.length;
+    }
+
+    public static int dia(LocalDate fecha) {
+        return fecha == null ? SIN_FECHA : Math.toIntExact(fecha.toEpochDay());
+    }
+
+    public static int dia(LocalDateTime fecha) {
+        return fecha == null ? SIN_FECHA : Math.toIntExact(fecha.toLocalDate().toEpochDay());
+    }
+
+    /**
+     * Arma las columnas agregando los cuerpos de a uno, por ejemplo desde
+     * {@link ExternalDataService#recorrerCuerpos}, sin necesitar la lista completa.
+     */
+    public static final class Constructor {
+
+        private int tamano;
+        private String[] idCadaver;
+        private byte[] estado;
+        private int[] fechaIngreso;
+        private int[] fechaInhumacion;
+        private int[] fechaDefuncion;
+        private int[] fechaExhumacion;
+        private int[] funcionarioReceptor;
+        private int[] autoridadRemitente;
+        private final Diccionario funcionarios = new Diccionario();
+        private final Diccionario autoridades = new Diccionario();
+
+        private Constructor(int capacidad) {
+            idCadaver = new String[capacidad];
+            estado = new byte[capacidad];
+            fechaIngreso = new int[capacidad];
+            fechaInhumacion = new int[capacidad];
+            fechaDefuncion = new int[capacidad];
+            fechaExhumacion = new int[capacidad];
+            funcionarioReceptor = new int[capacidad];
+            autoridadRemitente = new int[capacidad];
+        }
+
+        public Constructor agregar(CuerpoInhumadoDTO cuerpo) {
+            int i = siguiente();
+            idCadaver[i] = cuerpo.getIdCadaver();
+            estado[i] = ordinal(cuerpo.getEstado());
+            fechaIngreso[i] = dia(cuerpo.getFechaIngreso());
+            fechaInhumacion[i] = dia(cuerpo.getFechaInhumacion());
+            fechaDefuncion[i] = dia(cuerpo.getFechaDefuncion());
+            fechaExhumacion[i] = dia(cuerpo.getFechaExhumacion());
+            funcionarioReceptor[i] = funcionarios.codigo(cuerpo.getFuncionarioReceptor());
+            autoridadRemitente[i] = autoridades.codigo(cuerpo.getAutoridadRemitente());
+            return this;
+        }
+
+        // La proyección del análisis no trae el resto de los campos
+        public Constructor agregar(CuerpoAnalisisDTO cuerpo) {
+            int i = siguiente();
+            idCadaver[i] = cuerpo.getIdCadaver();
+            estado[i] = ordinal(cuerpo.getEstado());
+            fechaIngreso[i] = dia(cuerpo.getFechaIngreso());
+            fechaInhumacion[i] = dia(cuerpo.getFechaInhumacion());
+            fechaDefuncion[i] = SIN_FECHA;
+            fechaExhumacion[i] = SIN_FECHA;
+            funcionarioReceptor[i] = SIN_VALOR;
+            autoridadRemitente[i] = SIN_VALOR;
+            return this;
+        }
+
+        public ColumnasCuerpos construir() {
+            return new ColumnasCuerpos(this);
+        }
+
+        private int siguiente() {
+            if (tamano == estado.length) {
+                int capacidad = Math.max(16, estado.length + (estado.length >> 1));
+                idCadaver = Arrays.copyOf(idCadaver, capacidad);
+                estado = Arrays.copyOf(estado, capacidad);
+                fechaIngreso = Arrays.copyOf(fechaIngreso, capacidad);
+                fechaInhumacion = Arrays.copyOf(fechaInhumacion, capacidad);
+                fechaDefuncion = Arrays.copyOf(fechaDefuncion, capacidad);
+                fechaExhumacion = Arrays.copyOf(fechaExhumacion, capacidad);
+                funcionarioReceptor = Arrays.copyOf(funcionarioReceptor, capacidad);
+                autoridadRemitente = Arrays.copyOf(autoridadRemitente, capacidad);
+            }
+            return tamano++;
+        }
+
+        private static byte ordinal(EstadoCuerpo estado) {
+            return estado == null ? SIN_ESTADO : (byte) estado.ordinal();
+        }
+    }
+
+    // Cada texto distinto se guarda una sola vez; las filas guardan su posición
+    private static final class Diccionario {
+
+        private final Map<String, Integer> codigos = new HashMap<>();
+        private final List<String> valores = new ArrayList<>();
+
+        int codigo(String valor) {
+            if (valor == null) {
+                return SIN_VALOR;
+            }
+            return codigos.computeIfAbsent(valor, nuevo -> {
+                valores.add(nuevo);
+                return valores.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reparte fechas en los N intervalos (días, semanas o meses) que terminan en un instante dado.
+ * Los límites se calculan una sola vez; cada fecha se ubica por aritmética sobre el día desde
+ * la época y, como mucho, un ajuste de una posición por el largo variable de los meses, así el
+ * costo por fecha no depende de la cantidad de intervalos.
+ */
+public final class CubetasTiempo {
+
+    public enum Granularidad { DIA, SEMANA, MES }
+
+    /**
+     * Granularidad y cantidad de intervalos de una tendencia.
+     *
+     * @throws IllegalArgumentException si la cantidad está fuera de 1..{@value #MAXIMO_INTERVALOS}
+     */
+    public record Ventana(Granularidad granularidad, int cantidad) {
+
+        public static final int MAXIMO_INTERVALOS = 1000;
+
+        public static final Ventana POR_DEFECTO = new Ventana(Granularidad.SEMANA, 12);
+
+        public Ventana {
+            if (granularidad == null) {
+                throw new IllegalArgumentException("La granularidad de la tendencia es obligatoria.");
+            }
+            if (cantidad < 1 || cantidad > MAXIMO_INTERVALOS) {
+                throw new IllegalArgumentException("La cantidad de intervalos debe estar entre 1 y " + MAXIMO_INTERVALOS + ".");
+            }
+        }
+
+        // Texto para los títulos, p. ej. "Últimas 12 Semanas" o "Último Mes"
+        public String descripcion() {
+            boolean femenino = granularidad == Granularidad.SEMANA;
+            if (cantidad == 1) {
+                return (femenino ? "Última " : "Último ") + unidad();
+            }
+            String plural = switch (granularidad) {
+                case DIA -> "Días";
+                case SEMANA -> "Semanas";
+                case MES -> "Meses";
+            };
+            return (femenino ? "Últimas " : "Últimos ") + cantidad + " " + plural;
+        }
+
+        public String unidad() {
+            return switch (granularidad) {
+                case DIA -> "Día";
+                case SEMANA -> "Semana";
+                case MES -> "Mes";
+            };
+        }
+    }
+
+    private final Ventana ventana;
+    private final int cantidad;
+    // inicios[i] abre el intervalo i y cierra el anterior; inicios[cantidad] es el instante de referencia
+    private final LocalDateTime[] inicios;
+    private final int[] dias;
+    // Días por intervalo para DIA y SEMANA; 0 para MES
+    private final int ancho;
+    private final int primerMes;
+
+    public CubetasTiempo(Ventana ventana, LocalDateTime ahora) {
+        this.ventana = ventana;
+        this.cantidad = ventana.cantidad();
+        this.inicios = new LocalDateTime[cantidad + 1];
+        this.dias = new int[cantidad + 1];
+        /*
+         * La ventana por defecto conserva los límites del informe de 12 semanas original: su
+         * último intervalo empieza en el instante de referencia y por eso siempre queda vacío.
+         * Las demás ventanas terminan el último intervalo en el instante de referencia, así los
+         * N intervalos cubren toda la ventana (una ventana de un día cuenta las últimas 24 horas).
+         */
+        int desplazamiento = ventana.equals(Ventana.POR_DEFECTO) ? 1 : 0;
+        for (int i = 0; i <= cantidad; i++) {
+            inicios[i] = i < cantidad ? retroceder(ahora, cantidad - desplazamiento - i) : ahora;
+            dias[i] = ColumnasCuerpos.dia(inicios[i]);
+        }
+        this.ancho = switch (ventana.granularidad()) {
+            case DIA -> 1;
+            case SEMANA -> 7;
+            case MES -> 0;
+        };
+        LocalDate primero = inicios[0].toLocalDate();
+        this.primerMes = primero.getYear() * 12 + primero.getMonthValue() - 1;
+    }
+
+    private LocalDateTime retroceder(LocalDateTime ahora, int intervalos) {
+        return switch (ventana.granularidad()) {
+            case DIA -> ahora.minusDays(intervalos);
+            case SEMANA -> ahora.minusDays(intervalos * 7L);
+            case MES -> ahora.minusMonths(intervalos);
+        };
+    }
+
+    public Ventana ventana() {
+        return ventana;
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    // Día (desde la época) en que abre la ventana; ese día ya queda afuera
+    public int primerDia() {
+        return dias[0];
+    }
+
+    /**
+     * Intervalo de una fecha sin hora, en días desde la época: el intervalo i abarca los días
+     * (inicio i, inicio i + 1]. Devuelve -1 fuera de la ventana o con {@link ColumnasCuerpos#SIN_FECHA}.
+     */
+    public int indiceDia(int dia) {
+        if (dia <= dias[0] || dia > dias[cantidad]) {
+            return -1;
+        }
+        int i = estimar(dia);
+        while (dia <= dias[i]) {
+            i--;
+        }
+        while (dia > dias[i + 1]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Intervalo de un instante: el intervalo i abarca (inicio i, inicio i + 1), sin sus extremos.
+     * Devuelve -1 fuera de la ventana, en un límite exacto o con null.
+     */
+    public int indice(LocalDateTime instante) {
+        if (instante == null || !instante.isAfter(inicios[0]) || !instante.isBefore(inicios[cantidad])) {
+            return -1;
+        }
+        int i = estimar(ColumnasCuerpos.dia(instante));
+        while (!instante.isAfter(inicios[i])) {
+            i--;
+        }
+        while (instante.isAfter(inicios[i + 1])) {
+            i++;
+        }
+        return instante.isEqual(inicios[i + 1]) ? -1 : i;
+    }
+
+    // Posición aproximada por aritmética; se corrige con los límites exactos
+    private int estimar(int dia) {
+        int estimado;
+        if (ancho > 0) {
+            estimado = Math.floorDiv(dia - dias[0] - 1, ancho);
+        } else {
+            LocalDate fecha = LocalDate.ofEpochDay(dia);
+            estimado = fecha.getYear() * 12 + fecha.getMonthValue() - 1 - primerMes;
+        }
+        return Math.max(0, Math.min(cantidad - 1, estimado));
+    }
+
+    /*
+     * Etiqueta de cada intervalo según su inicio: "14-MAR" por día o semana y "MAR-2025" por mes.
+     * Si la ventana abarca un año o más, los días y semanas también llevan el año para no repetirse.
+     */
+    public List<String> etiquetas() {
+        boolean conAnio = dias[cantidad] - dias[0] >= 365;
+        List<String> etiquetas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            LocalDateTime inicio = inicios[i];
+            String mes = inicio.getMonth().toString().substring(0, 3);
+            if (ventana.granularidad() == Granularidad.MES) {
+                etiquetas.add(String.format("%s-%d", mes, inicio.getYear()));
+            } else if (conAnio) {
+                etiquetas.add(String.format("%d-%s-%d", inicio.getDayOfMonth(), mes, inicio.getYear()));
+            } else {
+                etiquetas.add(String.format("%d-%s", inicio.getDayOfMonth(), mes));
+            }
+        }
+        return etiquetas;
+    }
+}
@@ -2,10 +2,14 @@ package com.cemeteryProject.ReportsGeneration.services;
 
 import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
 import com.cemeteryProject.ReportsGeneration.models.DocumentoModel;
+import com.cemeteryProject.ReportsGeneration.models.DocumentoModel.TipoDocumento;
 import com.cemeteryProject.ReportsGeneration.repositories.IDocumentoRepository;
 import lombok.RequiredArgsConstructor;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.stereotype.Service;
 
@@ -15,6 +19,18 @@ public class DocumentoService {
 
     private final IDocumentoRepository documentoRepository;
 
+    /*
+     * Aumenta con cada alta, cambio o baja hecha desde la API; permite saber si un cálculo sobre
+     * los documentos quedó viejo. Los reportes que registra el propio servicio al generarse no
+     * cuentan: si no, cada descarga vencería el análisis en caché y la siguiente lo recalcularía.
+     * El análisis los incorpora cuando vence su TTL.
+     */
+    private final AtomicLong versionDatos = new AtomicLong();
+
+    public long versionDatos() {
+        return versionDatos.get();
+    }
+
     public DocumentoDTO toDTO(DocumentoModel model) {
         DocumentoDTO dto = new DocumentoDTO();
         dto.setId(model.getId());
@@ -22,6 +38,8 @@ public class DocumentoService {
         dto.setFechaGeneracion(model.getFechaGeneracion());
         dto.setTipo(model.getTipo());
         dto.setUsuarioId(model.getUsuarioId());
+        dto.setHashContenido(model.getHashContenido());
+        dto.setTamanoContenido(model.getTamanoContenido());
         return dto;
     }
 
@@ -44,19 +62,46 @@ public class DocumentoService {
     
     public DocumentoDTO crearDocumento(DocumentoDTO dto) {
         DocumentoModel model = toModel(dto);
-        return toDTO(documentoRepository.save(model));
+        DocumentoDTO creado = toDTO(documentoRepository.save(model));
+        versionDatos.incrementAndGet();
+        return creado;
     }
     
+    // Registra un reporte generado con un nombre más bonito ("<titulo> | yyyy-MM-dd"), enlazando el PDF ya guardado
+    public DocumentoDTO registrarReporte(String titulo, String usuarioId, AlmacenPdfService.Contenido contenido) {
+        DocumentoDTO docDTO = new DocumentoDTO();
+        String formattedDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        docDTO.setNombre(titulo + " | " + formattedDate);
+        docDTO.setFechaGeneracion(LocalDateTime.now());
+        docDTO.setTipo(TipoDocumento.REPORTE);
+        docDTO.setUsuarioId(usuarioId);
+        // El enlace al contenido lo fija solo el servidor, nunca llega desde la API
+        DocumentoModel model = toModel(docDTO);
+        if (contenido != null) {
+            model.setHashContenido(contenido.hash());
+            model.setTamanoContenido(contenido.tamano());
+        }
+        return toDTO(documentoRepository.save(model));
+    }
+
     public DocumentoDTO actualizarDocumento(String id, DocumentoDTO dto) {
         if (!documentoRepository.existsById(id)) return null;
         DocumentoModel actualizado = toModel(dto);
         actualizado.setId(id); // mantener el ID original
-        return toDTO(documentoRepository.save(actualizado));
+        // mantener el PDF enlazado
+        documentoRepository.findById(id).ifPresent(original -> {
+            actualizado.setHashContenido(original.getHashContenido());
+            actualizado.setTamanoContenido(original.getTamanoContenido());
+        });
+        DocumentoDTO resultado = toDTO(documentoRepository.save(actualizado));
+        versionDatos.incrementAndGet();
+        return resultado;
     }
     
     public boolean eliminarPorId(String id) {
         if (!documentoRepository.existsById(id)) return false;
         documentoRepository.deleteById(id);
+        versionDatos.incrementAndGet();
         return true;
     }
 
@@ -0,0 +1,538 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.EventoDatosDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.EventoDatosDTO.Entidad;
+import com.cemeteryProject.ReportsGeneration.dtos.EventoDatosDTO.Operacion;
+import com.cemeteryProject.ReportsGeneration.dtos.NichoCuerpoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
+import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+import com.cemeteryProject.ReportsGeneration.models.NichoModel.EstadoNicho;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores del análisis (cuerpos por estado y por mes de ingreso, inhumaciones por día, nichos
+ * por estado, asignaciones y ocupación por ubicación) que se mantienen al día con los eventos que envía el backend de
+ * gestión. Así el análisis lee los contadores en lugar de descargar y recorrer las tres
+ * colecciones. Cada cierto tiempo se recargan completos desde el backend para corregir eventos
+ * perdidos; los que llegan durante la recarga se vuelven a aplicar sobre el resultado.
+ */
+@Service
+@RequiredArgsConstructor
+public class EstadisticasIncrementalesService {
+
+    private static final Logger log = LoggerFactory.getLogger(EstadisticasIncrementalesService.class);
+
+    private final ExternalDataService externalDataService;
+
+    // Recibir eventos y calcular el análisis con los contadores
+    @Value("${reportes.eventos.habilitado:false}")
+    private boolean habilitado;
+
+    // Cada cuánto se recargan los contadores desde el backend (0 o negativo: solo la carga inicial)
+    @Value("${reportes.eventos.reconciliacion-segundos:900}")
+    private long intervaloReconciliacion;
+
+    // Eventos que se guardan para reaplicar durante una recarga; si se superan, esa recarga se descarta
+    @Value("${reportes.eventos.maximo-pendientes:50000}")
+    private int maximoPendientes;
+
+    public record ResultadoEventos(int recibidos, int aplicados) {
+    }
+
+    public record EstadoEventos(boolean habilitado, boolean inicializado, long version, long eventosRecibidos,
+                                long eventosAplicados, long reconciliaciones, LocalDateTime ultimaReconciliacion,
+                                long correccionesUltimaReconciliacion, int cuerpos, int nichos, int asignaciones,
+                                long errores, String ultimoError) {
+    }
+
+    // Un evento ya validado, listo para aplicarse a cualquier juego de contadores
+    private record Cambio(Entidad entidad, boolean baja, String id, Contadores.FilaCuerpo cuerpo, Contadores.FilaNicho nicho,
+                          Contadores.FilaAsignacion asignacion) {
+    }
+
+    private Contadores contadores = new Contadores();
+    private boolean inicializado;
+    // Eventos recibidos desde que empezó la recarga en curso; null si no hay ninguna
+    private List<Cambio> pendientes;
+    private boolean desbordada;
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong eventosRecibidos = new AtomicLong();
+    private final AtomicLong eventosAplicados = new AtomicLong();
+    private final AtomicLong reconciliaciones = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+    private volatile Instant ultimaReconciliacion;
+    private volatile long correcciones;
+    private volatile String ultimoError;
+    private ScheduledExecutorService reconciliador;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        reconciliador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "eventos-reconciliacion");
+            t.setDaemon(true);
+            return t;
+        });
+        Runnable tarea = () -> {
+            try {
+                reconciliar();
+            } catch (Exception e) {
+                errores.incrementAndGet();
+                ultimoError = e.getMessage();
+                log.error("Falló la recarga de los contadores del análisis", e);
+            }
+        };
+        // La carga inicial arranca enseguida; hasta que termine, el análisis se calcula como siempre
+        if (intervaloReconciliacion > 0) {
+            reconciliador.scheduleWithFixedDelay(tarea, 0, intervaloReconciliacion, TimeUnit.SECONDS);
+        } else {
+            reconciliador.execute(tarea);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (reconciliador != null) {
+            reconciliador.shutdownNow();
+        }
+    }
+
+    public boolean habilitado() {
+        return habilitado;
+    }
+
+    // Los contadores sirven para el análisis una vez hecha la primera carga completa
+    public synchronized boolean disponible() {
+        return habilitado && inicializado;
+    }
+
+    // Cambia con cada evento que modifica algún contador y con cada recarga
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Valida el lote entero y recién entonces lo aplica, así un evento inválido no deja el lote
+     * a medias. CREADO y ACTUALIZADO reemplazan lo que hubiera con ese id; ELIMINADO de un id
+     * desconocido no tiene efecto.
+     *
+     * @throws IllegalArgumentException si algún evento está incompleto
+     */
+    public ResultadoEventos aplicar(List<EventoDatosDTO> eventos) {
+        List<Cambio> cambios = new ArrayList<>(eventos.size());
+        for (int i = 0; i < eventos.size(); i++) {
+            cambios.add(validar(i, eventos.get(i)));
+        }
+        eventosRecibidos.addAndGet(cambios.size());
+        int aplicados = 0;
+        synchronized (this) {
+            for (Cambio cambio : cambios) {
+                if (contadores.aplicar(cambio)) {
+                    aplicados++;
+                }
+            }
+            if (pendientes != null) {
+                if (pendientes.size() + cambios.size() > maximoPendientes) {
+                    pendientes = null;
+                    desbordada = true;
+                } else {
+                    pendientes.addAll(cambios);
+                }
+            }
+        }
+        if (aplicados > 0) {
+            eventosAplicados.addAndGet(aplicados);
+            version.incrementAndGet();
+        }
+        return new ResultadoEventos(cambios.size(), aplicados);
+    }
+
+    /*
+     * Recarga completa: arma contadores nuevos desde el backend, les aplica los eventos que
+     * llegaron mientras tanto y los publica. Si algún dato del backend está incompleto, la
+     * recarga falla y se conservan los contadores anteriores.
+     */
+    public void reconciliar() {
+        synchronized (this) {
+            pendientes = new ArrayList<>();
+            desbordada = false;
+        }
+        try {
+            List<NichoDTO> nichos = externalDataService.getAllNichos();
+            List<CuerpoInhumadoDTO> cuerpos = externalDataService.getAllCuerpos();
+            List<NichoCuerpoDTO> asignaciones = externalDataService.getAllNichoCuerpo();
+
+            Contadores nuevos = new Contadores();
+            int sinId = 0;
+            for (NichoDTO nicho : nichos) {
+                String id = nicho.getCodigo() != null ? nicho.getCodigo() : sinIdentificador(sinId++);
+                nuevos.aplicar(new Cambio(Entidad.NICHO, false, id, null, filaNicho(nicho, "El nicho " + id), null));
+            }
+            for (CuerpoInhumadoDTO cuerpo : cuerpos) {
+                String id = cuerpo.getIdCadaver() != null ? cuerpo.getIdCadaver() : sinIdentificador(sinId++);
+                nuevos.aplicar(new Cambio(Entidad.CUERPO, false, id, filaCuerpo(cuerpo, "El cuerpo " + id), null, null));
+            }
+            for (NichoCuerpoDTO asignacion : asignaciones) {
+                String id = asignacion.getId() != null ? asignacion.getId() : sinIdentificador(sinId++);
+                nuevos.aplicar(new Cambio(Entidad.ASIGNACION, false, id, null, null, filaAsignacion(asignacion)));
+            }
+
+            synchronized (this) {
+                if (desbordada) {
+                    throw new IllegalStateException("Llegaron más de " + maximoPendientes + " eventos durante la recarga; se reintentará.");
+                }
+                pendientes.forEach(nuevos::aplicar);
+                correcciones = inicializado ? contadores.diferencias(nuevos) : 0;
+                contadores = nuevos;
+                inicializado = true;
+            }
+            version.incrementAndGet();
+            reconciliaciones.incrementAndGet();
+            ultimaReconciliacion = Instant.now();
+        } finally {
+            synchronized (this) {
+                pendientes = null;
+            }
+        }
+    }
+
+    /**
+     * Vuelca los contadores en el acumulador como si se hubieran agregado los cuerpos y nichos
+     * uno a uno; las inhumaciones, solo desde el primer día que puede contar. Devuelve la
+     * cantidad de asignaciones.
+     */
+    synchronized int volcarEn(AcumuladorAnalisis acumulador) {
+        return contadores.volcarEn(acumulador);
+    }
+
+    // Ocupación por ubicación de los nichos, asignaciones y cuerpos conocidos por eventos; los conteos ya están hechos
+    synchronized OcupacionUbicaciones.Resultado ocupacion(int maximo) {
+        return contadores.ocupacion(maximo);
+    }
+
+    public EstadoEventos estado() {
+        int cuerpos;
+        int nichos;
+        int asignaciones;
+        boolean cargado;
+        synchronized (this) {
+            cuerpos = contadores.cuerpos.size();
+            nichos = contadores.nichos.size();
+            asignaciones = contadores.asignaciones.size();
+            cargado = inicializado;
+        }
+        Instant ultima = ultimaReconciliacion;
+        return new EstadoEventos(habilitado, cargado, version.get(), eventosRecibidos.get(), eventosAplicados.get(),
+            reconciliaciones.get(), ultima != null ? LocalDateTime.ofInstant(ultima, ZoneId.systemDefault()) : null,
+            correcciones, cuerpos, nichos, asignaciones, errores.get(), ultimoError);
+    }
+
+    private static Cambio validar(int posicion, EventoDatosDTO evento) {
+        String prefijo = "Evento " + posicion + ": ";
+        if (evento == null || evento.getEntidad() == null || evento.getOperacion() == null) {
+            throw new IllegalArgumentException(prefijo + "la entidad y la operación son obligatorias.");
+        }
+        boolean baja = evento.getOperacion() == Operacion.ELIMINADO;
+        Object entidad = switch (evento.getEntidad()) {
+            case CUERPO -> evento.getCuerpo();
+            case NICHO -> evento.getNicho();
+            case ASIGNACION -> evento.getAsignacion();
+        };
+        if (!baja && entidad == null) {
+            throw new IllegalArgumentException(prefijo + "falta el " + evento.getEntidad().name().toLowerCase() + ".");
+        }
+        String id = evento.getId();
+        if (id == null && entidad != null) {
+            id = switch (evento.getEntidad()) {
+                case CUERPO -> evento.getCuerpo().getIdCadaver();
+                case NICHO -> evento.getNicho().getCodigo();
+                case ASIGNACION -> evento.getAsignacion().getId();
+            };
+        }
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException(prefijo + "falta el identificador.");
+        }
+        if (baja) {
+            return new Cambio(evento.getEntidad(), true, id, null, null, null);
+        }
+        return switch (evento.getEntidad()) {
+            case CUERPO -> new Cambio(Entidad.CUERPO, false, id, filaCuerpo(evento.getCuerpo(), prefijo + "el cuerpo"), null, null);
+            case NICHO -> new Cambio(Entidad.NICHO, false, id, null, filaNicho(evento.getNicho(), prefijo + "el nicho"), null);
+            case ASIGNACION -> new Cambio(Entidad.ASIGNACION, false, id, null, null, filaAsignacion(evento.getAsignacion()));
+        };
+    }
+
+    // Mismos requisitos que el análisis completo, que falla con cuerpos sin estado o sin fecha de ingreso
+    private static Contadores.FilaCuerpo filaCuerpo(CuerpoInhumadoDTO cuerpo, String descripcion) {
+        if (cuerpo.getEstado() == null || cuerpo.getFechaIngreso() == null) {
+            throw new IllegalArgumentException(descripcion + " no tiene estado o fecha de ingreso.");
+        }
+        return new Contadores.FilaCuerpo((byte) cuerpo.getEstado().ordinal(),
+            (byte) (cuerpo.getFechaIngreso().getMonthValue() - 1), ColumnasCuerpos.dia(cuerpo.getFechaInhumacion()));
+    }
+
+    private static Contadores.FilaNicho filaNicho(NichoDTO nicho, String descripcion) {
+        if (nicho.getEstado() == null) {
+            throw new IllegalArgumentException(descripcion + " no tiene estado.");
+        }
+        return new Contadores.FilaNicho(nicho.getEstado(), nicho.getUbicacion());
+    }
+
+    private static Contadores.FilaAsignacion filaAsignacion(NichoCuerpoDTO asignacion) {
+        return new Contadores.FilaAsignacion(asignacion.getCodigoNicho(), asignacion.getIdCadaver());
+    }
+
+    // Las filas sin id del backend igual se cuentan; ningún evento puede referirse a ellas
+    private static String sinIdentificador(int numero) {
+        return "\u0000" + numero;
+    }
+
+    /**
+     * Estado de cada entidad por id y los totales que se derivan de él. Quitar y volver a poner
+     * una fila deja los totales como si siempre hubiera tenido su último valor.
+     */
+    private static final class Contadores {
+
+        record FilaCuerpo(byte estado, byte mesIngreso, int diaInhumacion) {
+        }
+
+        record FilaNicho(EstadoNicho estado, String ubicacion) {
+        }
+
+        record FilaAsignacion(String codigoNicho, String idCadaver) {
+        }
+
+        private static final EstadoNicho[] ESTADOS_NICHO = EstadoNicho.values();
+
+        final Map<String, FilaCuerpo> cuerpos = new HashMap<>();
+        final Map<String, FilaNicho> nichos = new HashMap<>();
+        final Map<String, FilaAsignacion> asignaciones = new HashMap<>();
+        private final long[] porEstado = new long[EstadoCuerpo.values().length];
+        private final long[] porMesIngreso = new long[12];
+        private final NavigableMap<Integer, Long> inhumacionesPorDia = new TreeMap<>();
+        private final long[] nichosPorEstado = new long[ESTADOS_NICHO.length];
+        // Ocupación por ubicación, al día con cada cambio de nicho, cuerpo o asignación
+        private final Map<String, OcupacionUbicaciones.Fila> porUbicacion = new HashMap<>();
+        // Por código de nicho, asignaciones con cuerpo existente [0] y sin él [1]; la clave null junta las que no tienen código
+        private final Map<String, long[]> asignacionesPorNicho = new HashMap<>();
+        // Por id de cuerpo, las asignaciones que lo nombran
+        private final Map<String, Set<String>> asignacionesPorCuerpo = new HashMap<>();
+        private long asignacionesSinNicho;
+        private long asignacionesSinCuerpo;
+
+        // Devuelve si el cambio modificó algo
+        boolean aplicar(Cambio cambio) {
+            return switch (cambio.entidad()) {
+                case CUERPO -> cambio.baja() ? quitarCuerpo(cambio.id()) : ponerCuerpo(cambio.id(), cambio.cuerpo());
+                case NICHO -> cambio.baja() ? quitarNicho(cambio.id()) : ponerNicho(cambio.id(), cambio.nicho());
+                case ASIGNACION -> cambio.baja()
+                    ? quitarAsignacion(cambio.id())
+                    : ponerAsignacion(cambio.id(), cambio.asignacion());
+            };
+        }
+
+        private boolean ponerCuerpo(String id, FilaCuerpo fila) {
+            FilaCuerpo anterior = cuerpos.put(id, fila);
+            if (fila.equals(anterior)) {
+                return false;
+            }
+            if (anterior != null) {
+                sumarCuerpo(anterior, -1);
+            }
+            sumarCuerpo(fila, 1);
+            if (anterior == null) {
+                cambiarCuerpoDeAsignaciones(id, true);
+            }
+            return true;
+        }
+
+        private boolean quitarCuerpo(String id) {
+            FilaCuerpo anterior = cuerpos.remove(id);
+            if (anterior == null) {
+                return false;
+            }
+            sumarCuerpo(anterior, -1);
+            cambiarCuerpoDeAsignaciones(id, false);
+            return true;
+        }
+
+        private void sumarCuerpo(FilaCuerpo fila, int signo) {
+            porEstado[fila.estado()] += signo;
+            porMesIngreso[fila.mesIngreso()] += signo;
+            if (fila.diaInhumacion() != ColumnasCuerpos.SIN_FECHA) {
+                // Los días que quedan en cero se quitan para no recorrerlos al volcar
+                inhumacionesPorDia.merge(fila.diaInhumacion(), (long) signo, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+
+        private boolean ponerNicho(String id, FilaNicho fila) {
+            FilaNicho anterior = nichos.get(id);
+            if (fila.equals(anterior)) {
+                return false;
+            }
+            aportarNicho(id, -1);
+            nichos.put(id, fila);
+            aportarNicho(id, 1);
+            if (anterior != null) {
+                nichosPorEstado[anterior.estado().ordinal()]--;
+            }
+            nichosPorEstado[fila.estado().ordinal()]++;
+            return true;
+        }
+
+        private boolean quitarNicho(String id) {
+            if (!nichos.containsKey(id)) {
+                return false;
+            }
+            aportarNicho(id, -1);
+            FilaNicho anterior = nichos.remove(id);
+            // Sus asignaciones pasan a contarse como asignaciones sin nicho
+            aportarNicho(id, 1);
+            nichosPorEstado[anterior.estado().ordinal()]--;
+            return true;
+        }
+
+        private boolean ponerAsignacion(String id, FilaAsignacion fila) {
+            FilaAsignacion anterior = asignaciones.get(id);
+            if (fila.equals(anterior)) {
+                return false;
+            }
+            if (anterior != null) {
+                quitarAsignacion(id);
+            }
+            asignaciones.put(id, fila);
+            contarAsignacion(id, fila, 1);
+            return true;
+        }
+
+        private boolean quitarAsignacion(String id) {
+            FilaAsignacion anterior = asignaciones.remove(id);
+            if (anterior == null) {
+                return false;
+            }
+            contarAsignacion(id, anterior, -1);
+            return true;
+        }
+
+        // Cuenta la asignación en su nicho según si su cuerpo existe y la indexa por cuerpo
+        private void contarAsignacion(String id, FilaAsignacion fila, int signo) {
+            String codigo = fila.codigoNicho();
+            aportarNicho(codigo, -1);
+            long[] asignadas = asignacionesPorNicho.computeIfAbsent(codigo, c -> new long[2]);
+            asignadas[cuerpos.containsKey(fila.idCadaver()) ? 0 : 1] += signo;
+            if (asignadas[0] == 0 && asignadas[1] == 0) {
+                asignacionesPorNicho.remove(codigo);
+            }
+            aportarNicho(codigo, 1);
+            if (fila.idCadaver() == null) {
+                return;
+            }
+            if (signo > 0) {
+                asignacionesPorCuerpo.computeIfAbsent(fila.idCadaver(), c -> new HashSet<>()).add(id);
+            } else {
+                asignacionesPorCuerpo.computeIfPresent(fila.idCadaver(), (c, ids) -> ids.remove(id) && ids.isEmpty() ? null : ids);
+            }
+        }
+
+        // Un cuerpo que aparece o desaparece cambia la validez de las asignaciones que lo nombran
+        private void cambiarCuerpoDeAsignaciones(String idCadaver, boolean existe) {
+            Set<String> ids = asignacionesPorCuerpo.get(idCadaver);
+            if (ids == null) {
+                return;
+            }
+            for (String id : ids) {
+                String codigo = asignaciones.get(id).codigoNicho();
+                aportarNicho(codigo, -1);
+                long[] asignadas = asignacionesPorNicho.get(codigo);
+                asignadas[existe ? 0 : 1]++;
+                asignadas[existe ? 1 : 0]--;
+                aportarNicho(codigo, 1);
+            }
+        }
+
+        /*
+         * Suma (signo 1) o resta (signo -1) lo que aporta un código de nicho a la ocupación: si el
+         * nicho existe, el nicho y sus asignaciones en la fila de su ubicación; si no, sus
+         * asignaciones como asignaciones sin nicho. Se resta antes de cambiar el nicho o sus
+         * asignaciones y se vuelve a sumar después.
+         */
+        private void aportarNicho(String codigo, int signo) {
+            long[] asignadas = asignacionesPorNicho.get(codigo);
+            long conCuerpo = asignadas != null ? asignadas[0] : 0;
+            long sinCuerpo = asignadas != null ? asignadas[1] : 0;
+            FilaNicho nicho = codigo != null ? nichos.get(codigo) : null;
+            if (nicho == null) {
+                asignacionesSinNicho += signo * (conCuerpo + sinCuerpo);
+                return;
+            }
+            String ubicacion = OcupacionUbicaciones.ubicacion(nicho.ubicacion());
+            OcupacionUbicaciones.Fila fila = porUbicacion.computeIfAbsent(ubicacion, OcupacionUbicaciones.Fila::new);
+            fila.contarNicho(nicho.estado(), signo);
+            fila.cuerpos += signo * conCuerpo;
+            if (conCuerpo > 0) {
+                fila.conCuerpos += signo;
+            }
+            asignacionesSinCuerpo += signo * sinCuerpo;
+            if (fila.nichos == 0) {
+                porUbicacion.remove(ubicacion);
+            }
+        }
+
+        int volcarEn(AcumuladorAnalisis acumulador) {
+            acumulador.agregarConteoCuerpos(cuerpos.size(), porEstado, porMesIngreso);
+            inhumacionesPorDia.tailMap(acumulador.primerDiaRelevante(), false)
+                .forEach(acumulador::agregarInhumaciones);
+            for (EstadoNicho estado : ESTADOS_NICHO) {
+                if (nichosPorEstado[estado.ordinal()] > 0) {
+                    acumulador.agregarNichos(estado.toString(), nichosPorEstado[estado.ordinal()]);
+                }
+            }
+            return asignaciones.size();
+        }
+
+        // Mismo resultado que el cruce de las colecciones del backend; solo queda agrupar las ubicaciones
+        OcupacionUbicaciones.Resultado ocupacion(int maximo) {
+            return OcupacionUbicaciones.agrupar(porUbicacion.values(), asignacionesSinNicho, asignacionesSinCuerpo, maximo);
+        }
+
+        // Filas que difieren entre dos juegos de contadores (altas, bajas y modificaciones)
+        long diferencias(Contadores otros) {
+            return diferencias(cuerpos, otros.cuerpos) + diferencias(nichos, otros.nichos)
+                + diferencias(asignaciones, otros.asignaciones);
+        }
+
+        private static <V> long diferencias(Map<String, V> unos, Map<String, V> otros) {
+            long distintas = unos.entrySet().stream()
+                .filter(entrada -> !Objects.equals(entrada.getValue(), otros.get(entrada.getKey())))
+                .count();
+            return distintas + otros.keySet().stream().filter(id -> !unos.containsKey(id)).count();
+        }
+    }
+}
@@ -1,40 +1,621 @@
 package com.cemeteryProject.ReportsGeneration.services;
 
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoAnalisisDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.NichoCuerpoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ExternalDataService {
 
+    private static final Logger log = LoggerFactory.getLogger(ExternalDataService.class);
+
     private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
 
     @Value("${backend.management.base-url}")
     private String backendBaseUrl;
 
+    // Elementos por página al leer las colecciones del backend; 0 pide cada colección entera en una sola petición
+    @Value("${backend.paginacion.tamano-pagina:0}")
+    private int tamanoPagina;
+
+    // Nombres de los parámetros de paginación que entiende el backend
+    @Value("${backend.paginacion.parametro-pagina:page}")
+    private String parametroPagina;
+
+    @Value("${backend.paginacion.parametro-tamano:size}")
+    private String parametroTamano;
+
+    // Cada cuánto se sincroniza la réplica local del backend (0 o negativo: sin réplica, se lee siempre del backend)
+    @Value("${backend.replica.intervalo-segundos:0}")
+    private long intervaloReplica;
+
+    // Parámetro con que el backend filtra por fecha de modificación; vacío si no lo soporta y cada sincronización es completa
+    @Value("${backend.replica.parametro-modificados-desde:}")
+    private String parametroModificadosDesde;
+
+    // Con sincronización por deltas, cada cuántas se hace una completa para detectar las bajas
+    @Value("${backend.replica.sincronizaciones-por-reconciliacion:12}")
+    private int sincronizacionesPorReconciliacion;
+
+    // Peticiones condicionales (If-None-Match / If-Modified-Since) al pedir colecciones enteras
+    @Value("${backend.http.peticiones-condicionales:false}")
+    private boolean peticionesCondicionales;
+
+    // Tras una lectura, tiempo durante el que otras peticiones idénticas reciben el mismo resultado (0: solo las simultáneas)
+    @Value("${backend.coalescencia.ventana-ms:0}")
+    private long ventanaCoalescenciaMs;
+
+    // Fallos seguidos del backend que abren el circuito (0 o negativo: nunca se abre)
+    @Value("${backend.circuito.fallos-para-abrir:5}")
+    private int fallosParaAbrir;
+
+    // Tiempo que el circuito permanece abierto antes de probar de nuevo el backend
+    @Value("${backend.circuito.espera-apertura-ms:30000}")
+    private long esperaAperturaMs;
+
+    // Antigüedad máxima de la última lectura buena que se sirve cuando el backend no responde (0 o negativo: sin límite)
+    @Value("${backend.circuito.antiguedad-maxima-segundos:3600}")
+    private long antiguedadMaximaSegundos;
+
+    // Parámetro con que el backend devuelve solo los campos pedidos; vacío si no lo soporta
+    @Value("${backend.proyeccion.parametro-campos:}")
+    private String parametroCampos;
+
+    // Hilos virtuales que descargan la página siguiente mientras se procesa la actual
+    private final ExecutorService lecturaAnticipada = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Réplica local de las tres colecciones, siempre de una misma sincronización
+    private record Replica(ReplicaColeccion<NichoDTO> nichos, ReplicaColeccion<CuerpoInhumadoDTO> cuerpos,
+                           ReplicaColeccion<NichoCuerpoDTO> nichosCuerpos) {
+
+        // Se cargan juntas; mientras no lo estén se lee del backend
+        boolean cargada() {
+            return cuerpos.cargada();
+        }
+
+        ReplicaColeccion.Cambios cambios() {
+            return nichos.cambios().sumar(cuerpos.cambios()).sumar(nichosCuerpos.cambios());
+        }
+    }
+
+    // Cada sincronización publica las tres colecciones de una vez reemplazando esta referencia
+    private volatile Replica replica = new Replica(new ReplicaColeccion<>(NichoDTO::getCodigo),
+        new ReplicaColeccion<>(CuerpoInhumadoDTO::getIdCadaver), new ReplicaColeccion<>(NichoCuerpoDTO::getId));
+    private final AtomicLong versionReplica = new AtomicLong();
+    private final AtomicLong sincronizaciones = new AtomicLong();
+    private final AtomicLong erroresSincronizacion = new AtomicLong();
+    private volatile Instant modificadosDesde;
+    private volatile Instant ultimaSincronizacion;
+    private volatile String ultimoError;
+    private ScheduledExecutorService sincronizador;
+
+    private final CacheCondicional cacheCondicional = new CacheCondicional();
+    private final SolicitudesCompartidas solicitudesCompartidas = new SolicitudesCompartidas();
+
+    /*
+     * Última lectura buena de cada ruta y, para las que se están sirviendo obsoletas, desde cuándo
+     * son esos datos. Como una misma ruta se lee con DTO distintos (la proyección del análisis y
+     * los cuerpos completos), estas entradas, las de la caché condicional y las lecturas
+     * compartidas se guardan por ruta y tipo de elemento: ver {@link #clave(String, Class)}.
+     */
+    private record UltimaLectura(List<?> elementos, Instant fecha) {
+    }
+
+    private final InterruptorCircuito interruptor = new InterruptorCircuito();
+    private final Map<String, UltimaLectura> ultimasLecturas = new ConcurrentHashMap<>();
+    private final Map<String, Instant> rutasObsoletas = new ConcurrentHashMap<>();
+    private final AtomicLong lecturasObsoletas = new AtomicLong();
+
+    public record EstadoReplica(boolean habilitada, boolean cargada, long version, long sincronizaciones,
+                                LocalDateTime ultimaSincronizacion, int nichos, int cuerpos, int nichosCuerpos,
+                                int altas, int modificaciones, int bajas, long errores, String ultimoError) {
+    }
+
+    public record EstadisticasCondicionales(boolean habilitadas, long peticiones, long noModificadas,
+                                            double proporcionNoModificadas, long bytesRecibidos, long bytesAhorrados,
+                                            int rutasEnCache) {
+    }
+
+    public record EstadoCircuito(String estado, int fallosSeguidos, long rechazadas, long lecturasObsoletas,
+                                 Map<String, Long> edadRutasObsoletasSegundos) {
+    }
+
+    public record EstadisticasCoalescencia(long ventanaMs, long lecturas, long compartidas) {
+    }
+
     public List<NichoDTO> getAllNichos() {
-        String url = backendBaseUrl + "/nichos";
-        NichoDTO[] nichos = restTemplate.getForObject(url, NichoDTO[].class);
-        return Arrays.asList(nichos);
+        Replica actual = replica;
+        if (actual.cargada()) {
+            return actual.nichos().elementos();
+        }
+        return descargarCompartido("/nichos", NichoDTO[].class);
     }
 
     public List<CuerpoInhumadoDTO> getAllCuerpos() {
+        Replica actual = replica;
+        if (actual.cargada()) {
+            return actual.cuerpos().elementos();
+        }
+        return descargarCompartido("/cuerposinhumados", CuerpoInhumadoDTO[].class);
+    }
+
+    /**
+     * Cuerpos reducidos a los campos que usa el análisis. Si el backend soporta elegir campos se
+     * piden solo esos; si no, Jackson descarta los demás al parsear sin crear sus textos.
+     */
+    public List<CuerpoAnalisisDTO> getCuerposAnalisis() {
+        Replica actual = replica;
+        if (actual.cargada()) {
+            return actual.cuerpos().vista().stream().map(CuerpoAnalisisDTO::de).collect(Collectors.toCollection(ArrayList::new));
+        }
+        String ruta = parametroCampos == null || parametroCampos.isBlank()
+            ? "/cuerposinhumados"
+            : "/cuerposinhumados?" + parametroCampos + "=" + CuerpoAnalisisDTO.CAMPOS;
+        return descargarCompartido(ruta, CuerpoAnalisisDTO[].class);
+    }
+
+    /**
+     * Recorre /cuerposinhumados leyendo el arreglo JSON elemento por elemento y entregando cada
+     * cuerpo al consumidor en cuanto se deserializa. A diferencia de {@link #getAllCuerpos()}, la
+     * lista completa nunca está en memoria: solo el cuerpo que se está procesando. Con paginación
+     * habilitada se recorre página por página (como mucho dos páginas en memoria), y con la
+     * réplica cargada se recorre la copia local sin tocar la red.
+     * <p>
+     * Este recorrido no guarda una última lectura buena propia: hacerlo obligaría a retener la
+     * colección entera, justo lo que evita. Con el circuito abierto solo recorre la que haya
+     * dejado {@link #getAllCuerpos()} y, si no hay, falla enseguida; un fallo a mitad del
+     * recorrido no tiene respaldo, porque parte de los cuerpos ya se entregó. Los fallos sí
+     * cuentan para el circuito.
+     *
+     * @return cantidad de cuerpos entregados al consumidor
+     */
+    public long recorrerCuerpos(Consumer<CuerpoInhumadoDTO> consumidor) {
+        Replica actual = replica;
+        if (actual.cargada()) {
+            return recorrer(actual.cuerpos().vista(), consumidor);
+        }
+        // Con el circuito abierto no se espera al backend: se recorre la última lectura buena de getAllCuerpos, si la hay
+        if (interruptor.abierto()) {
+            return recorrer(lecturaObsoleta(clave("/cuerposinhumados", CuerpoInhumadoDTO[].class), null), consumidor);
+        }
+        try {
+            long leidos = recorrerCuerposEnBackend(consumidor);
+            interruptor.registrarExito();
+            return leidos;
+        } catch (RuntimeException e) {
+            registrarError(e);
+            throw e;
+        }
+    }
+
+    private long recorrerCuerposEnBackend(Consumer<CuerpoInhumadoDTO> consumidor) {
+        if (tamanoPagina > 0) {
+            return recorrerPaginas("/cuerposinhumados", CuerpoInhumadoDTO[].class, consumidor);
+        }
         String url = backendBaseUrl + "/cuerposinhumados";
-        CuerpoInhumadoDTO[] cuerpos = restTemplate.getForObject(url, CuerpoInhumadoDTO[].class);
-        return Arrays.asList(cuerpos);
+        ObjectReader lector = objectMapper.readerFor(CuerpoInhumadoDTO.class);
+        Long leidos = restTemplate.execute(url, HttpMethod.GET,
+            request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+            response -> {
+                try (JsonParser parser = objectMapper.getFactory().createParser(response.getBody())) {
+                    return leerArreglo(parser, lector, consumidor);
+                }
+            });
+        return leidos != null ? leidos : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> long recorrer(Collection<?> elementos, Consumer<T> consumidor) {
+        long leidos = 0;
+        for (Object elemento : elementos) {
+            consumidor.accept((T) elemento);
+            leidos++;
+        }
+        return leidos;
+    }
+
+    private long leerArreglo(JsonParser parser, ObjectReader lector, Consumer<CuerpoInhumadoDTO> consumidor) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IllegalStateException("La respuesta de /cuerposinhumados no es un arreglo JSON.");
+        }
+        long leidos = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new IllegalStateException("La respuesta de /cuerposinhumados terminó antes de cerrar el arreglo.");
+            }
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            consumidor.accept(lector.readValue(parser));
+            leidos++;
+        }
+        return leidos;
     }
 
     public List<NichoCuerpoDTO> getAllNichoCuerpo() {
-        String url = backendBaseUrl + "/nichoscuerpos";
-        NichoCuerpoDTO[] relaciones = restTemplate.getForObject(url, NichoCuerpoDTO[].class);
-        return Arrays.asList(relaciones);
+        Replica actual = replica;
+        if (actual.cargada()) {
+            return actual.nichosCuerpos().elementos();
+        }
+        return descargarCompartido("/nichoscuerpos", NichoCuerpoDTO[].class);
+    }
+
+    // Cambia cada vez que una sincronización trae altas, modificaciones o bajas
+    public long versionReplica() {
+        return versionReplica.get();
+    }
+
+    public EstadisticasCondicionales estadisticasCondicionales() {
+        long peticiones = cacheCondicional.peticiones();
+        long noModificadas = cacheCondicional.noModificadas();
+        return new EstadisticasCondicionales(peticionesCondicionales, peticiones, noModificadas,
+            peticiones > 0 ? (double) noModificadas / peticiones : 0.0,
+            cacheCondicional.bytesRecibidos(), cacheCondicional.bytesAhorrados(), cacheCondicional.entradas());
+    }
+
+    public EstadisticasCoalescencia estadisticasCoalescencia() {
+        return new EstadisticasCoalescencia(ventanaCoalescenciaMs, solicitudesCompartidas.cargas(), solicitudesCompartidas.compartidas());
+    }
+
+    public EstadoCircuito estadoCircuito() {
+        Instant ahora = Instant.now();
+        Map<String, Long> edades = new TreeMap<>();
+        rutasObsoletas.forEach((clave, fecha) -> edades.merge(clave.substring(0, clave.lastIndexOf('#')),
+            Duration.between(fecha, ahora).toSeconds(), Math::max));
+        return new EstadoCircuito(interruptor.estado().name(), interruptor.fallosSeguidos(), interruptor.rechazadas(),
+            lecturasObsoletas.get(), edades);
+    }
+
+    /**
+     * Fecha de los datos más viejos que se están sirviendo porque el backend no responde, o null
+     * si todas las rutas están al día. Permite marcar los reportes armados con datos obsoletos.
+     */
+    public Instant fechaDatosObsoletos() {
+        return rutasObsoletas.values().stream().min(Instant::compareTo).orElse(null);
+    }
+
+    public EstadoReplica estadoReplica() {
+        Instant ultima = ultimaSincronizacion;
+        Replica actual = replica;
+        ReplicaColeccion.Cambios cambios = actual.cambios();
+        return new EstadoReplica(intervaloReplica > 0, actual.cargada(), versionReplica.get(), sincronizaciones.get(),
+            ultima != null ? LocalDateTime.ofInstant(ultima, ZoneId.systemDefault()) : null,
+            actual.nichos().tamano(), actual.cuerpos().tamano(), actual.nichosCuerpos().tamano(),
+            cambios.altas(), cambios.modificaciones(), cambios.bajas(), erroresSincronizacion.get(), ultimoError);
+    }
+
+    @PostConstruct
+    public void iniciarReplica() {
+        if (intervaloReplica <= 0) {
+            return;
+        }
+        sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-backend");
+            t.setDaemon(true);
+            return t;
+        });
+        // La carga inicial arranca enseguida; hasta que termine, las lecturas van al backend
+        sincronizador.scheduleWithFixedDelay(() -> {
+            try {
+                sincronizarReplica();
+            } catch (Exception e) {
+                erroresSincronizacion.incrementAndGet();
+                ultimoError = e.getMessage();
+                log.error("Falló la sincronización de la réplica del backend", e);
+            }
+        }, 0, intervaloReplica, TimeUnit.SECONDS);
+    }
+
+    /*
+     * Trae las tres colecciones, arma la versión nueva de cada una y recién entonces publica las
+     * tres juntas con una sola escritura: un fallo a mitad de camino no deja nada aplicado y un
+     * lector nunca ve colecciones de sincronizaciones distintas. Si el backend filtra por fecha
+     * de modificación se piden solo los cambios desde el inicio de la sincronización anterior;
+     * como así no se ven las bajas, cada cierta cantidad de sincronizaciones se hace una carga
+     * completa que compara fila por fila.
+     */
+    public synchronized void sincronizarReplica() {
+        Instant inicio = Instant.now();
+        long numero = sincronizaciones.get();
+        Replica actual = replica;
+        boolean porDeltas = parametroModificadosDesde != null && !parametroModificadosDesde.isBlank()
+            && modificadosDesde != null && actual.cargada()
+            && (sincronizacionesPorReconciliacion <= 0 || numero % sincronizacionesPorReconciliacion != 0);
+
+        Replica nueva;
+        if (porDeltas) {
+            List<NichoDTO> nichos = descargarModificados("/nichos", NichoDTO[].class);
+            List<CuerpoInhumadoDTO> cuerpos = descargarModificados("/cuerposinhumados", CuerpoInhumadoDTO[].class);
+            List<NichoCuerpoDTO> relaciones = descargarModificados("/nichoscuerpos", NichoCuerpoDTO[].class);
+            nueva = new Replica(actual.nichos().aplicar(nichos), actual.cuerpos().aplicar(cuerpos),
+                actual.nichosCuerpos().aplicar(relaciones));
+        } else {
+            List<NichoDTO> nichos = descargar("/nichos", NichoDTO[].class);
+            List<CuerpoInhumadoDTO> cuerpos = descargar("/cuerposinhumados", CuerpoInhumadoDTO[].class);
+            List<NichoCuerpoDTO> relaciones = descargar("/nichoscuerpos", NichoCuerpoDTO[].class);
+            nueva = new Replica(actual.nichos().reemplazar(nichos), actual.cuerpos().reemplazar(cuerpos),
+                actual.nichosCuerpos().reemplazar(relaciones));
+        }
+
+        // La versión cambia después de publicar: quien la lea ya nueva encuentra los datos nuevos
+        replica = nueva;
+        if (nueva.cambios().hayCambios()) {
+            versionReplica.incrementAndGet();
+        }
+        // Lo modificado durante esta descarga vuelve a pedirse en la próxima
+        modificadosDesde = inicio;
+        ultimaSincronizacion = inicio;
+        sincronizaciones.incrementAndGet();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        lecturaAnticipada.shutdownNow();
+        if (sincronizador != null) {
+            sincronizador.shutdownNow();
+        }
+    }
+
+    /*
+     * Las lecturas simultáneas de una misma colección se resuelven con una sola petición al
+     * backend. Cada llamador recibe su propia lista, aunque los DTO sean los mismos.
+     */
+    private <T> List<T> descargarCompartido(String ruta, Class<T[]> tipo) {
+        String clave = clave(ruta, tipo);
+        InterruptorCircuito.Decision decision = interruptor.evaluar(esperaAperturaMs);
+        if (decision == InterruptorCircuito.Decision.RECHAZAR) {
+            return new ArrayList<>(lecturaObsoleta(clave, null));
+        }
+        // La sonda que comprueba si el backend volvió corre en segundo plano si hay datos para responder ya
+        if (decision == InterruptorCircuito.Decision.SONDA && utilizable(ultimasLecturas.get(clave))) {
+            Thread.ofVirtual().name("backend-sonda").start(() -> {
+                try {
+                    leerRegistrando(ruta, tipo);
+                } catch (RuntimeException e) {
+                    // El circuito ya volvió a abrirse
+                }
+            });
+            return new ArrayList<>(lecturaObsoleta(clave, null));
+        }
+        try {
+            return new ArrayList<>(solicitudesCompartidas.ejecutar(clave, ventanaCoalescenciaMs, () -> leerRegistrando(ruta, tipo)));
+        } catch (RuntimeException e) {
+            // Cualquier error del cliente o del transporte (tiempo agotado, cancelación, E/S) se cubre con la última lectura buena
+            if (!(e instanceof RestClientException || esFalloDelBackend(e)) || !utilizable(ultimasLecturas.get(clave))) {
+                throw e;
+            }
+            return new ArrayList<>(lecturaObsoleta(clave, e));
+        }
+    }
+
+    // Clave de las cachés de una lectura: la ruta y el tipo de elemento, p. ej. "/nichos#NichoDTO"
+    private static String clave(String ruta, Class<?> tipo) {
+        return ruta + "#" + tipo.getComponentType().getSimpleName();
+    }
+
+    // Lectura real al backend; solo quien la hace informa al circuito y guarda la última lectura buena
+    private <T> List<T> leerRegistrando(String ruta, Class<T[]> tipo) {
+        String clave = clave(ruta, tipo);
+        try {
+            List<T> elementos = descargar(ruta, tipo);
+            interruptor.registrarExito();
+            ultimasLecturas.put(clave, new UltimaLectura(elementos, Instant.now()));
+            rutasObsoletas.remove(clave);
+            return elementos;
+        } catch (RuntimeException e) {
+            registrarError(e);
+            throw e;
+        }
+    }
+
+    // Si el backend contestó (aunque con un 4xx o datos inválidos) cuenta como vivo para el circuito
+    private void registrarError(RuntimeException e) {
+        if (esFalloDelBackend(e)) {
+            interruptor.registrarFallo(fallosParaAbrir);
+        } else {
+            interruptor.registrarExito();
+        }
+    }
+
+    /*
+     * Tiempos de espera, cancelaciones, errores de E/S y respuestas 5xx, también cuando llegan
+     * envueltos por la lectura anticipada; un 4xx o datos inválidos son un problema de la
+     * petición, no del backend.
+     */
+    private static boolean esFalloDelBackend(Throwable e) {
+        Throwable causa = e;
+        while ((causa instanceof CompletionException || causa instanceof ExecutionException) && causa.getCause() != null) {
+            causa = causa.getCause();
+        }
+        if (causa instanceof HttpStatusCodeException status) {
+            return status.getStatusCode().is5xxServerError();
+        }
+        return causa instanceof ResourceAccessException
+            || causa instanceof CancellationException
+            || causa instanceof UncheckedIOException
+            || causa instanceof IOException;
+    }
+
+    private boolean utilizable(UltimaLectura ultima) {
+        return ultima != null && (antiguedadMaximaSegundos <= 0
+            || Duration.between(ultima.fecha(), Instant.now()).toSeconds() <= antiguedadMaximaSegundos);
+    }
+
+    // Devuelve la última lectura buena marcándola como obsoleta, o falla enseguida si no hay una utilizable
+    @SuppressWarnings("unchecked")
+    private <T> List<T> lecturaObsoleta(String clave, RuntimeException causa) {
+        UltimaLectura ultima = ultimasLecturas.get(clave);
+        if (!utilizable(ultima)) {
+            throw new ResourceAccessException("El backend de gestión no está disponible y no hay datos recientes de "
+                + clave.substring(0, clave.lastIndexOf('#')) + (causa != null ? ": " + causa.getMessage() : ""));
+        }
+        lecturasObsoletas.incrementAndGet();
+        rutasObsoletas.put(clave, ultima.fecha());
+        return (List<T>) ultima.elementos();
+    }
+
+    private <T> List<T> descargar(String ruta, Class<T[]> tipo) {
+        if (tamanoPagina > 0) {
+            return leerTodo(ruta, tipo);
+        }
+        if (peticionesCondicionales) {
+            return descargarCondicional(ruta, tipo);
+        }
+        T[] elementos = restTemplate.getForObject(backendBaseUrl + ruta, tipo);
+        return Arrays.asList(elementos);
+    }
+
+    /*
+     * Envía los validadores de la última respuesta de la ruta. Con 304 se devuelve la lista ya
+     * deserializada de entonces; con 200 se parsea el cuerpo y se guarda junto con su ETag y
+     * Last-Modified para la próxima vez.
+     */
+    private <T> List<T> descargarCondicional(String ruta, Class<T[]> tipo) {
+        String clave = clave(ruta, tipo);
+        CacheCondicional.Entrada<T> previa = cacheCondicional.obtener(clave);
+        CacheCondicional.Entrada<T> entrada = restTemplate.execute(backendBaseUrl + ruta, HttpMethod.GET,
+            request -> {
+                request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+                if (previa != null) {
+                    previa.agregarValidadores(request.getHeaders());
+                }
+            },
+            response -> {
+                if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && previa != null) {
+                    return previa;
+                }
+                byte[] cuerpo = response.getBody().readAllBytes();
+                T[] elementos = objectMapper.readValue(cuerpo, tipo);
+                if (elementos == null) {
+                    throw new IllegalStateException("La respuesta de " + ruta + " no trajo datos.");
+                }
+                return new CacheCondicional.Entrada<>(response.getHeaders().getETag(),
+                    response.getHeaders().getLastModified(), Collections.unmodifiableList(Arrays.asList(elementos)), cuerpo.length);
+            });
+        cacheCondicional.registrar(clave, previa, entrada);
+        return new ArrayList<>(entrada.elementos());
+    }
+
+    // Con paginación el delta también se pide de a páginas: un delta grande no debe quedar truncado en la primera
+    private <T> List<T> descargarModificados(String ruta, Class<T[]> tipo) {
+        String rutaModificados = UriComponentsBuilder.fromUriString(ruta)
+            .queryParam(parametroModificadosDesde, modificadosDesde.toString())
+            .toUriString();
+        if (tamanoPagina > 0) {
+            return leerTodo(rutaModificados, tipo);
+        }
+        T[] elementos = restTemplate.getForObject(backendBaseUrl + rutaModificados, tipo);
+        return elementos != null ? Arrays.asList(elementos) : List.of();
+    }
+
+    private <T> List<T> leerTodo(String ruta, Class<T[]> tipo) {
+        List<T> elementos = new ArrayList<>();
+        recorrerPaginas(ruta, tipo, elementos::add);
+        return elementos;
+    }
+
+    /*
+     * Pide la colección de a páginas y entrega sus elementos en orden, como un único recorrido.
+     * Antes de procesar la página N ya se pide la N+1, así la descarga se solapa con el consumidor.
+     * Termina con la primera página incompleta; si una página trae más elementos que el tamaño
+     * pedido, el backend ignoró la paginación y esa respuesta ya es la colección entera. Si la
+     * colección mide justo una página, un backend que ignora la paginación la repite en cada
+     * página: una página igual a la anterior también termina el recorrido, sin entregarse.
+     */
+    private <T> long recorrerPaginas(String ruta, Class<T[]> tipo, Consumer<T> consumidor) {
+        int pagina = 0;
+        long leidos = 0;
+        CompletableFuture<T[]> siguiente = pedirPagina(ruta, tipo, pagina);
+        T[] anterior = null;
+        try {
+            while (siguiente != null) {
+                T[] actual = esperar(siguiente);
+                if (actual == null || (anterior != null && Arrays.equals(actual, anterior))) {
+                    siguiente = null;
+                    break;
+                }
+                siguiente = actual.length == tamanoPagina ? pedirPagina(ruta, tipo, ++pagina) : null;
+                for (T elemento : actual) {
+                    consumidor.accept(elemento);
+                    leidos++;
+                }
+                anterior = actual;
+            }
+        } finally {
+            // Si el consumidor falló, la lectura anticipada ya no sirve
+            if (siguiente != null) {
+                siguiente.cancel(true);
+            }
+        }
+        return leidos;
+    }
+
+    private <T> CompletableFuture<T[]> pedirPagina(String ruta, Class<T[]> tipo, int pagina) {
+        String url = UriComponentsBuilder.fromUriString(backendBaseUrl + ruta)
+            .queryParam(parametroPagina, pagina)
+            .queryParam(parametroTamano, tamanoPagina)
+            .toUriString();
+        return CompletableFuture.supplyAsync(() -> restTemplate.getForObject(url, tipo), lecturaAnticipada);
+    }
+
+    // Devuelve la página o relanza el error original de la petición
+    private static <T> T esperar(CompletableFuture<T> pagina) {
+        try {
+            return pagina.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera fragmentos de un PDF en paralelo y los une en orden con PDFBox. Cada fragmento se
+ * escribe en un archivo temporal, así ni los fragmentos ni el documento final se mantienen
+ * enteros en memoria; los temporales se borran al terminar la unión, haya fallado o no.
+ */
+@Service
+public class FragmentoPdfService {
+
+    private final ThreadPoolExecutor executor;
+
+    public FragmentoPdfService(@Value("${reportes.pdf.cuerpos.hilos-fragmentos:0}") int hilos) {
+        // 0 o negativo: un hilo por núcleo
+        int tamanoPool = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        // Pool acotado: si la cola se llena, el hilo de la petición genera el fragmento él mismo
+        this.executor = new ThreadPoolExecutor(
+            tamanoPool, tamanoPool, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(tamanoPool * 4),
+            r -> {
+                Thread t = new Thread(r, "pdf-fragmento-" + contador.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Escribe un fragmento completo (un PDF válido por sí mismo) sobre el stream recibido.
+     */
+    @FunctionalInterface
+    public interface EscritorFragmento {
+        void escribir(OutputStream out) throws Exception;
+    }
+
+    // Lanza la generación del fragmento en el pool; el futuro entrega el archivo temporal escrito
+    public CompletableFuture<Path> generar(EscritorFragmento escritor) {
+        return CompletableFuture.supplyAsync(() -> {
+            Path archivo = null;
+            try {
+                archivo = Files.createTempFile("reporte-fragmento-", ".pdf");
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(archivo))) {
+                    escritor.escribir(out);
+                }
+                return archivo;
+            } catch (Exception e) {
+                borrar(archivo);
+                throw new CompletionException("Error al generar el fragmento del PDF: " + e.getMessage(), e);
+            }
+        }, executor);
+    }
+
+    /*
+     * Une los fragmentos en el orden de la lista y escribe el resultado en el stream recibido,
+     * sin cerrarlo. Las fuentes se leen con búfer en disco para no cargarlas en memoria.
+     */
+    public void unir(List<CompletableFuture<Path>> fragmentos, OutputStream out) throws IOException {
+        try {
+            PDFMergerUtility merger = new PDFMergerUtility();
+            for (CompletableFuture<Path> fragmento : fragmentos) {
+                merger.addSource(fragmento.join().toFile());
+            }
+            // PDFBox cierra el stream de destino al guardar; quien lo abrió sigue siendo su dueño
+            merger.setDestinationStream(StreamUtils.nonClosing(out));
+            merger.mergeDocuments(MemoryUsageSetting.setupTempFileOnly());
+        } finally {
+            descartar(fragmentos);
+        }
+    }
+
+    // Espera a los fragmentos y borra sus temporales; para cuando el documento ya no se va a unir
+    public void descartar(List<CompletableFuture<Path>> fragmentos) {
+        for (CompletableFuture<Path> fragmento : fragmentos) {
+            try {
+                borrar(fragmento.join());
+            } catch (CompletionException | CancellationException e) {
+                // El fragmento falló y ya borró su propio temporal
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private static void borrar(Path archivo) {
+        if (archivo == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            archivo.toFile().deleteOnExit();
+        }
+    }
+}
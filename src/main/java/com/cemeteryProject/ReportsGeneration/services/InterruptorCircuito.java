@@ -0,0 +1,66 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+/**
+ * Interruptor de circuito para el backend de gestión. Tras varios fallos seguidos se abre y las
+ * lecturas se rechazan sin llamar al backend; pasada la espera deja pasar una única sonda, que
+ * lo cierra si sale bien o lo vuelve a abrir si falla.
+ */
+final class InterruptorCircuito {
+
+    enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    enum Decision { PERMITIR, SONDA, RECHAZAR }
+
+    private Estado estado = Estado.CERRADO;
+    private int fallosSeguidos;
+    private long abiertoEn;
+    private long rechazadas;
+
+    synchronized Decision evaluar(long esperaAperturaMs) {
+        switch (estado) {
+            case CERRADO:
+                return Decision.PERMITIR;
+            case ABIERTO:
+                if (System.nanoTime() - abiertoEn >= esperaAperturaMs * 1_000_000L) {
+                    estado = Estado.SEMIABIERTO;
+                    return Decision.SONDA;
+                }
+                break;
+            default:
+                // Ya hay una sonda en curso
+                break;
+        }
+        rechazadas++;
+        return Decision.RECHAZAR;
+    }
+
+    synchronized boolean abierto() {
+        return estado != Estado.CERRADO;
+    }
+
+    synchronized void registrarExito() {
+        estado = Estado.CERRADO;
+        fallosSeguidos = 0;
+    }
+
+    // Con umbral 0 o negativo el circuito nunca se abre
+    synchronized void registrarFallo(int fallosParaAbrir) {
+        fallosSeguidos++;
+        if (estado == Estado.SEMIABIERTO || (fallosParaAbrir > 0 && fallosSeguidos >= fallosParaAbrir)) {
+            estado = Estado.ABIERTO;
+            abiertoEn = System.nanoTime();
+        }
+    }
+
+    synchronized Estado estado() {
+        return estado;
+    }
+
+    synchronized int fallosSeguidos() {
+        return fallosSeguidos;
+    }
+
+    synchronized long rechazadas() {
+        return rechazadas;
+    }
+}
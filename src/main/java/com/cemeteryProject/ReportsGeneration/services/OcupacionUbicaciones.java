@@ -0,0 +1,164 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.NichoCuerpoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO.OcupacionUbicacion;
+import com.cemeteryProject.ReportsGeneration.models.NichoModel.EstadoNicho;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ocupación por ubicación: cruza las asignaciones con los nichos (por código) y con los cuerpos
+ * (por idCadaver) mediante índices hash, en una sola pasada por cada colección. El costo es
+ * lineal en nichos + asignaciones + cuerpos, sin ordenar ni buscar de a uno en listas.
+ */
+final class OcupacionUbicaciones {
+
+    static final String SIN_UBICACION = "Sin ubicación";
+    static final String OTRAS_UBICACIONES = "Otras ubicaciones";
+
+    record Resultado(List<OcupacionUbicacion> ubicaciones, long asignacionesSinNicho, long asignacionesSinCuerpo) {
+    }
+
+    // Contadores de una ubicación, mientras se recorre o mantenidos con los eventos
+    static final class Fila {
+        final String ubicacion;
+        long nichos, disponibles, ocupados, mantenimiento, conCuerpos, cuerpos;
+
+        Fila(String ubicacion) {
+            this.ubicacion = ubicacion;
+        }
+
+        void contarNicho(EstadoNicho estado, int signo) {
+            nichos += signo;
+            if (estado != null) {
+                switch (estado) {
+                    case DISPONIBLE -> disponibles += signo;
+                    case OCUPADO -> ocupados += signo;
+                    case MANTENIMIENTO -> mantenimiento += signo;
+                }
+            }
+        }
+
+        void sumar(Fila otra) {
+            nichos += otra.nichos;
+            disponibles += otra.disponibles;
+            ocupados += otra.ocupados;
+            mantenimiento += otra.mantenimiento;
+            conCuerpos += otra.conCuerpos;
+            cuerpos += otra.cuerpos;
+        }
+    }
+
+    private OcupacionUbicaciones() {
+    }
+
+    /**
+     * @param idsCuerpos   ids de los cuerpos existentes, o null si no se conocen (no se valida el cuerpo)
+     * @param maximo       ubicaciones a listar; las de menos nichos se agrupan en "Otras ubicaciones" (0 o negativo: todas)
+     */
+    static Resultado calcular(List<NichoDTO> nichos, List<NichoCuerpoDTO> asignaciones, Set<String> idsCuerpos, int maximo) {
+        // Índice código -> posición del nicho, y ubicación de cada posición
+        Map<String, Fila> porUbicacion = new HashMap<>();
+        Map<String, Integer> indiceNichos = new HashMap<>(capacidad(nichos.size()));
+        Fila[] filaDeNicho = new Fila[nichos.size()];
+        for (int i = 0; i < nichos.size(); i++) {
+            NichoDTO nicho = nichos.get(i);
+            Fila fila = porUbicacion.computeIfAbsent(ubicacion(nicho.getUbicacion()), Fila::new);
+            fila.contarNicho(nicho.getEstado(), 1);
+            filaDeNicho[i] = fila;
+            if (nicho.getCodigo() != null) {
+                indiceNichos.put(nicho.getCodigo(), i);
+            }
+        }
+
+        // Una pasada por las asignaciones: cada una es una búsqueda en cada índice
+        boolean[] conCuerpo = new boolean[nichos.size()];
+        long sinNicho = 0;
+        long sinCuerpo = 0;
+        for (NichoCuerpoDTO asignacion : asignaciones) {
+            Integer posicion = asignacion.getCodigoNicho() != null ? indiceNichos.get(asignacion.getCodigoNicho()) : null;
+            if (posicion == null) {
+                sinNicho++;
+                continue;
+            }
+            if (idsCuerpos != null && (asignacion.getIdCadaver() == null || !idsCuerpos.contains(asignacion.getIdCadaver()))) {
+                sinCuerpo++;
+                continue;
+            }
+            Fila fila = filaDeNicho[posicion];
+            fila.cuerpos++;
+            if (!conCuerpo[posicion]) {
+                conCuerpo[posicion] = true;
+                fila.conCuerpos++;
+            }
+        }
+        return agrupar(porUbicacion.values(), sinNicho, sinCuerpo, maximo);
+    }
+
+    // Nombre con el que se agrupa un nicho
+    static String ubicacion(String ubicacion) {
+        return ubicacion != null && !ubicacion.isBlank() ? ubicacion.trim() : SIN_UBICACION;
+    }
+
+    // Arma el resultado desde filas ya contadas; las filas no se modifican
+    static Resultado agrupar(Collection<Fila> filas, long asignacionesSinNicho, long asignacionesSinCuerpo, int maximo) {
+        return new Resultado(listar(filas, maximo), asignacionesSinNicho, asignacionesSinCuerpo);
+    }
+
+    // Ids de los cuerpos de las columnas, o null si ninguno trae id (p. ej. un backend que no lo proyecta)
+    static Set<String> idsCuerpos(ColumnasCuerpos cuerpos) {
+        Set<String> ids = new HashSet<>(capacidad(cuerpos.tamano()));
+        for (int i = 0; i < cuerpos.tamano(); i++) {
+            if (cuerpos.idCadaver(i) != null) {
+                ids.add(cuerpos.idCadaver(i));
+            }
+        }
+        return ids.isEmpty() && cuerpos.tamano() > 0 ? null : ids;
+    }
+
+    // Por nombre de ubicación; si sobran, las de menos nichos van juntas al final
+    private static List<OcupacionUbicacion> listar(Collection<Fila> filas, int maximo) {
+        Comparator<Fila> porNombre = Comparator.comparing(fila -> fila.ubicacion);
+        List<Fila> visibles = new ArrayList<>(filas);
+        Fila otras = null;
+        if (maximo > 0 && visibles.size() > maximo) {
+            visibles.sort(Comparator.comparingLong((Fila fila) -> fila.nichos).reversed().thenComparing(porNombre));
+            otras = new Fila(OTRAS_UBICACIONES);
+            for (Fila fila : visibles.subList(maximo - 1, visibles.size())) {
+                otras.sumar(fila);
+            }
+            visibles = new ArrayList<>(visibles.subList(0, maximo - 1));
+        }
+        visibles.sort(porNombre);
+        if (otras != null) {
+            visibles.add(otras);
+        }
+        List<OcupacionUbicacion> resultado = new ArrayList<>(visibles.size());
+        for (Fila fila : visibles) {
+            OcupacionUbicacion ocupacion = new OcupacionUbicacion();
+            ocupacion.setUbicacion(fila.ubicacion);
+            ocupacion.setTotalNichos(fila.nichos);
+            ocupacion.setNichosDisponibles(fila.disponibles);
+            ocupacion.setNichosOcupados(fila.ocupados);
+            ocupacion.setNichosMantenimiento(fila.mantenimiento);
+            ocupacion.setNichosConCuerpos(fila.conCuerpos);
+            ocupacion.setCuerposAsignados(fila.cuerpos);
+            ocupacion.setPorcentajeOcupacion(fila.nichos == 0 ? 0 : (double) fila.conCuerpos / fila.nichos * 100);
+            resultado.add(ocupacion);
+        }
+        return resultado;
+    }
+
+    // Capacidad para que el HashMap no tenga que crecer con n elementos
+    private static int capacidad(int elementos) {
+        return (int) Math.min(Integer.MAX_VALUE, elementos * 4L / 3 + 1);
+    }
+}
@@ -2,178 +2,86 @@ package com.cemeteryProject.ReportsGeneration.services;
 
 import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.services.ChartRenderService.GraficoRenderizado;
+import com.cemeteryProject.ReportsGeneration.services.ChartRenderService.GraficoSpec;
+import com.cemeteryProject.ReportsGeneration.templates.AccesoPropiedades;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.AtributoLayout;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.Bloque;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.ColumnaLayout;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.EstiloTexto;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.GraficoLayout;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.TablaLayout;
+import com.cemeteryProject.ReportsGeneration.templates.PlantillasReporte;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
 import com.lowagie.text.pdf.PdfWriter;
+import lombok.RequiredArgsConstructor;
 import org.jfree.chart.ChartFactory;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.ChartUtils;
-import org.jfree.chart.axis.CategoryLabelPositions;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.chart.renderer.category.BarRenderer;
-import org.jfree.chart.renderer.category.LineAndShapeRenderer;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 public class PdfGeneratorService {
 
-    public byte[] generarReportePDFConAnalisis(ReporteAnalisisDTO analisis) {
-        try {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            Document document = new Document();
-            PdfWriter.getInstance(document, out);
-            document.open();
+    private final ChartRenderService chartRenderService;
+    private final PlantillasReporte plantillas;
+    private final FragmentoPdfService fragmentoPdfService;
 
-            // Título
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
-            Paragraph title = new Paragraph("Reporte del Cementerio", titleFont);
-            title.setAlignment(Paragraph.ALIGN_CENTER);
-            document.add(title);
+    // Cantidad de cuerpos a partir de la cual se usa el modo "tabla grande" (0 o negativo lo desactiva)
+    @Value("${reportes.pdf.cuerpos.umbral-tabla-grande:1000}")
+    private int umbralTablaGrande;
 
-            document.add(new Paragraph(" "));
-
-            // Información del reporte
-            Font bodyFont = FontFactory.getFont(FontFactory.HELVETICA, 12);
-            document.add(new Paragraph("Generado por: " + analisis.getUsuario(), bodyFont));
-            document.add(new Paragraph("Fecha: " + analisis.getFechaGeneracion().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")), bodyFont));
-
-            // Resumen General
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph("Resumen General:", FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14)));
-            document.add(new Paragraph(" - Total de nichos: " + analisis.getTotalNichos(), bodyFont));
-            document.add(new Paragraph(" - Total de cuerpos: " + analisis.getTotalCuerpos(), bodyFont));
-            document.add(new Paragraph(" - Cuerpos asignados: " + analisis.getCuerposAsignados(), bodyFont));
-            document.add(new Paragraph(" - Ocupación: " + String.format("%.2f", analisis.getPorcentajeOcupacion()) + "%", bodyFont));
-            document.add(new Paragraph(" - Nichos disponibles: " + analisis.getNichosDisponibles(), bodyFont));
-            document.add(new Paragraph(" - Cuerpos inhumados (último mes): " + analisis.getCuerposRecientes(), bodyFont));
-
-            // Promedios Mensuales
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph("Promedios Mensuales:", FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14)));
-            document.add(new Paragraph(" - Promedio general de ingresos: " + String.format("%.2f", analisis.getPromedioMensualGeneral()), bodyFont));
-            document.add(new Paragraph(" - Promedio por tipo de cuerpo:", bodyFont));
-            for (Map.Entry<String, Double> entry : analisis.getPromedioMensualPorTipo().entrySet()) {
-                document.add(new Paragraph("    • " + entry.getKey() + ": " + String.format("%.2f", entry.getValue()), bodyFont));
-            }
+    // Cuerpos que se acumulan en la tabla grande antes de volcarlos al writer
+    @Value("${reportes.pdf.cuerpos.cuerpos-por-bloque:50}")
+    private int cuerposPorBloque;
 
-            // Gráfico de torta (estado de nichos)
-            document.add(new Paragraph(" "));
-            DefaultPieDataset<String> pieDatasetNichos = new DefaultPieDataset<>();
-            analisis.getEstadoNichos().forEach(pieDatasetNichos::setValue);
-            JFreeChart pieChartNichos = ChartFactory.createPieChart(
-                "Estado de los Nichos",
-                pieDatasetNichos,
-                true,
-                true,
-                false
-            );
-            addChartToDocument(document, pieChartNichos, "pie");
-
-            // Gráfico de barras (tipos de cuerpo)
-            document.add(new Paragraph(" "));
-            DefaultCategoryDataset barDatasetCuerpos = new DefaultCategoryDataset();
-            analisis.getCuerposPorTipo().forEach((tipo, cantidad) ->
-                barDatasetCuerpos.addValue(cantidad, "Cantidad", tipo.toString())
-            );
-            JFreeChart barChartCuerpos = ChartFactory.createBarChart(
-                "Cuerpos por Tipo",
-                "Tipo",
-                "Cantidad",
-                barDatasetCuerpos,
-                PlotOrientation.VERTICAL,
-                false,
-                true,
-                false
-            );
-            addChartToDocument(document, barChartCuerpos, "bar");
+    // Cantidad de cuerpos a partir de la cual la lista se genera en fragmentos paralelos (0 o negativo lo desactiva)
+    @Value("${reportes.pdf.cuerpos.umbral-fragmentos:5000}")
+    private int umbralFragmentos;
 
-            // Gráfico de torta (distribución de cuerpos: asignados, no asignados)
-            document.add(new Paragraph(" "));
-            DefaultPieDataset<String> pieDatasetCuerpos = new DefaultPieDataset<>();
-            analisis.getCuerposAsignadosDistribucion().forEach(pieDatasetCuerpos::setValue);
-            JFreeChart pieChartCuerpos = ChartFactory.createPieChart(
-                "Distribución de Cuerpos",
-                pieDatasetCuerpos,
-                true,
-                true,
-                false
-            );
-            addChartToDocument(document, pieChartCuerpos, "pie");
+    // Cuerpos por fragmento
+    @Value("${reportes.pdf.cuerpos.cuerpos-por-fragmento:2000}")
+    private int cuerposPorFragmento;
 
-            // Gráfico de líneas (tendencia de inhumaciones)
-            document.add(new Paragraph(" "));
-            DefaultCategoryDataset lineDatasetInhumations = new DefaultCategoryDataset();
-            analisis.getWeeklyInhumations().forEach(data ->
-                lineDatasetInhumations.addValue(data.getCount(), "Inhumaciones", data.getWeek())
-            );
-            JFreeChart lineChartInhumations = ChartFactory.createLineChart(
-                "Tendencia de Inhumaciones (Últimas 12 Semanas)",
-                "Semana",
-                "Inhumaciones",
-                lineDatasetInhumations,
-                PlotOrientation.VERTICAL,
-                false,
-                true,
-                false
-            );
-            addChartToDocument(document, lineChartInhumations, "line");
+    public byte[] generarReportePDFConAnalisis(ReporteAnalisisDTO analisis) {
+        try {
+            LayoutReporte layout = plantillas.obtener(PlantillasReporte.REPORTE_ANALISIS);
 
-            // Gráfico de barras (tipos de documentos)
-            document.add(new Paragraph(" "));
-            DefaultCategoryDataset barDatasetDocs = new DefaultCategoryDataset();
-            analisis.getDocumentTypes().forEach((tipo, cantidad) ->
-                barDatasetDocs.addValue(cantidad, "Cantidad", tipo)
-            );
-            JFreeChart barChartDocs = ChartFactory.createBarChart(
-                "Tipos de Documentos",
-                "Tipo",
-                "Cantidad",
-                barDatasetDocs,
-                PlotOrientation.VERTICAL,
-                false,
-                true,
-                false
+            // Los gráficos se renderizan en paralelo mientras se maqueta el texto
+            List<CompletableFuture<GraficoRenderizado>> graficos = chartRenderService.renderizar(
+                layout.graficos().stream().map(grafico -> graficoSpec(grafico, analisis)).toList()
             );
-            addChartToDocument(document, barChartDocs, "bar");
 
-            // Gráfico de líneas (tendencia de generación de documentos)
-            document.add(new Paragraph(" "));
-            DefaultCategoryDataset lineDatasetDocs = new DefaultCategoryDataset();
-            analisis.getWeeklyDocuments().forEach(data ->
-                lineDatasetDocs.addValue(data.getCount(), "Documentos", data.getWeek())
-            );
-            JFreeChart lineChartDocs = ChartFactory.createLineChart(
-                "Tendencia de Generación de Documentos (Últimas 12 Semanas)",
-                "Semana",
-                "Documentos",
-                lineDatasetDocs,
-                PlotOrientation.VERTICAL,
-                false,
-                true,
-                false
-            );
-            addChartToDocument(document, lineChartDocs, "line");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Document document = new Document();
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            document.open();
 
-            // Top 3 usuarios con más documentos
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph("Top 3 Usuarios con Más Documentos:", FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14)));
-            if (analisis.getTopUsers().isEmpty()) {
-                document.add(new Paragraph("No hay datos de usuarios disponibles para mostrar", bodyFont));
-            } else {
-                for (int i = 0; i < analisis.getTopUsers().size(); i++) {
-                    ReporteAnalisisDTO.TopUser topUser = analisis.getTopUsers().get(i);
-                    String position = (i == 0) ? "1°" : (i == 1) ? "2°" : "3°";
-                    document.add(new Paragraph(String.format(" - %s ID: %s: %d documentos", position, topUser.getUsuarioId(), topUser.getCount()), bodyFont));
+            Iterator<CompletableFuture<GraficoRenderizado>> pendientes = graficos.iterator();
+            for (Bloque bloque : layout.bloques()) {
+                if (bloque instanceof LayoutReporte.Grafico) {
+                    // Cada gráfico espera solo a su propio renderizado
+                    document.add(pendientes.next().join().comoImagen(writer));
+                } else {
+                    agregarBloque(document, bloque, propiedad -> AccesoPropiedades.valor(analisis, propiedad));
                 }
             }
 
@@ -187,230 +95,481 @@ public class PdfGeneratorService {
     }
 
     public byte[] generarReportePDFCuerpos(List<CuerpoInhumadoDTO> cuerpoList) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generarReportePDFCuerpos(cuerpoList, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Escribe la lista de cuerpos directamente sobre el stream recibido. El PdfWriter
+     * vuelca cada página al stream en cuanto se completa, por lo que el documento nunca
+     * se mantiene entero en memoria (útil para responder con StreamingResponseBody).
+     * El stream no se cierra aquí; su dueño es quien lo abrió.
+     */
+    public void generarReportePDFCuerpos(List<CuerpoInhumadoDTO> cuerpoList, OutputStream out) {
         try {
             if (cuerpoList == null || cuerpoList.isEmpty()) {
                 throw new IllegalArgumentException("No se proporcionaron datos de cuerpos para generar el reporte.");
             }
 
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            Document document = new Document();
-            PdfWriter.getInstance(document, out);
-            document.open();
+            // Mismo camino que el recorrido en streaming: el tamaño de la lista decide el formato
+            EscrituraCuerpos escritura = abrirReportePDFCuerpos(out);
+            try {
+                cuerpoList.forEach(escritura::agregar);
+            } catch (RuntimeException e) {
+                escritura.descartar();
+                throw e;
+            }
+            escritura.close();
 
-            // Título
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
-            Paragraph title = new Paragraph("Lista de Cuerpos Registrados", titleFont);
-            title.setAlignment(Paragraph.ALIGN_CENTER);
-            title.setSpacingAfter(10);
-            document.add(title);
-
-            // Fecha de generación
-            Font dateFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
-            Paragraph date = new Paragraph("Generado el: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")), dateFont);
-            date.setAlignment(Paragraph.ALIGN_CENTER);
-            date.setSpacingAfter(20);
-            document.add(date);
-
-            // Formateadores para fechas
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-
-            // Iterar sobre cada cuerpo y crear un bloque
-            Font sectionTitleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
-            Font labelFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
-            Font valueFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
-            int index = 1;
-
-            for (CuerpoInhumadoDTO cuerpo : cuerpoList) {
-                // Título del bloque: "Cuerpo #N - ID: [idCadaver]"
-                Paragraph sectionTitle = new Paragraph("Cuerpo #" + index + " - ID: " + (cuerpo.getIdCadaver() != null ? cuerpo.getIdCadaver() : "N/A"), sectionTitleFont);
-                sectionTitle.setSpacingBefore(20);
-                sectionTitle.setSpacingAfter(10);
-                document.add(sectionTitle);
-
-                // Crear una tabla de 2 columnas para organizar los atributos
-                PdfPTable table = new PdfPTable(2);
-                table.setWidthPercentage(100);
-                table.setWidths(new float[]{1, 1}); // Columnas de igual ancho
-
-                // Lista de atributos a mostrar
-                String[][] attributes = {
-                    {"Nombre", cuerpo.getNombre() != null ? cuerpo.getNombre() + " " + (cuerpo.getApellido() != null ? cuerpo.getApellido() : "") : "N/A"},
-                    {"Documento", cuerpo.getDocumentoIdentidad() != null ? cuerpo.getDocumentoIdentidad() : "N/A"},
-                    {"Protocolo Necropsia", cuerpo.getNumeroProtocoloNecropsia() != null ? cuerpo.getNumeroProtocoloNecropsia() : "N/A"},
-                    {"Causa de Muerte", cuerpo.getCausaMuerte() != null ? cuerpo.getCausaMuerte() : "N/A"},
-                    {"Fecha de Nacimiento", cuerpo.getFechaNacimiento() != null ? cuerpo.getFechaNacimiento().format(dateFormatter) : "N/A"},
-                    {"Fecha de Defunción", cuerpo.getFechaDefuncion() != null ? cuerpo.getFechaDefuncion().format(dateFormatter) : "N/A"},
-                    {"Fecha de Ingreso", cuerpo.getFechaIngreso() != null ? cuerpo.getFechaIngreso().format(dateTimeFormatter) : "N/A"},
-                    {"Fecha de Inhumación", cuerpo.getFechaInhumacion() != null ? cuerpo.getFechaInhumacion().format(dateFormatter) : "N/A"},
-                    {"Fecha de Exhumación", cuerpo.getFechaExhumacion() != null ? cuerpo.getFechaExhumacion().format(dateFormatter) : "N/A"},
-                    {"Funcionario Receptor", cuerpo.getFuncionarioReceptor() != null ? cuerpo.getFuncionarioReceptor() + (cuerpo.getCargoFuncionario() != null ? " (" + cuerpo.getCargoFuncionario() + ")" : "") : "N/A"},
-                    {"Autoridad Remitente", cuerpo.getAutoridadRemitente() != null ? cuerpo.getAutoridadRemitente() + (cuerpo.getCargoAutoridadRemitente() != null ? " (" + cuerpo.getCargoAutoridadRemitente() + ")" : "") : "N/A"},
-                    {"Autoridad de Exhumación", cuerpo.getAutoridadExhumacion() != null ? cuerpo.getAutoridadExhumacion() + (cuerpo.getCargoAutoridadExhumacion() != null ? " (" + cuerpo.getCargoAutoridadExhumacion() + ")" : "") : "N/A"},
-                    {"Estado", cuerpo.getEstado() != null ? cuerpo.getEstado().toString() : "N/A"},
-                    {"Observaciones", cuerpo.getObservaciones() != null ? cuerpo.getObservaciones() : "Sin observaciones"}
-                };
-
-                // Llenar la tabla con los atributos
-                for (String[] attribute : attributes) {
-                    // Etiqueta
-                    PdfPCell labelCell = new PdfPCell(new Phrase(attribute[0] + ":", labelFont));
-                    labelCell.setBorder(Rectangle.NO_BORDER);
-                    labelCell.setPadding(2);
-                    labelCell.setBackgroundColor(new java.awt.Color(240, 240, 240)); // Fondo gris claro
-                    table.addCell(labelCell);
-
-                    // Valor
-                    PdfPCell valueCell = new PdfPCell(new Phrase(attribute[1], valueFont));
-                    valueCell.setBorder(Rectangle.NO_BORDER);
-                    valueCell.setPadding(2);
-                    valueCell.setBackgroundColor(new java.awt.Color(240, 240, 240)); // Fondo gris claro
-                    table.addCell(valueCell);
-                }
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Error al generar el reporte de cuerpos: " + e.getMessage(), e);
+        }
+    }
 
-                // Agregar la tabla al documento
-                document.add(table);
+    private void escribirDocumentoCuerpos(List<CuerpoInhumadoDTO> cuerpoList, int primerIndice, boolean conEncabezado,
+                                          OutputStream out) throws DocumentException {
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
+        document.open();
 
-                // Línea separadora
-                Paragraph separator = new Paragraph();
-                separator.setSpacingAfter(10);
-                separator.add(new Chunk(new com.lowagie.text.pdf.draw.LineSeparator()));
-                document.add(separator);
+        LayoutReporte layout = plantillas.obtener(PlantillasReporte.LISTA_CUERPOS);
+        TablaLayout tabla = layout.tabla();
 
-                index++;
-            }
+        // Título y fecha de generación
+        if (conEncabezado) {
+            agregarEncabezadoCuerpos(document, layout);
+        }
 
+        // Con listas grandes se usa una única tabla que se vuelca por bloques
+        if (umbralTablaGrande > 0 && cuerpoList.size() >= umbralTablaGrande) {
+            agregarCuerposEnTablaGrande(document, cuerpoList, primerIndice, tabla);
             document.close();
-            return out.toByteArray();
+            return;
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("Error al generar el reporte de cuerpos: " + e.getMessage(), e);
+        int index = primerIndice;
+
+        for (CuerpoInhumadoDTO cuerpo : cuerpoList) {
+            Function<String, Object> valores = valoresCuerpo(index, cuerpo);
+
+            // Título del bloque: "Cuerpo #N - ID: [idCadaver]"
+            document.add(tabla.estiloTitulo().parrafo(tabla.titulo().render(valores)));
+
+            // Tabla de atributos según las columnas de la plantilla
+            PdfPTable table = new PdfPTable(tabla.anchos().length);
+            table.setWidthPercentage(100);
+            table.setWidths(tabla.anchos());
+
+            for (AtributoLayout atributo : tabla.atributos()) {
+                agregarFilaAtributo(table, tabla, atributo, valores);
+            }
+
+            // Agregar la tabla al documento
+            document.add(table);
+
+            // Línea separadora
+            Paragraph separator = new Paragraph();
+            separator.setSpacingAfter(10);
+            separator.add(new Chunk(new com.lowagie.text.pdf.draw.LineSeparator()));
+            document.add(separator);
+
+            index++;
+        }
+
+        document.close();
+    }
+
+    private void agregarEncabezadoCuerpos(Document document, LayoutReporte layout) throws DocumentException {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (Bloque bloque : layout.bloques()) {
+            agregarBloque(document, bloque, propiedad -> "ahora".equals(propiedad) ? ahora : null);
         }
     }
 
-    private void addChartToDocument(Document document, JFreeChart chart, String chartType) throws Exception {
-        // Personalizar la apariencia general de los gráficos
-        chart.setBackgroundPaint(new java.awt.Color(240, 240, 240));
-        chart.setBorderPaint(java.awt.Color.WHITE);
-        chart.setBorderStroke(new java.awt.BasicStroke(2.0f));
-        chart.setBorderVisible(true);
-
-        // Personalizar según el tipo de gráfico
-        if (chartType.equals("pie")) {
-            org.jfree.chart.plot.PiePlot<?> piePlot = (org.jfree.chart.plot.PiePlot<?>) chart.getPlot();
-            piePlot.setBackgroundPaint(java.awt.Color.WHITE);
-            piePlot.setOutlineVisible(false);
-
-            // Habilitar etiquetas simples y mostrarlas dentro de las secciones
-            piePlot.setSimpleLabels(true);
-            piePlot.setLabelFont(new java.awt.Font("Arial", java.awt.Font.PLAIN, 12));
-            piePlot.setLabelGap(0.02);
-            piePlot.setLabelBackgroundPaint(null);
-            piePlot.setLabelOutlinePaint(null);
-            piePlot.setLabelShadowPaint(null);
-            piePlot.setLabelPaint(java.awt.Color.BLACK);
-
-            // Configurar etiquetas dentro de las secciones (valor y porcentaje)
-            piePlot.setLabelGenerator(new org.jfree.chart.labels.StandardPieSectionLabelGenerator(
-                "{1} ({2})",
-                new java.text.DecimalFormat("0"),
-                new java.text.DecimalFormat("0.0%")
-            ));
+    /**
+     * Modo "tabla grande": todos los cuerpos van en una sola PdfPTable marcada como incompleta.
+     * Cada {@code cuerposPorBloque} cuerpos la tabla se agrega al documento, lo que escribe las
+     * filas ya maquetadas en el writer y las descarta, así la memoria no crece con la lista.
+     */
+    private void agregarCuerposEnTablaGrande(Document document, List<CuerpoInhumadoDTO> cuerpoList,
+                                             int primerIndice, TablaLayout tabla) throws DocumentException {
+        TablaGrande tablaGrande = new TablaGrande(document, tabla, primerIndice);
+        for (CuerpoInhumadoDTO cuerpo : cuerpoList) {
+            tablaGrande.agregar(cuerpo);
+        }
+        tablaGrande.close();
+    }
 
-            // Asignar colores específicos según el título del gráfico
-            if (chart.getTitle().getText().equals("Estado de los Nichos")) {
-                piePlot.setSectionPaint("DISPONIBLE", new java.awt.Color(46, 204, 113));
-                piePlot.setSectionPaint("OCUPADO", new java.awt.Color(255, 28, 14));
-                piePlot.setSectionPaint("MANTENIMIENTO", new java.awt.Color(52, 152, 219));
-            } else if (chart.getTitle().getText().equals("Distribución de Cuerpos")) {
-                piePlot.setSectionPaint("Asignados", new java.awt.Color(142, 68, 173));
-                piePlot.setSectionPaint("No Asignados", new java.awt.Color(52, 152, 219));
-            }
+    /**
+     * Abre la lista de cuerpos sobre el stream para ir agregando los cuerpos a medida que llegan
+     * (por ejemplo, desde {@link ExternalDataService#recorrerCuerpos}), sin conocer cuántos son.
+     * El formato se decide con los cuerpos recibidos, igual que para una lista completa. El stream
+     * no se cierra; sí hay que cerrar la escritura, o descartarla si el recorrido falló.
+     */
+    public EscrituraCuerpos abrirReportePDFCuerpos(OutputStream out) {
+        return new EscrituraCuerpos(out);
+    }
 
-            chart.getLegend().setItemFont(new java.awt.Font("Arial", java.awt.Font.PLAIN, 12));
-            chart.getLegend().setBackgroundPaint(new java.awt.Color(240, 240, 240));
-            chart.getLegend().setFrame(new org.jfree.chart.block.BlockBorder(java.awt.Color.WHITE));
-        } else if (chartType.equals("bar")) {
-            org.jfree.chart.plot.CategoryPlot categoryPlot = (org.jfree.chart.plot.CategoryPlot) chart.getPlot();
-            categoryPlot.setBackgroundPaint(java.awt.Color.WHITE);
-            categoryPlot.setOutlinePaint(java.awt.Color.WHITE);
-            categoryPlot.setRangeGridlinePaint(new java.awt.Color(220, 220, 220));
-            categoryPlot.setDomainGridlinesVisible(false);
-
-            org.jfree.chart.axis.NumberAxis rangeAxis = (org.jfree.chart.axis.NumberAxis) categoryPlot.getRangeAxis();
-            rangeAxis.setStandardTickUnits(org.jfree.chart.axis.NumberAxis.createIntegerTickUnits());
-
-            // Calcular el valor máximo en el dataset
-            DefaultCategoryDataset barDataset = (DefaultCategoryDataset) categoryPlot.getDataset();
-            double maxValue = 0;
-            for (int row = 0; row < barDataset.getRowCount(); row++) {
-                for (int col = 0; col < barDataset.getColumnCount(); col++) {
-                    Number value = barDataset.getValue(row, col);
-                    if (value != null && value.doubleValue() > maxValue) {
-                        maxValue = value.doubleValue();
-                    }
-                }
+    /**
+     * Lista de cuerpos que se escribe a medida que llegan. Como el formato depende de la cantidad,
+     * los primeros cuerpos se retienen hasta poder decidir:
+     * <ul>
+     *   <li>si se llega a {@code umbralFragmentos}, los retenidos y los siguientes se reparten en
+     *       fragmentos de {@code cuerposPorFragmento} que se generan en paralelo y se unen al cerrar;</li>
+     *   <li>sin fragmentos, al llegar a {@code umbralTablaGrande} se abre el documento en modo
+     *       "tabla grande" y desde ahí cada cuerpo se escribe apenas llega;</li>
+     *   <li>si el recorrido termina antes, los retenidos se escriben al cerrar con el formato de
+     *       siempre: un bloque por cuerpo o, pasado el umbral, la tabla grande.</li>
+     * </ul>
+     * En memoria quedan como mucho los cuerpos de un umbral o de los fragmentos en curso. Sin
+     * cuerpos, cerrarla no escribe nada.
+     */
+    public final class EscrituraCuerpos implements AutoCloseable {
+
+        private final OutputStream out;
+        private List<CuerpoInhumadoDTO> retenidos = new ArrayList<>();
+        private Document document;
+        private TablaGrande tablaGrande;
+        private List<CompletableFuture<Path>> fragmentos;
+        private int despachados;
+        private int agregados;
+        private boolean cerrada;
+
+        private EscrituraCuerpos(OutputStream out) {
+            this.out = out;
+        }
+
+        public void agregar(CuerpoInhumadoDTO cuerpo) {
+            if (cerrada) {
+                throw new IllegalStateException("La escritura de cuerpos ya fue cerrada.");
+            }
+            agregados++;
+            if (tablaGrande != null) {
+                tablaGrande.agregar(cuerpo);
+                return;
             }
-            rangeAxis.setRange(0, maxValue + 1); // Agregar un margen de 1 unidad
-
-            BarRenderer customRenderer = new BarRenderer() {
-                @Override
-                public java.awt.Paint getItemPaint(int row, int column) {
-                    if (chart.getTitle().getText().equals("Cuerpos por Tipo")) {
-                        return column == 0 ? new java.awt.Color(79, 129, 189) : new java.awt.Color(255, 99, 71);
-                    } else {
-                        return column == 0 ? new java.awt.Color(46, 204, 113) : new java.awt.Color(33, 150, 243);
+            retenidos.add(cuerpo);
+            if (fragmentos != null) {
+                if (retenidos.size() >= tamanoFragmento()) {
+                    despacharFragmento();
+                }
+            } else if (umbralFragmentos > 0 && agregados >= umbralFragmentos) {
+                // Ya se sabe que la lista es enorme: lo retenido se reparte y los siguientes van llenando fragmentos
+                fragmentos = new ArrayList<>();
+                List<CuerpoInhumadoDTO> acumulados = retenidos;
+                retenidos = new ArrayList<>();
+                for (CuerpoInhumadoDTO acumulado : acumulados) {
+                    retenidos.add(acumulado);
+                    if (retenidos.size() >= tamanoFragmento()) {
+                        despacharFragmento();
                     }
                 }
-            };
-
-            customRenderer.setBarPainter(new org.jfree.chart.renderer.category.StandardBarPainter());
-            customRenderer.setShadowVisible(false);
-            customRenderer.setDefaultItemLabelGenerator(new org.jfree.chart.labels.StandardCategoryItemLabelGenerator());
-            customRenderer.setDefaultItemLabelsVisible(true);
-            customRenderer.setDefaultItemLabelFont(new java.awt.Font("Arial", java.awt.Font.BOLD, 12));
-            categoryPlot.setRenderer(customRenderer);
-        } else if (chartType.equals("line")) {
-            org.jfree.chart.plot.CategoryPlot categoryPlot = (org.jfree.chart.plot.CategoryPlot) chart.getPlot();
-            categoryPlot.setBackgroundPaint(java.awt.Color.WHITE);
-            categoryPlot.setOutlinePaint(java.awt.Color.WHITE);
-            categoryPlot.setRangeGridlinePaint(new java.awt.Color(220, 220, 220));
-            categoryPlot.setDomainGridlinesVisible(false);
-
-            org.jfree.chart.axis.NumberAxis rangeAxis = (org.jfree.chart.axis.NumberAxis) categoryPlot.getRangeAxis();
-            rangeAxis.setStandardTickUnits(org.jfree.chart.axis.NumberAxis.createIntegerTickUnits());
-
-            // Calcular el valor máximo en el dataset
-            DefaultCategoryDataset lineDataset = (DefaultCategoryDataset) categoryPlot.getDataset();
-            double maxValue = 0;
-            for (int row = 0; row < lineDataset.getRowCount(); row++) {
-                for (int col = 0; col < lineDataset.getColumnCount(); col++) {
-                    Number value = lineDataset.getValue(row, col);
-                    if (value != null && value.doubleValue() > maxValue) {
-                        maxValue = value.doubleValue();
+            } else if (umbralFragmentos <= 0 && umbralTablaGrande > 0 && agregados >= umbralTablaGrande) {
+                abrirTablaGrande();
+            }
+        }
+
+        public int cuerposEscritos() {
+            return agregados;
+        }
+
+        @Override
+        public void close() {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            try {
+                if (tablaGrande != null) {
+                    tablaGrande.close();
+                    document.close();
+                } else if (fragmentos != null) {
+                    if (!retenidos.isEmpty()) {
+                        despacharFragmento();
                     }
+                    fragmentoPdfService.unir(fragmentos, out);
+                } else if (!retenidos.isEmpty()) {
+                    escribirDocumentoCuerpos(retenidos, 1, true, out);
                 }
+            } catch (Exception e) {
+                throw new RuntimeException("Error al generar el reporte de cuerpos: " + e.getMessage(), e);
+            } finally {
+                retenidos = List.of();
+            }
+        }
+
+        // Abandona el documento sin completarlo y borra los fragmentos ya generados
+        public void descartar() {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            retenidos = List.of();
+            if (fragmentos != null) {
+                fragmentoPdfService.descartar(fragmentos);
+            }
+        }
+
+        private int tamanoFragmento() {
+            return Math.max(1, cuerposPorFragmento);
+        }
+
+        /*
+         * Cada fragmento es un PDF propio que numera sus cuerpos a partir de su posición en la
+         * lista, así la numeración "Cuerpo #N" sigue siendo continua tras unirlos. Solo el primero
+         * lleva el título y la fecha; cada fragmento empieza en una página nueva.
+         */
+        private void despacharFragmento() {
+            List<CuerpoInhumadoDTO> fragmento = retenidos;
+            int primerIndice = despachados + 1;
+            boolean conEncabezado = despachados == 0;
+            fragmentos.add(fragmentoPdfService.generar(salida -> escribirDocumentoCuerpos(fragmento, primerIndice, conEncabezado, salida)));
+            despachados += fragmento.size();
+            retenidos = new ArrayList<>();
+        }
+
+        private void abrirTablaGrande() {
+            try {
+                document = new Document();
+                PdfWriter writer = PdfWriter.getInstance(document, out);
+                writer.setCloseStream(false);
+                document.open();
+
+                LayoutReporte layout = plantillas.obtener(PlantillasReporte.LISTA_CUERPOS);
+                agregarEncabezadoCuerpos(document, layout);
+                tablaGrande = new TablaGrande(document, layout.tabla(), 1);
+            } catch (DocumentException e) {
+                throw new RuntimeException("Error al generar el reporte de cuerpos: " + e.getMessage(), e);
+            }
+            retenidos.forEach(tablaGrande::agregar);
+            retenidos = List.of();
+        }
+    }
+
+    /**
+     * Tabla de cuerpos que se vuelca al documento cada {@code cuerposPorBloque} cuerpos. Solo el
+     * bloque en curso queda en memoria. Al cerrarla se completa la tabla; el documento sigue abierto.
+     */
+    private final class TablaGrande {
+
+        private final Document document;
+        private final TablaLayout tabla;
+        private final PdfPTable table;
+        private final int columnas;
+        private final int bloque;
+        private int index;
+        private int agregados;
+
+        private TablaGrande(Document document, TablaLayout tabla, int primerIndice) {
+            this.document = document;
+            this.tabla = tabla;
+            this.columnas = tabla.anchos().length;
+            this.table = new PdfPTable(columnas);
+            table.setWidthPercentage(100);
+            table.setWidths(tabla.anchos());
+            table.setComplete(false);
+            this.bloque = Math.max(1, cuerposPorBloque);
+            this.index = primerIndice;
+        }
+
+        private void agregar(CuerpoInhumadoDTO cuerpo) {
+            Function<String, Object> valores = valoresCuerpo(index, cuerpo);
+
+            // Fila de título que ocupa todas las columnas
+            EstiloTexto estiloTitulo = tabla.estiloTitulo();
+            PdfPCell titleCell = new PdfPCell(new Phrase(tabla.titulo().render(valores), estiloTitulo.fuente()));
+            titleCell.setColspan(columnas);
+            titleCell.setBorder(Rectangle.NO_BORDER);
+            titleCell.setPaddingTop(estiloTitulo.espaciadoAntes());
+            titleCell.setPaddingBottom(estiloTitulo.espaciadoDespues());
+            table.addCell(titleCell);
+
+            for (AtributoLayout atributo : tabla.atributos()) {
+                agregarFilaAtributo(table, tabla, atributo, valores);
+            }
+
+            // Fila separadora con borde inferior en lugar del LineSeparator
+            PdfPCell separatorCell = new PdfPCell();
+            separatorCell.setColspan(columnas);
+            separatorCell.setBorder(Rectangle.BOTTOM);
+            separatorCell.setFixedHeight(10);
+            table.addCell(separatorCell);
+
+            // Volcar las filas completas al writer
+            if (++agregados % bloque == 0) {
+                agregarTabla();
             }
-            rangeAxis.setRange(0, maxValue + 1); // Agregar un margen de 1 unidad
+            index++;
+        }
+
+        private void close() {
+            table.setComplete(true);
+            agregarTabla();
+        }
+
+        private void agregarTabla() {
+            try {
+                document.add(table);
+            } catch (DocumentException e) {
+                throw new RuntimeException("Error al generar el reporte de cuerpos: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Valores disponibles en la plantilla para un cuerpo: sus propiedades más "indice"
+    private Function<String, Object> valoresCuerpo(int index, CuerpoInhumadoDTO cuerpo) {
+        return propiedad -> "indice".equals(propiedad) ? index : AccesoPropiedades.valor(cuerpo, propiedad);
+    }
+
+    private void agregarFilaAtributo(PdfPTable table, TablaLayout tabla, AtributoLayout atributo, Function<String, Object> valores) {
+        // Etiqueta
+        PdfPCell labelCell = new PdfPCell(new Phrase(atributo.etiqueta() + ":", tabla.estiloEtiqueta().fuente()));
+        labelCell.setBorder(Rectangle.NO_BORDER);
+        labelCell.setPadding(tabla.relleno());
+        labelCell.setBackgroundColor(tabla.fondo());
+        table.addCell(labelCell);
+
+        // Valor
+        PdfPCell valueCell = new PdfPCell(new Phrase(atributo.render(valores), tabla.estiloValor().fuente()));
+        valueCell.setBorder(Rectangle.NO_BORDER);
+        valueCell.setPadding(tabla.relleno());
+        valueCell.setBackgroundColor(tabla.fondo());
+        table.addCell(valueCell);
+    }
+
+    // Rellena un bloque de texto, espacio, lista o tabla de la plantilla con los valores recibidos
+    private void agregarBloque(Document document, Bloque bloque, Function<String, Object> valores) throws DocumentException {
+        if (bloque instanceof LayoutReporte.Texto texto) {
+            document.add(texto.estilo().parrafo(texto.texto().render(valores)));
+        } else if (bloque instanceof LayoutReporte.Espacio) {
+            document.add(new Paragraph(" "));
+        } else if (bloque instanceof LayoutReporte.Lista lista) {
+            List<Function<String, Object>> elementos = elementosLista(valores.apply(lista.datos()));
+            if (elementos.isEmpty() && lista.vacio() != null) {
+                document.add(lista.estilo().parrafo(lista.vacio().render(valores)));
+            }
+            for (Function<String, Object> elemento : elementos) {
+                document.add(lista.estilo().parrafo(lista.item().render(elemento)));
+            }
+        } else if (bloque instanceof LayoutReporte.Tabla tabla) {
+            agregarTablaDatos(document, tabla, valores);
+        }
+    }
+
+    // Encabezados con fondo (repetidos al cambiar de página) y una fila por elemento de los datos
+    private void agregarTablaDatos(Document document, LayoutReporte.Tabla tabla, Function<String, Object> valores)
+            throws DocumentException {
+        List<Function<String, Object>> elementos = elementosLista(valores.apply(tabla.datos()));
+        if (elementos.isEmpty()) {
+            if (tabla.vacio() != null) {
+                document.add(tabla.estilo().parrafo(tabla.vacio().render(valores)));
+            }
+            return;
+        }
+        PdfPTable table = new PdfPTable(tabla.columnas().size());
+        table.setWidthPercentage(100);
+        table.setWidths(tabla.anchos());
+        table.setHeaderRows(1);
+        table.setSpacingBefore(tabla.estilo().espaciadoAntes());
+        table.setSpacingAfter(tabla.estilo().espaciadoDespues());
+        for (ColumnaLayout columna : tabla.columnas()) {
+            PdfPCell encabezado = new PdfPCell(new Phrase(columna.encabezado(), tabla.estiloEncabezado().fuente()));
+            encabezado.setBackgroundColor(tabla.fondoEncabezado());
+            encabezado.setPadding(3);
+            table.addCell(encabezado);
+        }
+        for (Function<String, Object> elemento : elementos) {
+            for (ColumnaLayout columna : tabla.columnas()) {
+                PdfPCell celda = new PdfPCell(new Phrase(columna.valor().render(elemento), tabla.estilo().fuente()));
+                celda.setPadding(3);
+                table.addCell(celda);
+            }
+        }
+        document.add(table);
+    }
 
-            // Rotar etiquetas del eje X y ajustar fuente
-            categoryPlot.getDomainAxis().setCategoryLabelPositions(CategoryLabelPositions.createUpRotationLabelPositions(Math.PI / 4.0)); // Rotar 45 grados
-            categoryPlot.getDomainAxis().setTickLabelFont(new java.awt.Font("Arial", java.awt.Font.PLAIN, 10)); // Tamaño de fuente más pequeño
+    // Cada elemento de un mapa expone clave/valor; el de una lista, sus propiedades. Ambos, su posición.
+    private List<Function<String, Object>> elementosLista(Object datos) {
+        List<Function<String, Object>> elementos = new ArrayList<>();
+        if (datos instanceof Map<?, ?> mapa) {
+            for (Map.Entry<?, ?> entry : mapa.entrySet()) {
+                String posicion = (elementos.size() + 1) + "°";
+                elementos.add(propiedad -> switch (propiedad) {
+                    case "clave" -> entry.getKey();
+                    case "valor" -> entry.getValue();
+                    case "posicion" -> posicion;
+                    default -> null;
+                });
+            }
+        } else if (datos instanceof List<?> lista) {
+            for (Object elemento : lista) {
+                String posicion = (elementos.size() + 1) + "°";
+                elementos.add(propiedad -> "posicion".equals(propiedad) ? posicion : AccesoPropiedades.valor(elemento, propiedad));
+            }
+        }
+        return elementos;
+    }
 
-            LineAndShapeRenderer renderer = new LineAndShapeRenderer();
-            renderer.setSeriesPaint(0, new java.awt.Color(33, 150, 243));
-            categoryPlot.setRenderer(renderer);
+    /*
+     * Construye el gráfico de una ranura de la plantilla. Los mapas se leen como categoría -> valor;
+     * las listas, con las propiedades campoCategoria y campoValor de cada elemento.
+     */
+    private GraficoSpec graficoSpec(GraficoLayout grafico, ReporteAnalisisDTO analisis) {
+        Object datos = AccesoPropiedades.valor(analisis, grafico.datos());
+        Map<String, Number> valores = new LinkedHashMap<>();
+        if (datos instanceof Map<?, ?> mapa) {
+            mapa.forEach((categoria, valor) -> valores.put(categoria.toString(), (Number) valor));
+        } else if (datos instanceof List<?> lista) {
+            for (Object elemento : lista) {
+                valores.put(
+                    String.valueOf(AccesoPropiedades.valor(elemento, grafico.campoCategoria())),
+                    (Number) AccesoPropiedades.valor(elemento, grafico.campoValor())
+                );
+            }
         }
 
-        // Convertir el gráfico a imagen y añadirlo al PDF
-        int width = 400;
-        int height = 300;
-        BufferedImage chartImage = chart.createBufferedImage(width, height);
-        ByteArrayOutputStream chartOut = new ByteArrayOutputStream();
-        ChartUtils.writeBufferedImageAsPNG(chartOut, chartImage);
-        Image pdfImage = Image.getInstance(chartOut.toByteArray());
-        pdfImage.scaleToFit(width, height);
-        document.add(pdfImage);
+        // Título y eje de categorías pueden citar campos del análisis, p. ej. la ventana de las tendencias
+        Function<String, Object> campos = propiedad -> AccesoPropiedades.valor(analisis, propiedad);
+        String titulo = grafico.titulo() != null ? grafico.titulo().render(campos) : null;
+        String ejeCategoria = grafico.ejeCategoria() != null ? grafico.ejeCategoria().render(campos) : null;
+        if ("pie".equals(grafico.tipo())) {
+            DefaultPieDataset<String> pieDataset = new DefaultPieDataset<>();
+            valores.forEach(pieDataset::setValue);
+            return new GraficoSpec(grafico.tipo(), titulo, pieDataset, grafico.estilo(), () -> ChartFactory.createPieChart(
+                titulo,
+                pieDataset,
+                true,
+                true,
+                false
+            ));
+        }
+
+        DefaultCategoryDataset categoryDataset = new DefaultCategoryDataset();
+        valores.forEach((categoria, valor) -> categoryDataset.addValue(valor, grafico.serie(), categoria));
+        if ("bar".equals(grafico.tipo())) {
+            return new GraficoSpec(grafico.tipo(), titulo, categoryDataset, grafico.estilo(), () -> ChartFactory.createBarChart(
+                titulo,
+                ejeCategoria,
+                grafico.ejeValor(),
+                categoryDataset,
+                PlotOrientation.VERTICAL,
+                false,
+                true,
+                false
+            ));
+        }
+        return new GraficoSpec(grafico.tipo(), titulo, categoryDataset, grafico.estilo(), () -> ChartFactory.createLineChart(
+            titulo,
+            ejeCategoria,
+            grafico.ejeValor(),
+            categoryDataset,
+            PlotOrientation.VERTICAL,
+            false,
+            true,
+            false
+        ));
     }
-}
\ No newline at end of file
+}
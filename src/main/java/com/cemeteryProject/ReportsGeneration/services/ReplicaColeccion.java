@@ -0,0 +1,128 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Versión inmutable de la copia local de una colección del backend, indexada por su
+ * identificador y en el orden en que llegó. Cada sincronización arma una versión nueva a partir
+ * de la anterior junto con sus diferencias; publicarla es cosa de quien la usa, así varias
+ * colecciones pueden reemplazarse a la vez. Las diferencias se detectan con equals/hashCode de los DTO.
+ */
+final class ReplicaColeccion<T> {
+
+    record Cambios(int altas, int modificaciones, int bajas) {
+
+        static final Cambios NINGUNO = new Cambios(0, 0, 0);
+
+        boolean hayCambios() {
+            return altas + modificaciones + bajas > 0;
+        }
+
+        Cambios sumar(Cambios otros) {
+            return new Cambios(altas + otros.altas, modificaciones + otros.modificaciones, bajas + otros.bajas);
+        }
+    }
+
+    private final Function<T, String> identificador;
+
+    // null hasta la primera carga completa
+    private final Map<String, T> elementos;
+
+    // Diferencias con la versión de la que se armó esta
+    private final Cambios cambios;
+
+    ReplicaColeccion(Function<T, String> identificador) {
+        this(identificador, null, Cambios.NINGUNO);
+    }
+
+    private ReplicaColeccion(Function<T, String> identificador, Map<String, T> elementos, Cambios cambios) {
+        this.identificador = identificador;
+        this.elementos = elementos;
+        this.cambios = cambios;
+    }
+
+    boolean cargada() {
+        return elementos != null;
+    }
+
+    int tamano() {
+        return elementos != null ? elementos.size() : 0;
+    }
+
+    Cambios cambios() {
+        return cambios;
+    }
+
+    // Copia modificable para quien la pida, como las listas que devolvía el backend
+    List<T> elementos() {
+        return new ArrayList<>(vista());
+    }
+
+    // Vista de solo lectura de la versión publicada, para recorrerla sin copiar
+    Collection<T> vista() {
+        return elementos != null ? Collections.unmodifiableCollection(elementos.values()) : List.of();
+    }
+
+    // Carga completa: lo que ya no está en el backend se da de baja
+    ReplicaColeccion<T> reemplazar(List<T> todos) {
+        Map<String, T> anteriores = elementos != null ? elementos : Map.of();
+        Map<String, T> nuevos = new LinkedHashMap<>();
+        Map<Integer, Integer> repetidos = new HashMap<>();
+        int altas = 0;
+        int modificaciones = 0;
+        for (T elemento : todos) {
+            String clave = clave(elemento, repetidos);
+            T anterior = anteriores.get(clave);
+            if (anterior == null) {
+                altas++;
+            } else if (!Objects.equals(anterior, elemento)) {
+                modificaciones++;
+            }
+            nuevos.put(clave, elemento);
+        }
+        int bajas = (int) anteriores.keySet().stream().filter(clave -> !nuevos.containsKey(clave)).count();
+        return new ReplicaColeccion<>(identificador, nuevos, new Cambios(altas, modificaciones, bajas));
+    }
+
+    // Delta: solo trae altas y modificaciones, el resto de la copia se conserva
+    ReplicaColeccion<T> aplicar(List<T> modificados) {
+        if (elementos == null) {
+            throw new IllegalStateException("La réplica necesita una carga completa antes de aplicar cambios.");
+        }
+        Map<String, T> nuevos = new LinkedHashMap<>(elementos);
+        Map<Integer, Integer> repetidos = new HashMap<>();
+        int altas = 0;
+        int modificaciones = 0;
+        for (T elemento : modificados) {
+            T anterior = nuevos.put(clave(elemento, repetidos), elemento);
+            if (anterior == null) {
+                altas++;
+            } else if (!Objects.equals(anterior, elemento)) {
+                modificaciones++;
+            }
+        }
+        return new ReplicaColeccion<>(identificador, altas + modificaciones > 0 ? nuevos : elementos,
+            new Cambios(altas, modificaciones, 0));
+    }
+
+    /*
+     * Los elementos sin identificador se emparejan por contenido (hash más número de aparición),
+     * así una carga que los trae iguales no los cuenta como cambios.
+     */
+    private String clave(T elemento, Map<Integer, Integer> repetidos) {
+        String id = identificador.apply(elemento);
+        if (id != null) {
+            return id;
+        }
+        int hash = elemento.hashCode();
+        return "\u0000" + hash + "#" + repetidos.merge(hash, 1, Integer::sum);
+    }
+}
@@ -1,199 +1,410 @@
 package com.cemeteryProject.ReportsGeneration.services;
 
-import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.NichoCuerpoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.Month;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
 public class ReporteAnalisisService {
 
+    private static final Logger log = LoggerFactory.getLogger(ReporteAnalisisService.class);
+
     private final ExternalDataService externalDataService;
     private final DocumentoService documentoService;
+    private final EstadisticasIncrementalesService estadisticasIncrementales;
+    private final ResumenHistoricoService resumenHistorico;
+
+    // Vigencia del análisis en caché (0 o negativo desactiva la caché)
+    @Value("${reportes.analisis.cache.ttl-segundos:300}")
+    private long ttlSegundos;
+
+    // Fracción del TTL a partir de la cual una lectura dispara el recálculo en segundo plano
+    @Value("${reportes.analisis.cache.refresco-anticipado:0.8}")
+    private double refrescoAnticipado;
+
+    // Parte del análisis que no depende del usuario, con el momento y las versiones de datos con que se calculó
+    private record Instantanea(ReporteAnalisisDTO analisis, Instant calculadoEn, long versionDocumentos, long versionReplica,
+                               long versionEventos) {
+    }
+
+    public record EstadoCache(boolean habilitada, Long edadSegundos, long aciertos, long fallos, long refrescos) {
+    }
+
+    // Plazo total para las lecturas de datos del análisis (0 o negativo: sin plazo)
+    @Value("${reportes.analisis.plazo-datos-ms:30000}")
+    private long plazoDatosMs;
+
+    // Pedir al backend solo los campos de los cuerpos que usa el análisis
+    @Value("${reportes.analisis.proyeccion-cuerpos:true}")
+    private boolean proyeccionCuerpos;
+
+    // Cantidad de elementos a partir de la cual la agregación se reparte en paralelo (0 o negativo: nunca)
+    @Value("${reportes.analisis.umbral-paralelo:200000}")
+    private int umbralParalelo;
+
+    // Ubicaciones que se listan en la ocupación por ubicación; el resto se agrupa (0 o negativo: todas)
+    @Value("${reportes.analisis.ocupacion.maximo-ubicaciones:50}")
+    private int maximoUbicaciones;
 
+    private final ExecutorService lectorDatos = Executors.newVirtualThreadPerTaskExecutor();
+    private final ForkJoinPool agregacion = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // Una instantánea por ventana de tendencias pedida; pocas, porque las ventanas no suelen variar.
+    // Pasado el máximo se descarta la usada hace más tiempo
+    private static final int MAXIMO_VENTANAS_EN_CACHE = 8;
+    private final Map<CubetasTiempo.Ventana, Instantanea> instantaneas = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CubetasTiempo.Ventana, Instantanea> masAntigua) {
+            return size() > MAXIMO_VENTANAS_EN_CACHE;
+        }
+    };
+    // Cálculo en curso de cada ventana, pedido o de refresco anticipado: a lo sumo uno por ventana
+    private final Map<CubetasTiempo.Ventana, CompletableFuture<Instantanea>> calculos = new ConcurrentHashMap<>();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong refrescos = new AtomicLong();
+
+    /*
+     * La parte común del análisis sale de la caché mientras no venza el TTL ni cambien los
+     * documentos o la réplica del backend; por petición solo se estampan el usuario y la fecha.
+     * Las tendencias usan la ventana por defecto: 12 semanas.
+     */
     public ReporteAnalisisDTO generarAnalisis(String usuario) {
-        List<CuerpoInhumadoDTO> cuerpos = externalDataService.getAllCuerpos();
-        List<NichoDTO> nichos = externalDataService.getAllNichos();
-        List<DocumentoDTO> documents = documentoService.obtenerTodos();
+        return generarAnalisis(usuario, CubetasTiempo.Ventana.POR_DEFECTO);
+    }
 
-        ReporteAnalisisDTO dto = new ReporteAnalisisDTO();
-        dto.setFechaGeneracion(LocalDate.now());
-        dto.setUsuario(usuario);
-        dto.setTotalCuerpos(cuerpos.size());
-        dto.setTotalNichos(nichos.size());
-
-        // Cuerpos asignados
-        List<NichoCuerpoDTO> nichosCuerpos = externalDataService.getAllNichoCuerpo();
-        dto.setCuerposAsignados(nichosCuerpos.size());
-
-        // Ocupación
-        dto.setPorcentajeOcupacion(nichos.size() == 0 ? 0 :
-            (double) nichosCuerpos.size() / nichos.size() * 100);
-
-        // Nichos disponibles
-        long nichosDisponibles = nichos.stream()
-            .filter(n -> n.getEstado().toString().equals("DISPONIBLE"))
-            .count();
-        dto.setNichosDisponibles((int) nichosDisponibles);
-
-        // Cuerpos recientes (último mes)
-        LocalDate oneMonthAgo = LocalDate.now().minusMonths(1);
-        long cuerposRecientes = cuerpos.stream()
-            .filter(c -> c.getFechaInhumacion() != null && 
-                         c.getFechaInhumacion().isAfter(oneMonthAgo))
-            .count();
-        dto.setCuerposRecientes((int) cuerposRecientes);
-
-        // Promedios mensuales
-        Map<Month, Long> conteoMensual = cuerpos.stream()
-            .collect(Collectors.groupingBy(
-                c -> c.getFechaIngreso().toLocalDate().getMonth(),
-                Collectors.counting()
-            ));
-
-        double promedioGeneral = conteoMensual.values().stream()
-            .mapToLong(Long::longValue)
-            .average()
-            .orElse(0);
-        dto.setPromedioMensualGeneral(promedioGeneral);
-
-        Map<String, Double> promedioPorEstado = cuerpos.stream()
-            .collect(Collectors.groupingBy(
-                c -> c.getEstado().toString(),
-                Collectors.averagingDouble(c -> 1.0)
-            ));
-        dto.setPromedioMensualPorTipo(promedioPorEstado);
-
-        // Estado de nichos
-        Map<String, Long> estadoNichos = nichos.stream()
-            .collect(Collectors.groupingBy(
-                nicho -> nicho.getEstado().toString(),
-                Collectors.counting()
-            ));
-        dto.setEstadoNichos(estadoNichos);
-
-        // Cuerpos por tipo (estado)
-        Map<Object, Long> cuerposPorTipo = cuerpos.stream()
-            .collect(Collectors.groupingBy(
-                CuerpoInhumadoDTO::getEstado,
-                Collectors.counting()
-            ));
-        dto.setCuerposPorTipo(cuerposPorTipo);
-
-        // Tendencia de inhumaciones (12 semanas)
-        LocalDate now = LocalDate.now();
-        LocalDate threeMonthsAgo = now.minusMonths(3);
-        Map<String, Long> weeklyCounts = new HashMap<>();
-        List<ReporteAnalisisDTO.WeeklyData> weeks = new ArrayList<>();
-
-        // Generar las últimas 12 semanas (de más antiguo a más reciente)
-        for (int i = 11; i >= 0; i--) {
-            LocalDate weekStart = now.minusDays(i * 7L);
-            String weekKey = String.format("%d-%s", weekStart.getDayOfMonth(), weekStart.getMonth().toString().substring(0, 3));
-            weeklyCounts.put(weekKey, 0L);
-            ReporteAnalisisDTO.WeeklyData weekData = new ReporteAnalisisDTO.WeeklyData();
-            weekData.setWeek(weekKey);
-            weeks.add(weekData);
+    // Igual, con las tendencias repartidas en la ventana pedida (cada ventana se cachea por separado)
+    public ReporteAnalisisDTO generarAnalisis(String usuario, CubetasTiempo.Ventana ventana) {
+        if (ttlSegundos <= 0) {
+            Instantanea calculada = calcularInstantanea(ventana);
+            return estampar(calculada.analisis(), calculada.calculadoEn(), usuario);
+        }
+        Instantanea actual = obtenerInstantanea(ventana);
+        return estampar(copiar(actual.analisis()), actual.calculadoEn(), usuario);
+    }
+
+    // Descarta el análisis en caché; la próxima petición lo recalcula
+    public void invalidarCache() {
+        synchronized (instantaneas) {
+            instantaneas.clear();
         }
+    }
+
+    // La edad informada es la del análisis con la ventana por defecto
+    public EstadoCache estadoCache() {
+        Instantanea actual = enCache(CubetasTiempo.Ventana.POR_DEFECTO);
+        Long edad = actual != null ? Duration.between(actual.calculadoEn(), Instant.now()).toSeconds() : null;
+        return new EstadoCache(ttlSegundos > 0, edad, aciertos.get(), fallos.get(), refrescos.get());
+    }
 
-        // Contar inhumaciones por semana
-        cuerpos.forEach(cuerpo -> {
-            LocalDate fechaInhumacion = cuerpo.getFechaInhumacion();
-            if (fechaInhumacion != null && fechaInhumacion.isAfter(threeMonthsAgo)) {
-                for (int i = 0; i < weeks.size(); i++) {
-                    LocalDate weekStart = now.minusDays((11 - i) * 7L);
-                    LocalDate nextWeekStart = i < weeks.size() - 1 ? now.minusDays((11 - (i + 1)) * 7L) : now;
-                    if (fechaInhumacion.isAfter(weekStart) && fechaInhumacion.isBefore(nextWeekStart.plusDays(1))) {
-                        String weekKey = weeks.get(i).getWeek();
-                        weeklyCounts.put(weekKey, weeklyCounts.getOrDefault(weekKey, 0L) + 1);
-                        break;
-                    }
+    private Instantanea obtenerInstantanea(CubetasTiempo.Ventana ventana) {
+        Instantanea actual = enCache(ventana);
+        if (vigente(actual)) {
+            aciertos.incrementAndGet();
+            refrescarSiCorresponde(ventana, actual);
+            return actual;
+        }
+        // Un solo hilo por ventana recalcula y los demás de esa ventana reutilizan su resultado; las otras ventanas siguen de largo
+        while (true) {
+            CompletableFuture<Instantanea> propio = new CompletableFuture<>();
+            CompletableFuture<Instantanea> enCurso = calculos.putIfAbsent(ventana, propio);
+            if (enCurso == null) {
+                // Otro cálculo pudo terminar entre la primera lectura y esta
+                actual = enCache(ventana);
+                if (vigente(actual)) {
+                    calculos.remove(ventana, propio);
+                    propio.complete(actual);
+                    aciertos.incrementAndGet();
+                    return actual;
                 }
+                fallos.incrementAndGet();
+                return calcular(ventana, propio, null);
+            }
+            actual = esperar(enCurso);
+            if (vigente(actual)) {
+                aciertos.incrementAndGet();
+                return actual;
+            }
+        }
+    }
+
+    private Instantanea enCache(CubetasTiempo.Ventana ventana) {
+        synchronized (instantaneas) {
+            return instantaneas.get(ventana);
+        }
+    }
+
+    private boolean vigente(Instantanea actual) {
+        return actual != null
+            && actual.versionDocumentos() == documentoService.versionDatos()
+            && actual.versionReplica() == externalDataService.versionReplica()
+            && actual.versionEventos() == estadisticasIncrementales.version()
+            && Duration.between(actual.calculadoEn(), Instant.now()).toMillis() < ttlSegundos * 1000;
+    }
+
+    // Pasada la fracción configurada del TTL, se recalcula en un hilo virtual sin hacer esperar a nadie
+    private void refrescarSiCorresponde(CubetasTiempo.Ventana ventana, Instantanea actual) {
+        long edadMillis = Duration.between(actual.calculadoEn(), Instant.now()).toMillis();
+        if (edadMillis < ttlSegundos * 1000 * refrescoAnticipado) {
+            return;
+        }
+        CompletableFuture<Instantanea> refresco = new CompletableFuture<>();
+        if (calculos.putIfAbsent(ventana, refresco) != null) {
+            return;
+        }
+        Thread.ofVirtual().name("analisis-refresco").start(() -> {
+            try {
+                calcular(ventana, refresco, actual);
+            } catch (Exception e) {
+                log.error("Falló el refresco anticipado del análisis ({})", ventana.descripcion(), e);
             }
         });
+    }
 
-        weeks.forEach(week -> week.setCount(weeklyCounts.get(week.getWeek())));
-        dto.setWeeklyInhumations(weeks);
-
-        // Distribución de cuerpos (Asignados, No Asignados)
-        Map<String, Long> cuerposAsignadosDistribucion = new HashMap<>();
-        cuerposAsignadosDistribucion.put("Asignados", (long) nichosCuerpos.size());
-        cuerposAsignadosDistribucion.put("No Asignados", (long) (cuerpos.size() - nichosCuerpos.size()));
-        dto.setCuerposAsignadosDistribucion(cuerposAsignadosDistribucion);
-
-        // Documentos por tipo
-        Map<String, Long> documentTypes = documents.stream()
-            .collect(Collectors.groupingBy(
-                doc -> doc.getTipo().toString(),
-                Collectors.counting()
-            ));
-        dto.setDocumentTypes(documentTypes);
-
-        // Tendencia de generación de documentos (12 semanas)
-        LocalDateTime nowDoc = LocalDateTime.now();
-        LocalDateTime threeMonthsAgoDoc = nowDoc.minusMonths(3);
-        Map<String, Long> weeklyDocCounts = new HashMap<>();
-        List<ReporteAnalisisDTO.WeeklyData> docWeeks = new ArrayList<>();
-
-        for (int i = 11; i >= 0; i--) {
-            LocalDateTime weekStart = nowDoc.minusDays(i * 7L);
-            String weekKey = String.format("%d-%s", weekStart.getDayOfMonth(), weekStart.getMonth().toString().substring(0, 3));
-            weeklyDocCounts.put(weekKey, 0L);
-            ReporteAnalisisDTO.WeeklyData weekData = new ReporteAnalisisDTO.WeeklyData();
-            weekData.setWeek(weekKey);
-            docWeeks.add(weekData);
+    /*
+     * Calcula la instantánea de la ventana, la guarda y se la entrega a quienes esperan ese mismo
+     * cálculo. Un refresco solo reemplaza la instantánea de la que partió: no pisa una más
+     * reciente ni revive una invalidada.
+     */
+    private Instantanea calcular(CubetasTiempo.Ventana ventana, CompletableFuture<Instantanea> calculo, Instantanea anterior) {
+        try {
+            Instantanea nueva = calcularInstantanea(ventana);
+            synchronized (instantaneas) {
+                if (anterior == null) {
+                    instantaneas.put(ventana, nueva);
+                } else if (instantaneas.get(ventana) == anterior) {
+                    instantaneas.put(ventana, nueva);
+                    refrescos.incrementAndGet();
+                }
+            }
+            calculo.complete(nueva);
+            return nueva;
+        } catch (RuntimeException | Error e) {
+            calculo.completeExceptionally(e);
+            throw e;
+        } finally {
+            calculos.remove(ventana, calculo);
         }
+    }
 
-        documents.forEach(doc -> {
-            LocalDateTime fechaGeneracion = doc.getFechaGeneracion();
-            if (fechaGeneracion != null && fechaGeneracion.isAfter(threeMonthsAgoDoc)) {
-                for (int i = 0; i < docWeeks.size(); i++) {
-                    LocalDateTime weekStart = nowDoc.minusDays((11 - i) * 7L);
-                    LocalDateTime nextWeekStart = i < docWeeks.size() - 1 ? nowDoc.minusDays((11 - (i + 1)) * 7L) : nowDoc;
-                    if (fechaGeneracion.isAfter(weekStart) && fechaGeneracion.isBefore(nextWeekStart)) {
-                        String weekKey = docWeeks.get(i).getWeek();
-                        weeklyDocCounts.put(weekKey, weeklyDocCounts.getOrDefault(weekKey, 0L) + 1);
-                        break;
-                    }
+    // Quien esperaba un cálculo ajeno recibe el mismo error que quien lo hacía
+    private Instantanea esperar(CompletableFuture<Instantanea> calculo) {
+        try {
+            return calculo.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private Instantanea calcularInstantanea(CubetasTiempo.Ventana ventana) {
+        // Las versiones se leen antes de calcular: si cambian durante el cálculo, la instantánea nace vencida
+        long version = documentoService.versionDatos();
+        long versionReplica = externalDataService.versionReplica();
+        long versionEventos = estadisticasIncrementales.version();
+        Instant calculadoEn = Instant.now();
+        if (estadisticasIncrementales.disponible()) {
+            return new Instantanea(calcularConEventos(ventana), calculadoEn, version, versionReplica, versionEventos);
+        }
+        ReporteAnalisisDTO analisis = calcularAnalisis(ventana);
+        // Si el backend no respondió y se usaron datos anteriores, el análisis tiene la edad de esos datos
+        Instant obsoletos = externalDataService.fechaDatosObsoletos();
+        if (obsoletos != null && obsoletos.isBefore(calculadoEn)) {
+            calculadoEn = obsoletos;
+            analisis.setDatosObsoletos(true);
+        }
+        return new Instantanea(analisis, calculadoEn, version, versionReplica, versionEventos);
+    }
+
+    private ReporteAnalisisDTO estampar(ReporteAnalisisDTO dto, Instant calculadoEn, String usuario) {
+        dto.setFechaGeneracion(LocalDate.now());
+        dto.setUsuario(usuario);
+        dto.setFechaDatos(LocalDateTime.ofInstant(calculadoEn, ZoneId.systemDefault()));
+        dto.setEdadDatosSegundos(Duration.between(calculadoEn, Instant.now()).toSeconds());
+        return dto;
+    }
+
+    // Copia superficial: las colecciones de la instantánea son de solo lectura y se comparten
+    private ReporteAnalisisDTO copiar(ReporteAnalisisDTO origen) {
+        ReporteAnalisisDTO dto = new ReporteAnalisisDTO();
+        dto.setTotalCuerpos(origen.getTotalCuerpos());
+        dto.setTotalNichos(origen.getTotalNichos());
+        dto.setPorcentajeOcupacion(origen.getPorcentajeOcupacion());
+        dto.setCuerposAsignados(origen.getCuerposAsignados());
+        dto.setNichosDisponibles(origen.getNichosDisponibles());
+        dto.setCuerposRecientes(origen.getCuerposRecientes());
+        dto.setPromedioMensualPorTipo(origen.getPromedioMensualPorTipo());
+        dto.setPromedioMensualGeneral(origen.getPromedioMensualGeneral());
+        dto.setEstadoNichos(origen.getEstadoNichos());
+        dto.setCuerposPorTipo(origen.getCuerposPorTipo());
+        dto.setWeeklyInhumations(origen.getWeeklyInhumations());
+        dto.setCuerposAsignadosDistribucion(origen.getCuerposAsignadosDistribucion());
+        dto.setDocumentTypes(origen.getDocumentTypes());
+        dto.setWeeklyDocuments(origen.getWeeklyDocuments());
+        dto.setTopUsers(origen.getTopUsers());
+        dto.setPeriodoTendencias(origen.getPeriodoTendencias());
+        dto.setUnidadTendencias(origen.getUnidadTendencias());
+        dto.setDatosObsoletos(origen.isDatosObsoletos());
+        dto.setOcupacionPorUbicacion(origen.getOcupacionPorUbicacion());
+        dto.setAsignacionesSinNicho(origen.getAsignacionesSinNicho());
+        dto.setAsignacionesSinCuerpo(origen.getAsignacionesSinCuerpo());
+        return dto;
+    }
+
+    private record DatosAnalisis(ColumnasCuerpos cuerpos, List<NichoDTO> nichos,
+                                 List<NichoCuerpoDTO> nichosCuerpos, List<DocumentoDTO> documentos) {
+    }
+
+    /*
+     * Las cuatro lecturas se lanzan a la vez en hilos virtuales, así la latencia es la de la más
+     * lenta. Si una falla o se agota el plazo, las demás se cancelan (interrumpiendo su hilo) y
+     * el error se propaga tal cual.
+     */
+    private DatosAnalisis obtenerDatos() {
+        ExecutorCompletionService<Object> lecturas = new ExecutorCompletionService<>(lectorDatos);
+        Future<Object> cuerpos = lecturas.submit(this::obtenerCuerpos);
+        Future<Object> nichos = lecturas.submit(externalDataService::getAllNichos);
+        Future<Object> nichosCuerpos = lecturas.submit(externalDataService::getAllNichoCuerpo);
+        Future<Object> documentos = lecturas.submit(documentoService::obtenerTodos);
+        List<Future<Object>> tareas = List.of(cuerpos, nichos, nichosCuerpos, documentos);
+
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(plazoDatosMs);
+        try {
+            for (int i = 0; i < tareas.size(); i++) {
+                Future<Object> terminada = plazoDatosMs > 0
+                    ? lecturas.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    : lecturas.take();
+                if (terminada == null) {
+                    throw new ResourceAccessException("El backend no respondió en " + plazoDatosMs + " ms");
                 }
+                terminada.get(); // propaga el primer fallo
             }
-        });
+            return new DatosAnalisis(columnas(cuerpos), resultado(nichos), resultado(nichosCuerpos), resultado(documentos));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Error al obtener los datos del análisis: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la obtención de los datos del análisis", e);
+        } finally {
+            tareas.forEach(tarea -> tarea.cancel(true));
+        }
+    }
+
+    // Con la proyección solo viajan y se parsean los tres campos que usa el análisis; luego se pasan a columnas
+    private ColumnasCuerpos obtenerCuerpos() {
+        if (proyeccionCuerpos) {
+            return ColumnasCuerpos.deProyeccion(externalDataService.getCuerposAnalisis());
+        }
+        return ColumnasCuerpos.deCuerpos(externalDataService.getAllCuerpos());
+    }
+
+    private static ColumnasCuerpos columnas(Future<Object> tarea) throws ExecutionException, InterruptedException {
+        return (ColumnasCuerpos) tarea.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> resultado(Future<Object> tarea) throws ExecutionException, InterruptedException {
+        return (List<T>) tarea.get();
+    }
 
-        docWeeks.forEach(week -> week.setCount(weeklyDocCounts.get(week.getWeek())));
-        dto.setWeeklyDocuments(docWeeks);
-
-        // Top 3 usuarios con más documentos
-        Map<String, Long> userDocCounts = documents.stream()
-            .collect(Collectors.groupingBy(
-                DocumentoDTO::getUsuarioId,
-                Collectors.counting()
-            ));
-
-        List<ReporteAnalisisDTO.TopUser> topUsers = userDocCounts.entrySet().stream()
-            .map(entry -> {
-                ReporteAnalisisDTO.TopUser topUser = new ReporteAnalisisDTO.TopUser();
-                topUser.setUsuarioId(entry.getKey());
-                topUser.setCount(entry.getValue());
-                return topUser;
-            })
-            .sorted((a, b) -> Long.compare(b.getCount(), a.getCount()))
-            .limit(3)
-            .collect(Collectors.toList());
-        dto.setTopUsers(topUsers);
+    @PreDestroy
+    public void cerrar() {
+        lectorDatos.shutdownNow();
+        agregacion.shutdownNow();
+    }
+
+    /*
+     * Cada conjunto se recorre una sola vez y todas las métricas salen del mismo acumulador.
+     * Por encima del umbral, el recorrido se reparte en tramos del pool de fork-join.
+     */
+    private ReporteAnalisisDTO calcularAnalisis(CubetasTiempo.Ventana ventana) {
+        DatosAnalisis datos = obtenerDatos();
+        ReporteAnalisisDTO dto = acumular(ventana, datos.cuerpos(), datos.nichos(), datos.documentos())
+            .resultado(datos.nichosCuerpos().size());
+        fijarOcupacion(dto, OcupacionUbicaciones.calcular(datos.nichos(), datos.nichosCuerpos(),
+            OcupacionUbicaciones.idsCuerpos(datos.cuerpos()), maximoUbicaciones));
+        return ttlSegundos > 0 ? soloLectura(dto) : dto;
+    }
+
+    // Con el resumen histórico armado, las tendencias de los días ya resumidos salen de él
+    private AcumuladorAnalisis acumular(CubetasTiempo.Ventana ventana, ColumnasCuerpos cuerpos, List<NichoDTO> nichos,
+                                        List<DocumentoDTO> documentos) {
+        int desdeDia = resumenHistorico.disponible() ? resumenHistorico.cubiertoHasta() : AcumuladorAnalisis.SIN_RESUMEN;
+        AcumuladorAnalisis acumulador = AcumuladorAnalisis.acumular(LocalDateTime.now(), ventana, desdeDia, cuerpos, nichos,
+            documentos, umbralParalelo, agregacion);
+        if (desdeDia != AcumuladorAnalisis.SIN_RESUMEN) {
+            resumenHistorico.volcarTendencias(acumulador, desdeDia);
+        }
+        return acumulador;
+    }
+
+    /*
+     * Con los contadores por eventos al día no hace falta leer el backend: solo se recorren los
+     * documentos, que son locales, y los cuerpos y nichos se vuelcan ya contados.
+     */
+    private ReporteAnalisisDTO calcularConEventos(CubetasTiempo.Ventana ventana) {
+        AcumuladorAnalisis acumulador = acumular(ventana, ColumnasCuerpos.deCuerpos(List.of()), List.of(),
+            documentoService.obtenerTodos());
+        int asignados = estadisticasIncrementales.volcarEn(acumulador);
+        ReporteAnalisisDTO dto = acumulador.resultado(asignados);
+        fijarOcupacion(dto, estadisticasIncrementales.ocupacion(maximoUbicaciones));
+        return ttlSegundos > 0 ? soloLectura(dto) : dto;
+    }
+
+    private static void fijarOcupacion(ReporteAnalisisDTO dto, OcupacionUbicaciones.Resultado ocupacion) {
+        dto.setOcupacionPorUbicacion(ocupacion.ubicaciones());
+        dto.setAsignacionesSinNicho(ocupacion.asignacionesSinNicho());
+        dto.setAsignacionesSinCuerpo(ocupacion.asignacionesSinCuerpo());
+    }
 
+    private ReporteAnalisisDTO soloLectura(ReporteAnalisisDTO dto) {
+        dto.setPromedioMensualPorTipo(Collections.unmodifiableMap(dto.getPromedioMensualPorTipo()));
+        dto.setEstadoNichos(Collections.unmodifiableMap(dto.getEstadoNichos()));
+        dto.setCuerposPorTipo(Collections.unmodifiableMap(dto.getCuerposPorTipo()));
+        dto.setWeeklyInhumations(Collections.unmodifiableList(dto.getWeeklyInhumations()));
+        dto.setCuerposAsignadosDistribucion(Collections.unmodifiableMap(dto.getCuerposAsignadosDistribucion()));
+        dto.setDocumentTypes(Collections.unmodifiableMap(dto.getDocumentTypes()));
+        dto.setWeeklyDocuments(Collections.unmodifiableList(dto.getWeeklyDocuments()));
+        dto.setTopUsers(Collections.unmodifiableList(dto.getTopUsers()));
+        dto.setOcupacionPorUbicacion(Collections.unmodifiableList(dto.getOcupacionPorUbicacion()));
         return dto;
     }
-}
\ No newline at end of file
+}
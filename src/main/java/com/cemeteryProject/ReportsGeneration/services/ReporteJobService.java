@@ -0,0 +1,203 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO.EstadoJob;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO.TipoReporte;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera reportes en segundo plano. Los trabajos corren en un pool propio con cola acotada,
+ * así las exportaciones grandes no ocupan hilos de Tomcat; el resultado se escribe directo en
+ * el almacén de PDFs y el trabajo se recuerda hasta que vence la retención. Con la cola llena
+ * el trabajo se rechaza en lugar de acumularse sin límite.
+ */
+@Service
+public class ReporteJobService {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration retencion;
+    private final ReporteAnalisisService reporteAnalisisService;
+    private final ExternalDataService externalDataService;
+    private final PdfGeneratorService pdfGeneratorService;
+    private final DocumentoService documentoService;
+    private final AlmacenPdfService almacenPdfService;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ReporteJobService(@Value("${reportes.jobs.hilos:2}") int hilos,
+                             @Value("${reportes.jobs.cola:20}") int capacidadCola,
+                             @Value("${reportes.jobs.retencion-minutos:60}") long retencionMinutos,
+                             ReporteAnalisisService reporteAnalisisService,
+                             ExternalDataService externalDataService,
+                             PdfGeneratorService pdfGeneratorService,
+                             DocumentoService documentoService,
+                             AlmacenPdfService almacenPdfService) {
+        this.retencion = Duration.ofMinutes(retencionMinutos);
+        this.reporteAnalisisService = reporteAnalisisService;
+        this.externalDataService = externalDataService;
+        this.pdfGeneratorService = pdfGeneratorService;
+        this.documentoService = documentoService;
+        this.almacenPdfService = almacenPdfService;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            hilos, hilos, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(capacidadCola),
+            r -> {
+                Thread t = new Thread(r, "reporte-job-" + contador.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Estado mutable de un trabajo; se publica hacia afuera solo como ReporteJobDTO
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final TipoReporte tipo;
+        final String usuarioId;
+        final LocalDateTime fechaCreacion = LocalDateTime.now();
+        volatile EstadoJob estado = EstadoJob.EN_COLA;
+        volatile int progreso;
+        volatile LocalDateTime fechaFinalizacion;
+        volatile String error;
+        volatile Path archivo;
+        volatile String documentoId;
+
+        Job(TipoReporte tipo, String usuarioId) {
+            this.tipo = tipo;
+            this.usuarioId = usuarioId;
+        }
+
+        ReporteJobDTO toDTO() {
+            ReporteJobDTO dto = new ReporteJobDTO();
+            dto.setId(id);
+            dto.setTipo(tipo);
+            dto.setEstado(estado);
+            dto.setProgreso(progreso);
+            dto.setUsuarioId(usuarioId);
+            dto.setFechaCreacion(fechaCreacion);
+            dto.setFechaFinalizacion(fechaFinalizacion);
+            dto.setError(error);
+            dto.setDocumentoId(documentoId);
+            return dto;
+        }
+    }
+
+    /**
+     * Encola un reporte y devuelve su trabajo en estado EN_COLA.
+     *
+     * @throws RejectedExecutionException si la cola de trabajos está llena
+     */
+    public ReporteJobDTO encolar(TipoReporte tipo, String usuarioId) {
+        purgarVencidos();
+        Job job = new Job(tipo, usuarioId);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> ejecutar(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job.toDTO();
+    }
+
+    public ReporteJobDTO obtener(String id) {
+        Job job = jobs.get(id);
+        return job != null ? job.toDTO() : null;
+    }
+
+    // Archivo del reporte, solo si el trabajo terminó correctamente
+    public Path obtenerArchivo(String id) {
+        Job job = jobs.get(id);
+        return job != null && job.estado == EstadoJob.COMPLETADO ? job.archivo : null;
+    }
+
+    public String nombreArchivo(TipoReporte tipo) {
+        return tipo == TipoReporte.ANALISIS ? "reporte-cementerio.pdf" : "lista-cuerpos.pdf";
+    }
+
+    private void ejecutar(Job job) {
+        job.estado = EstadoJob.EN_PROCESO;
+        job.progreso = 10;
+        try (AlmacenPdfService.Escritura escritura = almacenPdfService.nuevaEscritura()) {
+            OutputStream out = escritura.salida();
+            if (job.tipo == TipoReporte.ANALISIS) {
+                ReporteAnalisisDTO analisis = reporteAnalisisService.generarAnalisis(job.usuarioId);
+                job.progreso = 50;
+                byte[] pdfBytes = pdfGeneratorService.generarReportePDFConAnalisis(analisis);
+                if (pdfBytes == null) {
+                    throw new IllegalStateException("No se pudo generar el reporte de análisis.");
+                }
+                out.write(pdfBytes);
+            } else {
+                // Cada cuerpo se escribe en el PDF apenas se lee de la respuesta, sin armar la lista
+                long cuerpos;
+                job.progreso = 50;
+                PdfGeneratorService.EscrituraCuerpos escrituraCuerpos = pdfGeneratorService.abrirReportePDFCuerpos(out);
+                try {
+                    cuerpos = externalDataService.recorrerCuerpos(escrituraCuerpos::agregar);
+                } catch (RuntimeException e) {
+                    escrituraCuerpos.descartar();
+                    throw e;
+                }
+                if (cuerpos == 0) {
+                    throw new IllegalArgumentException("No hay cuerpos registrados para generar el reporte.");
+                }
+                escrituraCuerpos.close();
+            }
+            AlmacenPdfService.Contenido contenido = escritura.confirmar();
+            job.progreso = 90;
+
+            // Crear registro del documento con un nombre más bonito, enlazado al PDF guardado
+            DocumentoDTO documento = documentoService.registrarReporte(
+                job.tipo == TipoReporte.ANALISIS ? "Reporte del Cementerio" : "Lista de Cuerpos", job.usuarioId, contenido);
+
+            job.documentoId = documento != null ? documento.getId() : null;
+            job.archivo = almacenPdfService.ubicar(contenido.hash());
+            job.progreso = 100;
+            job.estado = EstadoJob.COMPLETADO;
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.estado = EstadoJob.FALLIDO;
+        } finally {
+            job.fechaFinalizacion = LocalDateTime.now();
+        }
+    }
+
+    /*
+     * Descarta los trabajos terminados hace más que la retención. El PDF sigue en el almacén y
+     * se puede descargar desde /reportes/{documentoId}/contenido.
+     */
+    private void purgarVencidos() {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+        jobs.values().removeIf(job -> {
+            LocalDateTime fin = job.fechaFinalizacion;
+            return fin != null && fin.isBefore(limite);
+        });
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+        jobs.clear();
+    }
+}
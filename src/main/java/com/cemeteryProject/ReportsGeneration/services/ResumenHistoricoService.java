@@ -0,0 +1,224 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
+import com.cemeteryProject.ReportsGeneration.models.ResumenDiarioModel;
+import com.cemeteryProject.ReportsGeneration.models.ResumenDiarioModel.Metrica;
+import com.cemeteryProject.ReportsGeneration.models.ResumenDiarioModel.Periodo;
+import com.cemeteryProject.ReportsGeneration.repositories.IResumenDiarioRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resumen persistido de la actividad por día: inhumaciones, exhumaciones e ingresos por estado
+ * del cuerpo y documentos generados por tipo. Una tarea periódica lo rehace con los datos
+ * completos y compacta los días antiguos en semanas y meses, así las tendencias del análisis
+ * leen unos cientos de filas para los días ya cerrados y solo recorren los datos crudos desde
+ * el día en que se armó el resumen.
+ */
+@Service
+@RequiredArgsConstructor
+public class ResumenHistoricoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenHistoricoService.class);
+
+    private final ExternalDataService externalDataService;
+    private final DocumentoService documentoService;
+    private final IResumenDiarioRepository resumenRepository;
+
+    // Armar el resumen y usarlo en las tendencias del análisis
+    @Value("${reportes.resumen.habilitado:false}")
+    private boolean habilitado;
+
+    // Cada cuánto se rehace el resumen (0 o negativo: solo al arrancar)
+    @Value("${reportes.resumen.intervalo-minutos:60}")
+    private long intervaloMinutos;
+
+    // Días recientes que conservan una fila por día; deben cubrir las ventanas de tendencias habituales
+    @Value("${reportes.resumen.dias-detalle:180}")
+    private int diasDetalle;
+
+    // Semanas anteriores a esos días que se guardan por semana; lo más antiguo queda por mes
+    @Value("${reportes.resumen.semanas-detalle:104}")
+    private int semanasDetalle;
+
+    public record EstadoResumen(boolean habilitado, LocalDate cubiertoHasta, long actualizaciones, int filas,
+                                long diasResumidos, LocalDateTime ultimaActualizacion, Long duracionMs,
+                                long errores, String ultimoError) {
+    }
+
+    private record Clave(Periodo periodo, LocalDate inicio, LocalDate fin, Metrica metrica, String categoria) {
+    }
+
+    private static final List<Metrica> METRICAS_TENDENCIAS = List.of(Metrica.INHUMACION, Metrica.DOCUMENTO);
+
+    // Primer día que el resumen no incluye; null mientras no haya resumen
+    private volatile LocalDate cubiertoHasta;
+    private final AtomicLong actualizaciones = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+    private volatile int filas;
+    private volatile long diasResumidos;
+    private volatile Instant ultimaActualizacion;
+    private volatile Long duracionMs;
+    private volatile String ultimoError;
+    private ScheduledExecutorService programador;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "resumen-historico");
+            t.setDaemon(true);
+            return t;
+        });
+        Runnable tarea = () -> {
+            try {
+                // Hasta terminar la primera vuelta se usa lo que haya quedado guardado
+                if (cubiertoHasta == null) {
+                    LocalDate ultimo = resumenRepository.ultimoDiaResumido();
+                    if (ultimo != null) {
+                        cubiertoHasta = ultimo.plusDays(1);
+                    }
+                }
+                actualizar();
+            } catch (Exception e) {
+                errores.incrementAndGet();
+                ultimoError = e.getMessage();
+                log.error("Falló la actualización del resumen histórico", e);
+            }
+        };
+        if (intervaloMinutos > 0) {
+            programador.scheduleWithFixedDelay(tarea, 0, intervaloMinutos, TimeUnit.MINUTES);
+        } else {
+            programador.execute(tarea);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (programador != null) {
+            programador.shutdownNow();
+        }
+    }
+
+    // Las tendencias pueden leer el resumen
+    public boolean disponible() {
+        return habilitado && cubiertoHasta != null;
+    }
+
+    // Primer día (desde la época) que no está en el resumen y debe contarse con los datos crudos
+    public int cubiertoHasta() {
+        LocalDate hasta = cubiertoHasta;
+        return hasta != null ? ColumnasCuerpos.dia(hasta) : AcumuladorAnalisis.SIN_RESUMEN;
+    }
+
+    /*
+     * Suma al acumulador las filas de inhumaciones y documentos que terminan dentro de la ventana
+     * y antes de hastaDia. Las filas diarias caen en su intervalo exacto; las semanales y
+     * mensuales, enteras en el intervalo de su último día.
+     */
+    void volcarTendencias(AcumuladorAnalisis acumulador, int hastaDia) {
+        LocalDate desde = LocalDate.ofEpochDay(acumulador.primerDiaVentana());
+        for (ResumenDiarioModel fila : resumenRepository.buscarTerminadasEntre(METRICAS_TENDENCIAS, desde,
+                LocalDate.ofEpochDay(hastaDia))) {
+            boolean inhumacion = fila.getMetrica() == Metrica.INHUMACION;
+            acumulador.agregarResumen(ColumnasCuerpos.dia(fila.getFechaFin()),
+                inhumacion ? fila.getCantidad() : 0, inhumacion ? 0 : fila.getCantidad());
+        }
+    }
+
+    /*
+     * Recorre los cuerpos (sin tenerlos todos en memoria) y los documentos, cuenta por día hasta
+     * ayer, compacta y reemplaza el resumen entero. Hoy queda afuera porque aún puede cambiar.
+     */
+    public void actualizar() {
+        Instant inicio = Instant.now();
+        LocalDate hoy = LocalDate.now();
+        Map<Clave, Long> porDia = new HashMap<>();
+        externalDataService.recorrerCuerpos(cuerpo -> {
+            String estado = cuerpo.getEstado() != null ? cuerpo.getEstado().toString() : "SIN_ESTADO";
+            contar(porDia, cuerpo.getFechaInhumacion(), hoy, Metrica.INHUMACION, estado);
+            contar(porDia, cuerpo.getFechaExhumacion(), hoy, Metrica.EXHUMACION, estado);
+            contar(porDia, cuerpo.getFechaIngreso() != null ? cuerpo.getFechaIngreso().toLocalDate() : null, hoy,
+                Metrica.INGRESO, estado);
+        });
+        for (DocumentoDTO documento : documentoService.obtenerTodos()) {
+            contar(porDia, documento.getFechaGeneracion() != null ? documento.getFechaGeneracion().toLocalDate() : null, hoy,
+                Metrica.DOCUMENTO, documento.getTipo() != null ? documento.getTipo().toString() : "SIN_TIPO");
+        }
+
+        List<ResumenDiarioModel> compactadas = compactar(porDia, hoy, diasDetalle, semanasDetalle);
+        resumenRepository.reemplazar(compactadas);
+        cubiertoHasta = hoy;
+        filas = compactadas.size();
+        diasResumidos = porDia.keySet().stream().map(Clave::inicio).distinct().count();
+        ultimaActualizacion = Instant.now();
+        duracionMs = Duration.between(inicio, ultimaActualizacion).toMillis();
+        actualizaciones.incrementAndGet();
+    }
+
+    public EstadoResumen estado() {
+        Instant ultima = ultimaActualizacion;
+        return new EstadoResumen(habilitado, cubiertoHasta, actualizaciones.get(), filas, diasResumidos,
+            ultima != null ? LocalDateTime.ofInstant(ultima, ZoneId.systemDefault()) : null, duracionMs,
+            errores.get(), ultimoError);
+    }
+
+    private static void contar(Map<Clave, Long> porDia, LocalDate dia, LocalDate hoy, Metrica metrica, String categoria) {
+        if (dia != null && dia.isBefore(hoy)) {
+            porDia.merge(new Clave(Periodo.DIA, dia, dia, metrica, categoria), 1L, Long::sum);
+        }
+    }
+
+    /*
+     * Desde el lunes anterior a "hoy - diasDetalle" queda una fila por día. Antes, y hasta el
+     * primero del mes de "semanasDetalle" semanas atrás, una por semana de lunes a domingo (la
+     * primera puede empezar a mitad de semana). Lo anterior, una por mes calendario.
+     */
+    private static List<ResumenDiarioModel> compactar(Map<Clave, Long> porDia, LocalDate hoy, int diasDetalle, int semanasDetalle) {
+        LocalDate corteDiario = hoy.minusDays(Math.max(0, diasDetalle)).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate corteSemanal = corteDiario.minusWeeks(Math.max(0, semanasDetalle)).withDayOfMonth(1);
+        Map<Clave, Long> compactado = new HashMap<>();
+        porDia.forEach((clave, cantidad) -> {
+            LocalDate dia = clave.inicio();
+            Clave destino;
+            if (!dia.isBefore(corteDiario)) {
+                destino = clave;
+            } else if (!dia.isBefore(corteSemanal)) {
+                LocalDate lunes = dia.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                LocalDate inicio = lunes.isBefore(corteSemanal) ? corteSemanal : lunes;
+                destino = new Clave(Periodo.SEMANA, inicio, lunes.plusDays(6), clave.metrica(), clave.categoria());
+            } else {
+                destino = new Clave(Periodo.MES, dia.withDayOfMonth(1), dia.with(TemporalAdjusters.lastDayOfMonth()),
+                    clave.metrica(), clave.categoria());
+            }
+            compactado.merge(destino, cantidad, Long::sum);
+        });
+        List<ResumenDiarioModel> filas = new ArrayList<>(compactado.size());
+        compactado.forEach((clave, cantidad) -> filas.add(new ResumenDiarioModel(null, clave.periodo(), clave.inicio(),
+            clave.fin(), clave.metrica(), clave.categoria(), cantidad)));
+        return filas;
+    }
+}
@@ -0,0 +1,90 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Une las cargas idénticas que coinciden en el tiempo: el primero que pide una clave la carga
+ * y los que llegan mientras tanto esperan y reciben el mismo resultado (o el mismo error).
+ * Con una ventana mayor que cero, el resultado se sigue compartiendo ese tiempo tras terminar.
+ */
+final class SolicitudesCompartidas {
+
+    private static final class Vuelo {
+        private final CompletableFuture<Object> resultado = new CompletableFuture<>();
+        private volatile long venceEn = Long.MAX_VALUE;
+
+        boolean vencido() {
+            return resultado.isDone() && System.nanoTime() - venceEn > 0;
+        }
+    }
+
+    private final Map<String, Vuelo> vuelos = new ConcurrentHashMap<>();
+    private final AtomicLong cargas = new AtomicLong();
+    private final AtomicLong compartidas = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    <T> T ejecutar(String clave, long ventanaMs, Supplier<T> carga) {
+        while (true) {
+            Vuelo nuevo = new Vuelo();
+            Vuelo existente = vuelos.putIfAbsent(clave, nuevo);
+            if (existente == null) {
+                return cargar(clave, nuevo, Math.max(0, ventanaMs) * 1_000_000L, carga);
+            }
+            if (existente.vencido()) {
+                vuelos.remove(clave, existente);
+                continue;
+            }
+            compartidas.incrementAndGet();
+            return (T) esperar(existente.resultado);
+        }
+    }
+
+    long cargas() {
+        return cargas.get();
+    }
+
+    long compartidas() {
+        return compartidas.get();
+    }
+
+    private <T> T cargar(String clave, Vuelo vuelo, long ventanaNanos, Supplier<T> carga) {
+        cargas.incrementAndGet();
+        try {
+            T valor = carga.get();
+            vuelo.venceEn = System.nanoTime() + ventanaNanos;
+            vuelo.resultado.complete(valor);
+            if (ventanaNanos == 0) {
+                vuelos.remove(clave, vuelo);
+            }
+            return valor;
+        } catch (RuntimeException | Error e) {
+            // Los errores no se comparten más allá de quienes ya estaban esperando
+            vuelos.remove(clave, vuelo);
+            vuelo.resultado.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Espera interrumpible: quien abandona la espera no cancela la carga de los demás
+    private static Object esperar(CompletableFuture<Object> resultado) {
+        try {
+            return resultado.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la espera de una lectura compartida del backend", e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.cemeteryProject.ReportsGeneration.templates;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lectura de propiedades por nombre para rellenar las plantillas. Los getters de cada clase se
+ * descubren una sola vez y quedan en caché, así el llenado por petición no vuelve a introspectar.
+ */
+public final class AccesoPropiedades {
+
+    private static final Map<Class<?>, Map<String, Method>> GETTERS = new ConcurrentHashMap<>();
+
+    private AccesoPropiedades() {
+    }
+
+    public static Object valor(Object objeto, String propiedad) {
+        if (objeto instanceof Map<?, ?> mapa) {
+            return mapa.get(propiedad);
+        }
+        Method getter = GETTERS.computeIfAbsent(objeto.getClass(), AccesoPropiedades::descubrir).get(propiedad);
+        if (getter == null) {
+            throw new IllegalArgumentException("La propiedad '" + propiedad + "' no existe en " + objeto.getClass().getSimpleName());
+        }
+        try {
+            return getter.invoke(objeto);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("No se pudo leer '" + propiedad + "' de " + objeto.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static Map<String, Method> descubrir(Class<?> clase) {
+        try {
+            Map<String, Method> getters = new HashMap<>();
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(clase, Object.class).getPropertyDescriptors()) {
+                if (descriptor.getReadMethod() != null) {
+                    getters.put(descriptor.getName(), descriptor.getReadMethod());
+                }
+            }
+            return Map.copyOf(getters);
+        } catch (IntrospectionException e) {
+            throw new IllegalStateException("No se pudieron leer las propiedades de " + clase.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.cemeteryProject.ReportsGeneration.templates;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forma declarativa de una plantilla de reporte, tal como se lee del JSON en
+ * {@code classpath:plantillas/}. Solo se usa al arrancar; el resultado de compilarla es un
+ * {@link LayoutReporte}.
+ */
+public record DefinicionPlantilla(
+    String nombre,
+    Map<String, DefinicionEstilo> estilos,
+    List<DefinicionSeccion> secciones,
+    Map<String, DefinicionGrafico> graficos,
+    DefinicionTabla tabla
+) {
+
+    // fuente: nombre de FontFactory (HELVETICA, HELVETICA_BOLD...); alineacion: LEFT, CENTER, RIGHT
+    public record DefinicionEstilo(String fuente, float tamano, String alineacion, float espaciadoAntes, float espaciadoDespues) {
+    }
+
+    // tipo: texto, espacio, lista, grafico o tabla; una tabla tiene una fila por elemento de datos y una columna por entrada de columnas
+    public record DefinicionSeccion(String tipo, String estilo, String texto, String datos, String vacio, String grafico,
+                                    String estiloEncabezado, String fondo, List<DefinicionColumna> columnas) {
+    }
+
+    // ancho: proporción respecto de las demás columnas (1 si se omite)
+    public record DefinicionColumna(String encabezado, String valor, Float ancho) {
+    }
+
+    // tipo: pie, bar o line; los colores se escriben en hexadecimal (#RRGGBB).
+    // Si los datos son una lista, campoCategoria y campoValor indican qué propiedades leer de cada elemento.
+    public record DefinicionGrafico(String tipo, String titulo, String datos, String campoCategoria, String campoValor,
+                                    String ejeCategoria, String ejeValor, String serie,
+                                    Map<String, String> colores, List<String> coloresColumnas, String colorSerie) {
+    }
+
+    public record DefinicionTabla(String titulo, String estiloTitulo, String estiloEtiqueta, String estiloValor,
+                                  List<Float> anchos, String fondo, float relleno, List<DefinicionAtributo> atributos) {
+    }
+
+    // requiere: campo que debe tener valor para mostrar la fila; si falta se muestra "vacio"
+    public record DefinicionAtributo(String etiqueta, String valor, String requiere, String vacio) {
+    }
+}
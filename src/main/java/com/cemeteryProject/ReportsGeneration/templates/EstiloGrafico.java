@@ -0,0 +1,31 @@
+package com.cemeteryProject.ReportsGeneration.templates;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Colores de un gráfico, ya resueltos desde la plantilla.
+ *
+ * @param coloresSeccion  color de cada sección de una torta, por clave
+ * @param coloresColumnas color de cada columna de un gráfico de barras; las columnas que
+ *                        superan la lista usan el último color
+ * @param colorSerie      color de la línea en los gráficos de líneas
+ */
+public record EstiloGrafico(Map<String, Color> coloresSeccion, List<Color> coloresColumnas, Color colorSerie) {
+
+    public static final EstiloGrafico DEFECTO = new EstiloGrafico(
+        Map.of(),
+        List.of(new Color(46, 204, 113), new Color(33, 150, 243)),
+        new Color(33, 150, 243)
+    );
+
+    public EstiloGrafico {
+        coloresSeccion = Map.copyOf(coloresSeccion);
+        coloresColumnas = List.copyOf(coloresColumnas);
+    }
+
+    public Color colorColumna(int columna) {
+        return coloresColumnas.get(Math.min(columna, coloresColumnas.size() - 1));
+    }
+}
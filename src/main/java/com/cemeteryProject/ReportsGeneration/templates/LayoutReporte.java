@@ -0,0 +1,109 @@
+package com.cemeteryProject.ReportsGeneration.templates;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.Paragraph;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Plantilla ya compilada: fuentes resueltas, textos analizados y colores decodificados. Es
+ * inmutable y se comparte entre peticiones; por petición solo se rellena con datos.
+ */
+public record LayoutReporte(String nombre, List<Bloque> bloques, TablaLayout tabla) {
+
+    public LayoutReporte {
+        bloques = List.copyOf(bloques);
+    }
+
+    public List<GraficoLayout> graficos() {
+        return bloques.stream()
+            .filter(Grafico.class::isInstance)
+            .map(bloque -> ((Grafico) bloque).grafico())
+            .toList();
+    }
+
+    public sealed interface Bloque permits Texto, Espacio, Lista, Grafico, Tabla {
+    }
+
+    public record Texto(EstiloTexto estilo, TextoPlantilla texto) implements Bloque {
+    }
+
+    public record Espacio() implements Bloque {
+    }
+
+    /**
+     * Una línea por elemento de {@code datos} (mapa o lista). En el texto del elemento están
+     * disponibles {@code clave}/{@code valor} para mapas, las propiedades del elemento para
+     * listas, y {@code posicion} (1°, 2°...) en ambos casos.
+     */
+    public record Lista(EstiloTexto estilo, String datos, TextoPlantilla item, TextoPlantilla vacio) implements Bloque {
+    }
+
+    public record Grafico(GraficoLayout grafico) implements Bloque {
+    }
+
+    /**
+     * Tabla con una fila por elemento de {@code datos}, con los mismos valores que una
+     * {@link Lista}, y una fila de encabezados que se repite en cada página.
+     */
+    public record Tabla(EstiloTexto estilo, EstiloTexto estiloEncabezado, String datos, List<ColumnaLayout> columnas,
+                        Color fondoEncabezado, TextoPlantilla vacio) implements Bloque {
+
+        public Tabla {
+            columnas = List.copyOf(columnas);
+        }
+
+        public float[] anchos() {
+            float[] anchos = new float[columnas.size()];
+            for (int i = 0; i < anchos.length; i++) {
+                anchos[i] = columnas.get(i).ancho();
+            }
+            return anchos;
+        }
+    }
+
+    public record ColumnaLayout(String encabezado, TextoPlantilla valor, float ancho) {
+    }
+
+    public record GraficoLayout(String tipo, TextoPlantilla titulo, String datos, String campoCategoria, String campoValor,
+                                TextoPlantilla ejeCategoria, String ejeValor, String serie, EstiloGrafico estilo) {
+    }
+
+    public record EstiloTexto(Font fuente, int alineacion, float espaciadoAntes, float espaciadoDespues) {
+
+        public Paragraph parrafo(String texto) {
+            Paragraph parrafo = new Paragraph(texto, fuente);
+            parrafo.setAlignment(alineacion);
+            parrafo.setSpacingBefore(espaciadoAntes);
+            parrafo.setSpacingAfter(espaciadoDespues);
+            return parrafo;
+        }
+    }
+
+    public record TablaLayout(TextoPlantilla titulo, EstiloTexto estiloTitulo, EstiloTexto estiloEtiqueta,
+                              EstiloTexto estiloValor, float[] anchos, Color fondo, float relleno,
+                              List<AtributoLayout> atributos) {
+
+        public TablaLayout {
+            anchos = anchos.clone();
+            atributos = List.copyOf(atributos);
+        }
+
+        @Override
+        public float[] anchos() {
+            return anchos.clone();
+        }
+    }
+
+    public record AtributoLayout(String etiqueta, TextoPlantilla valor, String requiere, String vacio) {
+
+        public String render(Function<String, Object> valores) {
+            if (requiere != null && valores.apply(requiere) == null) {
+                return vacio;
+            }
+            return valor.render(valores);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.cemeteryProject.ReportsGeneration.templates;
+
+import com.cemeteryProject.ReportsGeneration.templates.DefinicionPlantilla.DefinicionAtributo;
+import com.cemeteryProject.ReportsGeneration.templates.DefinicionPlantilla.DefinicionColumna;
+import com.cemeteryProject.ReportsGeneration.templates.DefinicionPlantilla.DefinicionEstilo;
+import com.cemeteryProject.ReportsGeneration.templates.DefinicionPlantilla.DefinicionGrafico;
+import com.cemeteryProject.ReportsGeneration.templates.DefinicionPlantilla.DefinicionSeccion;
+import com.cemeteryProject.ReportsGeneration.templates.DefinicionPlantilla.DefinicionTabla;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.AtributoLayout;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.Bloque;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.ColumnaLayout;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.EstiloTexto;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.GraficoLayout;
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.TablaLayout;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lowagie.text.Element;
+import com.lowagie.text.FontFactory;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carga y compila las plantillas de {@code classpath:plantillas/} una sola vez al arrancar.
+ * Un error en una plantilla (estilo, gráfico o formato desconocido) impide el arranque en lugar
+ * de aparecer al generar el primer reporte.
+ */
+@Component
+public class PlantillasReporte {
+
+    public static final String REPORTE_ANALISIS = "reporte-analisis";
+    public static final String LISTA_CUERPOS = "lista-cuerpos";
+
+    private static final List<String> PLANTILLAS = List.of(REPORTE_ANALISIS, LISTA_CUERPOS);
+
+    private final Map<String, LayoutReporte> layouts;
+
+    public PlantillasReporte() {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, LayoutReporte> compiladas = new HashMap<>();
+        for (String nombre : PLANTILLAS) {
+            compiladas.put(nombre, compilar(leer(mapper, nombre)));
+        }
+        this.layouts = Map.copyOf(compiladas);
+    }
+
+    public LayoutReporte obtener(String nombre) {
+        LayoutReporte layout = layouts.get(nombre);
+        if (layout == null) {
+            throw new IllegalArgumentException("No existe la plantilla de reporte: " + nombre);
+        }
+        return layout;
+    }
+
+    private static DefinicionPlantilla leer(ObjectMapper mapper, String nombre) {
+        String recurso = "/plantillas/" + nombre + ".json";
+        try (InputStream in = PlantillasReporte.class.getResourceAsStream(recurso)) {
+            if (in == null) {
+                throw new IllegalStateException("No se encontró la plantilla " + recurso);
+            }
+            return mapper.readValue(in, DefinicionPlantilla.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer la plantilla " + recurso + ": " + e.getMessage(), e);
+        }
+    }
+
+    static LayoutReporte compilar(DefinicionPlantilla definicion) {
+        Map<String, EstiloTexto> estilos = new HashMap<>();
+        if (definicion.estilos() != null) {
+            definicion.estilos().forEach((nombre, estilo) -> estilos.put(nombre, compilarEstilo(estilo)));
+        }
+
+        List<Bloque> bloques = new ArrayList<>();
+        if (definicion.secciones() != null) {
+            for (DefinicionSeccion seccion : definicion.secciones()) {
+                bloques.add(compilarSeccion(seccion, estilos, definicion.graficos()));
+            }
+        }
+
+        TablaLayout tabla = definicion.tabla() != null ? compilarTabla(definicion.tabla(), estilos) : null;
+        return new LayoutReporte(definicion.nombre(), bloques, tabla);
+    }
+
+    private static EstiloTexto compilarEstilo(DefinicionEstilo estilo) {
+        return new EstiloTexto(
+            FontFactory.getFont(estilo.fuente() != null ? estilo.fuente() : FontFactory.HELVETICA, estilo.tamano()),
+            alineacion(estilo.alineacion()),
+            estilo.espaciadoAntes(),
+            estilo.espaciadoDespues()
+        );
+    }
+
+    private static int alineacion(String alineacion) {
+        if (alineacion == null) {
+            return Element.ALIGN_UNDEFINED;
+        }
+        return switch (alineacion) {
+            case "LEFT" -> Element.ALIGN_LEFT;
+            case "CENTER" -> Element.ALIGN_CENTER;
+            case "RIGHT" -> Element.ALIGN_RIGHT;
+            case "JUSTIFIED" -> Element.ALIGN_JUSTIFIED;
+            default -> throw new IllegalArgumentException("Alineación desconocida: " + alineacion);
+        };
+    }
+
+    private static Bloque compilarSeccion(DefinicionSeccion seccion, Map<String, EstiloTexto> estilos,
+                                          Map<String, DefinicionGrafico> graficos) {
+        return switch (seccion.tipo()) {
+            case "texto" -> new LayoutReporte.Texto(estilo(estilos, seccion.estilo()), TextoPlantilla.compilar(seccion.texto()));
+            case "espacio" -> new LayoutReporte.Espacio();
+            case "lista" -> new LayoutReporte.Lista(
+                estilo(estilos, seccion.estilo()),
+                seccion.datos(),
+                TextoPlantilla.compilar(seccion.texto()),
+                TextoPlantilla.compilar(seccion.vacio())
+            );
+            case "grafico" -> {
+                DefinicionGrafico grafico = graficos != null ? graficos.get(seccion.grafico()) : null;
+                if (grafico == null) {
+                    throw new IllegalArgumentException("Gráfico no definido en la plantilla: " + seccion.grafico());
+                }
+                yield new LayoutReporte.Grafico(compilarGrafico(grafico));
+            }
+            case "tabla" -> compilarTabla(seccion, estilos);
+            default -> throw new IllegalArgumentException("Tipo de sección desconocido: " + seccion.tipo());
+        };
+    }
+
+    private static GraficoLayout compilarGrafico(DefinicionGrafico grafico) {
+        if (!List.of("pie", "bar", "line").contains(grafico.tipo())) {
+            throw new IllegalArgumentException("Tipo de gráfico desconocido: " + grafico.tipo());
+        }
+        Map<String, Color> colores = new HashMap<>();
+        if (grafico.colores() != null) {
+            grafico.colores().forEach((clave, color) -> colores.put(clave, Color.decode(color)));
+        }
+        List<Color> coloresColumnas = grafico.coloresColumnas() != null && !grafico.coloresColumnas().isEmpty()
+            ? grafico.coloresColumnas().stream().map(Color::decode).toList()
+            : EstiloGrafico.DEFECTO.coloresColumnas();
+        Color colorSerie = grafico.colorSerie() != null ? Color.decode(grafico.colorSerie()) : EstiloGrafico.DEFECTO.colorSerie();
+
+        return new GraficoLayout(
+            grafico.tipo(),
+            TextoPlantilla.compilar(grafico.titulo()),
+            grafico.datos(),
+            grafico.campoCategoria(),
+            grafico.campoValor(),
+            TextoPlantilla.compilar(grafico.ejeCategoria()),
+            grafico.ejeValor(),
+            grafico.serie(),
+            new EstiloGrafico(colores, coloresColumnas, colorSerie)
+        );
+    }
+
+    private static LayoutReporte.Tabla compilarTabla(DefinicionSeccion seccion, Map<String, EstiloTexto> estilos) {
+        if (seccion.columnas() == null || seccion.columnas().isEmpty()) {
+            throw new IllegalArgumentException("La tabla de '" + seccion.datos() + "' no tiene columnas");
+        }
+        List<ColumnaLayout> columnas = new ArrayList<>();
+        for (DefinicionColumna columna : seccion.columnas()) {
+            columnas.add(new ColumnaLayout(
+                columna.encabezado(),
+                TextoPlantilla.compilar(columna.valor()),
+                columna.ancho() != null ? columna.ancho() : 1
+            ));
+        }
+        return new LayoutReporte.Tabla(
+            estilo(estilos, seccion.estilo()),
+            estilo(estilos, seccion.estiloEncabezado() != null ? seccion.estiloEncabezado() : seccion.estilo()),
+            seccion.datos(),
+            columnas,
+            seccion.fondo() != null ? Color.decode(seccion.fondo()) : null,
+            TextoPlantilla.compilar(seccion.vacio())
+        );
+    }
+
+    private static TablaLayout compilarTabla(DefinicionTabla tabla, Map<String, EstiloTexto> estilos) {
+        float[] anchos = new float[tabla.anchos().size()];
+        for (int i = 0; i < anchos.length; i++) {
+            anchos[i] = tabla.anchos().get(i);
+        }
+        List<AtributoLayout> atributos = new ArrayList<>();
+        for (DefinicionAtributo atributo : tabla.atributos()) {
+            atributos.add(new AtributoLayout(
+                atributo.etiqueta(),
+                TextoPlantilla.compilar(atributo.valor()),
+                atributo.requiere(),
+                atributo.vacio() != null ? atributo.vacio() : "N/A"
+            ));
+        }
+        return new TablaLayout(
+            TextoPlantilla.compilar(tabla.titulo()),
+            estilo(estilos, tabla.estiloTitulo()),
+            estilo(estilos, tabla.estiloEtiqueta()),
+            estilo(estilos, tabla.estiloValor()),
+            anchos,
+            tabla.fondo() != null ? Color.decode(tabla.fondo()) : null,
+            tabla.relleno(),
+            atributos
+        );
+    }
+
+    private static EstiloTexto estilo(Map<String, EstiloTexto> estilos, String nombre) {
+        EstiloTexto estilo = estilos.get(nombre);
+        if (estilo == null) {
+            throw new IllegalArgumentException("Estilo no definido en la plantilla: " + nombre);
+        }
+        return estilo;
+    }
+}
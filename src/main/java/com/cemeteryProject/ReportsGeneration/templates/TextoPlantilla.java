@@ -0,0 +1,126 @@
+package com.cemeteryProject.ReportsGeneration.templates;
+
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Texto con marcadores ya analizado. Sintaxis: {@code {campo}}, {@code {campo:formato}} y
+ * {@code {campo|defecto}}. Un campo nulo sin defecto se escribe vacío; los formatos de fecha y
+ * decimal exigen valor. El análisis ocurre una sola vez al compilar la plantilla.
+ */
+public final class TextoPlantilla {
+
+    private static final DateTimeFormatter FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter FECHA_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final Map<String, Function<Object, String>> FORMATOS = Map.of(
+        "fecha", valor -> FECHA.format((TemporalAccessor) valor),
+        "fechaHora", valor -> FECHA_HORA.format((TemporalAccessor) valor),
+        "decimal", valor -> String.format("%.2f", ((Number) valor).doubleValue()),
+        "parentesis", valor -> " (" + valor + ")"
+    );
+
+    // Formatos que aceptan un valor nulo (se omiten en lugar de fallar)
+    private static final List<String> FORMATOS_OPCIONALES = List.of("parentesis");
+
+    private sealed interface Segmento permits Literal, Variable {
+    }
+
+    private record Literal(String texto) implements Segmento {
+    }
+
+    private record Variable(String campo, Function<Object, String> formato, boolean opcional, String defecto) implements Segmento {
+    }
+
+    private final String fuente;
+    private final List<Segmento> segmentos;
+
+    private TextoPlantilla(String fuente, List<Segmento> segmentos) {
+        this.fuente = fuente;
+        this.segmentos = segmentos;
+    }
+
+    public static TextoPlantilla compilar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        List<Segmento> segmentos = new ArrayList<>();
+        int pos = 0;
+        while (pos < texto.length()) {
+            int abre = texto.indexOf('{', pos);
+            if (abre < 0) {
+                segmentos.add(new Literal(texto.substring(pos)));
+                break;
+            }
+            int cierra = texto.indexOf('}', abre);
+            if (cierra < 0) {
+                throw new IllegalArgumentException("Marcador sin cerrar en la plantilla: " + texto);
+            }
+            if (abre > pos) {
+                segmentos.add(new Literal(texto.substring(pos, abre)));
+            }
+            segmentos.add(compilarVariable(texto.substring(abre + 1, cierra), texto));
+            pos = cierra + 1;
+        }
+        return new TextoPlantilla(texto, List.copyOf(segmentos));
+    }
+
+    private static Variable compilarVariable(String marcador, String texto) {
+        String defecto = null;
+        int barra = marcador.indexOf('|');
+        if (barra >= 0) {
+            defecto = marcador.substring(barra + 1);
+            marcador = marcador.substring(0, barra);
+        }
+        String nombreFormato = null;
+        int dosPuntos = marcador.indexOf(':');
+        if (dosPuntos >= 0) {
+            nombreFormato = marcador.substring(dosPuntos + 1);
+            marcador = marcador.substring(0, dosPuntos);
+        }
+        if (marcador.isBlank()) {
+            throw new IllegalArgumentException("Marcador vacío en la plantilla: " + texto);
+        }
+        Function<Object, String> formato = null;
+        if (nombreFormato != null) {
+            formato = FORMATOS.get(nombreFormato);
+            if (formato == null) {
+                throw new IllegalArgumentException("Formato desconocido '" + nombreFormato + "' en la plantilla: " + texto);
+            }
+        }
+        return new Variable(marcador, formato, nombreFormato == null || FORMATOS_OPCIONALES.contains(nombreFormato), defecto);
+    }
+
+    public String render(Function<String, Object> valores) {
+        StringBuilder sb = new StringBuilder();
+        for (Segmento segmento : segmentos) {
+            if (segmento instanceof Literal literal) {
+                sb.append(literal.texto());
+            } else if (segmento instanceof Variable variable) {
+                Object valor = valores.apply(variable.campo());
+                if (valor == null && variable.defecto() != null) {
+                    sb.append(variable.defecto());
+                } else if (valor == null && variable.opcional()) {
+                    // Campo opcional ausente: no se escribe nada
+                } else if (variable.formato() != null) {
+                    if (valor == null) {
+                        throw new IllegalArgumentException("Falta el valor de '" + variable.campo() + "' en: " + fuente);
+                    }
+                    sb.append(variable.formato().apply(valor));
+                } else {
+                    sb.append(valor);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return fuente;
+    }
+}
@@ -0,0 +1,103 @@
+package com.cemeteryProject.ReportsGeneration.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompresionGzipTest {
+
+    private HttpServer servidor;
+
+    private String baseUrl;
+
+    private CompresionGzip compresionGzip;
+
+    private RestTemplate restTemplate;
+
+    private final String json = "[" + "{\"estado\":\"INHUMADO\"},".repeat(200) + "{\"estado\":\"EXHUMADO\"}]";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // Comprime solo si el cliente lo pidió
+        servidor.createContext("/cuerposinhumados", exchange -> {
+            String aceptada = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean comprimir = aceptada != null && aceptada.contains("gzip");
+            responder(exchange, comprimir ? gzip(json) : json.getBytes(StandardCharsets.UTF_8), comprimir);
+        });
+        servidor.start();
+        baseUrl = "http://localhost:" + servidor.getAddress().getPort();
+
+        compresionGzip = new CompresionGzip();
+        restTemplate = new RestTemplate(new JdkClientHttpRequestFactory(HttpClient.newHttpClient()));
+        restTemplate.setInterceptors(List.of(compresionGzip));
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.stop(0);
+    }
+
+    /**
+     * Test CGZ-01: La respuesta debería pedirse con gzip y entregarse descomprimida.
+     */
+    @Test
+    void intercept_RespuestaComprimida_ShouldBeDecompressedTransparently() {
+        String cuerpo = restTemplate.getForObject(baseUrl + "/cuerposinhumados", String.class);
+
+        assertEquals(json, cuerpo);
+        CompresionGzip.Estadisticas estadisticas = compresionGzip.estadisticas();
+        assertEquals(1, estadisticas.respuestasComprimidas());
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, estadisticas.bytesDescomprimidos());
+        assertTrue(estadisticas.bytesRecibidos() * 10 < estadisticas.bytesDescomprimidos(),
+            "Un JSON repetitivo debe viajar al menos diez veces más chico");
+    }
+
+    /**
+     * Test CGZ-02: Si el cliente ya pidió otra codificación, no debería pisarse y la respuesta pasa tal cual.
+     */
+    @Test
+    void intercept_SinGzip_ShouldPassThrough() {
+        String cuerpo = restTemplate.execute(baseUrl + "/cuerposinhumados", HttpMethod.GET,
+            request -> request.getHeaders().set("Accept-Encoding", "identity"),
+            response -> new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+
+        assertEquals(json, cuerpo);
+        assertEquals(0, compresionGzip.estadisticas().respuestasComprimidas());
+    }
+
+    private static byte[] gzip(String texto) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(texto.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void responder(HttpExchange exchange, byte[] cuerpo, boolean comprimido) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (comprimido) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, cuerpo.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(cuerpo);
+        }
+    }
+}
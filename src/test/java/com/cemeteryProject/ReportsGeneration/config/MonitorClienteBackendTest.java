@@ -0,0 +1,148 @@
+package com.cemeteryProject.ReportsGeneration.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MonitorClienteBackendTest {
+
+    private HttpServer servidor;
+
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.createContext("/rapido", exchange -> responder(exchange, "ok"));
+        servidor.createContext("/lento", exchange -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            responder(exchange, "tarde");
+        });
+        servidor.start();
+        baseUrl = "http://localhost:" + servidor.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.stop(0);
+    }
+
+    /**
+     * Test MCB-01: Sin permisos libres la petición debería rechazarse y contarse como rechazada.
+     */
+    @Test
+    void intercept_SinPermisos_ShouldRejectRequest() throws Exception {
+        MonitorClienteBackend monitor = new MonitorClienteBackend(1, 10);
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getURI()).thenReturn(URI.create("http://backend/nichos"));
+        ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+        ClientHttpResponse respuesta = mock(ClientHttpResponse.class);
+        when(execution.execute(any(), any())).thenReturn(respuesta);
+
+        ClientHttpResponse enCurso = monitor.intercept(request, new byte[0], execution);
+        assertEquals(1, monitor.estadisticas().enVuelo());
+
+        assertThrows(ResourceAccessException.class, () -> monitor.intercept(request, new byte[0], execution));
+        assertEquals(1, monitor.estadisticas().rechazadas());
+
+        // Cerrar la respuesta devuelve el permiso una sola vez
+        enCurso.close();
+        enCurso.close();
+        MonitorClienteBackend.Estadisticas estadisticas = monitor.estadisticas();
+        assertEquals(0, estadisticas.enVuelo());
+        assertEquals(1, estadisticas.completadas());
+        assertEquals(Map.of("/nichos", 1L), estadisticas.peticionesPorRuta());
+        verify(respuesta, times(2)).close();
+    }
+
+    /**
+     * Test MCB-02: Una petición fallida debería devolver el permiso y contarse como fallida.
+     */
+    @Test
+    void intercept_ErrorDeEjecucion_ShouldReleasePermit() throws Exception {
+        MonitorClienteBackend monitor = new MonitorClienteBackend(1, 10);
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getURI()).thenReturn(URI.create("http://backend/nichos"));
+        ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+        when(execution.execute(any(), any())).thenThrow(new IOException("conexión rechazada"));
+
+        assertThrows(IOException.class, () -> monitor.intercept(request, new byte[0], execution));
+
+        assertEquals(0, monitor.estadisticas().enVuelo());
+        assertEquals(1, monitor.estadisticas().fallidas());
+    }
+
+    /**
+     * Test MCB-03: El tiempo de lectura por ruta debería cortar solo la ruta configurada.
+     */
+    @Test
+    void restTemplate_TimeoutPorRuta_ShouldApplyOnlyToThatRoute() {
+        MonitorClienteBackend monitor = new MonitorClienteBackend(4, 100);
+        RestTemplate restTemplate = new RestTemplateConfig().restTemplate(monitor, new CompresionGzip(), true, 1000, 5000, Map.of("/lento", 200L));
+
+        assertEquals("ok", restTemplate.getForObject(baseUrl + "/rapido", String.class));
+        assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(baseUrl + "/lento", String.class));
+
+        MonitorClienteBackend.Estadisticas estadisticas = monitor.estadisticas();
+        assertEquals(0, estadisticas.enVuelo(), "Todos los permisos deben haberse devuelto");
+        assertEquals(1, estadisticas.completadas());
+        assertEquals(1, estadisticas.fallidas());
+    }
+
+    /**
+     * Test MCB-04: Una petición cancelada por tiempo de lectura debería llegar como ResourceAccessException y contarse como fallida.
+     */
+    @Test
+    void restTemplate_CancelacionPorTiempo_ShouldThrowResourceAccessException() {
+        MonitorClienteBackend monitor = new MonitorClienteBackend(1, 100);
+        RestTemplate restTemplate = new RestTemplate((uri, metodo) -> new MockClientHttpRequest(metodo, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() {
+                throw new CancellationException();
+            }
+        });
+        restTemplate.setInterceptors(List.of(monitor, new TiempoLecturaAgotado()));
+
+        ResourceAccessException error = assertThrows(ResourceAccessException.class,
+            () -> restTemplate.getForObject(baseUrl + "/lento", String.class));
+
+        assertInstanceOf(HttpTimeoutException.class, error.getCause());
+        assertEquals(0, monitor.estadisticas().enVuelo(), "El permiso debe devolverse");
+        assertEquals(1, monitor.estadisticas().fallidas());
+    }
+
+    private static void responder(HttpExchange exchange, String texto) throws IOException {
+        byte[] cuerpo = texto.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, cuerpo.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(cuerpo);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cemeteryProject.ReportsGeneration.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebConfigTest {
+
+    // Expone el tiempo configurado, que AsyncSupportConfigurer solo deja leer a Spring
+    private static final class Configurador extends AsyncSupportConfigurer {
+        Long tiempo() {
+            return getTimeout();
+        }
+    }
+
+    /**
+     * Test WCF-01: Las respuestas asíncronas deberían usar el tiempo máximo configurado, o ninguno si es 0.
+     */
+    @Test
+    void configureAsyncSupport_ShouldApplyDownloadTimeout() {
+        WebConfig webConfig = new WebConfig();
+        ReflectionTestUtils.setField(webConfig, "tiempoMaximoDescargaSegundos", 1800L);
+        Configurador configurador = new Configurador();
+        webConfig.configureAsyncSupport(configurador);
+        assertEquals(1_800_000L, configurador.tiempo(), "El tiempo debe quedar en milisegundos");
+
+        ReflectionTestUtils.setField(webConfig, "tiempoMaximoDescargaSegundos", 0L);
+        Configurador sinLimite = new Configurador();
+        webConfig.configureAsyncSupport(sinLimite);
+        assertEquals(-1L, sinLimite.tiempo(), "Con 0 las descargas no deben tener límite");
+    }
+}
@@ -0,0 +1,165 @@
+package com.cemeteryProject.ReportsGeneration.controllers;
+
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
+import com.cemeteryProject.ReportsGeneration.services.AlmacenPdfService;
+import com.cemeteryProject.ReportsGeneration.services.ChartRenderService;
+import com.cemeteryProject.ReportsGeneration.services.DocumentoService;
+import com.cemeteryProject.ReportsGeneration.services.ExternalDataService;
+import com.cemeteryProject.ReportsGeneration.services.FragmentoPdfService;
+import com.cemeteryProject.ReportsGeneration.services.PdfGeneratorService;
+import com.cemeteryProject.ReportsGeneration.services.ReporteAnalisisService;
+import com.cemeteryProject.ReportsGeneration.templates.PlantillasReporte;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DocumentoControllerTest {
+
+    @Mock
+    private DocumentoService documentoService;
+
+    @Mock
+    private ChartRenderService chartRenderService;
+
+    @Mock
+    private FragmentoPdfService fragmentoPdfService;
+
+    @Mock
+    private ReporteAnalisisService reporteAnalisisService;
+
+    @Mock
+    private ExternalDataService externalDataService;
+
+    @TempDir
+    Path directorio;
+
+    private AlmacenPdfService almacenPdfService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        almacenPdfService = new AlmacenPdfService(directorio.toString());
+        PdfGeneratorService pdfGeneratorService = new PdfGeneratorService(chartRenderService, new PlantillasReporte(), fragmentoPdfService);
+        mockMvc = MockMvcBuilders.standaloneSetup(new DocumentoController(documentoService, pdfGeneratorService,
+            reporteAnalisisService, externalDataService, almacenPdfService)).build();
+    }
+
+    /**
+     * Test DCO-01: La lista de cuerpos debería escribirse a medida que se recorren y registrarse con su PDF solo si termina bien.
+     */
+    @Test
+    void descargarListaCuerpos_ShouldStreamBodiesAndRegisterOnlyAfterSuccess() throws Exception {
+        when(externalDataService.recorrerCuerpos(any())).thenAnswer(invocacion -> {
+            Consumer<CuerpoInhumadoDTO> consumidor = invocacion.getArgument(0);
+            consumidor.accept(cuerpo("C-1"));
+            consumidor.accept(cuerpo("C-2"));
+            return 2L;
+        });
+
+        MvcResult resultado = mockMvc.perform(get("/reportes/descargar-cuerpos").param("usuarioId", "ana"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(resultado)).andExpect(status().isOk());
+
+        byte[] pdf = resultado.getResponse().getContentAsByteArray();
+        String texto;
+        try (PDDocument documento = PDDocument.load(pdf)) {
+            texto = new PDFTextStripper().getText(documento);
+        }
+        assertTrue(texto.contains("C-1") && texto.contains("C-2"), "El PDF debe contener los cuerpos recorridos");
+        verify(externalDataService, never()).getAllCuerpos();
+        verify(documentoService).registrarReporte(eq("Lista de Cuerpos"), eq("ana"), eq(almacenPdfService.guardar(pdf)));
+
+        // Si la lectura falla a mitad de camino no debe quedar un documento sin contenido
+        clearInvocations(documentoService);
+        doAnswer(invocacion -> {
+            Consumer<CuerpoInhumadoDTO> consumidor = invocacion.getArgument(0);
+            consumidor.accept(cuerpo("C-1"));
+            throw new ResourceAccessException("Read timed out");
+        }).when(externalDataService).recorrerCuerpos(any());
+
+        MvcResult fallido = mockMvc.perform(get("/reportes/descargar-cuerpos"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        assertThrows(Exception.class, () -> mockMvc.perform(asyncDispatch(fallido)));
+
+        verify(documentoService, never()).registrarReporte(any(), any(), any());
+    }
+
+    /**
+     * Test DCO-03: Sin cuerpos debería responderse 400 sin escribir el PDF ni registrar el documento.
+     */
+    @Test
+    void descargarListaCuerpos_SinCuerpos_ShouldReturnBadRequest() throws Exception {
+        when(externalDataService.recorrerCuerpos(any())).thenReturn(0L);
+
+        MvcResult resultado = mockMvc.perform(get("/reportes/descargar-cuerpos"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(resultado)).andExpect(status().isBadRequest());
+
+        assertEquals(0, resultado.getResponse().getContentAsByteArray().length, "No debe haberse escrito nada del PDF");
+        verify(documentoService, never()).registrarReporte(any(), any(), any());
+    }
+
+    /**
+     * Test DCO-02: Con un If-None-Match igual al ETag del contenido debería responderse 304 sin enviar el PDF.
+     */
+    @Test
+    void descargarContenido_IfNoneMatchCoincide_ShouldReturnNotModified() throws Exception {
+        byte[] pdf = "%PDF-1.4 guardado".getBytes(StandardCharsets.UTF_8);
+        AlmacenPdfService.Contenido contenido = almacenPdfService.guardar(pdf);
+        DocumentoDTO documento = new DocumentoDTO();
+        documento.setId("doc-1");
+        documento.setHashContenido(contenido.hash());
+        documento.setTamanoContenido(contenido.tamano());
+        when(documentoService.obtenerPorId("doc-1")).thenReturn(documento);
+        String etag = "\"" + contenido.hash() + "\"";
+
+        MvcResult noModificado = mockMvc.perform(get("/reportes/doc-1/contenido").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andReturn();
+        assertEquals(0, noModificado.getResponse().getContentLength(), "Un 304 no debe llevar el PDF");
+
+        MvcResult otro = mockMvc.perform(get("/reportes/doc-1/contenido").header(HttpHeaders.IF_NONE_MATCH, "\"otro\""))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(otro))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+        assertArrayEquals(pdf, otro.getResponse().getContentAsByteArray());
+    }
+
+    private static CuerpoInhumadoDTO cuerpo(String idCadaver) {
+        CuerpoInhumadoDTO cuerpo = new CuerpoInhumadoDTO();
+        cuerpo.setIdCadaver(idCadaver);
+        return cuerpo;
+    }
+}
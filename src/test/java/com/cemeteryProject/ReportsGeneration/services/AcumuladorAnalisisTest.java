@@ -0,0 +1,283 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+import com.cemeteryProject.ReportsGeneration.models.DocumentoModel.TipoDocumento;
+import com.cemeteryProject.ReportsGeneration.models.NichoModel.EstadoNicho;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AcumuladorAnalisisTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2025, 3, 14, 15, 30);
+    private static final CubetasTiempo.Ventana SEMANAS_12 = CubetasTiempo.Ventana.POR_DEFECTO;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Test AAN-01: El acumulador, en una pasada o repartido en tramos, debería dar exactamente lo mismo que el cálculo anterior.
+     */
+    @Test
+    void acumular_DatosAleatorios_ShouldMatchPreviousCalculation() {
+        Random random = new Random(42);
+        for (int ronda = 0; ronda < 20; ronda++) {
+            List<CuerpoInhumadoDTO> cuerpos = cuerpos(random, random.nextInt(400));
+            List<NichoDTO> nichos = nichos(random, random.nextInt(200));
+            List<DocumentoDTO> documentos = documentos(random, random.nextInt(300));
+            int asignados = random.nextInt(cuerpos.size() + 1);
+
+            ReporteAnalisisDTO esperado = calculoAnterior(AHORA, cuerpos, nichos, documentos, asignados);
+            ColumnasCuerpos columnas = ColumnasCuerpos.deCuerpos(cuerpos);
+
+            ReporteAnalisisDTO secuencial = AcumuladorAnalisis.acumular(AHORA, SEMANAS_12, columnas, nichos, documentos, 0, pool)
+                .resultado(asignados);
+            ReporteAnalisisDTO paralelo = AcumuladorAnalisis.acumular(AHORA, SEMANAS_12, columnas, nichos, documentos, 7, pool)
+                .resultado(asignados);
+
+            assertIgual(esperado, secuencial, "secuencial, ronda " + ronda);
+            assertIgual(esperado, paralelo, "en paralelo, ronda " + ronda);
+        }
+    }
+
+    /**
+     * Test AAN-02: Combinar los acumuladores de cada elemento en cualquier agrupación debería dar el mismo resultado.
+     */
+    @Test
+    void combinar_DistintasAgrupaciones_ShouldBeAssociative() {
+        Random random = new Random(7);
+        List<CuerpoInhumadoDTO> cuerpos = cuerpos(random, 30);
+        List<DocumentoDTO> documentos = documentos(random, 30);
+        ColumnasCuerpos columnas = ColumnasCuerpos.deCuerpos(cuerpos);
+        ReporteAnalisisDTO esperado = calculoAnterior(AHORA, cuerpos, List.of(), documentos, 0);
+
+        // Cada elemento en su propio acumulador, combinados por la izquierda y por la derecha
+        List<AcumuladorAnalisis> porIzquierda = unoPorElemento(columnas, documentos);
+        List<AcumuladorAnalisis> porDerecha = unoPorElemento(columnas, documentos);
+        AcumuladorAnalisis izquierda = porIzquierda.get(0);
+        for (int i = 1; i < porIzquierda.size(); i++) {
+            izquierda = izquierda.combinar(porIzquierda.get(i));
+        }
+        AcumuladorAnalisis derecha = porDerecha.get(porDerecha.size() - 1);
+        for (int i = porDerecha.size() - 2; i >= 0; i--) {
+            derecha = porDerecha.get(i).combinar(derecha);
+        }
+
+        assertIgual(esperado, izquierda.resultado(0), "combinando por la izquierda");
+        assertIgual(esperado, derecha.resultado(0), "combinando por la derecha");
+    }
+
+    /**
+     * Test AAN-03: Un cuerpo sin estado o un documento sin usuario deberían fallar también al repartir en tramos.
+     */
+    @Test
+    void acumular_DatosIncompletosEnParalelo_ShouldThrowNullPointerException() {
+        Random random = new Random(3);
+        List<CuerpoInhumadoDTO> cuerpos = cuerpos(random, 100);
+        cuerpos.get(77).setEstado(null);
+        ColumnasCuerpos columnas = ColumnasCuerpos.deCuerpos(cuerpos);
+        List<DocumentoDTO> documentos = documentos(random, 100);
+
+        assertThrows(NullPointerException.class,
+            () -> AcumuladorAnalisis.acumular(AHORA, SEMANAS_12, columnas, List.of(), documentos, 10, pool));
+
+        documentos.get(50).setUsuarioId(null);
+        ColumnasCuerpos validas = ColumnasCuerpos.deCuerpos(cuerpos(random, 100));
+        assertThrows(NullPointerException.class,
+            () -> AcumuladorAnalisis.acumular(AHORA, SEMANAS_12, validas, List.of(), documentos, 10, pool));
+    }
+
+    private List<AcumuladorAnalisis> unoPorElemento(ColumnasCuerpos columnas, List<DocumentoDTO> documentos) {
+        List<AcumuladorAnalisis> acumuladores = new ArrayList<>();
+        for (int i = 0; i < columnas.tamano(); i++) {
+            AcumuladorAnalisis uno = new AcumuladorAnalisis(AHORA, SEMANAS_12);
+            uno.agregarCuerpo(columnas, i);
+            acumuladores.add(uno);
+        }
+        for (DocumentoDTO documento : documentos) {
+            AcumuladorAnalisis uno = new AcumuladorAnalisis(AHORA, SEMANAS_12);
+            uno.agregarDocumento(documento);
+            acumuladores.add(uno);
+        }
+        return acumuladores;
+    }
+
+    private void assertIgual(ReporteAnalisisDTO esperado, ReporteAnalisisDTO obtenido, String caso) {
+        assertEquals(esperado, obtenido, "El análisis debería coincidir con el cálculo anterior (" + caso + ")");
+        // El orden de las claves se ve en el JSON, así que también debe coincidir
+        assertEquals(new ArrayList<>(esperado.getEstadoNichos().keySet()), new ArrayList<>(obtenido.getEstadoNichos().keySet()),
+            "El orden de los estados de nichos debería coincidir (" + caso + ")");
+        assertEquals(new ArrayList<>(esperado.getDocumentTypes().keySet()), new ArrayList<>(obtenido.getDocumentTypes().keySet()),
+            "El orden de los tipos de documento debería coincidir (" + caso + ")");
+    }
+
+    private List<CuerpoInhumadoDTO> cuerpos(Random random, int cantidad) {
+        List<CuerpoInhumadoDTO> cuerpos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            CuerpoInhumadoDTO cuerpo = new CuerpoInhumadoDTO();
+            cuerpo.setEstado(EstadoCuerpo.values()[random.nextInt(EstadoCuerpo.values().length)]);
+            cuerpo.setFechaIngreso(AHORA.minusDays(random.nextInt(730)).minusMinutes(random.nextInt(1440)));
+            // Incluye fechas justo en los límites de cada semana y fuera de los tres meses
+            cuerpo.setFechaInhumacion(random.nextInt(5) == 0 ? null : AHORA.toLocalDate().minusDays(random.nextInt(110)));
+            cuerpos.add(cuerpo);
+        }
+        return cuerpos;
+    }
+
+    private List<NichoDTO> nichos(Random random, int cantidad) {
+        List<NichoDTO> nichos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            NichoDTO nicho = new NichoDTO();
+            nicho.setEstado(EstadoNicho.values()[random.nextInt(EstadoNicho.values().length)]);
+            nichos.add(nicho);
+        }
+        return nichos;
+    }
+
+    private List<DocumentoDTO> documentos(Random random, int cantidad) {
+        List<DocumentoDTO> documentos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            DocumentoDTO documento = new DocumentoDTO();
+            documento.setTipo(TipoDocumento.values()[random.nextInt(TipoDocumento.values().length)]);
+            // Pocos usuarios para que haya empates en el top
+            documento.setUsuarioId("usuario" + random.nextInt(8));
+            int caso = random.nextInt(6);
+            documento.setFechaGeneracion(caso == 0 ? null
+                : caso == 1 ? AHORA.minusDays(7L * random.nextInt(13))
+                : AHORA.minusMinutes(random.nextInt(100 * 1440)));
+            documentos.add(documento);
+        }
+        return documentos;
+    }
+
+    // Cálculo del análisis tal como estaba antes del acumulador, con un recorrido por métrica
+    private static ReporteAnalisisDTO calculoAnterior(LocalDateTime ahora, List<CuerpoInhumadoDTO> cuerpos, List<NichoDTO> nichos,
+                                                      List<DocumentoDTO> documents, int asignados) {
+        ReporteAnalisisDTO dto = new ReporteAnalisisDTO();
+        dto.setTotalCuerpos(cuerpos.size());
+        dto.setTotalNichos(nichos.size());
+        dto.setCuerposAsignados(asignados);
+        dto.setPorcentajeOcupacion(nichos.size() == 0 ? 0 : (double) asignados / nichos.size() * 100);
+        dto.setNichosDisponibles((int) nichos.stream()
+            .filter(n -> n.getEstado().toString().equals("DISPONIBLE"))
+            .count());
+
+        LocalDate hoy = ahora.toLocalDate();
+        LocalDate oneMonthAgo = hoy.minusMonths(1);
+        dto.setCuerposRecientes((int) cuerpos.stream()
+            .filter(c -> c.getFechaInhumacion() != null && c.getFechaInhumacion().isAfter(oneMonthAgo))
+            .count());
+
+        Map<Month, Long> conteoMensual = cuerpos.stream()
+            .collect(Collectors.groupingBy(c -> c.getFechaIngreso().toLocalDate().getMonth(), Collectors.counting()));
+        dto.setPromedioMensualGeneral(conteoMensual.values().stream().mapToLong(Long::longValue).average().orElse(0));
+        dto.setPromedioMensualPorTipo(cuerpos.stream()
+            .collect(Collectors.groupingBy(c -> c.getEstado().toString(), Collectors.averagingDouble(c -> 1.0))));
+        dto.setEstadoNichos(nichos.stream()
+            .collect(Collectors.groupingBy(nicho -> nicho.getEstado().toString(), Collectors.counting())));
+        dto.setCuerposPorTipo(cuerpos.stream()
+            .collect(Collectors.groupingBy(CuerpoInhumadoDTO::getEstado, Collectors.counting())));
+
+        LocalDate threeMonthsAgo = hoy.minusMonths(3);
+        Map<String, Long> weeklyCounts = new HashMap<>();
+        List<ReporteAnalisisDTO.WeeklyData> weeks = new ArrayList<>();
+        for (int i = 11; i >= 0; i--) {
+            LocalDate weekStart = hoy.minusDays(i * 7L);
+            String weekKey = String.format("%d-%s", weekStart.getDayOfMonth(), weekStart.getMonth().toString().substring(0, 3));
+            weeklyCounts.put(weekKey, 0L);
+            ReporteAnalisisDTO.WeeklyData weekData = new ReporteAnalisisDTO.WeeklyData();
+            weekData.setWeek(weekKey);
+            weeks.add(weekData);
+        }
+        cuerpos.forEach(cuerpo -> {
+            LocalDate fechaInhumacion = cuerpo.getFechaInhumacion();
+            if (fechaInhumacion != null && fechaInhumacion.isAfter(threeMonthsAgo)) {
+                for (int i = 0; i < weeks.size(); i++) {
+                    LocalDate weekStart = hoy.minusDays((11 - i) * 7L);
+                    LocalDate nextWeekStart = i < weeks.size() - 1 ? hoy.minusDays((11 - (i + 1)) * 7L) : hoy;
+                    if (fechaInhumacion.isAfter(weekStart) && fechaInhumacion.isBefore(nextWeekStart.plusDays(1))) {
+                        String weekKey = weeks.get(i).getWeek();
+                        weeklyCounts.put(weekKey, weeklyCounts.getOrDefault(weekKey, 0L) + 1);
+                        break;
+                    }
+                }
+            }
+        });
+        weeks.forEach(week -> week.setCount(weeklyCounts.get(week.getWeek())));
+        dto.setWeeklyInhumations(weeks);
+
+        Map<String, Long> distribucion = new HashMap<>();
+        distribucion.put("Asignados", (long) asignados);
+        distribucion.put("No Asignados", (long) (cuerpos.size() - asignados));
+        dto.setCuerposAsignadosDistribucion(distribucion);
+
+        dto.setDocumentTypes(documents.stream()
+            .collect(Collectors.groupingBy(doc -> doc.getTipo().toString(), Collectors.counting())));
+
+        LocalDateTime threeMonthsAgoDoc = ahora.minusMonths(3);
+        Map<String, Long> weeklyDocCounts = new HashMap<>();
+        List<ReporteAnalisisDTO.WeeklyData> docWeeks = new ArrayList<>();
+        for (int i = 11; i >= 0; i--) {
+            LocalDateTime weekStart = ahora.minusDays(i * 7L);
+            String weekKey = String.format("%d-%s", weekStart.getDayOfMonth(), weekStart.getMonth().toString().substring(0, 3));
+            weeklyDocCounts.put(weekKey, 0L);
+            ReporteAnalisisDTO.WeeklyData weekData = new ReporteAnalisisDTO.WeeklyData();
+            weekData.setWeek(weekKey);
+            docWeeks.add(weekData);
+        }
+        documents.forEach(doc -> {
+            LocalDateTime fechaGeneracion = doc.getFechaGeneracion();
+            if (fechaGeneracion != null && fechaGeneracion.isAfter(threeMonthsAgoDoc)) {
+                for (int i = 0; i < docWeeks.size(); i++) {
+                    LocalDateTime weekStart = ahora.minusDays((11 - i) * 7L);
+                    LocalDateTime nextWeekStart = i < docWeeks.size() - 1 ? ahora.minusDays((11 - (i + 1)) * 7L) : ahora;
+                    if (fechaGeneracion.isAfter(weekStart) && fechaGeneracion.isBefore(nextWeekStart)) {
+                        String weekKey = docWeeks.get(i).getWeek();
+                        weeklyDocCounts.put(weekKey, weeklyDocCounts.getOrDefault(weekKey, 0L) + 1);
+                        break;
+                    }
+                }
+            }
+        });
+        docWeeks.forEach(week -> week.setCount(weeklyDocCounts.get(week.getWeek())));
+        dto.setWeeklyDocuments(docWeeks);
+
+        Map<String, Long> userDocCounts = documents.stream()
+            .collect(Collectors.groupingBy(DocumentoDTO::getUsuarioId, Collectors.counting()));
+        dto.setTopUsers(userDocCounts.entrySet().stream()
+            .map(entry -> {
+                ReporteAnalisisDTO.TopUser topUser = new ReporteAnalisisDTO.TopUser();
+                topUser.setUsuarioId(entry.getKey());
+                topUser.setCount(entry.getValue());
+                return topUser;
+            })
+            .sorted((a, b) -> Long.compare(b.getCount(), a.getCount()))
+            .limit(3)
+            .collect(Collectors.toList()));
+
+        // Campos agregados después, con los valores de la ventana por defecto
+        dto.setPeriodoTendencias("Últimas 12 Semanas");
+        dto.setUnidadTendencias("Semana");
+        return dto;
+    }
+}
@@ -0,0 +1,94 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.services.AlmacenPdfService.Contenido;
+import com.cemeteryProject.ReportsGeneration.services.AlmacenPdfService.Escritura;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlmacenPdfServiceTest {
+
+    @TempDir
+    Path directorio;
+
+    private AlmacenPdfService almacenPdfService;
+
+    @BeforeEach
+    void setUp() {
+        almacenPdfService = new AlmacenPdfService(directorio.toString());
+    }
+
+    /**
+     * Test APS-01: Guardar un PDF debería dejarlo bajo su SHA-256 y servirlo sin cambios.
+     */
+    @Test
+    void guardar_Pdf_ShouldStoreUnderSha256() throws Exception {
+        byte[] pdf = "%PDF-1.4 reporte".getBytes();
+
+        Contenido contenido = almacenPdfService.guardar(pdf);
+
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(pdf)), contenido.hash());
+        assertEquals(pdf.length, contenido.tamano());
+        assertTrue(almacenPdfService.existe(contenido.hash()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        almacenPdfService.transferir(contenido.hash(), out);
+        assertArrayEquals(pdf, out.toByteArray(), "El contenido servido debe ser idéntico al guardado");
+    }
+
+    /**
+     * Test APS-02: El mismo contenido guardado dos veces debería ocupar un solo archivo.
+     */
+    @Test
+    void guardar_ContenidoRepetido_ShouldDeduplicate() throws Exception {
+        byte[] pdf = "%PDF-1.4 repetido".getBytes();
+
+        Contenido primero = almacenPdfService.guardar(pdf);
+        Contenido segundo = almacenPdfService.guardar(pdf);
+
+        assertEquals(primero, segundo);
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            assertEquals(1, archivos.filter(Files::isRegularFile).count(), "Solo debe existir un archivo y ningún temporal");
+        }
+    }
+
+    /**
+     * Test APS-03: Una escritura duplicada debería llegar al destino y al almacén; sin confirmar no debería quedar nada.
+     */
+    @Test
+    void escritura_DuplicadaYDescartada_ShouldBehaveCorrectly() throws Exception {
+        byte[] pdf = "%PDF-1.4 duplicado".getBytes();
+        ByteArrayOutputStream destino = new ByteArrayOutputStream();
+        Contenido contenido;
+        try (Escritura escritura = almacenPdfService.nuevaEscritura()) {
+            escritura.duplicarEn(destino).write(pdf);
+            contenido = escritura.confirmar();
+        }
+        assertArrayEquals(pdf, destino.toByteArray());
+        assertArrayEquals(pdf, Files.readAllBytes(almacenPdfService.ubicar(contenido.hash())));
+
+        try (Escritura escritura = almacenPdfService.nuevaEscritura()) {
+            escritura.salida().write("incompleto".getBytes());
+        }
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            assertEquals(1, archivos.filter(Files::isRegularFile).count(), "La escritura descartada no debe dejar archivos");
+        }
+    }
+
+    /**
+     * Test APS-04: Un hash mal formado debería rechazarse para no salir del almacén.
+     */
+    @Test
+    void ubicar_HashInvalido_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> almacenPdfService.ubicar("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> almacenPdfService.ubicar(null));
+    }
+}
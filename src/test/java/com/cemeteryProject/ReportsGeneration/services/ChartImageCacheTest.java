@@ -0,0 +1,151 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.services.ChartRenderService.GraficoRenderizado;
+import com.cemeteryProject.ReportsGeneration.templates.EstiloGrafico;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.general.DefaultPieDataset;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartImageCacheTest {
+
+    /**
+     * Test CIC-01: Datasets con los mismos valores deberían producir la misma clave.
+     */
+    @Test
+    void clave_DatasetsIguales_ShouldProduceSameKey() {
+        ChartImageCache cache = new ChartImageCache(1024);
+
+        String clave1 = cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), EstiloGrafico.DEFECTO, "vectorial");
+        String clave2 = cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), EstiloGrafico.DEFECTO, "vectorial");
+
+        assertNotNull(clave1);
+        assertEquals(clave1, clave2);
+    }
+
+    /**
+     * Test CIC-02: Cambiar un valor, el título o el modo debería producir otra clave.
+     */
+    @Test
+    void clave_DatosOTituloOModoDistintos_ShouldProduceDifferentKeys() {
+        ChartImageCache cache = new ChartImageCache(1024);
+        String base = cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), EstiloGrafico.DEFECTO, "vectorial");
+
+        assertNotEquals(base, cache.clave("pie", "Estado de los Nichos", crearTorta(6, 5), EstiloGrafico.DEFECTO, "vectorial"));
+        assertNotEquals(base, cache.clave("pie", "Distribución de Cuerpos", crearTorta(6, 4), EstiloGrafico.DEFECTO, "vectorial"));
+        assertNotEquals(base, cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), EstiloGrafico.DEFECTO, "raster"));
+
+        DefaultCategoryDataset barras = new DefaultCategoryDataset();
+        barras.addValue(5, "Cantidad", "INHUMADO");
+        assertNotNull(cache.clave("bar", "Cuerpos por Tipo", barras, EstiloGrafico.DEFECTO, "vectorial"));
+    }
+
+    /**
+     * Test CIC-03: Con presupuesto 0 la caché debería estar deshabilitada.
+     */
+    @Test
+    void clave_CacheDeshabilitada_ShouldReturnNull() {
+        ChartImageCache cache = new ChartImageCache(0);
+
+        assertFalse(cache.habilitada());
+        assertNull(cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), EstiloGrafico.DEFECTO, "vectorial"));
+    }
+
+    /**
+     * Test CIC-04: Aciertos y fallos deberían contarse en las estadísticas.
+     */
+    @Test
+    void obtener_AciertosYFallos_ShouldBeCounted() {
+        ChartImageCache cache = new ChartImageCache(10_000);
+        cache.guardar("a", grafico(100));
+
+        assertNotNull(cache.obtener("a"));
+        assertNull(cache.obtener("b"));
+
+        ChartImageCache.Estadisticas estadisticas = cache.estadisticas();
+        assertEquals(1, estadisticas.aciertos());
+        assertEquals(1, estadisticas.fallos());
+        assertEquals(1, estadisticas.entradas());
+    }
+
+    /**
+     * Test CIC-05: Al superar el presupuesto debería desalojarse la entrada usada hace más tiempo.
+     */
+    @Test
+    void guardar_SuperaPresupuesto_ShouldEvictLeastRecentlyUsed() {
+        ChartImageCache cache = new ChartImageCache(1_000);
+        cache.guardar("a", grafico(300));
+        cache.guardar("b", grafico(300));
+        cache.obtener("a"); // "a" pasa a ser la más reciente
+        cache.guardar("c", grafico(300));
+
+        assertNotNull(cache.obtener("a"));
+        assertNull(cache.obtener("b"), "La entrada menos usada debe desalojarse");
+        assertNotNull(cache.obtener("c"));
+        assertEquals(1, cache.estadisticas().desalojos());
+        assertTrue(cache.estadisticas().bytesUsados() <= 1_000);
+    }
+
+    /**
+     * Test CIC-06: Una entrada más grande que todo el presupuesto no debería guardarse.
+     */
+    @Test
+    void guardar_EntradaMayorQuePresupuesto_ShouldBeSkipped() {
+        ChartImageCache cache = new ChartImageCache(500);
+        cache.guardar("a", grafico(100));
+        cache.guardar("grande", grafico(10_000));
+
+        assertNull(cache.obtener("grande"));
+        assertNotNull(cache.obtener("a"), "Las entradas existentes no deben desalojarse");
+    }
+
+    /**
+     * Test CIC-07: Otros colores deberían producir otra clave; el orden en que se cargaron las secciones no.
+     */
+    @Test
+    void clave_EstilosDistintos_ShouldProduceDifferentKeys() {
+        ChartImageCache cache = new ChartImageCache(1024);
+        String base = cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), EstiloGrafico.DEFECTO, "vectorial");
+
+        EstiloGrafico otraSerie = new EstiloGrafico(Map.of(), EstiloGrafico.DEFECTO.coloresColumnas(), Color.RED);
+        EstiloGrafico otrasColumnas = new EstiloGrafico(Map.of(), List.of(Color.BLACK), EstiloGrafico.DEFECTO.colorSerie());
+        assertNotEquals(base, cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), otraSerie, "vectorial"));
+        assertNotEquals(base, cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), otrasColumnas, "vectorial"));
+
+        Map<String, Color> ordenA = new LinkedHashMap<>();
+        ordenA.put("OCUPADO", Color.RED);
+        ordenA.put("DISPONIBLE", Color.GREEN);
+        Map<String, Color> ordenB = new LinkedHashMap<>();
+        ordenB.put("DISPONIBLE", Color.GREEN);
+        ordenB.put("OCUPADO", Color.RED);
+        String claveA = cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), conSecciones(ordenA), "vectorial");
+        String claveB = cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), conSecciones(ordenB), "vectorial");
+        assertNotEquals(base, claveA, "Los colores de sección de la plantilla deben formar parte de la clave");
+        assertEquals(claveA, claveB);
+
+        ordenB.put("OCUPADO", Color.BLUE);
+        assertNotEquals(claveA, cache.clave("pie", "Estado de los Nichos", crearTorta(6, 4), conSecciones(ordenB), "vectorial"));
+    }
+
+    // Métodos auxiliares
+    private DefaultPieDataset<String> crearTorta(int ocupados, int disponibles) {
+        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
+        dataset.setValue("OCUPADO", ocupados);
+        dataset.setValue("DISPONIBLE", disponibles);
+        return dataset;
+    }
+
+    private EstiloGrafico conSecciones(Map<String, Color> colores) {
+        return new EstiloGrafico(colores, EstiloGrafico.DEFECTO.coloresColumnas(), EstiloGrafico.DEFECTO.colorSerie());
+    }
+
+    private GraficoRenderizado grafico(int bytes) {
+        return new GraficoRenderizado("png", new byte[bytes], 400, 300);
+    }
+}
@@ -0,0 +1,187 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.services.ChartRenderService.GraficoRenderizado;
+import com.cemeteryProject.ReportsGeneration.services.ChartRenderService.GraficoSpec;
+import com.cemeteryProject.ReportsGeneration.templates.EstiloGrafico;
+import com.lowagie.text.Document;
+import com.lowagie.text.pdf.PdfWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.general.DefaultPieDataset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartRenderServiceTest {
+
+    private ChartRenderService chartRenderService;
+
+    @AfterEach
+    void tearDown() {
+        if (chartRenderService != null) {
+            chartRenderService.cerrar();
+        }
+    }
+
+    /**
+     * Test CRS-01: En modo vectorial cada gráfico debería renderizarse como un PDF de una página.
+     */
+    @Test
+    void renderizar_ModoVectorial_ShouldReturnSinglePagePdf() {
+        chartRenderService = new ChartRenderService(2, 8, "vectorial", new ChartImageCache(0));
+
+        GraficoRenderizado grafico = chartRenderService.renderizar(new GraficoSpec("pie", null, null, EstiloGrafico.DEFECTO, this::crearGraficoTorta));
+
+        assertEquals("pdf", grafico.formato());
+        assertTrue(new String(grafico.contenido(), 0, 5).startsWith("%PDF-"), "El contenido debe ser un PDF");
+        assertEquals(ChartRenderService.ANCHO_GRAFICO, grafico.ancho());
+        assertEquals(ChartRenderService.ALTO_GRAFICO, grafico.alto());
+    }
+
+    /**
+     * Test CRS-02: En modo raster cada gráfico debería renderizarse como PNG.
+     */
+    @Test
+    void renderizar_ModoRaster_ShouldReturnPng() {
+        chartRenderService = new ChartRenderService(2, 8, "raster", new ChartImageCache(0));
+
+        GraficoRenderizado grafico = chartRenderService.renderizar(new GraficoSpec("bar", null, null, EstiloGrafico.DEFECTO, this::crearGraficoBarras));
+
+        assertEquals("png", grafico.formato());
+        assertEquals((byte) 0x89, grafico.contenido()[0], "El contenido debe empezar con la firma PNG");
+        assertEquals('P', grafico.contenido()[1]);
+    }
+
+    /**
+     * Test CRS-03: Los gráficos deberían construirse en paralelo y devolverse en el orden recibido.
+     */
+    @Test
+    void renderizar_VariosGraficos_ShouldRenderInParallelPreservingOrder() throws Exception {
+        chartRenderService = new ChartRenderService(3, 8, "raster", new ChartImageCache(0));
+        CountDownLatch todosIniciados = new CountDownLatch(3);
+        Set<String> hilos = ConcurrentHashMap.newKeySet();
+        List<GraficoSpec> specs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            specs.add(new GraficoSpec("bar", null, null, EstiloGrafico.DEFECTO, () -> {
+                hilos.add(Thread.currentThread().getName());
+                todosIniciados.countDown();
+                try {
+                    // Solo avanza si los tres gráficos se están construyendo a la vez
+                    assertTrue(todosIniciados.await(5, TimeUnit.SECONDS), "Los gráficos deben construirse en paralelo");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return crearGraficoBarras();
+            }));
+        }
+
+        List<CompletableFuture<GraficoRenderizado>> resultados = chartRenderService.renderizar(specs);
+
+        assertEquals(3, resultados.size());
+        for (CompletableFuture<GraficoRenderizado> resultado : resultados) {
+            assertEquals("png", resultado.get(10, TimeUnit.SECONDS).formato());
+        }
+        assertEquals(3, hilos.size(), "Cada gráfico debe construirse en un hilo distinto");
+        assertTrue(hilos.stream().allMatch(h -> h.startsWith("chart-render-")), "Deben usarse los hilos del pool");
+    }
+
+    /**
+     * Test CRS-04: Un error al construir un gráfico debería propagarse al esperar su resultado.
+     */
+    @Test
+    void renderizar_ErrorEnFabrica_ShouldPropagateException() {
+        chartRenderService = new ChartRenderService(1, 1, "vectorial", new ChartImageCache(0));
+
+        List<CompletableFuture<GraficoRenderizado>> resultados = chartRenderService.renderizar(List.of(
+            new GraficoSpec("pie", null, null, EstiloGrafico.DEFECTO, () -> {
+                throw new IllegalStateException("dataset inválido");
+            })
+        ));
+
+        CompletionException error = assertThrows(CompletionException.class, () -> resultados.get(0).join());
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+
+    /**
+     * Test CRS-05: Con la caché activa, un gráfico con los mismos datos no debería volver a construirse.
+     */
+    @Test
+    void renderizar_MismoDatasetConCache_ShouldReuseRenderedChart() {
+        ChartImageCache cache = new ChartImageCache(1024 * 1024);
+        chartRenderService = new ChartRenderService(2, 8, "vectorial", cache);
+        AtomicInteger construcciones = new AtomicInteger();
+
+        GraficoRenderizado primero = chartRenderService.renderizar(crearSpecTorta(construcciones, 6));
+        GraficoRenderizado segundo = chartRenderService.renderizar(crearSpecTorta(construcciones, 6));
+        GraficoRenderizado distinto = chartRenderService.renderizar(crearSpecTorta(construcciones, 7));
+
+        assertSame(primero, segundo, "El segundo gráfico debe salir de la caché");
+        assertNotSame(primero, distinto, "Un dataset distinto no debe compartir entrada");
+        assertEquals(2, construcciones.get(), "Solo deben construirse los gráficos no cacheados");
+        assertEquals(1, cache.estadisticas().aciertos());
+        assertEquals(2, cache.estadisticas().fallos());
+    }
+
+    /**
+     * Test CRS-06: Un gráfico vectorial debería poder insertarse varias veces en un documento válido.
+     */
+    @Test
+    void comoImagen_ModoVectorial_ShouldEmbedPageInDocument() throws Exception {
+        chartRenderService = new ChartRenderService(1, 1, "vectorial", new ChartImageCache(0));
+        GraficoRenderizado grafico = chartRenderService.renderizar(
+            new GraficoSpec("pie", null, null, EstiloGrafico.DEFECTO, this::crearGraficoTorta));
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        Document documento = new Document();
+        PdfWriter writer = PdfWriter.getInstance(documento, salida);
+        documento.open();
+        documento.add(grafico.comoImagen(writer));
+        documento.add(grafico.comoImagen(writer));
+        documento.close();
+
+        try (PDDocument pdf = PDDocument.load(salida.toByteArray())) {
+            assertTrue(pdf.getNumberOfPages() >= 1, "El documento con los gráficos debe poder leerse");
+        }
+    }
+
+    // Métodos auxiliares
+    private GraficoSpec crearSpecTorta(AtomicInteger construcciones, int ocupados) {
+        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
+        dataset.setValue("OCUPADO", ocupados);
+        dataset.setValue("DISPONIBLE", 4);
+        return new GraficoSpec("pie", "Estado de los Nichos", dataset, EstiloGrafico.DEFECTO, () -> {
+            construcciones.incrementAndGet();
+            return ChartFactory.createPieChart("Estado de los Nichos", dataset, true, true, false);
+        });
+    }
+
+    private JFreeChart crearGraficoTorta() {
+        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
+        dataset.setValue("OCUPADO", 6);
+        dataset.setValue("DISPONIBLE", 4);
+        return ChartFactory.createPieChart("Estado de los Nichos", dataset, true, true, false);
+    }
+
+    private JFreeChart crearGraficoBarras() {
+        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+        dataset.addValue(5, "Cantidad", "INHUMADO");
+        dataset.addValue(3, "Cantidad", "EXHUMADO");
+        return ChartFactory.createBarChart("Cuerpos por Tipo", "Tipo", "Cantidad", dataset,
+            PlotOrientation.VERTICAL, false, true, false);
+    }
+}
@@ -0,0 +1,74 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
+import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnasCuerposTest {
+
+    /**
+     * Test CCO-01: Los valores de cada cuerpo deberían leerse igual desde las columnas, con los nulos como marcas.
+     */
+    @Test
+    void deCuerpos_ShouldKeepValuesAndNulls() {
+        CuerpoInhumadoDTO completo = cuerpo(EstadoCuerpo.INHUMADO, "Pérez", "Fiscalía");
+        completo.setFechaIngreso(LocalDateTime.of(2024, 3, 1, 10, 30));
+        completo.setFechaInhumacion(LocalDate.of(2024, 3, 2));
+        completo.setFechaDefuncion(LocalDate.of(2024, 2, 28));
+        CuerpoInhumadoDTO vacio = new CuerpoInhumadoDTO();
+
+        ColumnasCuerpos columnas = ColumnasCuerpos.deCuerpos(List.of(completo, vacio));
+
+        assertEquals(2, columnas.tamano());
+        assertEquals(EstadoCuerpo.INHUMADO, columnas.estado(0));
+        assertEquals(LocalDate.of(2024, 3, 1), LocalDate.ofEpochDay(columnas.fechaIngreso(0)));
+        assertEquals(LocalDate.of(2024, 3, 2), LocalDate.ofEpochDay(columnas.fechaInhumacion(0)));
+        assertEquals(LocalDate.of(2024, 2, 28), LocalDate.ofEpochDay(columnas.fechaDefuncion(0)));
+        assertEquals(ColumnasCuerpos.SIN_FECHA, columnas.fechaExhumacion(0));
+        assertEquals("Pérez", columnas.funcionarioReceptor(0));
+        assertEquals("Fiscalía", columnas.autoridadRemitente(0));
+
+        assertNull(columnas.estado(1));
+        assertEquals(ColumnasCuerpos.SIN_ESTADO, columnas.ordinalEstado(1));
+        assertEquals(ColumnasCuerpos.SIN_FECHA, columnas.fechaIngreso(1));
+        assertNull(columnas.funcionarioReceptor(1));
+    }
+
+    /**
+     * Test CCO-02: Los textos repetidos deberían guardarse una sola vez y el constructor crecer sin perder filas.
+     */
+    @Test
+    void constructor_MuchosCuerpos_ShouldDictionaryEncodeAndGrow() {
+        ColumnasCuerpos.Constructor constructor = ColumnasCuerpos.constructor();
+        for (int i = 0; i < 5000; i++) {
+            constructor.agregar(cuerpo(EstadoCuerpo.values()[i % EstadoCuerpo.values().length],
+                "Funcionario " + (i % 3), "Autoridad " + (i % 2)));
+        }
+        constructor.agregar(new CuerpoAnalisisDTO(null, EstadoCuerpo.INHUMADO, LocalDateTime.of(2024, 1, 1, 0, 0), null));
+
+        ColumnasCuerpos columnas = constructor.construir();
+
+        assertEquals(5001, columnas.tamano());
+        assertEquals(3, columnas.funcionariosDistintos());
+        assertEquals(2, columnas.autoridadesDistintas());
+        assertEquals("Funcionario 1", columnas.funcionarioReceptor(4999));
+        assertEquals(EstadoCuerpo.INHUMADO, columnas.estado(5000));
+        assertEquals(ColumnasCuerpos.SIN_FECHA, columnas.fechaInhumacion(5000));
+        assertNull(columnas.funcionarioReceptor(5000));
+    }
+
+    private CuerpoInhumadoDTO cuerpo(EstadoCuerpo estado, String funcionario, String autoridad) {
+        CuerpoInhumadoDTO cuerpo = new CuerpoInhumadoDTO();
+        cuerpo.setEstado(estado);
+        cuerpo.setFuncionarioReceptor(funcionario);
+        cuerpo.setAutoridadRemitente(autoridad);
+        return cuerpo;
+    }
+}
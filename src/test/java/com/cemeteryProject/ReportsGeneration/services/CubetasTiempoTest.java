@@ -0,0 +1,132 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.services.CubetasTiempo.Granularidad;
+import com.cemeteryProject.ReportsGeneration.services.CubetasTiempo.Ventana;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CubetasTiempoTest {
+
+    // Fin de mes: obliga a los meses cortos a recortar el día al retroceder
+    private static final LocalDateTime AHORA = LocalDateTime.of(2025, 3, 31, 10, 15);
+
+    /**
+     * Test CTI-01: El índice calculado por aritmética debería coincidir con recorrer los límites, para cada granularidad.
+     */
+    @Test
+    void indices_TodasLasGranularidades_ShouldMatchLinearScan() {
+        for (Ventana ventana : List.of(new Ventana(Granularidad.DIA, 45), new Ventana(Granularidad.SEMANA, 12),
+                new Ventana(Granularidad.SEMANA, 60), new Ventana(Granularidad.MES, 60), new Ventana(Granularidad.MES, 1))) {
+            CubetasTiempo cubetas = new CubetasTiempo(ventana, AHORA);
+            LocalDateTime[] inicios = inicios(ventana);
+            LocalDate hoy = AHORA.toLocalDate();
+            for (int atras = -3; atras < 2000; atras++) {
+                LocalDate fecha = hoy.minusDays(atras);
+                assertEquals(recorrerDia(inicios, fecha), cubetas.indiceDia(ColumnasCuerpos.dia(fecha)),
+                    "Fecha " + fecha + " con " + ventana);
+                for (LocalDateTime instante : List.of(fecha.atStartOfDay(), fecha.atTime(10, 15), fecha.atTime(23, 59))) {
+                    assertEquals(recorrerInstante(inicios, instante), cubetas.indice(instante),
+                        "Instante " + instante + " con " + ventana);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test CTI-02: Los extremos exactos, las fechas nulas y las etiquetas deberían seguir las reglas de la ventana.
+     */
+    @Test
+    void limitesYEtiquetas_ShouldFollowWindowRules() {
+        CubetasTiempo semanas = new CubetasTiempo(Ventana.POR_DEFECTO, AHORA);
+        assertEquals(-1, semanas.indice(AHORA.minusDays(7)), "Un límite exacto no cae en ningún intervalo");
+        assertEquals(-1, semanas.indice(null));
+        assertEquals(-1, semanas.indiceDia(ColumnasCuerpos.SIN_FECHA));
+        assertEquals(10, semanas.indiceDia(ColumnasCuerpos.dia(AHORA.toLocalDate())), "Hoy cierra el penúltimo intervalo");
+        assertEquals("13-JAN", semanas.etiquetas().get(0));
+        assertEquals("Últimas 12 Semanas", Ventana.POR_DEFECTO.descripcion());
+
+        CubetasTiempo meses = new CubetasTiempo(new Ventana(Granularidad.MES, 60), AHORA);
+        assertEquals(60, meses.etiquetas().size());
+        assertEquals("MAR-2020", meses.etiquetas().get(0));
+        assertEquals("FEB-2025", meses.etiquetas().get(59));
+        assertEquals("Últimos 60 Meses", meses.ventana().descripcion());
+        assertEquals("Último Día", new Ventana(Granularidad.DIA, 1).descripcion());
+
+        List<String> dias = new CubetasTiempo(new Ventana(Granularidad.DIA, 400), AHORA).etiquetas();
+        assertEquals(400, dias.stream().distinct().count(), "Con más de un año las etiquetas llevan el año");
+
+        assertThrows(IllegalArgumentException.class, () -> new Ventana(Granularidad.MES, 0));
+        assertThrows(IllegalArgumentException.class, () -> new Ventana(Granularidad.DIA, Ventana.MAXIMO_INTERVALOS + 1));
+        assertThrows(IllegalArgumentException.class, () -> new Ventana(null, 12));
+    }
+
+    /**
+     * Test CTI-03: Una ventana de un solo día debería contar las últimas 24 horas y no quedar siempre vacía.
+     */
+    @Test
+    void ventanaDeUnDia_ShouldCoverTheLastTwentyFourHours() {
+        CubetasTiempo dia = new CubetasTiempo(new Ventana(Granularidad.DIA, 1), AHORA);
+
+        assertEquals(0, dia.indice(AHORA.minusHours(1)));
+        assertEquals(0, dia.indice(AHORA.minusDays(1).plusMinutes(1)));
+        assertEquals(-1, dia.indice(AHORA.minusDays(1).minusMinutes(1)));
+        assertEquals(0, dia.indiceDia(ColumnasCuerpos.dia(AHORA.toLocalDate())), "Hoy debe caer en el único intervalo");
+        assertEquals(-1, dia.indiceDia(ColumnasCuerpos.dia(AHORA.toLocalDate().minusDays(1))));
+        assertEquals(List.of("30-MAR"), dia.etiquetas());
+    }
+
+    /**
+     * Test CTI-04: Fuera de la ventana por defecto, el último intervalo debería terminar en el instante de referencia.
+     */
+    @Test
+    void ventanaNoPorDefecto_ShouldEndLastIntervalAtReference() {
+        CubetasTiempo semanas = new CubetasTiempo(new Ventana(Granularidad.SEMANA, 8), AHORA);
+
+        assertEquals(7, semanas.indiceDia(ColumnasCuerpos.dia(AHORA.toLocalDate())), "Hoy cierra el último intervalo");
+        assertEquals(7, semanas.indice(AHORA.minusMinutes(1)), "Lo anterior al instante de referencia cae en el último intervalo");
+        assertEquals("3-FEB", semanas.etiquetas().get(0));
+        assertEquals("24-MAR", semanas.etiquetas().get(7), "El último intervalo empieza una semana antes de la referencia");
+    }
+
+    // Mismos límites que CubetasTiempo: la ventana por defecto conserva los del informe original
+    private static LocalDateTime[] inicios(Ventana ventana) {
+        int n = ventana.cantidad();
+        int desplazamiento = ventana.equals(Ventana.POR_DEFECTO) ? 1 : 0;
+        LocalDateTime[] inicios = new LocalDateTime[n + 1];
+        for (int i = 0; i < n; i++) {
+            int atras = n - desplazamiento - i;
+            inicios[i] = switch (ventana.granularidad()) {
+                case DIA -> AHORA.minusDays(atras);
+                case SEMANA -> AHORA.minusDays(atras * 7L);
+                case MES -> AHORA.minusMonths(atras);
+            };
+        }
+        inicios[n] = AHORA;
+        return inicios;
+    }
+
+    // Referencia: (inicio i, inicio i + 1] en fechas
+    private static int recorrerDia(LocalDateTime[] inicios, LocalDate fecha) {
+        for (int i = 0; i < inicios.length - 1; i++) {
+            if (fecha.isAfter(inicios[i].toLocalDate()) && !fecha.isAfter(inicios[i + 1].toLocalDate())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Referencia: (inicio i, inicio i + 1) en instantes
+    private static int recorrerInstante(LocalDateTime[] inicios, LocalDateTime instante) {
+        for (int i = 0; i < inicios.length - 1; i++) {
+            if (instante.isAfter(inicios[i]) && instante.isBefore(inicios[i + 1])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -262,6 +262,23 @@ class DocumentoServiceTest {
         verify(documentoRepository, never()).deleteById(id);
     }
 
+    @Test
+    void registrarReporte_ReporteGenerado_NoDeberiaCambiarLaVersionDeDatos() {
+        // Arrange
+        when(documentoRepository.save(any(DocumentoModel.class))).thenAnswer(invocacion -> invocacion.getArgument(0));
+        long version = documentoService.versionDatos();
+
+        // Act
+        DocumentoDTO registrado = documentoService.registrarReporte("Lista de Cuerpos", "usuario123",
+            new AlmacenPdfService.Contenido("a".repeat(64), 10));
+
+        // Assert
+        assertEquals("usuario123", registrado.getUsuarioId());
+        assertEquals(version, documentoService.versionDatos(), "Un reporte generado no debe vencer el análisis en caché");
+        documentoService.crearDocumento(new DocumentoDTO());
+        assertEquals(version + 1, documentoService.versionDatos(), "Un alta desde la API sí cambia la versión");
+    }
+
     // Método auxiliar para validar UUID
     private boolean isValidUUID(String uuid) {
         try {
@@ -0,0 +1,338 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.EventoDatosDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.EventoDatosDTO.Entidad;
+import com.cemeteryProject.ReportsGeneration.dtos.EventoDatosDTO.Operacion;
+import com.cemeteryProject.ReportsGeneration.dtos.NichoCuerpoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+import com.cemeteryProject.ReportsGeneration.models.NichoModel.EstadoNicho;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EstadisticasIncrementalesServiceTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2025, 3, 14, 15, 30);
+    private static final CubetasTiempo.Ventana SEMANAS_12 = CubetasTiempo.Ventana.POR_DEFECTO;
+
+    @Mock
+    private ExternalDataService externalDataService;
+
+    @InjectMocks
+    private EstadisticasIncrementalesService servicio;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(servicio, "habilitado", true);
+        ReflectionTestUtils.setField(servicio, "maximoPendientes", 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Test EIN-01: Tras la carga inicial y una serie de eventos, los contadores deberían dar el mismo análisis que recorrer los datos resultantes.
+     */
+    @Test
+    void volcarEn_TrasCargaYEventos_ShouldMatchFullCalculation() {
+        Random random = new Random(11);
+        Map<String, CuerpoInhumadoDTO> cuerpos = new LinkedHashMap<>();
+        Map<String, NichoDTO> nichos = new LinkedHashMap<>();
+        Map<String, NichoCuerpoDTO> asignaciones = new LinkedHashMap<>();
+        for (int i = 0; i < 150; i++) {
+            CuerpoInhumadoDTO cuerpo = cuerpo(random, "C" + i);
+            cuerpos.put(cuerpo.getIdCadaver(), cuerpo);
+            NichoDTO nicho = nicho(random, "N" + i);
+            nichos.put(nicho.getCodigo(), nicho);
+            if (random.nextBoolean()) {
+                asignaciones.put("A" + i, asignacion("A" + i));
+            }
+        }
+        stubBackend(cuerpos, nichos, asignaciones);
+        servicio.reconciliar();
+        assertTrue(servicio.disponible(), "Los contadores deberían quedar disponibles tras la carga inicial");
+
+        List<EventoDatosDTO> eventos = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String sufijo = String.valueOf(random.nextInt(200));
+            switch (random.nextInt(6)) {
+                case 0 -> {
+                    CuerpoInhumadoDTO cuerpo = cuerpo(random, "C" + sufijo);
+                    cuerpos.put(cuerpo.getIdCadaver(), cuerpo);
+                    eventos.add(evento(Entidad.CUERPO, Operacion.ACTUALIZADO, null, cuerpo, null, null));
+                }
+                case 1 -> {
+                    cuerpos.remove("C" + sufijo);
+                    eventos.add(evento(Entidad.CUERPO, Operacion.ELIMINADO, "C" + sufijo, null, null, null));
+                }
+                case 2 -> {
+                    NichoDTO nicho = nicho(random, "N" + sufijo);
+                    nichos.put(nicho.getCodigo(), nicho);
+                    eventos.add(evento(Entidad.NICHO, Operacion.CREADO, null, null, nicho, null));
+                }
+                case 3 -> {
+                    nichos.remove("N" + sufijo);
+                    eventos.add(evento(Entidad.NICHO, Operacion.ELIMINADO, "N" + sufijo, null, null, null));
+                }
+                case 4 -> {
+                    asignaciones.put("A" + sufijo, asignacion("A" + sufijo));
+                    eventos.add(evento(Entidad.ASIGNACION, Operacion.CREADO, null, null, null, asignacion("A" + sufijo)));
+                }
+                default -> {
+                    asignaciones.remove("A" + sufijo);
+                    eventos.add(evento(Entidad.ASIGNACION, Operacion.ELIMINADO, "A" + sufijo, null, null, null));
+                }
+            }
+        }
+        servicio.aplicar(eventos);
+
+        ReporteAnalisisDTO esperado = AcumuladorAnalisis.acumular(AHORA, SEMANAS_12,
+                ColumnasCuerpos.deCuerpos(cuerpos.values()), new ArrayList<>(nichos.values()), List.of(), 0, pool)
+            .resultado(asignaciones.size());
+        AcumuladorAnalisis acumulador = new AcumuladorAnalisis(AHORA, SEMANAS_12);
+        ReporteAnalisisDTO obtenido = acumulador.resultado(servicio.volcarEn(acumulador));
+
+        assertEquals(esperado, obtenido, "Los contadores deberían dar el mismo análisis que el recorrido completo");
+    }
+
+    /**
+     * Test EIN-02: Los eventos que llegan durante una recarga deberían volver a aplicarse sobre los datos recargados.
+     */
+    @Test
+    void reconciliar_EventosDuranteLaRecarga_ShouldBeReplayed() {
+        CuerpoInhumadoDTO existente = cuerpo(new Random(1), "C1");
+        stubBackend(Map.of("C1", existente), Map.of(), Map.of());
+        servicio.reconciliar();
+
+        // El backend respondió antes de que le llegara la baja de C1 y el alta de C2
+        CuerpoInhumadoDTO nuevo = cuerpo(new Random(2), "C2");
+        when(externalDataService.getAllCuerpos()).thenAnswer(invocacion -> {
+            servicio.aplicar(List.of(
+                evento(Entidad.CUERPO, Operacion.ELIMINADO, "C1", null, null, null),
+                evento(Entidad.CUERPO, Operacion.CREADO, null, nuevo, null, null)));
+            return List.of(existente);
+        });
+        servicio.reconciliar();
+
+        EstadisticasIncrementalesService.EstadoEventos estado = servicio.estado();
+        assertEquals(1, estado.cuerpos(), "Solo debería quedar el cuerpo dado de alta durante la recarga");
+        AcumuladorAnalisis acumulador = new AcumuladorAnalisis(AHORA, SEMANAS_12);
+        servicio.volcarEn(acumulador);
+        assertEquals(1L, acumulador.resultado(0).getCuerposPorTipo().get(nuevo.getEstado()));
+        assertEquals(0, estado.correccionesUltimaReconciliacion(), "Reaplicar los eventos no debería contarse como corrección");
+    }
+
+    /**
+     * Test EIN-03: Un lote con un evento inválido debería rechazarse entero sin cambiar los contadores.
+     */
+    @Test
+    void aplicar_LoteConEventoInvalido_ShouldApplyNothing() {
+        stubBackend(Map.of(), Map.of(), Map.of());
+        servicio.reconciliar();
+        long version = servicio.version();
+        CuerpoInhumadoDTO sinEstado = cuerpo(new Random(3), "C2");
+        sinEstado.setEstado(null);
+
+        assertThrows(IllegalArgumentException.class, () -> servicio.aplicar(List.of(
+            evento(Entidad.CUERPO, Operacion.CREADO, null, cuerpo(new Random(4), "C1"), null, null),
+            evento(Entidad.CUERPO, Operacion.CREADO, null, sinEstado, null, null))));
+        assertThrows(IllegalArgumentException.class, () -> servicio.aplicar(List.of(
+            evento(Entidad.NICHO, Operacion.ELIMINADO, null, null, null, null))));
+
+        assertEquals(0, servicio.estado().cuerpos(), "Ningún evento del lote debería haberse aplicado");
+        assertEquals(version, servicio.version());
+    }
+
+    /**
+     * Test EIN-04: Una recarga debería contar las filas que no coincidían con los eventos recibidos y reemplazar los contadores.
+     */
+    @Test
+    void reconciliar_EventosPerdidos_ShouldCountCorrections() {
+        Random random = new Random(5);
+        NichoDTO libre = nicho(random, "N1");
+        libre.setEstado(EstadoNicho.DISPONIBLE);
+        stubBackend(Map.of(), Map.of("N1", libre), Map.of());
+        servicio.reconciliar();
+        long version = servicio.version();
+
+        // Se perdió el evento que ocupaba N1 y el alta de una asignación
+        NichoDTO ocupado = nicho(random, "N1");
+        ocupado.setEstado(EstadoNicho.OCUPADO);
+        stubBackend(Map.of(), Map.of("N1", ocupado), Map.of("A1", asignacion("A1")));
+        servicio.reconciliar();
+
+        EstadisticasIncrementalesService.EstadoEventos estado = servicio.estado();
+        assertEquals(2, estado.correccionesUltimaReconciliacion());
+        assertEquals(2, estado.reconciliaciones());
+        assertTrue(servicio.version() > version, "La recarga debería cambiar la versión de los contadores");
+        AcumuladorAnalisis acumulador = new AcumuladorAnalisis(AHORA, SEMANAS_12);
+        ReporteAnalisisDTO analisis = acumulador.resultado(servicio.volcarEn(acumulador));
+        assertEquals(1L, analisis.getEstadoNichos().get("OCUPADO"));
+        assertEquals(1, analisis.getCuerposAsignados());
+    }
+
+    /**
+     * Test EIN-05: Un evento que no cambia nada no debería cambiar la versión, para no invalidar la caché del análisis.
+     */
+    @Test
+    void aplicar_EventoSinCambios_ShouldKeepVersion() {
+        NichoDTO nicho = nicho(new Random(6), "N1");
+        stubBackend(Map.of(), Map.of("N1", nicho), Map.of());
+        servicio.reconciliar();
+        long version = servicio.version();
+
+        EstadisticasIncrementalesService.ResultadoEventos resultado = servicio.aplicar(List.of(
+            evento(Entidad.NICHO, Operacion.ACTUALIZADO, null, null, nicho, null),
+            evento(Entidad.CUERPO, Operacion.ELIMINADO, "desconocido", null, null, null)));
+
+        assertEquals(2, resultado.recibidos());
+        assertEquals(0, resultado.aplicados());
+        assertEquals(version, servicio.version());
+    }
+
+    /**
+     * Test EIN-06: La ocupación por ubicación mantenida con los eventos debería coincidir con el cruce completo de los datos resultantes.
+     */
+    @Test
+    void ocupacion_TrasCargaYEventos_ShouldMatchFullCalculation() {
+        Random random = new Random(23);
+        Map<String, CuerpoInhumadoDTO> cuerpos = new LinkedHashMap<>();
+        Map<String, NichoDTO> nichos = new LinkedHashMap<>();
+        Map<String, NichoCuerpoDTO> asignaciones = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            CuerpoInhumadoDTO cuerpo = cuerpo(random, "C" + i);
+            cuerpos.put(cuerpo.getIdCadaver(), cuerpo);
+            NichoDTO nicho = nichoUbicado(random, "N" + i);
+            nichos.put(nicho.getCodigo(), nicho);
+            NichoCuerpoDTO asignacion = asignacionCruzada(random, "A" + i);
+            asignaciones.put(asignacion.getId(), asignacion);
+        }
+        stubBackend(cuerpos, nichos, asignaciones);
+        servicio.reconciliar();
+
+        // Incluye bajas de nichos y cuerpos que tienen asignaciones y asignaciones que cambian de nicho
+        List<EventoDatosDTO> eventos = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String sufijo = String.valueOf(random.nextInt(130));
+            switch (random.nextInt(6)) {
+                case 0 -> {
+                    CuerpoInhumadoDTO cuerpo = cuerpo(random, "C" + sufijo);
+                    cuerpos.put(cuerpo.getIdCadaver(), cuerpo);
+                    eventos.add(evento(Entidad.CUERPO, Operacion.CREADO, null, cuerpo, null, null));
+                }
+                case 1 -> {
+                    cuerpos.remove("C" + sufijo);
+                    eventos.add(evento(Entidad.CUERPO, Operacion.ELIMINADO, "C" + sufijo, null, null, null));
+                }
+                case 2 -> {
+                    NichoDTO nicho = nichoUbicado(random, "N" + sufijo);
+                    nichos.put(nicho.getCodigo(), nicho);
+                    eventos.add(evento(Entidad.NICHO, Operacion.ACTUALIZADO, null, null, nicho, null));
+                }
+                case 3 -> {
+                    nichos.remove("N" + sufijo);
+                    eventos.add(evento(Entidad.NICHO, Operacion.ELIMINADO, "N" + sufijo, null, null, null));
+                }
+                case 4 -> {
+                    NichoCuerpoDTO asignacion = asignacionCruzada(random, "A" + sufijo);
+                    asignaciones.put(asignacion.getId(), asignacion);
+                    eventos.add(evento(Entidad.ASIGNACION, Operacion.ACTUALIZADO, null, null, null, asignacion));
+                }
+                default -> {
+                    asignaciones.remove("A" + sufijo);
+                    eventos.add(evento(Entidad.ASIGNACION, Operacion.ELIMINADO, "A" + sufijo, null, null, null));
+                }
+            }
+            if (i % 50 == 49) {
+                servicio.aplicar(eventos);
+                eventos.clear();
+                for (int maximo : new int[]{0, 3}) {
+                    assertEquals(OcupacionUbicaciones.calcular(new ArrayList<>(nichos.values()),
+                            new ArrayList<>(asignaciones.values()), cuerpos.keySet(), maximo),
+                        servicio.ocupacion(maximo), "La ocupación incremental debería coincidir con el cruce completo (máximo " + maximo + ")");
+                }
+            }
+        }
+    }
+
+    private void stubBackend(Map<String, CuerpoInhumadoDTO> cuerpos, Map<String, NichoDTO> nichos,
+                             Map<String, NichoCuerpoDTO> asignaciones) {
+        when(externalDataService.getAllCuerpos()).thenReturn(new ArrayList<>(cuerpos.values()));
+        when(externalDataService.getAllNichos()).thenReturn(new ArrayList<>(nichos.values()));
+        when(externalDataService.getAllNichoCuerpo()).thenReturn(new ArrayList<>(asignaciones.values()));
+    }
+
+    private static CuerpoInhumadoDTO cuerpo(Random random, String id) {
+        CuerpoInhumadoDTO cuerpo = new CuerpoInhumadoDTO();
+        cuerpo.setIdCadaver(id);
+        cuerpo.setEstado(EstadoCuerpo.values()[random.nextInt(EstadoCuerpo.values().length)]);
+        cuerpo.setFechaIngreso(AHORA.minusDays(random.nextInt(730)));
+        // Incluye inhumaciones sin fecha y fuera de la ventana
+        cuerpo.setFechaInhumacion(random.nextInt(5) == 0 ? null : AHORA.toLocalDate().minusDays(random.nextInt(400)));
+        return cuerpo;
+    }
+
+    private static NichoDTO nicho(Random random, String codigo) {
+        NichoDTO nicho = new NichoDTO();
+        nicho.setCodigo(codigo);
+        nicho.setEstado(EstadoNicho.values()[random.nextInt(EstadoNicho.values().length)]);
+        return nicho;
+    }
+
+    private static NichoDTO nichoUbicado(Random random, String codigo) {
+        NichoDTO nicho = nicho(random, codigo);
+        // Algunas ubicaciones difieren solo en espacios y algunos nichos no tienen ubicación
+        String[] ubicaciones = {"Bloque A", " Bloque A ", "Bloque B", "Pabellón 1", "Pabellón 2", "Fila 9", null, " "};
+        nicho.setUbicacion(ubicaciones[random.nextInt(ubicaciones.length)]);
+        return nicho;
+    }
+
+    // Nichos y cuerpos tomados de un rango algo mayor que el existente, para tener asignaciones huérfanas
+    private static NichoCuerpoDTO asignacionCruzada(Random random, String id) {
+        NichoCuerpoDTO asignacion = asignacion(id);
+        asignacion.setCodigoNicho(random.nextInt(20) == 0 ? null : "N" + random.nextInt(130));
+        asignacion.setIdCadaver(random.nextInt(20) == 0 ? null : "C" + random.nextInt(130));
+        return asignacion;
+    }
+
+    private static NichoCuerpoDTO asignacion(String id) {
+        NichoCuerpoDTO asignacion = new NichoCuerpoDTO();
+        asignacion.setId(id);
+        return asignacion;
+    }
+
+    private static EventoDatosDTO evento(Entidad entidad, Operacion operacion, String id, CuerpoInhumadoDTO cuerpo,
+                                         NichoDTO nicho, NichoCuerpoDTO asignacion) {
+        EventoDatosDTO evento = new EventoDatosDTO();
+        evento.setEntidad(entidad);
+        evento.setOperacion(operacion);
+        evento.setId(id);
+        evento.setCuerpo(cuerpo);
+        evento.setNicho(nicho);
+        evento.setAsignacion(asignacion);
+        return evento;
+    }
+}
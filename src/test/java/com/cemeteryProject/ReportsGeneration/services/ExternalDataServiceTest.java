@@ -1,31 +1,66 @@
 package com.cemeteryProject.ReportsGeneration.services;
 
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoAnalisisDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.NichoCuerpoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
 import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
 import com.cemeteryProject.ReportsGeneration.models.NichoModel.EstadoNicho;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.headerDoesNotExist;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 class ExternalDataServiceTest {
 
     @Mock
     private RestTemplate restTemplate;
 
+    // Igual que el de Spring Boot: con fechas java.time y tolerante a campos desconocidos
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
     @InjectMocks
     private ExternalDataService externalDataService;
 
@@ -192,6 +227,570 @@ class ExternalDataServiceTest {
         verify(restTemplate, times(1)).getForObject(backendBaseUrl + "/nichoscuerpos", NichoCuerpoDTO[].class);
     }
 
+    /**
+     * Test EDS-01: El recorrido en streaming debería entregar cada cuerpo al consumidor, en orden y con sus fechas.
+     */
+    @Test
+    void recorrerCuerpos_ValidResponse_ShouldStreamEachCuerpo() {
+        responderCuerpos("""
+            [{"idCadaver":"1","nombre":"Ana","fechaDefuncion":"2024-03-01","estado":"INHUMADO"},
+             null,
+             {"idCadaver":"2","nombre":"Luis","campoNuevo":"ignorado"}]
+            """);
+        List<CuerpoInhumadoDTO> recibidos = new ArrayList<>();
+
+        long leidos = externalDataService.recorrerCuerpos(recibidos::add);
+
+        assertEquals(2, leidos);
+        assertEquals(List.of("1", "2"), recibidos.stream().map(CuerpoInhumadoDTO::getIdCadaver).toList());
+        assertEquals(LocalDate.of(2024, 3, 1), recibidos.get(0).getFechaDefuncion());
+        assertEquals(EstadoCuerpo.INHUMADO, recibidos.get(0).getEstado());
+        verify(restTemplate, never()).getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class);
+    }
+
+    /**
+     * Test EDS-02: Un arreglo vacío no debería invocar al consumidor; una respuesta que no es arreglo debería fallar.
+     */
+    @Test
+    void recorrerCuerpos_VacioONoArreglo_ShouldHandleBoth() {
+        responderCuerpos("[]");
+        assertEquals(0, externalDataService.recorrerCuerpos(cuerpo -> fail("No debe recibir cuerpos")));
+
+        responderCuerpos("{\"error\":\"no\"}");
+        assertThrows(IllegalStateException.class, () -> externalDataService.recorrerCuerpos(cuerpo -> { }));
+    }
+
+    /**
+     * Test EDS-03: Con paginación las páginas deberían pedirse con sus parámetros y unirse en orden hasta la primera incompleta.
+     */
+    @Test
+    void getAllNichos_Paginado_ShouldJoinPagesInOrder() {
+        paginar(2);
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos?page=0&size=2", NichoDTO[].class)).thenReturn(nichos("1", "2"));
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos?page=1&size=2", NichoDTO[].class)).thenReturn(nichos("3", "4"));
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos?page=2&size=2", NichoDTO[].class)).thenReturn(nichos("5"));
+
+        List<NichoDTO> result = externalDataService.getAllNichos();
+
+        assertEquals(List.of("1", "2", "3", "4", "5"), result.stream().map(NichoDTO::getCodigo).toList());
+        verify(restTemplate, times(3)).getForObject(anyString(), eq(NichoDTO[].class));
+        verify(restTemplate, never()).getForObject(backendBaseUrl + "/nichos", NichoDTO[].class);
+    }
+
+    /**
+     * Test EDS-04: La página siguiente debería pedirse mientras el consumidor todavía procesa la actual.
+     */
+    @Test
+    void recorrerCuerpos_Paginado_ShouldReadAheadNextPage() {
+        paginar(1);
+        CountDownLatch segundaPedida = new CountDownLatch(1);
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados?page=0&size=1", CuerpoInhumadoDTO[].class))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("1")});
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados?page=1&size=1", CuerpoInhumadoDTO[].class))
+            .thenAnswer(invocacion -> {
+                segundaPedida.countDown();
+                return new CuerpoInhumadoDTO[0];
+            });
+        List<String> recibidos = new ArrayList<>();
+
+        long leidos = externalDataService.recorrerCuerpos(cuerpo -> {
+            try {
+                assertTrue(segundaPedida.await(5, TimeUnit.SECONDS), "La página 1 debe pedirse antes de terminar la página 0");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            recibidos.add(cuerpo.getIdCadaver());
+        });
+
+        assertEquals(1, leidos);
+        assertEquals(List.of("1"), recibidos);
+    }
+
+    /**
+     * Test EDS-05: Un error en una página debería propagarse con la excepción original del cliente.
+     */
+    @Test
+    void getAllCuerpos_PaginaConError_ShouldRethrowOriginalException() {
+        paginar(1);
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados?page=0&size=1", CuerpoInhumadoDTO[].class))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("1")});
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados?page=1&size=1", CuerpoInhumadoDTO[].class))
+            .thenThrow(new HttpClientErrorException(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        assertThrows(HttpClientErrorException.class, () -> externalDataService.getAllCuerpos());
+    }
+
+    /**
+     * Test EDS-06: Tras la carga completa de la réplica las lecturas no deberían tocar la red.
+     */
+    @Test
+    void sincronizarReplica_CargaCompleta_ShouldServeReadsLocally() {
+        stubColecciones(nichos("N1"), new CuerpoInhumadoDTO[]{cuerpo("1"), cuerpo("2")}, new NichoCuerpoDTO[0]);
+
+        externalDataService.sincronizarReplica();
+        clearInvocations(restTemplate);
+
+        assertEquals(List.of("N1"), externalDataService.getAllNichos().stream().map(NichoDTO::getCodigo).toList());
+        assertEquals(2, externalDataService.getAllCuerpos().size());
+        List<String> recorridos = new ArrayList<>();
+        assertEquals(2, externalDataService.recorrerCuerpos(cuerpo -> recorridos.add(cuerpo.getIdCadaver())));
+        assertEquals(List.of("1", "2"), recorridos);
+        assertTrue(externalDataService.getAllNichoCuerpo().isEmpty());
+        verifyNoInteractions(restTemplate);
+
+        ExternalDataService.EstadoReplica estado = externalDataService.estadoReplica();
+        assertTrue(estado.cargada());
+        assertEquals(2, estado.cuerpos());
+        assertEquals(3, estado.altas());
+    }
+
+    /**
+     * Test EDS-07: Sin filtro por fecha, cada sincronización compara fila por fila y solo cambia la versión si hubo diferencias.
+     */
+    @Test
+    void sincronizarReplica_CargaCompleta_ShouldDiffRowsAndBumpVersionOnlyOnChanges() {
+        stubColecciones(nichos("N1"), new CuerpoInhumadoDTO[]{cuerpo("1"), cuerpo("2")}, new NichoCuerpoDTO[0]);
+        externalDataService.sincronizarReplica();
+        long version = externalDataService.versionReplica();
+
+        // Los mismos datos no cuentan como cambio
+        stubColecciones(nichos("N1"), new CuerpoInhumadoDTO[]{cuerpo("1"), cuerpo("2")}, new NichoCuerpoDTO[0]);
+        externalDataService.sincronizarReplica();
+        assertEquals(version, externalDataService.versionReplica());
+
+        // Un cuerpo modificado, uno nuevo y uno eliminado
+        CuerpoInhumadoDTO modificado = cuerpo("1");
+        modificado.setNombre("Ana");
+        stubColecciones(nichos("N1"), new CuerpoInhumadoDTO[]{modificado, cuerpo("3")}, new NichoCuerpoDTO[0]);
+        externalDataService.sincronizarReplica();
+
+        ExternalDataService.EstadoReplica estado = externalDataService.estadoReplica();
+        assertEquals(version + 1, externalDataService.versionReplica());
+        assertEquals(1, estado.altas());
+        assertEquals(1, estado.modificaciones());
+        assertEquals(1, estado.bajas());
+        assertEquals(List.of("1", "3"), externalDataService.getAllCuerpos().stream().map(CuerpoInhumadoDTO::getIdCadaver).toList());
+        assertEquals("Ana", externalDataService.getAllCuerpos().get(0).getNombre());
+    }
+
+    /**
+     * Test EDS-08: Con filtro por fecha, tras la carga completa solo deberían pedirse los cambios desde la sincronización anterior.
+     */
+    @Test
+    void sincronizarReplica_ConFiltroPorFecha_ShouldFetchOnlyChanges() {
+        ReflectionTestUtils.setField(externalDataService, "parametroModificadosDesde", "modificadosDesde");
+        ReflectionTestUtils.setField(externalDataService, "sincronizacionesPorReconciliacion", 12);
+        stubColecciones(nichos("N1"), new CuerpoInhumadoDTO[]{cuerpo("1")}, new NichoCuerpoDTO[0]);
+        externalDataService.sincronizarReplica();
+
+        when(restTemplate.getForObject(startsWith(backendBaseUrl + "/nichos?modificadosDesde="), eq(NichoDTO[].class)))
+            .thenReturn(new NichoDTO[0]);
+        when(restTemplate.getForObject(startsWith(backendBaseUrl + "/cuerposinhumados?modificadosDesde="), eq(CuerpoInhumadoDTO[].class)))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("2")});
+        when(restTemplate.getForObject(startsWith(backendBaseUrl + "/nichoscuerpos?modificadosDesde="), eq(NichoCuerpoDTO[].class)))
+            .thenReturn(new NichoCuerpoDTO[0]);
+        externalDataService.sincronizarReplica();
+
+        assertEquals(List.of("1", "2"), externalDataService.getAllCuerpos().stream().map(CuerpoInhumadoDTO::getIdCadaver).toList());
+        verify(restTemplate, times(1)).getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class);
+        verify(restTemplate, times(1)).getForObject(startsWith(backendBaseUrl + "/cuerposinhumados?modificadosDesde="), eq(CuerpoInhumadoDTO[].class));
+    }
+
+    /**
+     * Test EDS-09: Con peticiones condicionales un 304 debería reutilizar la lista ya deserializada y contarse como ahorro.
+     */
+    @Test
+    void getAllNichos_Condicional_NotModified_ShouldReuseCachedList() {
+        RestTemplate clienteReal = new RestTemplate();
+        MockRestServiceServer servidor = MockRestServiceServer.bindTo(clienteReal).build();
+        ExternalDataService servicio = new ExternalDataService(clienteReal, objectMapper);
+        ReflectionTestUtils.setField(servicio, "backendBaseUrl", backendBaseUrl);
+        ReflectionTestUtils.setField(servicio, "peticionesCondicionales", true);
+        String json = "[{\"codigo\":\"N1\",\"ubicacion\":\"Sector A\"}]";
+
+        servidor.expect(requestTo(backendBaseUrl + "/nichos"))
+            .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+            .andRespond(withSuccess(json, MediaType.APPLICATION_JSON).header(HttpHeaders.ETAG, "\"v1\""));
+        servidor.expect(requestTo(backendBaseUrl + "/nichos"))
+            .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+            .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        List<NichoDTO> primera = servicio.getAllNichos();
+        List<NichoDTO> segunda = servicio.getAllNichos();
+
+        servidor.verify();
+        assertEquals(List.of("N1"), segunda.stream().map(NichoDTO::getCodigo).toList());
+        assertSame(primera.get(0), segunda.get(0), "El 304 debe reutilizar los objetos ya deserializados");
+        ExternalDataService.EstadisticasCondicionales estadisticas = servicio.estadisticasCondicionales();
+        assertEquals(2, estadisticas.peticiones());
+        assertEquals(1, estadisticas.noModificadas());
+        assertEquals(0.5, estadisticas.proporcionNoModificadas());
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, estadisticas.bytesAhorrados());
+        servicio.cerrar();
+    }
+
+    /**
+     * Test EDS-10: Lecturas simultáneas de la misma colección deberían resolverse con una sola petición al backend.
+     */
+    @Test
+    void getAllCuerpos_LecturasSimultaneas_ShouldShareOneRequest() throws Exception {
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class))
+            .thenAnswer(invocacion -> {
+                enCurso.countDown();
+                liberar.await(5, TimeUnit.SECONDS);
+                return new CuerpoInhumadoDTO[]{cuerpo("1")};
+            });
+
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<CuerpoInhumadoDTO>> primera = hilos.submit(externalDataService::getAllCuerpos);
+            assertTrue(enCurso.await(5, TimeUnit.SECONDS));
+            List<Future<List<CuerpoInhumadoDTO>>> seguidoras = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                seguidoras.add(hilos.submit(externalDataService::getAllCuerpos));
+            }
+            // Esperar a que las seguidoras se sumen a la lectura en curso antes de liberarla
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (externalDataService.estadisticasCoalescencia().compartidas() < 3 && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+            liberar.countDown();
+
+            assertEquals(1, primera.get(5, TimeUnit.SECONDS).size());
+            for (Future<List<CuerpoInhumadoDTO>> seguidora : seguidoras) {
+                List<CuerpoInhumadoDTO> resultado = seguidora.get(5, TimeUnit.SECONDS);
+                assertEquals("1", resultado.get(0).getIdCadaver());
+                assertNotSame(primera.get(), resultado, "Cada llamador debe recibir su propia lista");
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        verify(restTemplate, times(1)).getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class);
+        assertEquals(3, externalDataService.estadisticasCoalescencia().compartidas());
+    }
+
+    /**
+     * Test EDS-11: Dentro de la ventana de coalescencia una lectura posterior debería reutilizar el resultado; un error no.
+     */
+    @Test
+    void getAllNichos_VentanaDeCoalescencia_ShouldReuseRecentResultButNotErrors() {
+        ReflectionTestUtils.setField(externalDataService, "ventanaCoalescenciaMs", 60_000L);
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos", NichoDTO[].class))
+            .thenThrow(new HttpClientErrorException(HttpStatus.INTERNAL_SERVER_ERROR))
+            .thenReturn(nichos("N1"));
+
+        assertThrows(HttpClientErrorException.class, () -> externalDataService.getAllNichos());
+        assertEquals(1, externalDataService.getAllNichos().size());
+        assertEquals(1, externalDataService.getAllNichos().size());
+
+        verify(restTemplate, times(2)).getForObject(backendBaseUrl + "/nichos", NichoDTO[].class);
+    }
+
+    /**
+     * Test EDS-12: Con el circuito abierto las lecturas deberían servir la última lectura buena sin llamar al backend.
+     */
+    @Test
+    void getAllNichos_CircuitoAbierto_ShouldServeStaleWithoutCallingBackend() {
+        ReflectionTestUtils.setField(externalDataService, "fallosParaAbrir", 2);
+        ReflectionTestUtils.setField(externalDataService, "esperaAperturaMs", 60_000L);
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos", NichoDTO[].class))
+            .thenReturn(nichos("N1"))
+            .thenThrow(new ResourceAccessException("Read timed out"));
+
+        externalDataService.getAllNichos();
+        // Los dos fallos se cubren con la última lectura buena y abren el circuito
+        assertEquals(1, externalDataService.getAllNichos().size());
+        assertEquals(1, externalDataService.getAllNichos().size());
+        clearInvocations(restTemplate);
+
+        List<NichoDTO> result = externalDataService.getAllNichos();
+
+        assertEquals(List.of("N1"), result.stream().map(NichoDTO::getCodigo).toList());
+        verifyNoInteractions(restTemplate);
+        ExternalDataService.EstadoCircuito estado = externalDataService.estadoCircuito();
+        assertEquals("ABIERTO", estado.estado());
+        assertEquals(1, estado.rechazadas());
+        assertEquals(3, estado.lecturasObsoletas());
+        assertTrue(estado.edadRutasObsoletasSegundos().containsKey("/nichos"));
+        assertNotNull(externalDataService.fechaDatosObsoletos());
+    }
+
+    /**
+     * Test EDS-13: Sin lectura buena previa el circuito abierto debería fallar enseguida; la sonda posterior debería cerrarlo.
+     */
+    @Test
+    void getAllCuerpos_CircuitoAbiertoSinDatos_ShouldFailFastAndRecoverWithProbe() {
+        ReflectionTestUtils.setField(externalDataService, "fallosParaAbrir", 1);
+        ReflectionTestUtils.setField(externalDataService, "esperaAperturaMs", 60_000L);
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class))
+            .thenThrow(new ResourceAccessException("Connection refused"))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("1")});
+
+        assertThrows(ResourceAccessException.class, () -> externalDataService.getAllCuerpos());
+        assertThrows(ResourceAccessException.class, () -> externalDataService.getAllCuerpos());
+        verify(restTemplate, times(1)).getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class);
+
+        // Vencida la espera, la siguiente lectura es la sonda y, al salir bien, cierra el circuito
+        ReflectionTestUtils.setField(externalDataService, "esperaAperturaMs", 0L);
+        assertEquals(1, externalDataService.getAllCuerpos().size());
+        assertEquals("CERRADO", externalDataService.estadoCircuito().estado());
+        assertNull(externalDataService.fechaDatosObsoletos());
+    }
+
+    /**
+     * Test EDS-14: La proyección para el análisis debería pedir solo sus campos y descartar el resto al parsear.
+     */
+    @Test
+    void getCuerposAnalisis_ShouldRequestFieldsAndIgnoreTheRest() {
+        RestTemplate clienteReal = new RestTemplate();
+        MockRestServiceServer servidor = MockRestServiceServer.bindTo(clienteReal).build();
+        ExternalDataService servicio = new ExternalDataService(clienteReal, objectMapper);
+        ReflectionTestUtils.setField(servicio, "backendBaseUrl", backendBaseUrl);
+        ReflectionTestUtils.setField(servicio, "parametroCampos", "campos");
+
+        // Un backend que ignora el parámetro y manda todos los campos
+        servidor.expect(requestTo(backendBaseUrl + "/cuerposinhumados?campos=idCadaver,estado,fechaIngreso,fechaInhumacion"))
+            .andRespond(withSuccess("""
+                [{"idCadaver":"1","nombre":"Ana","observaciones":"texto largo","causaMuerte":"otra",
+                  "estado":"INHUMADO","fechaIngreso":"2024-03-01T10:00:00","fechaInhumacion":"2024-03-02"}]
+                """, MediaType.APPLICATION_JSON));
+
+        List<CuerpoAnalisisDTO> result = servicio.getCuerposAnalisis();
+
+        servidor.verify();
+        assertEquals(List.of(new CuerpoAnalisisDTO("1", EstadoCuerpo.INHUMADO, LocalDateTime.of(2024, 3, 1, 10, 0), LocalDate.of(2024, 3, 2))), result);
+        servicio.cerrar();
+    }
+
+    /**
+     * Test EDS-15: Con un 304, los cuerpos completos y la proyección del análisis de la misma ruta deberían reutilizar cada uno su propia lista.
+     */
+    @Test
+    void getAllCuerposYAnalisis_Condicional_NotModified_ShouldNotMixElementTypes() {
+        RestTemplate clienteReal = new RestTemplate();
+        MockRestServiceServer servidor = MockRestServiceServer.bindTo(clienteReal).build();
+        ExternalDataService servicio = new ExternalDataService(clienteReal, objectMapper);
+        ReflectionTestUtils.setField(servicio, "backendBaseUrl", backendBaseUrl);
+        ReflectionTestUtils.setField(servicio, "peticionesCondicionales", true);
+        String json = "[{\"idCadaver\":\"1\",\"nombre\":\"Ana\",\"estado\":\"INHUMADO\"}]";
+
+        servidor.expect(requestTo(backendBaseUrl + "/cuerposinhumados"))
+            .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+            .andRespond(withSuccess(json, MediaType.APPLICATION_JSON).header(HttpHeaders.ETAG, "\"v1\""));
+        servidor.expect(requestTo(backendBaseUrl + "/cuerposinhumados"))
+            .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+            .andRespond(withSuccess(json, MediaType.APPLICATION_JSON).header(HttpHeaders.ETAG, "\"v1\""));
+        servidor.expect(requestTo(backendBaseUrl + "/cuerposinhumados"))
+            .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+            .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+        servidor.expect(requestTo(backendBaseUrl + "/cuerposinhumados"))
+            .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+            .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        servicio.getAllCuerpos();
+        servicio.getCuerposAnalisis();
+        List<CuerpoInhumadoDTO> cuerpos = servicio.getAllCuerpos();
+        List<CuerpoAnalisisDTO> analisis = servicio.getCuerposAnalisis();
+
+        servidor.verify();
+        assertInstanceOf(CuerpoInhumadoDTO.class, cuerpos.get(0), "El 304 de los cuerpos no debe devolver la proyección");
+        assertEquals("Ana", cuerpos.get(0).getNombre());
+        assertInstanceOf(CuerpoAnalisisDTO.class, analisis.get(0), "El 304 de la proyección no debe devolver los cuerpos completos");
+        assertEquals("1", analisis.get(0).getIdCadaver());
+        assertEquals(2, servicio.estadisticasCondicionales().noModificadas());
+        servicio.cerrar();
+    }
+
+    /**
+     * Test EDS-16: Con el circuito abierto, cada lectura de /cuerposinhumados debería servir la última lectura buena de su propio tipo.
+     */
+    @Test
+    void getAllCuerposYAnalisis_CircuitoAbierto_ShouldServeStaleOfTheirOwnType() {
+        ReflectionTestUtils.setField(externalDataService, "fallosParaAbrir", 2);
+        ReflectionTestUtils.setField(externalDataService, "esperaAperturaMs", 60_000L);
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("1")})
+            .thenThrow(new ResourceAccessException("Read timed out"));
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoAnalisisDTO[].class))
+            .thenReturn(new CuerpoAnalisisDTO[]{new CuerpoAnalisisDTO("2", EstadoCuerpo.INHUMADO, null, null)})
+            .thenThrow(new ResourceAccessException("Read timed out"));
+
+        externalDataService.getAllCuerpos();
+        externalDataService.getCuerposAnalisis();
+        // Un fallo de cada lectura abre el circuito; los dos se cubren con su propia lectura anterior
+        assertInstanceOf(CuerpoInhumadoDTO.class, externalDataService.getAllCuerpos().get(0));
+        assertInstanceOf(CuerpoAnalisisDTO.class, externalDataService.getCuerposAnalisis().get(0));
+        assertEquals("ABIERTO", externalDataService.estadoCircuito().estado());
+        clearInvocations(restTemplate);
+
+        List<CuerpoAnalisisDTO> analisis = externalDataService.getCuerposAnalisis();
+        List<CuerpoInhumadoDTO> cuerpos = externalDataService.getAllCuerpos();
+        List<String> recorridos = new ArrayList<>();
+        externalDataService.recorrerCuerpos(cuerpo -> recorridos.add(cuerpo.getIdCadaver()));
+
+        verifyNoInteractions(restTemplate);
+        assertEquals("2", analisis.get(0).getIdCadaver());
+        assertEquals("1", cuerpos.get(0).getIdCadaver());
+        assertEquals(List.of("1"), recorridos, "El recorrido debe usar la última lectura de los cuerpos completos");
+        assertEquals(Set.of("/cuerposinhumados"), externalDataService.estadoCircuito().edadRutasObsoletasSegundos().keySet());
+    }
+
+    // Respuestas completas de las tres colecciones
+    /**
+     * Test EDS-17: Con paginación, el delta también debería pedirse de a páginas hasta la primera incompleta.
+     */
+    @Test
+    void sincronizarReplica_DeltaPaginado_ShouldFetchEveryPage() {
+        paginar(2);
+        ReflectionTestUtils.setField(externalDataService, "parametroModificadosDesde", "modificadosDesde");
+        ReflectionTestUtils.setField(externalDataService, "sincronizacionesPorReconciliacion", 12);
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos?page=0&size=2", NichoDTO[].class)).thenReturn(nichos("N1"));
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados?page=0&size=2", CuerpoInhumadoDTO[].class))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("1")});
+        when(restTemplate.getForObject(backendBaseUrl + "/nichoscuerpos?page=0&size=2", NichoCuerpoDTO[].class))
+            .thenReturn(new NichoCuerpoDTO[0]);
+        externalDataService.sincronizarReplica();
+        long version = externalDataService.versionReplica();
+
+        when(restTemplate.getForObject(startsWith(backendBaseUrl + "/nichos?modificadosDesde="), eq(NichoDTO[].class)))
+            .thenReturn(new NichoDTO[0]);
+        when(restTemplate.getForObject(argThat((String url) -> url != null && url.startsWith(backendBaseUrl + "/cuerposinhumados?modificadosDesde=")
+            && url.endsWith("&page=0&size=2")), eq(CuerpoInhumadoDTO[].class)))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("2"), cuerpo("3")});
+        when(restTemplate.getForObject(argThat((String url) -> url != null && url.startsWith(backendBaseUrl + "/cuerposinhumados?modificadosDesde=")
+            && url.endsWith("&page=1&size=2")), eq(CuerpoInhumadoDTO[].class)))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("4")});
+        when(restTemplate.getForObject(startsWith(backendBaseUrl + "/nichoscuerpos?modificadosDesde="), eq(NichoCuerpoDTO[].class)))
+            .thenReturn(new NichoCuerpoDTO[0]);
+        externalDataService.sincronizarReplica();
+
+        assertEquals(List.of("1", "2", "3", "4"), externalDataService.getAllCuerpos().stream().map(CuerpoInhumadoDTO::getIdCadaver).toList(),
+            "El delta no debe quedar truncado en la primera página");
+        assertEquals(version + 1, externalDataService.versionReplica());
+        assertEquals(3, externalDataService.estadoReplica().altas());
+        verify(restTemplate, times(2)).getForObject(startsWith(backendBaseUrl + "/cuerposinhumados?modificadosDesde="), eq(CuerpoInhumadoDTO[].class));
+    }
+
+    /**
+     * Test EDS-18: Si falla la descarga de una colección, la réplica y su versión deberían quedar como estaban.
+     */
+    @Test
+    void sincronizarReplica_FalloParcial_ShouldKeepPreviousReplica() {
+        stubColecciones(nichos("N1"), new CuerpoInhumadoDTO[]{cuerpo("1")}, new NichoCuerpoDTO[0]);
+        externalDataService.sincronizarReplica();
+        long version = externalDataService.versionReplica();
+
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos", NichoDTO[].class)).thenReturn(nichos("N1", "N2"));
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class))
+            .thenReturn(new CuerpoInhumadoDTO[]{cuerpo("1"), cuerpo("2")});
+        when(restTemplate.getForObject(backendBaseUrl + "/nichoscuerpos", NichoCuerpoDTO[].class))
+            .thenThrow(new ResourceAccessException("Backend caído"));
+        assertThrows(ResourceAccessException.class, () -> externalDataService.sincronizarReplica());
+
+        assertEquals(version, externalDataService.versionReplica());
+        assertEquals(List.of("N1"), externalDataService.getAllNichos().stream().map(NichoDTO::getCodigo).toList(),
+            "Ninguna colección debe publicarse si la sincronización no terminó");
+        assertEquals(1, externalDataService.getAllCuerpos().size());
+    }
+
+    /**
+     * Test EDS-19: Una cancelación o un error de E/S fuera de RestClientException debería contar como fallo y cubrirse con la última lectura buena.
+     */
+    @Test
+    void getAllNichos_FalloDeTransporte_ShouldCountAsFailureAndServeStale() {
+        ReflectionTestUtils.setField(externalDataService, "fallosParaAbrir", 2);
+        ReflectionTestUtils.setField(externalDataService, "esperaAperturaMs", 60_000L);
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos", NichoDTO[].class))
+            .thenReturn(nichos("N1"))
+            .thenThrow(new CancellationException())
+            .thenThrow(new UncheckedIOException(new IOException("Connection reset")));
+
+        externalDataService.getAllNichos();
+
+        assertEquals(List.of("N1"), externalDataService.getAllNichos().stream().map(NichoDTO::getCodigo).toList());
+        assertEquals(List.of("N1"), externalDataService.getAllNichos().stream().map(NichoDTO::getCodigo).toList());
+        ExternalDataService.EstadoCircuito estado = externalDataService.estadoCircuito();
+        assertEquals("ABIERTO", estado.estado(), "Los fallos de transporte deben abrir el circuito");
+        assertEquals(2, estado.lecturasObsoletas());
+    }
+
+    /**
+     * Test EDS-20: Los fallos del recorrido en streaming deberían abrir el circuito; sin lectura buena previa luego debería fallar sin llamar al backend.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void recorrerCuerpos_FallosDeTransporte_ShouldOpenCircuitAndFailFast() {
+        ReflectionTestUtils.setField(externalDataService, "fallosParaAbrir", 2);
+        ReflectionTestUtils.setField(externalDataService, "esperaAperturaMs", 60_000L);
+        when(restTemplate.execute(eq(backendBaseUrl + "/cuerposinhumados"), eq(HttpMethod.GET), any(), any(ResponseExtractor.class)))
+            .thenThrow(new CancellationException());
+
+        assertThrows(CancellationException.class, () -> externalDataService.recorrerCuerpos(cuerpo -> { }));
+        assertThrows(CancellationException.class, () -> externalDataService.recorrerCuerpos(cuerpo -> { }));
+        clearInvocations(restTemplate);
+
+        assertThrows(ResourceAccessException.class, () -> externalDataService.recorrerCuerpos(cuerpo -> { }));
+        verifyNoInteractions(restTemplate);
+        assertEquals("ABIERTO", externalDataService.estadoCircuito().estado());
+    }
+
+    /**
+     * Test EDS-21: Si el backend ignora la paginación y la colección mide justo una página, el recorrido debería terminar sin duplicados.
+     */
+    @Test
+    void getAllNichos_BackendIgnoraPaginacion_ShouldStopOnRepeatedPage() {
+        paginar(2);
+        when(restTemplate.getForObject(startsWith(backendBaseUrl + "/nichos?page="), eq(NichoDTO[].class)))
+            .thenAnswer(invocacion -> nichos("1", "2"));
+
+        List<NichoDTO> result = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> externalDataService.getAllNichos());
+
+        assertEquals(List.of("1", "2"), result.stream().map(NichoDTO::getCodigo).toList(), "La página repetida no debe volver a entregarse");
+        verify(restTemplate, times(2)).getForObject(anyString(), eq(NichoDTO[].class));
+    }
+
+    private void stubColecciones(NichoDTO[] nichos, CuerpoInhumadoDTO[] cuerpos, NichoCuerpoDTO[] relaciones) {
+        when(restTemplate.getForObject(backendBaseUrl + "/nichos", NichoDTO[].class)).thenReturn(nichos);
+        when(restTemplate.getForObject(backendBaseUrl + "/cuerposinhumados", CuerpoInhumadoDTO[].class)).thenReturn(cuerpos);
+        when(restTemplate.getForObject(backendBaseUrl + "/nichoscuerpos", NichoCuerpoDTO[].class)).thenReturn(relaciones);
+    }
+
+    // Simula la respuesta de /cuerposinhumados ejecutando el extractor sobre el cuerpo recibido
+    @SuppressWarnings("unchecked")
+    private void responderCuerpos(String json) {
+        when(restTemplate.execute(eq(backendBaseUrl + "/cuerposinhumados"), eq(HttpMethod.GET), any(), any(ResponseExtractor.class)))
+            .thenAnswer(invocacion -> {
+                ResponseExtractor<Long> extractor = invocacion.getArgument(3);
+                try (MockClientHttpResponse respuesta = new MockClientHttpResponse(json.getBytes(StandardCharsets.UTF_8), HttpStatus.OK)) {
+                    return extractor.extractData(respuesta);
+                }
+            });
+    }
+
+    // Habilita la paginación con los nombres de parámetro por defecto
+    private void paginar(int tamano) {
+        ReflectionTestUtils.setField(externalDataService, "tamanoPagina", tamano);
+        ReflectionTestUtils.setField(externalDataService, "parametroPagina", "page");
+        ReflectionTestUtils.setField(externalDataService, "parametroTamano", "size");
+    }
+
+    private NichoDTO[] nichos(String... codigos) {
+        NichoDTO[] nichos = new NichoDTO[codigos.length];
+        for (int i = 0; i < codigos.length; i++) {
+            nichos[i] = new NichoDTO();
+            nichos[i].setCodigo(codigos[i]);
+        }
+        return nichos;
+    }
+
+    private CuerpoInhumadoDTO cuerpo(String idCadaver) {
+        CuerpoInhumadoDTO cuerpo = new CuerpoInhumadoDTO();
+        cuerpo.setIdCadaver(idCadaver);
+        return cuerpo;
+    }
+
     // Método auxiliar para validar UUID
     private boolean isValidUUID(String uuid) {
         try {
@@ -0,0 +1,181 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.NichoCuerpoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.NichoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO.OcupacionUbicacion;
+import com.cemeteryProject.ReportsGeneration.models.NichoModel.EstadoNicho;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcupacionUbicacionesTest {
+
+    /**
+     * Test OUB-01: Cada asignación válida debería sumar un cuerpo a la ubicación de su nicho, y el nicho contarse una sola vez.
+     */
+    @Test
+    void calcular_AsignacionesValidasYHuerfanas_ShouldJoinByCodigoAndIdCadaver() {
+        List<NichoDTO> nichos = List.of(
+            nicho("N1", "Bloque A", EstadoNicho.OCUPADO),
+            nicho("N2", "Bloque A", EstadoNicho.DISPONIBLE),
+            nicho("N3", "Bloque B", EstadoNicho.MANTENIMIENTO),
+            nicho("N4", null, EstadoNicho.OCUPADO));
+        List<NichoCuerpoDTO> asignaciones = List.of(
+            asignacion("N1", "C1"),
+            asignacion("N1", "C2"),
+            asignacion("N4", "C3"),
+            asignacion("N9", "C4"),
+            asignacion("N3", "C-inexistente"));
+
+        OcupacionUbicaciones.Resultado resultado = OcupacionUbicaciones.calcular(nichos, asignaciones,
+            Set.of("C1", "C2", "C3", "C4"), 0);
+
+        assertEquals(1, resultado.asignacionesSinNicho());
+        assertEquals(1, resultado.asignacionesSinCuerpo());
+        List<OcupacionUbicacion> ubicaciones = resultado.ubicaciones();
+        assertEquals(List.of("Bloque A", "Bloque B", OcupacionUbicaciones.SIN_UBICACION),
+            ubicaciones.stream().map(OcupacionUbicacion::getUbicacion).toList(), "Las ubicaciones deberían ir por nombre");
+        OcupacionUbicacion bloqueA = ubicaciones.get(0);
+        assertEquals(2, bloqueA.getTotalNichos());
+        assertEquals(1, bloqueA.getNichosDisponibles());
+        assertEquals(1, bloqueA.getNichosOcupados());
+        assertEquals(1, bloqueA.getNichosConCuerpos(), "Un nicho con dos cuerpos debería contarse una vez");
+        assertEquals(2, bloqueA.getCuerposAsignados());
+        assertEquals(50.0, bloqueA.getPorcentajeOcupacion(), 0.001);
+        assertEquals(0, ubicaciones.get(1).getCuerposAsignados(), "La asignación sin cuerpo no debería contarse");
+        assertEquals(1, ubicaciones.get(1).getNichosMantenimiento());
+        assertEquals(1, ubicaciones.get(2).getCuerposAsignados());
+    }
+
+    /**
+     * Test OUB-02: El cruce por índices debería coincidir con el cruce por búsqueda lineal en datos aleatorios.
+     */
+    @Test
+    void calcular_DatosAleatorios_ShouldMatchNestedLoopJoin() {
+        Random random = new Random(25);
+        for (int ronda = 0; ronda < 10; ronda++) {
+            List<NichoDTO> nichos = new ArrayList<>();
+            for (int i = 0; i < 150; i++) {
+                nichos.add(nicho("N" + i, random.nextInt(8) == 0 ? null : "Sector " + random.nextInt(6),
+                    EstadoNicho.values()[random.nextInt(EstadoNicho.values().length)]));
+            }
+            Set<String> idsCuerpos = new HashSet<>();
+            for (int i = 0; i < 120; i++) {
+                idsCuerpos.add("C" + i);
+            }
+            List<NichoCuerpoDTO> asignaciones = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                asignaciones.add(asignacion("N" + random.nextInt(170), "C" + random.nextInt(140)));
+            }
+
+            OcupacionUbicaciones.Resultado obtenido = OcupacionUbicaciones.calcular(nichos, asignaciones, idsCuerpos, 0);
+
+            // Referencia: para cada asignación se busca el nicho recorriendo la lista
+            Map<String, long[]> esperado = new TreeMap<>();
+            Set<String> nichosConCuerpo = new HashSet<>();
+            long sinNicho = 0;
+            long sinCuerpo = 0;
+            for (NichoDTO nicho : nichos) {
+                esperado.computeIfAbsent(ubicacion(nicho), clave -> new long[3])[0]++;
+            }
+            for (NichoCuerpoDTO asignacion : asignaciones) {
+                NichoDTO encontrado = null;
+                for (NichoDTO nicho : nichos) {
+                    if (nicho.getCodigo().equals(asignacion.getCodigoNicho())) {
+                        encontrado = nicho;
+                    }
+                }
+                if (encontrado == null) {
+                    sinNicho++;
+                } else if (!idsCuerpos.contains(asignacion.getIdCadaver())) {
+                    sinCuerpo++;
+                } else {
+                    long[] fila = esperado.get(ubicacion(encontrado));
+                    fila[2]++;
+                    if (nichosConCuerpo.add(encontrado.getCodigo())) {
+                        fila[1]++;
+                    }
+                }
+            }
+
+            assertEquals(sinNicho, obtenido.asignacionesSinNicho(), "Ronda " + ronda);
+            assertEquals(sinCuerpo, obtenido.asignacionesSinCuerpo(), "Ronda " + ronda);
+            assertEquals(esperado.size(), obtenido.ubicaciones().size(), "Ronda " + ronda);
+            for (OcupacionUbicacion ocupacion : obtenido.ubicaciones()) {
+                long[] fila = esperado.get(ocupacion.getUbicacion());
+                assertArrayEquals(fila, new long[]{ocupacion.getTotalNichos(), ocupacion.getNichosConCuerpos(), ocupacion.getCuerposAsignados()},
+                    "La ubicación " + ocupacion.getUbicacion() + " debería coincidir (ronda " + ronda + ")");
+            }
+        }
+    }
+
+    /**
+     * Test OUB-03: Con más ubicaciones que el máximo, las de menos nichos deberían agruparse sin perder conteos.
+     */
+    @Test
+    void calcular_MasUbicacionesQueElMaximo_ShouldGroupTheSmallest() {
+        List<NichoDTO> nichos = new ArrayList<>();
+        for (int ubicacion = 1; ubicacion <= 6; ubicacion++) {
+            for (int i = 0; i < ubicacion; i++) {
+                nichos.add(nicho("U" + ubicacion + "-" + i, "Fila " + ubicacion, EstadoNicho.DISPONIBLE));
+            }
+        }
+
+        List<OcupacionUbicacion> ubicaciones = OcupacionUbicaciones.calcular(nichos, List.of(), Set.of(), 3).ubicaciones();
+
+        assertEquals(List.of("Fila 5", "Fila 6", OcupacionUbicaciones.OTRAS_UBICACIONES),
+            ubicaciones.stream().map(OcupacionUbicacion::getUbicacion).toList());
+        assertEquals(1 + 2 + 3 + 4, ubicaciones.get(2).getTotalNichos());
+        assertEquals(nichos.size(), ubicaciones.stream().mapToLong(OcupacionUbicacion::getTotalNichos).sum());
+    }
+
+    /**
+     * Test OUB-04: Con 500.000 nichos y asignaciones el cruce debería seguir siendo lineal.
+     */
+    @Test
+    void calcular_QuinientosMilNichos_ShouldStayLinear() {
+        int cantidad = 500_000;
+        List<NichoDTO> nichos = new ArrayList<>(cantidad);
+        List<NichoCuerpoDTO> asignaciones = new ArrayList<>(cantidad);
+        Set<String> idsCuerpos = new HashSet<>();
+        for (int i = 0; i < cantidad; i++) {
+            nichos.add(nicho("N" + i, "Pabellón " + (i % 200), EstadoNicho.OCUPADO));
+            asignaciones.add(asignacion("N" + i, "C" + i));
+            idsCuerpos.add("C" + i);
+        }
+
+        OcupacionUbicaciones.Resultado resultado = assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> OcupacionUbicaciones.calcular(nichos, asignaciones, idsCuerpos, 0));
+
+        assertEquals(200, resultado.ubicaciones().size());
+        assertEquals(cantidad, resultado.ubicaciones().stream().mapToLong(OcupacionUbicacion::getCuerposAsignados).sum());
+    }
+
+    private static String ubicacion(NichoDTO nicho) {
+        return nicho.getUbicacion() != null ? nicho.getUbicacion() : OcupacionUbicaciones.SIN_UBICACION;
+    }
+
+    private static NichoDTO nicho(String codigo, String ubicacion, EstadoNicho estado) {
+        NichoDTO nicho = new NichoDTO();
+        nicho.setCodigo(codigo);
+        nicho.setUbicacion(ubicacion);
+        nicho.setEstado(estado);
+        return nicho;
+    }
+
+    private static NichoCuerpoDTO asignacion(String codigoNicho, String idCadaver) {
+        NichoCuerpoDTO asignacion = new NichoCuerpoDTO();
+        asignacion.setCodigoNicho(codigoNicho);
+        asignacion.setIdCadaver(idCadaver);
+        return asignacion;
+    }
+}
@@ -3,18 +3,20 @@ package com.cemeteryProject.ReportsGeneration.services;
 import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
 import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
 import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+import com.cemeteryProject.ReportsGeneration.templates.PlantillasReporte;
 import com.lowagie.text.Document;
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.pdf.PdfReader;
 import com.lowagie.text.pdf.PdfWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.MockedStatic;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -28,7 +30,10 @@ import static org.mockito.Mockito.*;
 
 class PdfGeneratorServiceTest {
 
-    @InjectMocks
+    private ChartRenderService chartRenderService;
+
+    private FragmentoPdfService fragmentoPdfService;
+
     private PdfGeneratorService pdfGeneratorService;
 
     @Mock
@@ -37,6 +42,15 @@ class PdfGeneratorServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        chartRenderService = new ChartRenderService(2, 8, "vectorial", new ChartImageCache(0));
+        fragmentoPdfService = new FragmentoPdfService(2);
+        pdfGeneratorService = new PdfGeneratorService(chartRenderService, new PlantillasReporte(), fragmentoPdfService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chartRenderService.cerrar();
+        fragmentoPdfService.cerrar();
     }
 
     /**
@@ -325,7 +339,302 @@ class PdfGeneratorServiceTest {
         }
     }
 
+    /**
+     * Test PGS-11: La variante con OutputStream debería escribir el PDF en el stream recibido sin cerrarlo.
+     */
+    @Test
+    void generarReportePDFCuerpos_ConOutputStream_ShouldWritePdfToStream() {
+        // Preparar lista de cuerpos y un stream que registre si fue cerrado
+        List<CuerpoInhumadoDTO> cuerpoList = List.of(createFullCuerpoDTO("1"), createFullCuerpoDTO("2"));
+        boolean[] cerrado = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                cerrado[0] = true;
+            }
+        };
+
+        // Ejecutar
+        pdfGeneratorService.generarReportePDFCuerpos(cuerpoList, out);
+
+        // Validar
+        byte[] pdfBytes = out.toByteArray();
+        assertTrue(pdfBytes.length > 0, "El PDF debe haberse escrito en el stream");
+        assertTrue(isValidPdf(pdfBytes), "El PDF debe tener una cabecera válida");
+        assertFalse(cerrado[0], "El stream no debe cerrarse, pertenece a quien lo abrió");
+        String pdfContent = extractPdfText(pdfBytes);
+        assertTrue(pdfContent.contains("Cuerpo #1 - ID: 1"), "El PDF debe contener el primer cuerpo");
+        assertTrue(pdfContent.contains("Cuerpo #2 - ID: 2"), "El PDF debe contener el segundo cuerpo");
+    }
+
+    /**
+     * Test PGS-12: Con el modo tabla grande activo la lista debería volcarse por bloques y conservar todos los cuerpos.
+     */
+    @Test
+    void generarReportePDFCuerpos_ModoTablaGrande_ShouldContainAllCuerpos() {
+        // Forzar el modo tabla grande con bloques pequeños
+        ReflectionTestUtils.setField(pdfGeneratorService, "umbralTablaGrande", 2);
+        ReflectionTestUtils.setField(pdfGeneratorService, "cuerposPorBloque", 2);
+        List<CuerpoInhumadoDTO> cuerpoList = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            cuerpoList.add(createFullCuerpoDTO(String.valueOf(i)));
+        }
+
+        // Ejecutar
+        byte[] pdfBytes = pdfGeneratorService.generarReportePDFCuerpos(cuerpoList);
+
+        // Validar
+        assertNotNull(pdfBytes, "El PDF no debe ser nulo");
+        assertTrue(isValidPdf(pdfBytes), "El PDF debe tener una cabecera válida");
+        String pdfContent = extractPdfText(pdfBytes);
+        assertTrue(pdfContent.contains("Lista de Cuerpos Registrados"), "El PDF debe contener el título");
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(pdfContent.contains("Cuerpo #" + i + " - ID: " + i), "El PDF debe contener el cuerpo " + i);
+        }
+        assertTrue(pdfContent.contains("Nombre: John Doe"), "El PDF debe contener los atributos del cuerpo");
+        assertTrue(pdfContent.contains("Estado: INHUMADO"), "El PDF debe contener el estado del cuerpo");
+    }
+
+    /**
+     * Test PGS-15: Por encima del umbral la lista debería generarse en fragmentos y unirse con numeración continua.
+     */
+    @Test
+    void generarReportePDFCuerpos_PorFragmentos_ShouldMergeInOrderWithContinuousNumbering() throws IOException {
+        // Forzar fragmentos de 4, 4 y 2 cuerpos; los dos primeros usan además el modo tabla grande
+        ReflectionTestUtils.setField(pdfGeneratorService, "umbralFragmentos", 5);
+        ReflectionTestUtils.setField(pdfGeneratorService, "cuerposPorFragmento", 4);
+        ReflectionTestUtils.setField(pdfGeneratorService, "umbralTablaGrande", 4);
+        ReflectionTestUtils.setField(pdfGeneratorService, "cuerposPorBloque", 3);
+        List<CuerpoInhumadoDTO> cuerpoList = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            cuerpoList.add(createFullCuerpoDTO(String.valueOf(i)));
+        }
+        boolean[] cerrado = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                cerrado[0] = true;
+            }
+        };
+
+        // Ejecutar
+        pdfGeneratorService.generarReportePDFCuerpos(cuerpoList, out);
+
+        // Validar
+        byte[] pdfBytes = out.toByteArray();
+        assertTrue(isValidPdf(pdfBytes), "El PDF unido debe tener una cabecera válida");
+        assertFalse(cerrado[0], "El stream no debe cerrarse al unir los fragmentos");
+        try (PDDocument documento = PDDocument.load(pdfBytes)) {
+            assertTrue(documento.getNumberOfPages() >= 3, "Cada fragmento debe empezar en su propia página");
+        }
+        String pdfContent = extractPdfText(pdfBytes);
+        assertEquals(pdfContent.indexOf("Lista de Cuerpos Registrados"), pdfContent.lastIndexOf("Lista de Cuerpos Registrados"),
+            "El título solo debe aparecer una vez");
+        int posicionAnterior = -1;
+        for (int i = 1; i <= 10; i++) {
+            int posicion = pdfContent.indexOf("Cuerpo #" + i + " - ID: " + i);
+            assertTrue(posicion > posicionAnterior, "El cuerpo " + i + " debe aparecer en orden");
+            posicionAnterior = posicion;
+        }
+    }
+
+    /**
+     * Test PGS-16: La escritura incremental debería numerar los cuerpos en orden sin recibir la lista completa.
+     */
+    @Test
+    void abrirReportePDFCuerpos_CuerposUnoAUno_ShouldWriteThemInOrder() {
+        ReflectionTestUtils.setField(pdfGeneratorService, "cuerposPorBloque", 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Ejecutar
+        try (PdfGeneratorService.EscrituraCuerpos escritura = pdfGeneratorService.abrirReportePDFCuerpos(out)) {
+            for (int i = 1; i <= 5; i++) {
+                escritura.agregar(createFullCuerpoDTO(String.valueOf(i)));
+            }
+            assertEquals(5, escritura.cuerposEscritos());
+        }
+
+        // Validar
+        byte[] pdfBytes = out.toByteArray();
+        assertTrue(isValidPdf(pdfBytes), "El PDF debe tener una cabecera válida");
+        String pdfContent = extractPdfText(pdfBytes);
+        assertTrue(pdfContent.contains("Lista de Cuerpos Registrados"), "Debe incluir el título");
+        int posicionAnterior = -1;
+        for (int i = 1; i <= 5; i++) {
+            int posicion = pdfContent.indexOf("Cuerpo #" + i + " - ID: " + i);
+            assertTrue(posicion > posicionAnterior, "El cuerpo " + i + " debe aparecer en orden");
+            posicionAnterior = posicion;
+        }
+    }
+
+    /**
+     * Test PGS-13: En modo vectorial los gráficos se dibujan como contenido PDF, por lo que sus títulos son texto extraíble.
+     */
+    @Test
+    void generarReportePDFConAnalisis_ModoVectorial_ShouldEmbedChartsAsText() {
+        // Ejecutar (el servicio de gráficos del setUp está en modo vectorial)
+        byte[] pdfBytes = pdfGeneratorService.generarReportePDFConAnalisis(createFullAnalisisDTO());
+
+        // Validar
+        assertNotNull(pdfBytes, "El PDF no debe ser nulo");
+        assertTrue(isValidPdf(pdfBytes), "El PDF debe tener una cabecera válida");
+        String pdfContent = extractPdfText(pdfBytes);
+        assertTrue(pdfContent.contains("Estado de los Nichos"), "El título del gráfico debe ser texto vectorial");
+        assertTrue(pdfContent.contains("Tipos de Documentos"), "El título del gráfico debe ser texto vectorial");
+    }
+
+    /**
+     * Test PGS-14: En modo raster los gráficos se incrustan como imágenes PNG y el PDF sigue siendo válido.
+     */
+    @Test
+    void generarReportePDFConAnalisis_ModoRaster_ShouldEmbedChartsAsImages() {
+        ChartRenderService rasterRenderService = new ChartRenderService(2, 8, "raster", new ChartImageCache(0));
+        PdfGeneratorService rasterPdfGeneratorService = new PdfGeneratorService(rasterRenderService, new PlantillasReporte(), fragmentoPdfService);
+
+        // Ejecutar
+        byte[] pdfBytes;
+        try {
+            pdfBytes = rasterPdfGeneratorService.generarReportePDFConAnalisis(createFullAnalisisDTO());
+        } finally {
+            rasterRenderService.cerrar();
+        }
+
+        // Validar
+        assertNotNull(pdfBytes, "El PDF no debe ser nulo");
+        assertTrue(isValidPdf(pdfBytes), "El PDF debe tener una cabecera válida");
+        String pdfContent = extractPdfText(pdfBytes);
+        assertTrue(pdfContent.contains("Reporte del Cementerio"), "El PDF debe contener el título");
+        assertFalse(pdfContent.contains("Estado de los Nichos"), "En modo raster el título del gráfico forma parte de la imagen");
+    }
+
+    /**
+     * Test PGS-17: La ocupación por ubicación debería mostrarse como tabla, y sin ubicaciones debería mostrarse el texto de vacío.
+     */
+    @Test
+    void generarReportePDFConAnalisis_OcupacionPorUbicacion_ShouldRenderTable() {
+        ReporteAnalisisDTO analisis = createFullAnalisisDTO();
+        ReporteAnalisisDTO.OcupacionUbicacion sector = new ReporteAnalisisDTO.OcupacionUbicacion();
+        sector.setUbicacion("Pabellón Norte");
+        sector.setTotalNichos(40);
+        sector.setNichosDisponibles(10);
+        sector.setNichosOcupados(30);
+        sector.setNichosConCuerpos(30);
+        sector.setCuerposAsignados(32);
+        sector.setPorcentajeOcupacion(75.0);
+        analisis.setOcupacionPorUbicacion(List.of(sector));
+        analisis.setAsignacionesSinNicho(2);
+
+        String conTabla = extractPdfText(pdfGeneratorService.generarReportePDFConAnalisis(analisis));
+        analisis.setOcupacionPorUbicacion(List.of());
+        String sinUbicaciones = extractPdfText(pdfGeneratorService.generarReportePDFConAnalisis(analisis));
+
+        assertTrue(conTabla.contains("Ocupación por Ubicación"), "El PDF debe contener la sección de ocupación");
+        assertTrue(conTabla.contains("Mantenimiento") && conTabla.contains("Con cuerpos"), "La tabla debe tener sus encabezados");
+        assertTrue(conTabla.contains("Pabellón Norte"), "La tabla debe contener la ubicación");
+        assertTrue(conTabla.contains("75.00%") || conTabla.contains("75,00%"), "La tabla debe contener el porcentaje de ocupación");
+        assertTrue(conTabla.contains("Asignaciones sin nicho registrado: 2"), "El PDF debe informar las asignaciones sin nicho");
+        assertTrue(sinUbicaciones.contains("No hay nichos registrados"), "Sin ubicaciones debe mostrarse el texto de vacío");
+    }
+
+    /**
+     * Test PGS-18: La escritura incremental debería retener los cuerpos hasta el umbral y desde ahí escribir cada uno en la tabla grande.
+     */
+    @Test
+    void abrirReportePDFCuerpos_UmbralTablaGrande_ShouldDecideAfterThreshold() {
+        ReflectionTestUtils.setField(pdfGeneratorService, "umbralTablaGrande", 3);
+        ReflectionTestUtils.setField(pdfGeneratorService, "cuerposPorBloque", 1);
+        ByteArrayOutputStream pocos = new ByteArrayOutputStream();
+        ByteArrayOutputStream muchos = new ByteArrayOutputStream();
+
+        // Por debajo del umbral no se escribe nada hasta cerrar: se usa el formato de un bloque por cuerpo
+        PdfGeneratorService.EscrituraCuerpos corta = pdfGeneratorService.abrirReportePDFCuerpos(pocos);
+        corta.agregar(createFullCuerpoDTO("1"));
+        corta.agregar(createFullCuerpoDTO("2"));
+        assertEquals(0, pocos.size(), "Sin llegar al umbral el formato todavía no está decidido");
+        corta.close();
+        assertTrue(extractPdfText(pocos.toByteArray()).contains("Cuerpo #2 - ID: 2"));
+
+        // Al llegar al umbral se abre la tabla grande y las páginas completas se vuelcan antes de cerrar
+        PdfGeneratorService.EscrituraCuerpos larga = pdfGeneratorService.abrirReportePDFCuerpos(muchos);
+        for (int i = 1; i <= 20; i++) {
+            larga.agregar(createFullCuerpoDTO(String.valueOf(i)));
+        }
+        assertTrue(muchos.size() > 0, "Pasado el umbral el documento debe escribirse a medida que llegan los cuerpos");
+        larga.close();
+
+        String pdfContent = extractPdfText(muchos.toByteArray());
+        int posicionAnterior = -1;
+        for (int i = 1; i <= 20; i++) {
+            int posicion = pdfContent.indexOf("Cuerpo #" + i + " - ID: " + i);
+            assertTrue(posicion > posicionAnterior, "El cuerpo " + i + " debe aparecer en orden");
+            posicionAnterior = posicion;
+        }
+    }
+
+    /**
+     * Test PGS-19: Al llegar al umbral de fragmentos la escritura incremental debería repartir los cuerpos en fragmentos paralelos.
+     */
+    @Test
+    void abrirReportePDFCuerpos_UmbralFragmentos_ShouldShardWhileStreaming() {
+        FragmentoPdfService fragmentos = spy(fragmentoPdfService);
+        PdfGeneratorService servicio = new PdfGeneratorService(chartRenderService, new PlantillasReporte(), fragmentos);
+        ReflectionTestUtils.setField(servicio, "umbralFragmentos", 4);
+        ReflectionTestUtils.setField(servicio, "cuerposPorFragmento", 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        PdfGeneratorService.EscrituraCuerpos escritura = servicio.abrirReportePDFCuerpos(out);
+        for (int i = 1; i <= 3; i++) {
+            escritura.agregar(createFullCuerpoDTO(String.valueOf(i)));
+        }
+        verify(fragmentos, never()).generar(any());
+        escritura.agregar(createFullCuerpoDTO("4"));
+        verify(fragmentos, times(1)).generar(any());
+        for (int i = 5; i <= 10; i++) {
+            escritura.agregar(createFullCuerpoDTO(String.valueOf(i)));
+        }
+        escritura.close();
+
+        verify(fragmentos, times(4)).generar(any());
+        String pdfContent = extractPdfText(out.toByteArray());
+        assertEquals(pdfContent.indexOf("Lista de Cuerpos Registrados"), pdfContent.lastIndexOf("Lista de Cuerpos Registrados"),
+            "El título solo debe aparecer una vez");
+        int posicionAnterior = -1;
+        for (int i = 1; i <= 10; i++) {
+            int posicion = pdfContent.indexOf("Cuerpo #" + i + " - ID: " + i);
+            assertTrue(posicion > posicionAnterior, "El cuerpo " + i + " debe aparecer en orden");
+            posicionAnterior = posicion;
+        }
+    }
+
     // Métodos auxiliares
+    private ReporteAnalisisDTO createFullAnalisisDTO() {
+        ReporteAnalisisDTO analisis = new ReporteAnalisisDTO();
+        analisis.setUsuario("user123");
+        analisis.setFechaGeneracion(LocalDate.now());
+        analisis.setTotalNichos(10);
+        analisis.setTotalCuerpos(8);
+        analisis.setCuerposAsignados(6);
+        analisis.setPorcentajeOcupacion(60.0);
+        analisis.setNichosDisponibles(4);
+        analisis.setCuerposRecientes(2);
+        analisis.setPromedioMensualGeneral(5.0);
+        analisis.setPromedioMensualPorTipo(Map.of("INHUMADO", 3.0, "EXHUMADO", 2.0));
+        analisis.setEstadoNichos(Map.of("OCUPADO", 6L, "DISPONIBLE", 4L));
+        analisis.setCuerposPorTipo(Map.of(EstadoCuerpo.INHUMADO, 5L, EstadoCuerpo.EXHUMADO, 3L));
+        analisis.setCuerposAsignadosDistribucion(Map.of("Asignados", 6L, "No Asignados", 2L));
+        analisis.setDocumentTypes(Map.of("REPORTE", 10L, "CERTIFICADO", 5L));
+        ReporteAnalisisDTO.WeeklyData weeklyData = new ReporteAnalisisDTO.WeeklyData();
+        weeklyData.setWeek("1-JAN");
+        weeklyData.setCount(2L);
+        analisis.setWeeklyInhumations(List.of(weeklyData));
+        analisis.setWeeklyDocuments(List.of(weeklyData));
+        ReporteAnalisisDTO.TopUser topUser = new ReporteAnalisisDTO.TopUser();
+        topUser.setUsuarioId("user1");
+        topUser.setCount(10L);
+        analisis.setTopUsers(List.of(topUser));
+        return analisis;
+    }
+
     private boolean isValidPdf(byte[] pdfBytes) {
         try (PdfReader reader = new PdfReader(pdfBytes)) {
             return new String(pdfBytes, 0, 5).startsWith("%PDF-");
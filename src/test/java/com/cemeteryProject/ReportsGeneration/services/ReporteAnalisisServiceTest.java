@@ -9,10 +9,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +31,12 @@ class ReporteAnalisisServiceTest {
     @Mock
     private DocumentoService documentoService;
 
+    @Mock
+    private EstadisticasIncrementalesService estadisticasIncrementales;
+
+    @Mock
+    private ResumenHistoricoService resumenHistorico;
+
     @InjectMocks
     private ReporteAnalisisService reporteAnalisisService;
 
@@ -79,6 +91,10 @@ class ReporteAnalisisServiceTest {
         assertEquals(1, result.getTopUsers().size());
         assertEquals(usuario, result.getTopUsers().get(0).getUsuarioId());
         assertEquals(1, result.getTopUsers().get(0).getCount());
+        assertEquals(1, result.getOcupacionPorUbicacion().size());
+        assertEquals(1, result.getOcupacionPorUbicacion().get(0).getCuerposAsignados());
+        assertEquals(0, result.getAsignacionesSinNicho());
+        assertEquals(0, result.getAsignacionesSinCuerpo());
     }
 
     @Test
@@ -428,4 +444,257 @@ class ReporteAnalisisServiceTest {
             reporteAnalisisService.generarAnalisis("user123");
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void generarAnalisis_CacheVigente_ShouldReuseDataAndStampUsuario() {
+        ReflectionTestUtils.setField(reporteAnalisisService, "ttlSegundos", 300L);
+        ReflectionTestUtils.setField(reporteAnalisisService, "refrescoAnticipado", 1.0);
+        stubDatosVacios();
+
+        ReporteAnalisisDTO primero = reporteAnalisisService.generarAnalisis("user1");
+        ReporteAnalisisDTO segundo = reporteAnalisisService.generarAnalisis("user2");
+
+        assertEquals("user1", primero.getUsuario());
+        assertEquals("user2", segundo.getUsuario());
+        assertEquals(LocalDate.now(), segundo.getFechaGeneracion());
+        assertEquals(primero.getFechaDatos(), segundo.getFechaDatos());
+        assertTrue(segundo.getEdadDatosSegundos() >= 0);
+        verify(externalDataService, times(1)).getAllCuerpos();
+        verify(documentoService, times(1)).obtenerTodos();
+        assertEquals(1, reporteAnalisisService.estadoCache().aciertos());
+    }
+
+    @Test
+    void generarAnalisis_InvalidacionOCambioDeDocumentos_ShouldRecalculate() {
+        ReflectionTestUtils.setField(reporteAnalisisService, "ttlSegundos", 300L);
+        ReflectionTestUtils.setField(reporteAnalisisService, "refrescoAnticipado", 1.0);
+        stubDatosVacios();
+
+        reporteAnalisisService.generarAnalisis("user1");
+        reporteAnalisisService.invalidarCache();
+        reporteAnalisisService.generarAnalisis("user1");
+        verify(externalDataService, times(2)).getAllCuerpos();
+
+        // Un documento nuevo cambia la versión de datos y vence el análisis en caché
+        when(documentoService.versionDatos()).thenReturn(1L);
+        reporteAnalisisService.generarAnalisis("user1");
+        verify(externalDataService, times(3)).getAllCuerpos();
+
+        // Lo mismo cuando la réplica del backend trae cambios
+        when(externalDataService.versionReplica()).thenReturn(1L);
+        reporteAnalisisService.generarAnalisis("user1");
+        verify(externalDataService, times(4)).getAllCuerpos();
+    }
+
+    @Test
+    void generarAnalisis_CercaDelVencimiento_ShouldRefreshInBackground() {
+        ReflectionTestUtils.setField(reporteAnalisisService, "ttlSegundos", 300L);
+        ReflectionTestUtils.setField(reporteAnalisisService, "refrescoAnticipado", 0.0);
+        stubDatosVacios();
+
+        reporteAnalisisService.generarAnalisis("user1");
+        ReporteAnalisisDTO desdeCache = reporteAnalisisService.generarAnalisis("user1");
+
+        // La lectura se sirve de la caché y el recálculo ocurre después, en segundo plano
+        assertNotNull(desdeCache);
+        verify(externalDataService, timeout(2000).times(2)).getAllCuerpos();
+    }
+
+    @Test
+    void generarAnalisis_LecturasConcurrentes_ShouldTakeSlowestNotSum() {
+        stubDatosVacios();
+        when(externalDataService.getAllCuerpos()).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return Collections.emptyList();
+        });
+        when(externalDataService.getAllNichos()).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return Collections.emptyList();
+        });
+        when(documentoService.obtenerTodos()).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return Collections.emptyList();
+        });
+
+        long inicio = System.nanoTime();
+        ReporteAnalisisDTO result = reporteAnalisisService.generarAnalisis("user123");
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        assertNotNull(result);
+        assertTrue(duracionMs < 800, "Las lecturas deben solaparse, duró " + duracionMs + " ms");
+    }
+
+    @Test
+    void generarAnalisis_LecturaFallida_ShouldPropagateAndCancelOthers() throws InterruptedException {
+        stubDatosVacios();
+        CountDownLatch interrumpida = new CountDownLatch(1);
+        when(externalDataService.getAllNichos()).thenThrow(new IllegalStateException("backend caído"));
+        when(externalDataService.getAllCuerpos()).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrumpida.countDown();
+                throw e;
+            }
+            return Collections.emptyList();
+        });
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> reporteAnalisisService.generarAnalisis("user123"));
+
+        assertEquals("backend caído", error.getMessage());
+        assertTrue(interrumpida.await(2, TimeUnit.SECONDS), "La lectura lenta debe cancelarse");
+    }
+
+    @Test
+    void generarAnalisis_PlazoAgotado_ShouldThrowResourceAccessException() {
+        ReflectionTestUtils.setField(reporteAnalisisService, "plazoDatosMs", 100L);
+        stubDatosVacios();
+        when(externalDataService.getAllNichoCuerpo()).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return Collections.emptyList();
+        });
+
+        assertThrows(ResourceAccessException.class,
+            () -> reporteAnalisisService.generarAnalisis("user123"));
+    }
+
+    @Test
+    void generarAnalisis_ConDatosObsoletos_ShouldCarryTheirAgeAndFlag() {
+        stubDatosVacios();
+        when(externalDataService.fechaDatosObsoletos()).thenReturn(Instant.now().minusSeconds(600));
+
+        ReporteAnalisisDTO result = reporteAnalisisService.generarAnalisis("user1");
+
+        assertTrue(result.isDatosObsoletos(), "El análisis debe marcarse como obsoleto");
+        assertTrue(result.getEdadDatosSegundos() >= 600, "La edad debe ser la de los datos obsoletos");
+    }
+
+    @Test
+    void generarAnalisis_ConProyeccionDeCuerpos_ShouldUseSlimFetch() {
+        ReflectionTestUtils.setField(reporteAnalisisService, "proyeccionCuerpos", true);
+        stubDatosVacios();
+        when(externalDataService.getCuerposAnalisis()).thenReturn(List.of(
+            new CuerpoAnalisisDTO(null, EstadoCuerpo.INHUMADO, LocalDateTime.now().minusDays(3), LocalDate.now().minusDays(2))));
+
+        ReporteAnalisisDTO result = reporteAnalisisService.generarAnalisis("user1");
+
+        assertEquals(1, result.getTotalCuerpos());
+        assertEquals(1L, result.getCuerposRecientes());
+        assertEquals(1L, result.getCuerposPorTipo().get(EstadoCuerpo.INHUMADO));
+        verify(externalDataService, never()).getAllCuerpos();
+    }
+
+    @Test
+    void generarAnalisis_VentanaMensual_ShouldBucketByMonthAndCacheSeparately() {
+        ReflectionTestUtils.setField(reporteAnalisisService, "ttlSegundos", 300L);
+        ReflectionTestUtils.setField(reporteAnalisisService, "refrescoAnticipado", 1.0);
+        stubDatosVacios();
+        CuerpoInhumadoDTO antiguo = new CuerpoInhumadoDTO();
+        antiguo.setEstado(EstadoCuerpo.INHUMADO);
+        antiguo.setFechaIngreso(LocalDateTime.now().minusYears(3));
+        antiguo.setFechaInhumacion(LocalDate.now().minusYears(3));
+        when(externalDataService.getAllCuerpos()).thenReturn(List.of(antiguo));
+        CubetasTiempo.Ventana cincoAnios = new CubetasTiempo.Ventana(CubetasTiempo.Granularidad.MES, 60);
+
+        ReporteAnalisisDTO mensual = reporteAnalisisService.generarAnalisis("user1", cincoAnios);
+        ReporteAnalisisDTO semanal = reporteAnalisisService.generarAnalisis("user1");
+        reporteAnalisisService.generarAnalisis("user2", cincoAnios);
+
+        assertEquals(60, mensual.getWeeklyInhumations().size());
+        assertEquals(1L, mensual.getWeeklyInhumations().stream().mapToLong(ReporteAnalisisDTO.WeeklyData::getCount).sum(),
+            "La inhumación de hace tres años debe caer en la ventana de cinco años");
+        assertEquals("Últimos 60 Meses", mensual.getPeriodoTendencias());
+        assertEquals(12, semanal.getWeeklyInhumations().size());
+        assertEquals("Últimas 12 Semanas", semanal.getPeriodoTendencias());
+        // Cada ventana se calcula una vez y luego sale de la caché
+        verify(externalDataService, times(2)).getAllCuerpos();
+    }
+
+    @Test
+    void generarAnalisis_ConContadoresPorEventos_ShouldNotReadBackend() {
+        ReflectionTestUtils.setField(reporteAnalisisService, "ttlSegundos", 300L);
+        ReflectionTestUtils.setField(reporteAnalisisService, "refrescoAnticipado", 1.0);
+        stubDatosVacios();
+        when(estadisticasIncrementales.disponible()).thenReturn(true);
+        when(estadisticasIncrementales.volcarEn(any())).thenAnswer(invocacion -> {
+            AcumuladorAnalisis acumulador = invocacion.getArgument(0);
+            acumulador.agregarNichos("DISPONIBLE", 3);
+            acumulador.agregarNichos("OCUPADO", 1);
+            return 1;
+        });
+        when(estadisticasIncrementales.ocupacion(anyInt())).thenReturn(new OcupacionUbicaciones.Resultado(List.of(), 0, 0));
+
+        ReporteAnalisisDTO primero = reporteAnalisisService.generarAnalisis("user1");
+        reporteAnalisisService.generarAnalisis("user1");
+        when(estadisticasIncrementales.version()).thenReturn(1L);
+        reporteAnalisisService.generarAnalisis("user1");
+
+        assertEquals(4, primero.getTotalNichos());
+        assertEquals(3, primero.getNichosDisponibles());
+        assertEquals(1, primero.getCuerposAsignados());
+        verify(externalDataService, never()).getAllCuerpos();
+        verify(externalDataService, never()).getAllNichos();
+        verify(externalDataService, never()).getAllNichoCuerpo();
+        // Un evento nuevo cambia la versión de los contadores y vence la instantánea
+        verify(estadisticasIncrementales, times(2)).volcarEn(any());
+    }
+
+    @Test
+    void generarAnalisis_CalculoLentoDeOtraVentana_ShouldNotBlock() throws Exception {
+        ReflectionTestUtils.setField(reporteAnalisisService, "ttlSegundos", 300L);
+        ReflectionTestUtils.setField(reporteAnalisisService, "refrescoAnticipado", 1.0);
+        stubDatosVacios();
+        CountDownLatch lecturaIniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(externalDataService.getAllCuerpos())
+            .thenAnswer(invocacion -> {
+                lecturaIniciada.countDown();
+                assertTrue(liberar.await(10, TimeUnit.SECONDS));
+                return Collections.emptyList();
+            })
+            .thenReturn(Collections.emptyList());
+        CubetasTiempo.Ventana mensual = new CubetasTiempo.Ventana(CubetasTiempo.Granularidad.MES, 6);
+
+        Thread lento = Thread.ofVirtual().start(() -> reporteAnalisisService.generarAnalisis("user1", mensual));
+        try {
+            assertTrue(lecturaIniciada.await(5, TimeUnit.SECONDS));
+            ReporteAnalisisDTO semanal = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> reporteAnalisisService.generarAnalisis("user2"),
+                "Otra ventana no debe esperar al cálculo en curso");
+            assertEquals(12, semanal.getWeeklyInhumations().size());
+        } finally {
+            liberar.countDown();
+            lento.join(5_000);
+        }
+        assertEquals(6, reporteAnalisisService.generarAnalisis("user3", mensual).getWeeklyInhumations().size());
+        verify(externalDataService, times(2)).getAllCuerpos();
+    }
+
+    @Test
+    void generarAnalisis_MasVentanasQueElMaximo_ShouldEvictLeastRecentlyUsed() {
+        ReflectionTestUtils.setField(reporteAnalisisService, "ttlSegundos", 300L);
+        ReflectionTestUtils.setField(reporteAnalisisService, "refrescoAnticipado", 1.0);
+        stubDatosVacios();
+        for (int cantidad = 1; cantidad <= 8; cantidad++) {
+            reporteAnalisisService.generarAnalisis("user1", new CubetasTiempo.Ventana(CubetasTiempo.Granularidad.DIA, cantidad));
+        }
+        // La primera ventana vuelve a usarse y la segunda pasa a ser la más antigua
+        reporteAnalisisService.generarAnalisis("user1", new CubetasTiempo.Ventana(CubetasTiempo.Granularidad.DIA, 1));
+        reporteAnalisisService.generarAnalisis("user1", new CubetasTiempo.Ventana(CubetasTiempo.Granularidad.DIA, 9));
+        verify(externalDataService, times(9)).getAllCuerpos();
+
+        reporteAnalisisService.generarAnalisis("user1", new CubetasTiempo.Ventana(CubetasTiempo.Granularidad.DIA, 1));
+        reporteAnalisisService.generarAnalisis("user1", new CubetasTiempo.Ventana(CubetasTiempo.Granularidad.DIA, 8));
+        verify(externalDataService, times(9)).getAllCuerpos();
+        reporteAnalisisService.generarAnalisis("user1", new CubetasTiempo.Ventana(CubetasTiempo.Granularidad.DIA, 2));
+        verify(externalDataService, times(10)).getAllCuerpos();
+    }
+
+    private void stubDatosVacios() {
+        when(externalDataService.getAllCuerpos()).thenReturn(Collections.emptyList());
+        when(externalDataService.getAllNichos()).thenReturn(Collections.emptyList());
+        when(externalDataService.getAllNichoCuerpo()).thenReturn(Collections.emptyList());
+        when(documentoService.obtenerTodos()).thenReturn(Collections.emptyList());
+    }
+}
@@ -0,0 +1,142 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO.EstadoJob;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteJobDTO.TipoReporte;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReporteJobServiceTest {
+
+    @Mock
+    private ReporteAnalisisService reporteAnalisisService;
+
+    @Mock
+    private ExternalDataService externalDataService;
+
+    @Mock
+    private PdfGeneratorService pdfGeneratorService;
+
+    @Mock
+    private DocumentoService documentoService;
+
+    private ReporteJobService reporteJobService;
+
+    @TempDir
+    Path directorioAlmacen;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        reporteJobService = new ReporteJobService(1, 1, 60, reporteAnalisisService, externalDataService, pdfGeneratorService, documentoService,
+            new AlmacenPdfService(directorioAlmacen.toString()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reporteJobService.cerrar();
+    }
+
+    /**
+     * Test RJS-01: Un trabajo de análisis debería completarse, dejar el PDF en su archivo y registrar el documento.
+     */
+    @Test
+    void encolar_ReporteAnalisis_ShouldCompleteWithFile() throws Exception {
+        ReporteAnalisisDTO analisis = new ReporteAnalisisDTO();
+        byte[] pdf = "%PDF-1.4 contenido".getBytes();
+        when(reporteAnalisisService.generarAnalisis("user123")).thenReturn(analisis);
+        when(pdfGeneratorService.generarReportePDFConAnalisis(analisis)).thenReturn(pdf);
+
+        ReporteJobDTO encolado = reporteJobService.encolar(TipoReporte.ANALISIS, "user123");
+        ReporteJobDTO terminado = esperarFin(encolado.getId());
+
+        assertEquals(EstadoJob.COMPLETADO, terminado.getEstado());
+        assertEquals(100, terminado.getProgreso());
+        assertNotNull(terminado.getFechaFinalizacion());
+        Path archivo = reporteJobService.obtenerArchivo(encolado.getId());
+        assertArrayEquals(pdf, Files.readAllBytes(archivo), "El archivo debe contener el PDF generado");
+        assertTrue(archivo.startsWith(directorioAlmacen), "El PDF debe quedar en el almacén de contenido");
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(pdf));
+        verify(documentoService).registrarReporte("Reporte del Cementerio", "user123", new AlmacenPdfService.Contenido(hash, pdf.length));
+    }
+
+    /**
+     * Test RJS-02: Sin cuerpos el trabajo debería fallar con el motivo y sin archivo descargable.
+     */
+    @Test
+    void encolar_ListaCuerposVacia_ShouldFail() throws Exception {
+        when(pdfGeneratorService.abrirReportePDFCuerpos(any())).thenReturn(mock(PdfGeneratorService.EscrituraCuerpos.class));
+        when(externalDataService.recorrerCuerpos(any())).thenReturn(0L);
+
+        ReporteJobDTO encolado = reporteJobService.encolar(TipoReporte.CUERPOS, "user123");
+        ReporteJobDTO terminado = esperarFin(encolado.getId());
+
+        assertEquals(EstadoJob.FALLIDO, terminado.getEstado());
+        assertEquals("No hay cuerpos registrados para generar el reporte.", terminado.getError());
+        assertNull(reporteJobService.obtenerArchivo(encolado.getId()));
+        verify(documentoService, never()).registrarReporte(any(), any(), any());
+    }
+
+    /**
+     * Test RJS-03: Con el pool ocupado y la cola llena, un nuevo trabajo debería rechazarse.
+     */
+    @Test
+    void encolar_ColaLlena_ShouldReject() throws Exception {
+        CountDownLatch enProceso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(reporteAnalisisService.generarAnalisis(any())).thenAnswer(invocation -> {
+            enProceso.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return new ReporteAnalisisDTO();
+        });
+
+        ReporteJobDTO primero = reporteJobService.encolar(TipoReporte.ANALISIS, "user123");
+        assertTrue(enProceso.await(5, TimeUnit.SECONDS), "El primer trabajo debe estar en proceso");
+        ReporteJobDTO segundo = reporteJobService.encolar(TipoReporte.ANALISIS, "user123");
+        assertEquals(EstadoJob.EN_COLA, segundo.getEstado());
+
+        assertThrows(RejectedExecutionException.class, () -> reporteJobService.encolar(TipoReporte.ANALISIS, "user123"));
+
+        liberar.countDown();
+        esperarFin(primero.getId());
+        esperarFin(segundo.getId());
+    }
+
+    /**
+     * Test RJS-04: Un trabajo inexistente debería retornar null.
+     */
+    @Test
+    void obtener_IdInexistente_ShouldReturnNull() {
+        assertNull(reporteJobService.obtener("no-existe"));
+        assertNull(reporteJobService.obtenerArchivo("no-existe"));
+    }
+
+    private ReporteJobDTO esperarFin(String id) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        ReporteJobDTO job = reporteJobService.obtener(id);
+        while (job.getFechaFinalizacion() == null && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+            job = reporteJobService.obtener(id);
+        }
+        assertNotNull(job.getFechaFinalizacion(), "El trabajo debe terminar a tiempo");
+        return job;
+    }
+}
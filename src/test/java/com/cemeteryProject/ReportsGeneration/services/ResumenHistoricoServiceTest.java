@@ -0,0 +1,189 @@
+package com.cemeteryProject.ReportsGeneration.services;
+
+import com.cemeteryProject.ReportsGeneration.dtos.CuerpoInhumadoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.DocumentoDTO;
+import com.cemeteryProject.ReportsGeneration.dtos.ReporteAnalisisDTO;
+import com.cemeteryProject.ReportsGeneration.models.CuerpoInhumadoModel.EstadoCuerpo;
+import com.cemeteryProject.ReportsGeneration.models.DocumentoModel.TipoDocumento;
+import com.cemeteryProject.ReportsGeneration.models.ResumenDiarioModel;
+import com.cemeteryProject.ReportsGeneration.models.ResumenDiarioModel.Metrica;
+import com.cemeteryProject.ReportsGeneration.models.ResumenDiarioModel.Periodo;
+import com.cemeteryProject.ReportsGeneration.repositories.IResumenDiarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ResumenHistoricoServiceTest {
+
+    @Mock
+    private ExternalDataService externalDataService;
+
+    @Mock
+    private DocumentoService documentoService;
+
+    @Mock
+    private IResumenDiarioRepository resumenRepository;
+
+    @InjectMocks
+    private ResumenHistoricoService servicio;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+    private final List<ResumenDiarioModel> guardadas = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(servicio, "habilitado", true);
+        ReflectionTestUtils.setField(servicio, "diasDetalle", 180);
+        ReflectionTestUtils.setField(servicio, "semanasDetalle", 104);
+        // El repositorio simulado guarda las filas y responde la consulta de tendencias sobre ellas
+        doAnswer(invocacion -> {
+            guardadas.clear();
+            guardadas.addAll(invocacion.getArgument(0));
+            return null;
+        }).when(resumenRepository).reemplazar(any());
+        when(resumenRepository.buscarTerminadasEntre(any(), any(), any())).thenAnswer(invocacion -> {
+            Collection<Metrica> metricas = invocacion.getArgument(0);
+            LocalDate desde = invocacion.getArgument(1);
+            LocalDate hasta = invocacion.getArgument(2);
+            return guardadas.stream()
+                .filter(fila -> metricas.contains(fila.getMetrica()))
+                .filter(fila -> fila.getFechaFin().isAfter(desde) && fila.getFechaFin().isBefore(hasta))
+                .toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Test RHI-01: Las tendencias armadas con el resumen más los datos de hoy deberían coincidir con las del recorrido completo.
+     */
+    @Test
+    void volcarTendencias_VentanaPorDefecto_ShouldMatchFullScan() {
+        Random random = new Random(21);
+        List<CuerpoInhumadoDTO> cuerpos = cuerpos(random, 500, 120);
+        List<DocumentoDTO> documentos = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            DocumentoDTO documento = new DocumentoDTO();
+            documento.setTipo(random.nextBoolean() ? TipoDocumento.REPORTE : TipoDocumento.DIGITALIZACION);
+            documento.setUsuarioId("user" + random.nextInt(5));
+            // A medianoche: la hora no cambia el intervalo salvo en el día de un límite
+            documento.setFechaGeneracion(LocalDate.now().minusDays(random.nextInt(100)).atStartOfDay());
+            documentos.add(documento);
+        }
+        stubDatos(cuerpos, documentos);
+        servicio.actualizar();
+
+        LocalDateTime ahora = LocalDateTime.now();
+        ColumnasCuerpos columnas = ColumnasCuerpos.deCuerpos(cuerpos);
+        ReporteAnalisisDTO esperado = AcumuladorAnalisis.acumular(ahora, CubetasTiempo.Ventana.POR_DEFECTO, columnas,
+            List.of(), documentos, 0, pool).resultado(0);
+        int desde = servicio.cubiertoHasta();
+        AcumuladorAnalisis acumulador = AcumuladorAnalisis.acumular(ahora, CubetasTiempo.Ventana.POR_DEFECTO, desde, columnas,
+            List.of(), documentos, 0, pool);
+        servicio.volcarTendencias(acumulador, desde);
+        ReporteAnalisisDTO obtenido = acumulador.resultado(0);
+
+        assertTrue(servicio.disponible());
+        assertEquals(ColumnasCuerpos.dia(LocalDate.now()), desde, "El resumen debería cubrir hasta ayer");
+        assertEquals(esperado.getWeeklyInhumations(), obtenido.getWeeklyInhumations(), "La tendencia de inhumaciones debería coincidir");
+        assertEquals(esperado.getWeeklyDocuments(), obtenido.getWeeklyDocuments(), "La tendencia de documentos debería coincidir");
+        assertEquals(esperado.getCuerposRecientes(), obtenido.getCuerposRecientes(), "Los recientes no dependen del resumen");
+    }
+
+    /**
+     * Test RHI-02: Los días antiguos deberían compactarse en semanas y meses sin perder conteos ni incluir el día de hoy.
+     */
+    @Test
+    void actualizar_HistorialDeCincoAnios_ShouldCompactOldDays() {
+        List<CuerpoInhumadoDTO> cuerpos = cuerpos(new Random(22), 20000, 5 * 365);
+        stubDatos(cuerpos, List.of());
+
+        servicio.actualizar();
+
+        LocalDate hoy = LocalDate.now();
+        LocalDate corteDiario = hoy.minusDays(180).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        long inhumacionesAntesDeHoy = cuerpos.stream()
+            .filter(cuerpo -> cuerpo.getFechaInhumacion() != null && cuerpo.getFechaInhumacion().isBefore(hoy)).count();
+        long resumidas = guardadas.stream().filter(fila -> fila.getMetrica() == Metrica.INHUMACION)
+            .mapToLong(ResumenDiarioModel::getCantidad).sum();
+        assertEquals(inhumacionesAntesDeHoy, resumidas, "La compactación no debería perder inhumaciones");
+        long ingresos = guardadas.stream().filter(fila -> fila.getMetrica() == Metrica.INGRESO)
+            .mapToLong(ResumenDiarioModel::getCantidad).sum();
+        assertEquals(cuerpos.stream().filter(cuerpo -> cuerpo.getFechaIngreso().toLocalDate().isBefore(hoy)).count(), ingresos);
+
+        for (ResumenDiarioModel fila : guardadas) {
+            assertTrue(fila.getFechaFin().isBefore(hoy), "Ninguna fila debería incluir el día de hoy");
+            switch (fila.getPeriodo()) {
+                case DIA -> assertFalse(fila.getFechaInicio().isBefore(corteDiario), "Las filas diarias deberían ser recientes");
+                case SEMANA -> {
+                    assertEquals(DayOfWeek.SUNDAY, fila.getFechaFin().getDayOfWeek());
+                    assertTrue(fila.getFechaFin().isBefore(corteDiario));
+                }
+                case MES -> assertEquals(1, fila.getFechaInicio().getDayOfMonth());
+            }
+        }
+        assertTrue(guardadas.stream().anyMatch(fila -> fila.getPeriodo() == Periodo.MES), "Debería haber filas mensuales");
+        // Un estado de cuerpo por fila: unos cientos de rangos en lugar de 20000 cuerpos
+        long rangos = guardadas.stream().filter(fila -> fila.getMetrica() == Metrica.INHUMACION)
+            .map(ResumenDiarioModel::getFechaInicio).distinct().count();
+        assertTrue(rangos < 500, "Debería haber pocos rangos, hubo " + rangos);
+        assertEquals(1, servicio.estado().actualizaciones());
+    }
+
+    /**
+     * Test RHI-03: Sin resumen armado no debería considerarse disponible.
+     */
+    @Test
+    void disponible_SinResumen_ShouldBeFalse() {
+        assertFalse(servicio.disponible());
+        assertEquals(AcumuladorAnalisis.SIN_RESUMEN, servicio.cubiertoHasta());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubDatos(List<CuerpoInhumadoDTO> cuerpos, List<DocumentoDTO> documentos) {
+        when(externalDataService.recorrerCuerpos(any())).thenAnswer(invocacion -> {
+            Consumer<CuerpoInhumadoDTO> consumidor = invocacion.getArgument(0);
+            cuerpos.forEach(consumidor);
+            return (long) cuerpos.size();
+        });
+        when(documentoService.obtenerTodos()).thenReturn(documentos);
+    }
+
+    private static List<CuerpoInhumadoDTO> cuerpos(Random random, int cantidad, int diasAtras) {
+        List<CuerpoInhumadoDTO> cuerpos = new ArrayList<>();
+        LocalDate hoy = LocalDate.now();
+        for (int i = 0; i < cantidad; i++) {
+            CuerpoInhumadoDTO cuerpo = new CuerpoInhumadoDTO();
+            cuerpo.setEstado(EstadoCuerpo.values()[random.nextInt(EstadoCuerpo.values().length)]);
+            cuerpo.setFechaIngreso(hoy.minusDays(random.nextInt(diasAtras)).atTime(9, 0));
+            cuerpo.setFechaInhumacion(random.nextInt(5) == 0 ? null : hoy.minusDays(random.nextInt(diasAtras)));
+            cuerpo.setFechaExhumacion(random.nextInt(10) == 0 ? hoy.minusDays(random.nextInt(diasAtras)) : null);
+            cuerpos.add(cuerpo);
+        }
+        return cuerpos;
+    }
+}
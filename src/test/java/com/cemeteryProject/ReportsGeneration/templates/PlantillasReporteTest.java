@@ -0,0 +1,90 @@
+package com.cemeteryProject.ReportsGeneration.templates;
+
+import com.cemeteryProject.ReportsGeneration.templates.LayoutReporte.AtributoLayout;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlantillasReporteTest {
+
+    /**
+     * Test PLR-01: Las plantillas incluidas deberían compilar al arrancar con sus gráficos y tabla.
+     */
+    @Test
+    void constructor_PlantillasIncluidas_ShouldCompile() {
+        PlantillasReporte plantillas = new PlantillasReporte();
+
+        LayoutReporte analisis = plantillas.obtener(PlantillasReporte.REPORTE_ANALISIS);
+        assertEquals(6, analisis.graficos().size(), "El reporte de análisis debería tener seis gráficos");
+        assertEquals(new Color(0x2E, 0xCC, 0x71), analisis.graficos().get(0).estilo().coloresSeccion().get("DISPONIBLE"));
+
+        LayoutReporte cuerpos = plantillas.obtener(PlantillasReporte.LISTA_CUERPOS);
+        assertNotNull(cuerpos.tabla());
+        assertEquals(14, cuerpos.tabla().atributos().size());
+        assertThrows(IllegalArgumentException.class, () -> plantillas.obtener("inexistente"));
+    }
+
+    /**
+     * Test PLR-02: Los marcadores deberían resolverse con formato, defecto y sufijo opcional.
+     */
+    @Test
+    void render_Marcadores_ShouldApplyFormatsAndDefaults() {
+        Map<String, Object> valores = new HashMap<>();
+        valores.put("fecha", LocalDate.of(2025, 3, 7));
+        valores.put("nombre", "Juan");
+        valores.put("porcentaje", 12.345);
+
+        assertEquals("Fecha: 2025-03-07", TextoPlantilla.compilar("Fecha: {fecha:fecha}").render(valores::get));
+        assertEquals("ID: N/A", TextoPlantilla.compilar("ID: {id|N/A}").render(valores::get));
+        assertEquals("Juan ", TextoPlantilla.compilar("{nombre} {apellido}").render(valores::get));
+        assertEquals("Juan", TextoPlantilla.compilar("{nombre}{cargo:parentesis}").render(valores::get));
+        assertEquals(String.format("%.2f", 12.345) + "%", TextoPlantilla.compilar("{porcentaje:decimal}%").render(valores::get));
+
+        valores.put("cargo", "Médico");
+        assertEquals("Juan (Médico)", TextoPlantilla.compilar("{nombre}{cargo:parentesis}").render(valores::get));
+    }
+
+    /**
+     * Test PLR-03: Un formato tipado sin valor debería fallar en lugar de imprimir un texto vacío.
+     */
+    @Test
+    void render_FormatoSinValor_ShouldThrowException() {
+        TextoPlantilla texto = TextoPlantilla.compilar("Fecha: {fecha:fecha}");
+
+        assertThrows(IllegalArgumentException.class, () -> texto.render(campo -> null));
+    }
+
+    /**
+     * Test PLR-04: Los errores de la plantilla deberían detectarse al compilarla.
+     */
+    @Test
+    void compilar_PlantillaInvalida_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> TextoPlantilla.compilar("{fecha:desconocido}"));
+        assertThrows(IllegalArgumentException.class, () -> TextoPlantilla.compilar("Sin cerrar {fecha"));
+
+        DefinicionPlantilla sinEstilo = new DefinicionPlantilla("prueba", Map.of(),
+            List.of(new DefinicionPlantilla.DefinicionSeccion("texto", "inexistente", "Hola", null, null, null, null, null, null)), null, null);
+        assertThrows(IllegalArgumentException.class, () -> PlantillasReporte.compilar(sinEstilo));
+
+        DefinicionPlantilla sinGrafico = new DefinicionPlantilla("prueba", Map.of(),
+            List.of(new DefinicionPlantilla.DefinicionSeccion("grafico", null, null, null, null, "inexistente", null, null, null)), null, null);
+        assertThrows(IllegalArgumentException.class, () -> PlantillasReporte.compilar(sinGrafico));
+    }
+
+    /**
+     * Test PLR-05: Un atributo cuyo campo requerido falta debería mostrar el texto de vacío.
+     */
+    @Test
+    void atributo_CampoRequeridoAusente_ShouldRenderVacio() {
+        AtributoLayout atributo = new AtributoLayout("Nombre", TextoPlantilla.compilar("{nombre} {apellido}"), "nombre", "N/A");
+
+        assertEquals("N/A", atributo.render(campo -> null));
+        assertEquals("Ana Pérez", atributo.render(Map.<String, Object>of("nombre", "Ana", "apellido", "Pérez")::get));
+    }
+}